@@ -27,6 +27,8 @@
 
 package org.jiumao.nist.Base;
 
+import java.io.Serializable;
+
 import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
 
 
@@ -34,11 +36,23 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  * 随机数序列检测：
  * <p>
  * 假设随机序列0/1出现的频率近似为一半
+ * <p>
+ * isRandom stores the results of the last stream in the test object, so an object
+ * must not be used by several threads at once through it. evaluate runs a copy of
+ * the test with its own MathematicalFunctions and returns an immutable TestResult,
+ * one configured object can then be shared by every thread as long as its
+ * parameters are not changed.
+ * <p>
+ * Test objects are Serializable with their parameters and results, so finished
+ * tests can be saved by battery checkpoints.
  * 
  * @author ppf@jiumao.org
  * @date 2018年3月22日
  */
-public abstract class BaseRandom {
+public abstract class BaseRandom implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     /** SIGNIFICANCE LEVEL */
     public static final double ALPHA = 0.01;
     /** APERIODIC TEMPLATES: 148=>temp_length=9 */
@@ -153,22 +167,6 @@ public abstract class BaseRandom {
     }
 
 
-    /**
-     * Destructor
-     */
-    public void finalize() {
-
-        this.alpha = 0.0;
-        this.pValue = 0.0;
-        if ((this.autoMathFunc) && (this.mathFuncs != null)) {
-            this.mathFuncs = null;
-        }
-        this.mathFuncs = null;
-        this.random = false;
-        this.error = RandomTestErrors.NoError;
-    }
-
-
     /**
      * Sets the BaseRandomTest alpha margin
      */
@@ -221,6 +219,60 @@ public abstract class BaseRandom {
     abstract public boolean isRandom(BaseCryptoRandomStream stream);
 
 
+    /**
+     * Evaluates the stream with a copy of this object and returns the results,
+     * this object is not modified and can be evaluating other streams at the
+     * same time
+     * 
+     * @param stream stream to be verified for randomness properties, it must not
+     *            be modified during the evaluation
+     * @return TestResult: immutable results of the evaluation
+     */
+    public TestResult evaluate(BaseCryptoRandomStream stream) {
+        BaseRandom test;
+        boolean random;
+
+        test = this.Copy();
+        test.Initialize();
+        random = test.isRandom(stream.View(0, stream.GetLongBitLength()));
+        return new TestResult(test, random);
+    }
+
+
+    /**
+     * Copies the object, the copy has the parameters and results of this object
+     * and its own MathematicalFunctions object. Subclasses holding arrays copy
+     * them
+     * 
+     * @return BaseRandom: copy of the object
+     */
+    public BaseRandom Copy() {
+        BaseRandom copy;
+
+        try {
+            copy = (BaseRandom) super.clone();
+        }
+        catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        copy.mathFuncs = new MathematicalFunctions();
+        copy.autoMathFunc = true;
+        return copy;
+    }
+
+
+    /**
+     * Gets every pValue of the last executed BaseCryptoRandomStream, tests with
+     * several pValues return all of them, GetPValue first
+     * 
+     * @return double[]: new array with the pValues
+     */
+    public double[] GetPValues() {
+
+        return new double[] { this.GetPValue() };
+    }
+
+
     /**
      * Initialize the object
      */
@@ -0,0 +1,106 @@
+package org.jiumao.nist.Base;
+
+import org.apache.commons.math.random.RandomGenerator;
+import org.jiumao.nist.CryptoRandomStream.LongArrayCryptoRandomStream;
+
+/**
+ * Serves the bits of a {@link RandomGenerator} one or many at a time, drawing
+ * 64 bits per {@link RandomGenerator#nextLong()} call instead of a whole draw
+ * per {@link RandomGenerator#nextBoolean()} call.
+ * <p>
+ * Bits of every drawn long are served from bit 0 upwards, which is the bit
+ * order of {@link #toStream(RandomGenerator, long)} and of
+ * {@link StreamRandomGenerator}, so a sequence tested through a generator or
+ * through a stream is the same sequence.
+ * <p>
+ * A {@link StreamRandomGenerator} is read through its own
+ * {@link StreamRandomGenerator#nextBits(int)}, so no bit is buffered and the
+ * next reader of the generator starts right after the last bit served. Other
+ * generators cannot give back the unused bits of a drawn long: the next
+ * {@code BufferedBits} on the same generator starts on a new draw.
+ */
+public final class BufferedBits {
+
+	private final RandomGenerator generator;
+	private final StreamRandomGenerator stream;
+	private long word;
+	private int available;
+
+	public BufferedBits(final RandomGenerator generator) {
+		this.generator = generator;
+		this.stream = generator instanceof StreamRandomGenerator ? (StreamRandomGenerator) generator : null;
+		this.word = 0;
+		this.available = 0;
+	}
+
+	public boolean nextBoolean() {
+		if (stream != null) {
+			return stream.nextBits(1) != 0;
+		}
+		if (available == 0) {
+			word = generator.nextLong();
+			available = TypeSizes.LONG_BITS;
+		}
+		final boolean bit = (word & 1) != 0;
+		word >>>= 1;
+		available--;
+		return bit;
+	}
+
+	/**
+	 * Gets the next k bits, the first one at bit 0 of the result.
+	 *
+	 * @param k
+	 *            number of bits, from 1 to 64
+	 */
+	public long nextBits(final int k) {
+		if (stream != null) {
+			return stream.nextBits(k);
+		}
+		long value;
+		if (k <= available) {
+			value = k == TypeSizes.LONG_BITS ? word : word & (1L << k) - 1;
+			word = k == TypeSizes.LONG_BITS ? 0 : word >>> k;
+			available -= k;
+			return value;
+		}
+		final int taken = available;
+		final int missing = k - taken;
+		value = word;
+		word = generator.nextLong();
+		value |= (missing == TypeSizes.LONG_BITS ? word : word & (1L << missing) - 1) << taken;
+		word = missing == TypeSizes.LONG_BITS ? 0 : word >>> missing;
+		available = TypeSizes.LONG_BITS - missing;
+		return value;
+	}
+
+	/**
+	 * Counts the ones of the next n bits.
+	 */
+	public int ones(final int n) {
+		int ones = 0;
+		int i = 0;
+		for (; i + TypeSizes.LONG_BITS <= n; i += TypeSizes.LONG_BITS) {
+			ones += Long.bitCount(nextBits(TypeSizes.LONG_BITS));
+		}
+		if (i < n) {
+			ones += Long.bitCount(nextBits(n - i));
+		}
+		return ones;
+	}
+
+	/**
+	 * Draws bitLength bits of a generator into a new stream, 64 bits per
+	 * {@link RandomGenerator#nextLong()} call.
+	 */
+	public static LongArrayCryptoRandomStream toStream(final RandomGenerator generator, final long bitLength) {
+		final LongArrayCryptoRandomStream stream = new LongArrayCryptoRandomStream(bitLength);
+		for (int i = 0; i < stream.words.length; i++) {
+			stream.words[i] = generator.nextLong();
+		}
+		if (bitLength % TypeSizes.LONG_BITS != 0) {
+			stream.words[stream.words.length - 1] &= (1L << bitLength % TypeSizes.LONG_BITS) - 1;
+		}
+		return stream;
+	}
+}
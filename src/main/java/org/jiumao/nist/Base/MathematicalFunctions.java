@@ -27,6 +27,8 @@
 
 package org.jiumao.nist.Base;
 
+import java.io.Serializable;
+
 /**
  * mathematica funcions used by random number tests implemented
  * 
@@ -34,7 +36,9 @@ package org.jiumao.nist.Base;
  * @version 5.0.0.1
  * @since 2011-09-29
  */
-public class MathematicalFunctions {
+public class MathematicalFunctions implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * 2**-53
@@ -11,13 +11,7 @@ public abstract class NIST {
 	}
 
 	protected final int ones(final RandomGenerator e, final int n) {
-		int ones = 0;
-		for (int i = 0; i < n; i++) {
-			if (e.nextBoolean()) {
-				ones++;
-			}
-		}
-		return ones;
+		return new BufferedBits(e).ones(n);
 	}
 
 	protected static interface FoldFunction<T> {
@@ -26,9 +20,10 @@ public abstract class NIST {
 
 	protected final <T> T fold(final FoldFunction<T> f, final T accumulator,
 			final RandomGenerator r, final int length) {
+		final BufferedBits bits = new BufferedBits(r);
 		T t = accumulator;
 		for (int i = 0; i < length; i++) {
-			final boolean b = r.nextBoolean();
+			final boolean b = bits.nextBoolean();
 			t = f.fun(b, t);
 		}
 		return t;
@@ -46,8 +46,11 @@ public enum RandomTests {
     ApproximateEntropy,
     Serial,
     DiscreteFourierTransform,
+    RandomExcursions,
+    LinearComplexity,
+    NonOverlappingTemplateMatchings,
+    OverlappingTemplateMatchings,
     NumberOfTests, // Indication of the number of tests, any added test must be
                    // inserted before
     NotDefined,
-    RandomExcursions,
 }
@@ -0,0 +1,106 @@
+package org.jiumao.nist.Base;
+
+import org.apache.commons.math.random.BitsStreamGenerator;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+
+/**
+ * {@link org.apache.commons.math.random.RandomGenerator} serving the bits of a
+ * crypto random stream in stream order, so the tests based on {@link NIST} can
+ * be run on the same data as the tests based on {@link BaseRandom}.
+ * <p>
+ * The first bit served is bit 0 of every returned value, so {@link #nextBoolean()}
+ * returns one stream bit and {@link #nextLong()} the next 64 stream bits.
+ * {@link BufferedBits} reads through {@link #nextBits(int)}, which consumes
+ * exactly the bits asked for, so consecutive tests on the same generator read
+ * consecutive bits. Reading past the end of the stream throws an
+ * {@link IndexOutOfBoundsException}, except for the last {@link #nextLong()},
+ * which is zero padded.
+ */
+public class StreamRandomGenerator extends BitsStreamGenerator {
+
+	private final BaseCryptoRandomStream stream;
+	private long position;
+
+	public StreamRandomGenerator(final BaseCryptoRandomStream stream) {
+		this.stream = stream;
+		this.position = 0;
+	}
+
+	public BaseCryptoRandomStream getStream() {
+		return stream;
+	}
+
+	/**
+	 * Gets the position of the next bit served.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Streams are not seeded, the seed is taken as the bit position to restart from.
+	 */
+	@Override
+	public void setSeed(final int seed) {
+		setSeed((long) seed);
+	}
+
+	/**
+	 * Streams are not seeded, the stream is restarted from its first bit.
+	 */
+	@Override
+	public void setSeed(final int[] seed) {
+		position = 0;
+	}
+
+	/**
+	 * Streams are not seeded, the seed is taken as the bit position to restart from.
+	 */
+	@Override
+	public void setSeed(final long seed) {
+		if (seed < 0 || seed > stream.GetLongBitLength()) {
+			throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+		}
+		position = seed;
+	}
+
+	@Override
+	protected int next(final int bits) {
+		if (position + bits > stream.GetLongBitLength()) {
+			throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+		}
+		final int value = (int) stream.ExtractBits(position, bits);
+		position += bits;
+		return value;
+	}
+
+	/**
+	 * Gets the next k stream bits, the first one at bit 0 of the result.
+	 *
+	 * @param k
+	 *            number of bits, from 1 to 64
+	 */
+	public long nextBits(final int k) {
+		if (k < 1 || k > TypeSizes.LONG_BITS) {
+			throw new IllegalArgumentException("Number of bits must be between 1 and 64 !");
+		}
+		if (position + k > stream.GetLongBitLength()) {
+			throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+		}
+		final long value = stream.ExtractBits(position, k);
+		position += k;
+		return value;
+	}
+
+	@Override
+	public long nextLong() {
+		final long remaining = stream.GetLongBitLength() - position;
+		if (remaining <= 0) {
+			throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+		}
+		final int bits = (int) Math.min(TypeSizes.LONG_BITS, remaining);
+		final long value = stream.ExtractBits(position, bits);
+		position += bits;
+		return value;
+	}
+}
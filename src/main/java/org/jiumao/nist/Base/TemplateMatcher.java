@@ -30,10 +30,11 @@ public abstract class TemplateMatcher extends NIST {
 		final int numberOfBlocks = MN[1];
 		final Matcher t = new Matchers(templates.length, blockSize,
 				numberOfBlocks);
+		final BufferedBits bits = new BufferedBits(e);
 		for (int i = 0; i < numberOfBlocks; i++) {
 			int window = 0;
 			for (int j = 0; j < blockSize; j++) {
-				final int nextBit = e.nextBoolean() ? 1 : 0;
+				final int nextBit = bits.nextBoolean() ? 1 : 0;
 				final int newWindow = window << 1 & (1 << templateLength) - 1;
 				window = newWindow | nextBit;
 				t.nextWindow(window);
@@ -0,0 +1,116 @@
+package org.jiumao.nist.Base;
+
+import java.io.Serializable;
+
+/**
+ * Immutable result of one test evaluation, as returned by BaseRandom.evaluate.
+ * <p>
+ * Holds the p-values, the random state and the error of the evaluation, and a
+ * private copy of the test object that ran it for the detail statistics of every
+ * test. The copy is never handed out, GetDetails returns a new copy on every call,
+ * so results can be shared between threads. Results are Serializable.
+ *
+ * @author ppf@jiumao.org
+ */
+public final class TestResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Test that produced the result
+     */
+    private final RandomTests test;
+    /**
+     * pValues of the test, the first one is the pValue of GetPValue
+     */
+    private final double[] pValues;
+    /**
+     * Random state of the evaluated stream
+     */
+    private final boolean random;
+    /**
+     * Error produced by the evaluation
+     */
+    private final RandomTestErrors error;
+    /**
+     * Test object holding the detail statistics, not modified after construction
+     */
+    private final BaseRandom details;
+
+
+    /**
+     * Constructor, result of the test object that has just evaluated a stream
+     *
+     * @param details test object of the evaluation, it must not be used afterwards
+     * @param random random state returned by the evaluation
+     */
+    TestResult(BaseRandom details, boolean random) {
+
+        this.test = details.GetType();
+        this.pValues = details.GetPValues();
+        this.random = random;
+        this.error = details.GetError();
+        this.details = details;
+    }
+
+
+    /**
+     * Gets the test that produced the result
+     */
+    public RandomTests GetType() {
+
+        return this.test;
+    }
+
+
+    /**
+     * Gets the pValue
+     */
+    public double GetPValue() {
+
+        return this.pValues[0];
+    }
+
+
+    /**
+     * Gets every pValue of the test, most tests have only one
+     *
+     * @return double[]: new array with the pValues
+     */
+    public double[] GetPValues() {
+
+        return this.pValues.clone();
+    }
+
+
+    /**
+     * Gets the random state of the evaluated stream
+     */
+    public boolean IsRandom() {
+
+        return this.random;
+    }
+
+
+    /**
+     * Gets the error produced by the evaluation
+     */
+    public RandomTestErrors GetError() {
+
+        return this.error;
+    }
+
+
+    /**
+     * Gets the detail statistics of the evaluation through the getters of the test
+     * class, as in result.GetDetails(Frequency.class).GetSum()
+     *
+     * @param testClass class of the test that produced the result
+     * @return T: new copy of the test object of the evaluation
+     * @throws ClassCastException if the result has not been produced by testClass
+     */
+    public <T extends BaseRandom> T GetDetails(Class<T> testClass) throws ClassCastException {
+
+        return testClass.cast(this.details.Copy());
+    }
+}
@@ -0,0 +1,1059 @@
+package org.jiumao.nist.Battery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.MappedFileCryptoRandomStream;
+import org.jiumao.nist.random.ApproximateEntropy;
+import org.jiumao.nist.random.BlockFrequency;
+import org.jiumao.nist.random.CountingScan;
+import org.jiumao.nist.random.CumulativeSumForward;
+import org.jiumao.nist.random.CumulativeSumReverse;
+import org.jiumao.nist.random.DiscreteFourierTransform;
+import org.jiumao.nist.random.Frequency;
+import org.jiumao.nist.random.LinearComplexity;
+import org.jiumao.nist.random.LongestRunOfOnes;
+import org.jiumao.nist.random.NonOverlappingTemplateMatchings;
+import org.jiumao.nist.random.OverlappingTemplateMatchings;
+import org.jiumao.nist.random.RandomExcursions;
+import org.jiumao.nist.random.Rank;
+import org.jiumao.nist.random.Runs;
+import org.jiumao.nist.random.Serial;
+import org.jiumao.nist.random.ShardState;
+import org.jiumao.nist.random.Universal;
+
+
+/**
+ * Runs a set of random number tests concurrently over one stream.
+ * <p>
+ * Every test runs on a ForkJoinPool task with a new test object and its own read
+ * only view of the stream, so tests share nothing but the stream data: bit cursors
+ * moved by GetBitForward or SetBitPosition belong to the view, and a test can not
+ * modify the data seen by the others. A battery only holds how tests are created,
+ * the same battery can run several streams at once.
+ * <p>
+ * With fused scan set, the counting tests (Frequency, BlockFrequency, Runs,
+ * CumulativeSums and LongestRunOfOnes) run on a single task that reads the stream
+ * once through a CountingScan, instead of reading it once per test.
+ * <p>
+ * RunSequences tests m consecutive sequences of n bits of a stream, as the NIST
+ * reference suite does, spreading every (sequence, test) evaluation over the pool.
+ * <p>
+ * RunScheduled runs the tests one after the other, cheapest first as estimated by
+ * the CostModel, skipping the tests that do not fit a time budget and, with fail
+ * fast, every test after the first failure.
+ * <p>
+ * With a ResultCache set, every run looks its tests up by stream content and test
+ * parameters first, and tests only what the cache does not hold. Counting tests
+ * are then not fused, each one is cached on its own.
+ * <p>
+ * Run and RunSequences with a Checkpoint save their progress to a local file
+ * while they run and resume from it when started again. Tests computed from a
+ * ShardState (the counting tests, Rank, LinearComplexity, Serial and
+ * ApproximateEntropy) read the stream by chunks whose merged state is saved, the
+ * other tests are saved when finished, and multi-sequence runs save the results
+ * of every finished sequence.
+ */
+public class Battery {
+
+    /**
+     * Block length of LinearComplexity when not given, as in the NIST reference suite
+     */
+    public static final int LINEARCOMPLEXITYBLOCK = 500;
+
+    /**
+     * Pool executing the tests
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Factories of the test objects, by test
+     */
+    private final EnumMap<RandomTests, Supplier<BaseRandom>> tests;
+    /**
+     * Counting tests are computed from a single scan of the stream
+     */
+    private volatile boolean fusedScan;
+    /**
+     * Estimates the running time of the tests in scheduled runs
+     */
+    private volatile CostModel costModel;
+    /**
+     * Results of earlier runs by stream content, null for none
+     */
+    private volatile ResultCache resultCache;
+
+
+    /**
+     * Runs a test object on a view of the stream
+     */
+    private static final class TestTask extends RecursiveTask<BaseRandom> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Supplier<BaseRandom> factory;
+        private final BaseCryptoRandomStream stream;
+        private final ResultCache cache;
+        private final ResultCache.ContentHash content;
+
+
+        TestTask(Supplier<BaseRandom> factory, BaseCryptoRandomStream stream, ResultCache cache,
+                ResultCache.ContentHash content) {
+
+            this.factory = factory;
+            this.stream = stream;
+            this.cache = cache;
+            this.content = content;
+        }
+
+
+        @Override
+        protected BaseRandom compute() {
+            BaseRandom test;
+
+            test = this.factory.get();
+            if (this.cache != null) {
+                return this.cache.Evaluate(test, this.stream, this.content).GetDetails(BaseRandom.class);
+            }
+            test.isRandom(this.stream.View(0, this.stream.GetLongBitLength()));
+            return test;
+        }
+    }
+
+
+    /**
+     * Runs the counting test objects on a single scan of a view of the stream
+     */
+    private static final class FusedTask extends RecursiveTask<EnumMap<RandomTests, BaseRandom>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final EnumMap<RandomTests, Supplier<BaseRandom>> factories;
+        private final BaseCryptoRandomStream stream;
+
+
+        FusedTask(EnumMap<RandomTests, Supplier<BaseRandom>> factories, BaseCryptoRandomStream stream) {
+
+            this.factories = factories;
+            this.stream = stream;
+        }
+
+
+        @Override
+        protected EnumMap<RandomTests, BaseRandom> compute() {
+            EnumMap<RandomTests, BaseRandom> tests;
+            CountingScan scan;
+
+            tests = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+            for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.factories.entrySet()) {
+                tests.put(entry.getKey(), entry.getValue().get());
+            }
+            if (tests.containsKey(RandomTests.BlockFrequency)) {
+                scan = new CountingScan(tests.get(RandomTests.BlockFrequency).GetBlockLength());
+            }
+            else {
+                scan = new CountingScan();
+            }
+            scan.Scan(this.stream.View(0, this.stream.GetLongBitLength()));
+            for (BaseRandom test : tests.values()) {
+                scan.Evaluate(test);
+            }
+            return tests;
+        }
+    }
+
+
+    /**
+     * Evaluates a range of the (test, sequence) grid, splitting it in halves until
+     * single evaluations so idle workers steal the pending halves
+     */
+    private static final class GridTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RandomTests[] tests;
+        private final List<Supplier<BaseRandom>> factories;
+        private final BaseCryptoRandomStream stream;
+        private final long sequenceLength;
+        private final int sequenceNumber;
+        private final EnumMap<RandomTests, TestResult[]> results;
+        private final EnumMap<RandomTests, RuntimeException[]> failures;
+        private final ResultCache cache;
+        private final int from;
+        private final int to;
+
+
+        GridTask(RandomTests[] tests, List<Supplier<BaseRandom>> factories, BaseCryptoRandomStream stream,
+                long sequenceLength, int sequenceNumber, EnumMap<RandomTests, TestResult[]> results,
+                EnumMap<RandomTests, RuntimeException[]> failures, ResultCache cache, int from, int to) {
+
+            this.tests = tests;
+            this.factories = factories;
+            this.stream = stream;
+            this.sequenceLength = sequenceLength;
+            this.sequenceNumber = sequenceNumber;
+            this.results = results;
+            this.failures = failures;
+            this.cache = cache;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        protected void compute() {
+            BaseCryptoRandomStream view;
+            int middle, test, sequence;
+
+            if ((this.to - this.from) > 1) {
+                middle = (this.from + this.to) >>> 1;
+                invokeAll(new GridTask(this.tests, this.factories, this.stream, this.sequenceLength, this.sequenceNumber,
+                        this.results, this.failures, this.cache, this.from, middle),
+                        new GridTask(this.tests, this.factories, this.stream, this.sequenceLength, this.sequenceNumber,
+                                this.results, this.failures, this.cache, middle, this.to));
+                return;
+            }
+            // sequence major order, the tests of a sequence read it while it is cached
+            test = this.from % this.tests.length;
+            sequence = this.from / this.tests.length;
+            try {
+                view = this.stream.View(sequence * this.sequenceLength, this.sequenceLength);
+                if (this.cache != null) {
+                    this.results.get(this.tests[test])[sequence] = this.cache.Evaluate(this.factories.get(test).get(),
+                            view);
+                }
+                else {
+                    this.results.get(this.tests[test])[sequence] = this.factories.get(test).get().evaluate(view);
+                }
+            }
+            catch (RuntimeException e) {
+                this.failures.get(this.tests[test])[sequence] = e;
+            }
+        }
+    }
+
+
+    /**
+     * Computes the shard state of a range of the stream
+     */
+    private static final class ShardTask extends RecursiveTask<ShardState> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BaseCryptoRandomStream stream;
+        private final long offset;
+        private final long length;
+        private final int blockLength;
+        private final int complexityLength;
+        private final int windowLength;
+        /**
+         * Hash of the shard, set by compute
+         */
+        private ResultCache.ContentHash hash;
+
+
+        ShardTask(BaseCryptoRandomStream stream, long offset, long length, int blockLength, int complexityLength,
+                int windowLength) {
+
+            this.stream = stream;
+            this.offset = offset;
+            this.length = length;
+            this.blockLength = blockLength;
+            this.complexityLength = complexityLength;
+            this.windowLength = windowLength;
+            this.hash = null;
+        }
+
+
+        @Override
+        protected ShardState compute() {
+            BaseCryptoRandomStream shard;
+
+            shard = this.stream.View(this.offset, this.length);
+            this.hash = ResultCache.Hash(shard);
+            return ShardState.Of(shard, this.offset, this.blockLength, this.complexityLength, this.windowLength);
+        }
+    }
+
+
+    /**
+     * Constructor, tests will be run on the common ForkJoinPool
+     */
+    public Battery() {
+
+        this(ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * Constructor, tests will be run on the indicated pool
+     */
+    public Battery(ForkJoinPool pool) {
+
+        this.pool = pool;
+        this.tests = new EnumMap<RandomTests, Supplier<BaseRandom>>(RandomTests.class);
+        this.costModel = new CostModel();
+    }
+
+
+    /**
+     * Creates a test object with its default parameters
+     *
+     * @param test test to be created
+     * @return BaseRandom: new test object
+     * @throws IllegalArgumentException if test is not a test of the battery
+     */
+    public static BaseRandom NewTest(RandomTests test) throws IllegalArgumentException {
+
+        switch (test) {
+        case Frequency:
+            return new Frequency();
+        case BlockFrequency:
+            return new BlockFrequency();
+        case CumulativeSumForward:
+            return new CumulativeSumForward();
+        case CumulativeSumReverse:
+            return new CumulativeSumReverse();
+        case Runs:
+            return new Runs();
+        case LongestRunOfOnes:
+            return new LongestRunOfOnes();
+        case Rank:
+            return new Rank();
+        case Universal:
+            return new Universal();
+        case ApproximateEntropy:
+            return new ApproximateEntropy();
+        case Serial:
+            return new Serial();
+        case DiscreteFourierTransform:
+            return new DiscreteFourierTransform();
+        case RandomExcursions:
+            return new RandomExcursions();
+        case LinearComplexity:
+            return new LinearComplexity(LINEARCOMPLEXITYBLOCK);
+        case NonOverlappingTemplateMatchings:
+            return new NonOverlappingTemplateMatchings();
+        case OverlappingTemplateMatchings:
+            return new OverlappingTemplateMatchings();
+        default:
+            throw new IllegalArgumentException("Test not defined !");
+        }
+    }
+
+
+    /**
+     * Adds a test with its default parameters, replacing the test if already added
+     */
+    public Battery Add(final RandomTests test) {
+
+        // fails on tests that are not part of the battery before any run
+        NewTest(test);
+        this.tests.put(test, () -> NewTest(test));
+        return this;
+    }
+
+
+    /**
+     * Adds a test with the indicated parameters, replacing the test if already
+     * added
+     *
+     * @param test test to be added
+     * @param alpha alpha margin of the test
+     * @param blockLength block length in bits of the test, 0 keeps the default
+     *            block length
+     */
+    public Battery Add(final RandomTests test, final double alpha, final int blockLength) {
+
+        // fails on tests that are not part of the battery before any run
+        NewTest(test);
+        this.tests.put(test, () -> {
+            BaseRandom random = NewTest(test);
+            random.setAlpha(alpha);
+            if (blockLength > 0) {
+                random.SetBlockLength(blockLength);
+            }
+            return random;
+        });
+        return this;
+    }
+
+
+    /**
+     * Adds a test created by factory, replacing the test if already added.
+     * Factory must return a new object on every call, as objects are used by one
+     * run only
+     */
+    public Battery Add(RandomTests test, Supplier<BaseRandom> factory) {
+
+        this.tests.put(test, factory);
+        return this;
+    }
+
+
+    /**
+     * Adds every test with its default parameters
+     */
+    public Battery AddAll() {
+
+        for (RandomTests test : RandomTests.values()) {
+            if (test.compareTo(RandomTests.NumberOfTests) < 0) {
+                this.Add(test);
+            }
+        }
+        return this;
+    }
+
+
+    /**
+     * Sets if counting tests are computed from a single scan of the stream, the
+     * scan is used when at least two of them are part of the battery
+     */
+    public Battery SetFusedScan(boolean fusedScan) {
+
+        this.fusedScan = fusedScan;
+        return this;
+    }
+
+
+    /**
+     * Indicates if counting tests are computed from a single scan of the stream
+     */
+    public boolean IsFusedScan() {
+
+        return this.fusedScan;
+    }
+
+
+    /**
+     * Sets the model estimating the running time of the tests in scheduled runs
+     */
+    public Battery SetCostModel(CostModel costModel) {
+
+        this.costModel = costModel;
+        return this;
+    }
+
+
+    /**
+     * Gets the model estimating the running time of the tests in scheduled runs
+     */
+    public CostModel GetCostModel() {
+
+        return this.costModel;
+    }
+
+
+    /**
+     * Sets the cache of results looked up before testing, null for none
+     */
+    public Battery SetResultCache(ResultCache resultCache) {
+
+        this.resultCache = resultCache;
+        return this;
+    }
+
+
+    /**
+     * Gets the cache of results looked up before testing, null for none
+     */
+    public ResultCache GetResultCache() {
+
+        return this.resultCache;
+    }
+
+
+    /**
+     * Gets the tests of the battery
+     */
+    public Set<RandomTests> GetTests() {
+
+        return Collections.unmodifiableSet(this.tests.keySet());
+    }
+
+
+    /**
+     * Runs every test of the battery over sequenceNumber consecutive sequences of
+     * sequenceLength bits of the stream, the sequences are views of the stream and
+     * no data is copied. The call returns when every evaluation is finished, an
+     * evaluation throwing an exception does not stop the others
+     *
+     * @param stream stream holding the sequences, it must not be modified during the run
+     * @param sequenceLength length in bits of every sequence
+     * @param sequenceNumber number of sequences
+     * @return SequenceResults: results by test and sequence
+     * @throws IllegalArgumentException if length or number of sequences is not positive
+     * @throws IndexOutOfBoundsException if the sequences exceed the stream length
+     */
+    public SequenceResults RunSequences(BaseCryptoRandomStream stream, long sequenceLength, int sequenceNumber)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        EnumMap<RandomTests, TestResult[]> results;
+        EnumMap<RandomTests, RuntimeException[]> failures;
+        RandomTests[] tests;
+        List<Supplier<BaseRandom>> factories;
+        int i;
+
+        if ((sequenceLength <= 0) || (sequenceNumber <= 0)) {
+            throw new IllegalArgumentException("Sequence length and number must be positive !");
+        }
+        if ((stream.GetLongBitLength() / sequenceNumber) < sequenceLength) {
+            throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+        }
+        results = new EnumMap<RandomTests, TestResult[]>(RandomTests.class);
+        failures = new EnumMap<RandomTests, RuntimeException[]>(RandomTests.class);
+        tests = new RandomTests[this.tests.size()];
+        factories = new ArrayList<Supplier<BaseRandom>>(this.tests.size());
+        i = 0;
+        for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.tests.entrySet()) {
+            tests[i] = entry.getKey();
+            factories.add(entry.getValue());
+            results.put(entry.getKey(), new TestResult[sequenceNumber]);
+            failures.put(entry.getKey(), new RuntimeException[sequenceNumber]);
+            i++;
+        }
+        if (tests.length > 0) {
+            this.pool.invoke(new GridTask(tests, factories, stream, sequenceLength, sequenceNumber, results, failures,
+                    this.resultCache, 0, tests.length * sequenceNumber));
+        }
+        return new SequenceResults(sequenceLength, sequenceNumber, results, failures);
+    }
+
+
+    /**
+     * Runs every test of the battery over sequenceNumber consecutive sequences of
+     * sequenceLength bits read from a file, the file is memory mapped and unmapped
+     * when the run ends
+     *
+     * @param file file holding the sequences
+     * @param sequenceLength length in bits of every sequence
+     * @param sequenceNumber number of sequences
+     * @return SequenceResults: results by test and sequence
+     * @throws IOException if the file can not be mapped
+     */
+    public SequenceResults RunSequences(File file, long sequenceLength, int sequenceNumber) throws IOException {
+        MappedFileCryptoRandomStream stream;
+
+        stream = new MappedFileCryptoRandomStream(file);
+        try {
+            return this.RunSequences(stream, sequenceLength, sequenceNumber);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+
+    /**
+     * Runs every test of the battery over sequenceNumber consecutive sequences of
+     * sequenceLength bits of the stream as RunSequences does, by batches of
+     * sequences of at most the checkpoint chunk length. The results of the
+     * finished batches are saved to the checkpoint and a run started again resumes
+     * after them. The checkpoint is deleted when the run ends
+     *
+     * @param stream stream holding the sequences, it must not be modified during the run
+     * @param sequenceLength length in bits of every sequence
+     * @param sequenceNumber number of sequences
+     * @param checkpoint checkpoint saving the progress of the run
+     * @return SequenceResults: results by test and sequence
+     * @throws IOException if the checkpoint can not be read or written
+     * @throws IllegalArgumentException if length or number of sequences is not positive
+     * @throws IndexOutOfBoundsException if the sequences exceed the stream length
+     * @throws IllegalStateException if the checkpoint has been saved by another run or
+     *             over other bits
+     */
+    public SequenceResults RunSequences(BaseCryptoRandomStream stream, long sequenceLength, int sequenceNumber,
+            Checkpoint checkpoint)
+            throws IOException, IllegalArgumentException, IndexOutOfBoundsException, IllegalStateException {
+        EnumMap<RandomTests, BaseRandom> objects;
+        Checkpoint.SequenceProgress progress;
+        ForkJoinTask<ResultCache.ContentHash> hash;
+        Object loaded;
+        RandomTests[] tests;
+        List<Supplier<BaseRandom>> factories;
+        int i, batch, end;
+
+        if ((sequenceLength <= 0) || (sequenceNumber <= 0)) {
+            throw new IllegalArgumentException("Sequence length and number must be positive !");
+        }
+        if ((stream.GetLongBitLength() / sequenceNumber) < sequenceLength) {
+            throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+        }
+        objects = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+        tests = new RandomTests[this.tests.size()];
+        factories = new ArrayList<Supplier<BaseRandom>>(this.tests.size());
+        i = 0;
+        for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.tests.entrySet()) {
+            objects.put(entry.getKey(), entry.getValue().get());
+            tests[i] = entry.getKey();
+            factories.add(entry.getValue());
+            i++;
+        }
+        progress = new Checkpoint.SequenceProgress(stream.GetLongBitLength(), sequenceLength, sequenceNumber,
+                Checkpoint.Parameters(objects));
+        loaded = checkpoint.Load();
+        if (loaded == null) {
+            for (RandomTests test : tests) {
+                progress.results.put(test, new TestResult[sequenceNumber]);
+                progress.failures.put(test, new RuntimeException[sequenceNumber]);
+            }
+        }
+        else if ((loaded instanceof Checkpoint.SequenceProgress)
+                && progress.Matches((Checkpoint.SequenceProgress) loaded)
+                && this.HasRead(stream, ((Checkpoint.SequenceProgress) loaded).chunks)) {
+            progress = (Checkpoint.SequenceProgress) loaded;
+        }
+        else {
+            throw new IllegalStateException("Checkpoint does not match the run !");
+        }
+        batch = (int) Math.max(1, Math.min(sequenceNumber, checkpoint.GetChunkLength() / sequenceLength));
+        while (progress.sequencesDone < sequenceNumber) {
+            end = (int) Math.min(sequenceNumber, (long) progress.sequencesDone + batch);
+            hash = this.pool.submit(HashTask(stream, progress.sequencesDone * sequenceLength,
+                    (end - progress.sequencesDone) * sequenceLength));
+            if (tests.length > 0) {
+                this.pool.invoke(new GridTask(tests, factories, stream, sequenceLength, sequenceNumber,
+                        progress.results, progress.failures, this.resultCache, progress.sequencesDone * tests.length,
+                        end * tests.length));
+            }
+            progress.chunks.add(hash.join());
+            progress.sequencesDone = end;
+            if (end < sequenceNumber) {
+                checkpoint.SaveIfDue(progress);
+            }
+        }
+        checkpoint.Delete();
+        return new SequenceResults(sequenceLength, sequenceNumber, progress.results, progress.failures);
+    }
+
+
+    /**
+     * Gets the exception thrown by a failed task, join throws a copy of it with
+     * the original as cause when the task ran on another thread
+     */
+    private static RuntimeException Failure(RuntimeException thrown) {
+
+        if ((thrown.getCause() instanceof RuntimeException) && (thrown.getCause().getClass() == thrown.getClass())) {
+            return (RuntimeException) thrown.getCause();
+        }
+        return thrown;
+    }
+
+
+    /**
+     * Runs every test of the battery over the stream, tests are run concurrently
+     * and the call returns when all of them are finished. A test throwing an
+     * exception does not stop the others, the exception is kept in the results
+     *
+     * @param stream stream to be tested, it must not be modified during the run
+     * @return BatteryResults: test objects holding the results of every test
+     */
+    public BatteryResults Run(BaseCryptoRandomStream stream) {
+        EnumMap<RandomTests, ForkJoinTask<BaseRandom>> tasks;
+        EnumMap<RandomTests, Supplier<BaseRandom>> counting;
+        ForkJoinTask<EnumMap<RandomTests, BaseRandom>> fused;
+        EnumMap<RandomTests, BaseRandom> finished;
+        EnumMap<RandomTests, RuntimeException> failures;
+        ResultCache cache;
+        ResultCache.ContentHash content;
+
+        cache = this.resultCache;
+        content = (cache == null) ? null : ResultCache.Hash(stream);
+        counting = new EnumMap<RandomTests, Supplier<BaseRandom>>(RandomTests.class);
+        if (this.fusedScan && (cache == null)) {
+            for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.tests.entrySet()) {
+                if (CountingScan.IsCountingTest(entry.getKey())) {
+                    counting.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (counting.size() < 2) {
+                counting.clear();
+            }
+        }
+        fused = null;
+        if (!counting.isEmpty()) {
+            fused = this.pool.submit(new FusedTask(counting, stream));
+        }
+        tasks = new EnumMap<RandomTests, ForkJoinTask<BaseRandom>>(RandomTests.class);
+        for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.tests.entrySet()) {
+            if (!counting.containsKey(entry.getKey())) {
+                tasks.put(entry.getKey(), this.pool.submit(new TestTask(entry.getValue(), stream, cache, content)));
+            }
+        }
+        finished = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+        failures = new EnumMap<RandomTests, RuntimeException>(RandomTests.class);
+        if (fused != null) {
+            try {
+                finished.putAll(fused.join());
+            }
+            catch (RuntimeException e) {
+                for (RandomTests test : counting.keySet()) {
+                    failures.put(test, Failure(e));
+                }
+            }
+        }
+        for (Map.Entry<RandomTests, ForkJoinTask<BaseRandom>> entry : tasks.entrySet()) {
+            try {
+                finished.put(entry.getKey(), entry.getValue().join());
+            }
+            catch (RuntimeException e) {
+                failures.put(entry.getKey(), Failure(e));
+            }
+        }
+        return new BatteryResults(finished, failures);
+    }
+
+
+    /**
+     * Runs every test of the battery over the stream as Run does, saving the
+     * progress to the checkpoint and resuming from it when it holds the progress of
+     * an earlier run. The counting tests, Rank, LinearComplexity, Serial and
+     * ApproximateEntropy (when their patterns are not longer than
+     * ShardState.MAXWINDOW) are computed from the ShardState of the stream, read by
+     * rounds of the checkpoint chunk length split between the workers, and the
+     * merged state is saved after a round. The other tests run on their own tasks
+     * and are saved when finished. The result cache is not used and the checkpoint
+     * is deleted when the run ends
+     *
+     * @param stream stream to be tested, it must not be modified during the run
+     * @param checkpoint checkpoint saving the progress of the run
+     * @return BatteryResults: test objects holding the results of every test
+     * @throws IOException if the checkpoint can not be read or written
+     * @throws IllegalStateException if the checkpoint has been saved by another run or
+     *             over other bits
+     */
+    public BatteryResults Run(BaseCryptoRandomStream stream, Checkpoint checkpoint)
+            throws IOException, IllegalStateException {
+        EnumMap<RandomTests, BaseRandom> tests, computed;
+        EnumMap<RandomTests, ForkJoinTask<BaseRandom>> tasks;
+        List<ShardTask> round;
+        ShardTask shard;
+        Checkpoint.RunProgress progress;
+        Checkpoint.RunProgress saved;
+        ShardState state;
+        Object loaded;
+        int blockLength, complexityLength, windowLength;
+        long n, unit, roundLength, shardLength, position, end;
+
+        n = stream.GetLongBitLength();
+        tests = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+        for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.tests.entrySet()) {
+            tests.put(entry.getKey(), entry.getValue().get());
+        }
+        progress = new Checkpoint.RunProgress(n, Checkpoint.Parameters(tests));
+        loaded = checkpoint.Load();
+        if (loaded != null) {
+            if (!(loaded instanceof Checkpoint.RunProgress)) {
+                throw new IllegalStateException("Checkpoint does not match the run !");
+            }
+            saved = (Checkpoint.RunProgress) loaded;
+            if (!progress.Matches(saved) || !this.HasRead(stream, saved.chunks)
+                    || ((saved.content != null) && !saved.content.equals(ResultCache.Hash(stream)))) {
+                throw new IllegalStateException("Checkpoint does not match the run !");
+            }
+            progress = saved;
+        }
+
+        // tests computed from the shard state of the stream
+        blockLength = tests.containsKey(RandomTests.BlockFrequency)
+                ? tests.get(RandomTests.BlockFrequency).GetBlockLength() : ShardState.DEFAULTBLOCK;
+        complexityLength = tests.containsKey(RandomTests.LinearComplexity)
+                ? tests.get(RandomTests.LinearComplexity).GetBlockLength() : 0;
+        windowLength = 0;
+        if (tests.containsKey(RandomTests.Serial)) {
+            windowLength = tests.get(RandomTests.Serial).GetBlockLength();
+        }
+        if (tests.containsKey(RandomTests.ApproximateEntropy)) {
+            windowLength = Math.max(windowLength, tests.get(RandomTests.ApproximateEntropy).GetBlockLength() + 1);
+        }
+        if (windowLength > ShardState.MAXWINDOW) {
+            windowLength = 0;
+        }
+        computed = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+        for (Map.Entry<RandomTests, BaseRandom> entry : tests.entrySet()) {
+            switch (entry.getKey()) {
+            case Serial:
+            case ApproximateEntropy:
+                if (windowLength > 0) {
+                    computed.put(entry.getKey(), entry.getValue());
+                }
+                break;
+            case Rank:
+            case LinearComplexity:
+                computed.put(entry.getKey(), entry.getValue());
+                break;
+            default:
+                if (CountingScan.IsCountingTest(entry.getKey())) {
+                    computed.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        tasks = new EnumMap<RandomTests, ForkJoinTask<BaseRandom>>(RandomTests.class);
+        for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.tests.entrySet()) {
+            if (!computed.containsKey(entry.getKey()) && !progress.finished.containsKey(entry.getKey())
+                    && !progress.failures.containsKey(entry.getKey())) {
+                tasks.put(entry.getKey(), this.pool.submit(new TestTask(entry.getValue(), stream, null, null)));
+            }
+        }
+        if (!computed.isEmpty()) {
+            unit = ShardState.UnitLength(blockLength, complexityLength);
+            roundLength = Math.max(unit, (checkpoint.GetChunkLength() / unit) * unit);
+            shardLength = Math.max(unit, ((roundLength / this.pool.getParallelism()) / unit) * unit);
+            state = progress.state;
+            try {
+                while ((state == null) || (state.GetLength() < n)) {
+                    position = (state == null) ? 0 : state.GetLength();
+                    end = Math.min(n, position + roundLength);
+                    round = new ArrayList<ShardTask>();
+                    do {
+                        shard = new ShardTask(stream, position, Math.min(shardLength, end - position), blockLength,
+                                complexityLength, windowLength);
+                        this.pool.execute(shard);
+                        round.add(shard);
+                        position += shardLength;
+                    } while (position < end);
+                    for (ShardTask task : round) {
+                        state = (state == null) ? task.join() : state.Merge(task.join());
+                        progress.chunks.add(task.hash);
+                    }
+                    progress.state = state;
+                    Collect(tasks, progress);
+                    if (state.GetLength() < n) {
+                        SaveIfDue(checkpoint, progress, stream, computed.keySet());
+                    }
+                }
+                for (Map.Entry<RandomTests, BaseRandom> entry : computed.entrySet()) {
+                    try {
+                        state.Evaluate(entry.getValue());
+                        progress.finished.put(entry.getKey(), entry.getValue());
+                    }
+                    catch (RuntimeException e) {
+                        progress.failures.put(entry.getKey(), e);
+                    }
+                }
+            }
+            catch (RuntimeException e) {
+                for (RandomTests test : computed.keySet()) {
+                    progress.failures.put(test, Failure(e));
+                }
+            }
+        }
+        for (Map.Entry<RandomTests, ForkJoinTask<BaseRandom>> entry : tasks.entrySet()) {
+            try {
+                progress.finished.put(entry.getKey(), entry.getValue().join());
+            }
+            catch (RuntimeException e) {
+                progress.failures.put(entry.getKey(), Failure(e));
+            }
+            SaveIfDue(checkpoint, progress, stream, computed.keySet());
+        }
+        checkpoint.Delete();
+        return new BatteryResults(progress.finished, progress.failures);
+    }
+
+
+    /**
+     * Saves the progress of a checkpointed run if due, with the hash of the whole
+     * stream once it holds tests run over the whole stream
+     */
+    private static void SaveIfDue(Checkpoint checkpoint, Checkpoint.RunProgress progress,
+            BaseCryptoRandomStream stream, Set<RandomTests> computed) throws IOException {
+
+        if (!checkpoint.IsDue()) {
+            return;
+        }
+        if (progress.content == null) {
+            for (RandomTests test : RandomTests.values()) {
+                if (!computed.contains(test)
+                        && (progress.finished.containsKey(test) || progress.failures.containsKey(test))) {
+                    progress.content = ResultCache.Hash(stream);
+                    break;
+                }
+            }
+        }
+        checkpoint.Save(progress);
+    }
+
+
+    /**
+     * Task hashing the bit range [from, from + length) of a stream
+     */
+    private static ForkJoinTask<ResultCache.ContentHash> HashTask(final BaseCryptoRandomStream stream,
+            final long from, final long length) {
+
+        return ForkJoinTask.adapt(() -> ResultCache.Hash(stream.View(from, length)));
+    }
+
+
+    /**
+     * Indicates if the stream starts with the consecutive chunks hashed by an
+     * earlier run, the chunks are hashed again in parallel
+     */
+    private boolean HasRead(BaseCryptoRandomStream stream, List<ResultCache.ContentHash> chunks) {
+        List<ForkJoinTask<ResultCache.ContentHash>> hashes;
+        long position;
+
+        hashes = new ArrayList<ForkJoinTask<ResultCache.ContentHash>>();
+        position = 0;
+        for (ResultCache.ContentHash chunk : chunks) {
+            if (position + chunk.GetLength() > stream.GetLongBitLength()) {
+                return false;
+            }
+            hashes.add(this.pool.submit(HashTask(stream, position, chunk.GetLength())));
+            position += chunk.GetLength();
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!hashes.get(i).join().equals(chunks.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Moves the finished tasks to the progress of a checkpointed run
+     */
+    private static void Collect(EnumMap<RandomTests, ForkJoinTask<BaseRandom>> tasks,
+            Checkpoint.RunProgress progress) {
+        Iterator<Map.Entry<RandomTests, ForkJoinTask<BaseRandom>>> pending;
+        Map.Entry<RandomTests, ForkJoinTask<BaseRandom>> entry;
+
+        pending = tasks.entrySet().iterator();
+        while (pending.hasNext()) {
+            entry = pending.next();
+            if (entry.getValue().isDone()) {
+                try {
+                    progress.finished.put(entry.getKey(), entry.getValue().join());
+                }
+                catch (RuntimeException e) {
+                    progress.failures.put(entry.getKey(), Failure(e));
+                }
+                pending.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Indicates if a finished test has failed: it has found the stream not random
+     * or its pValue is below its alpha margin, BaseRandom.ALPHA when the margin
+     * has not been set
+     */
+    private static boolean IsFailure(BaseRandom test) {
+        double alpha;
+
+        alpha = (test.getAlpha() > 0.0) ? test.getAlpha() : BaseRandom.ALPHA;
+        return !test.IsRandom() || (test.GetPValue() < alpha);
+    }
+
+
+    /**
+     * Runs the tests of the battery over the stream one after the other, stopping
+     * on the first test that throws an exception or fails, every remaining test is
+     * skipped
+     *
+     * @param stream stream to be tested, it must not be modified during the run
+     * @return BatteryResults: results of the tests run and skipped tests
+     */
+    public BatteryResults RunFailFast(BaseCryptoRandomStream stream) {
+
+        return this.RunScheduled(stream, Long.MAX_VALUE, true);
+    }
+
+
+    /**
+     * Runs the tests of the battery over the stream one after the other on the
+     * calling thread, in increasing estimated running time. A test is skipped when
+     * its estimate exceeds what remains of the budget, and with failFast every test
+     * after one throwing an exception, finding the stream not random or with a
+     * pValue below its alpha margin (BaseRandom.ALPHA when not set) is skipped.
+     * Tests held by the result cache are never skipped for the budget.
+     * Counting tests are not fused in scheduled runs
+     *
+     * @param stream stream to be tested, it must not be modified during the run
+     * @param budget time budget in nanoseconds, Long.MAX_VALUE for none
+     * @param failFast stop on first failure
+     * @return BatteryResults: results of the tests run and skipped tests with the
+     *         reason
+     */
+    public BatteryResults RunScheduled(BaseCryptoRandomStream stream, long budget, boolean failFast) {
+        EnumMap<RandomTests, BaseRandom> tests, finished;
+        EnumMap<RandomTests, RuntimeException> failures;
+        EnumMap<RandomTests, SkipReason> skipped;
+        final EnumMap<RandomTests, Long> costs;
+        List<RandomTests> order;
+        CostModel model;
+        ResultCache cache;
+        ResultCache.ContentHash content;
+        TestResult cached;
+        BaseRandom test;
+        boolean failed;
+        long n, begin;
+
+        n = stream.GetLongBitLength();
+        model = this.costModel;
+        cache = this.resultCache;
+        content = (cache == null) ? null : ResultCache.Hash(stream);
+        tests = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+        costs = new EnumMap<RandomTests, Long>(RandomTests.class);
+        for (Map.Entry<RandomTests, Supplier<BaseRandom>> entry : this.tests.entrySet()) {
+            test = entry.getValue().get();
+            tests.put(entry.getKey(), test);
+            costs.put(entry.getKey(), model.Estimate(test, n));
+        }
+        // stable sort, equal estimates keep the test order
+        order = new ArrayList<RandomTests>(tests.keySet());
+        Collections.sort(order, (x, y) -> Long.compare(costs.get(x), costs.get(y)));
+        finished = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+        failures = new EnumMap<RandomTests, RuntimeException>(RandomTests.class);
+        skipped = new EnumMap<RandomTests, SkipReason>(RandomTests.class);
+        failed = false;
+        begin = System.nanoTime();
+        for (RandomTests type : order) {
+            if (failed) {
+                skipped.put(type, SkipReason.EarlierFailure);
+                continue;
+            }
+            test = tests.get(type);
+            cached = (cache == null) ? null : cache.Get(test, content);
+            if ((cached == null) && (costs.get(type) > (budget - (System.nanoTime() - begin)))) {
+                skipped.put(type, SkipReason.OverBudget);
+                continue;
+            }
+            try {
+                if (cached != null) {
+                    test = cached.GetDetails(BaseRandom.class);
+                }
+                else if (cache != null) {
+                    test = cache.Compute(test, stream, content).GetDetails(BaseRandom.class);
+                }
+                else {
+                    test.isRandom(stream.View(0, n));
+                }
+                finished.put(type, test);
+                failed = failFast && IsFailure(test);
+            }
+            catch (RuntimeException e) {
+                failures.put(type, e);
+                failed = failFast;
+            }
+        }
+        return new BatteryResults(finished, failures, skipped);
+    }
+}
@@ -0,0 +1,158 @@
+package org.jiumao.nist.Battery;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Set;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTests;
+
+
+/**
+ * Results of a battery run: the test object of every finished test, holding its
+ * p-value, verdict, error and detail statistics, the exception of every test
+ * that did not finish and, for scheduled runs, the reason of every skipped test.
+ */
+public class BatteryResults {
+
+    /**
+     * Test objects of the finished tests
+     */
+    private final EnumMap<RandomTests, BaseRandom> tests;
+    /**
+     * Exceptions thrown by the tests that did not finish
+     */
+    private final EnumMap<RandomTests, RuntimeException> failures;
+    /**
+     * Reasons of the tests skipped by a scheduled run
+     */
+    private final EnumMap<RandomTests, SkipReason> skipped;
+
+
+    /**
+     * Constructor, results of a run
+     */
+    BatteryResults(EnumMap<RandomTests, BaseRandom> tests, EnumMap<RandomTests, RuntimeException> failures) {
+
+        this(tests, failures, new EnumMap<RandomTests, SkipReason>(RandomTests.class));
+    }
+
+
+    /**
+     * Constructor, results of a scheduled run
+     */
+    BatteryResults(EnumMap<RandomTests, BaseRandom> tests, EnumMap<RandomTests, RuntimeException> failures,
+            EnumMap<RandomTests, SkipReason> skipped) {
+
+        this.tests = tests;
+        this.failures = failures;
+        this.skipped = skipped;
+    }
+
+
+    /**
+     * Gets the finished tests
+     */
+    public Set<RandomTests> GetTests() {
+
+        return Collections.unmodifiableSet(this.tests.keySet());
+    }
+
+
+    /**
+     * Gets the tests that did not finish
+     */
+    public Set<RandomTests> GetFailedTests() {
+
+        return Collections.unmodifiableSet(this.failures.keySet());
+    }
+
+
+    /**
+     * Gets the tests skipped by a scheduled run
+     */
+    public Set<RandomTests> GetSkippedTests() {
+
+        return Collections.unmodifiableSet(this.skipped.keySet());
+    }
+
+
+    /**
+     * Gets the reason of a scheduled run to skip a test
+     *
+     * @return SkipReason: reason, null if the test has not been skipped
+     */
+    public SkipReason GetSkipReason(RandomTests test) {
+
+        return this.skipped.get(test);
+    }
+
+
+    /**
+     * Gets the test object of a finished test
+     *
+     * @return BaseRandom: test object, null if the test has not been run or has
+     *         not finished
+     */
+    public BaseRandom Get(RandomTests test) {
+
+        return this.tests.get(test);
+    }
+
+
+    /**
+     * Gets the exception thrown by a test that did not finish
+     *
+     * @return RuntimeException: exception, null if the test has not been run or
+     *         has finished
+     */
+    public RuntimeException GetFailure(RandomTests test) {
+
+        return this.failures.get(test);
+    }
+
+
+    /**
+     * Gets the pValue of a finished test
+     */
+    public double GetPValue(RandomTests test) {
+
+        return this.tests.get(test).GetPValue();
+    }
+
+
+    /**
+     * Gets the random state of a finished test
+     */
+    public boolean IsRandom(RandomTests test) {
+
+        return this.tests.get(test).IsRandom();
+    }
+
+
+    /**
+     * Indicates if every test run has finished and has found the stream random,
+     * skipped tests are not taken into account
+     */
+    public boolean IsRandom() {
+
+        if (!this.failures.isEmpty()) {
+            return false;
+        }
+        for (BaseRandom test : this.tests.values()) {
+            if (!test.IsRandom()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Indicates if no test has been skipped
+     */
+    public boolean IsComplete() {
+
+        return this.skipped.isEmpty();
+    }
+}
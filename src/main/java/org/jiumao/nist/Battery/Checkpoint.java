@@ -0,0 +1,331 @@
+package org.jiumao.nist.Battery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+import org.jiumao.nist.random.ShardState;
+
+
+/**
+ * Local file holding the progress of a long battery run, so that a run stopped
+ * before its end resumes from the last saved progress instead of the beginning.
+ * <p>
+ * Runs read the stream chunkLength bits at a time and save their progress after a
+ * chunk when interval milliseconds have passed since the last save: the shard
+ * state of the bits read, the finished tests and, for multi-sequence runs, the
+ * results of the finished sequences. A save writes a temporary file next to the
+ * checkpoint, forces it to the device and renames it over the checkpoint, so the
+ * file always holds a whole progress. The checkpoint is deleted when the run
+ * ends.
+ * <p>
+ * A run resumes from the checkpoint only if it was saved by a run of the same
+ * tests, parameters and stream length over the same bits: the progress keeps the
+ * hash of every chunk read, shard after shard or batch after batch, and the hash
+ * of the whole stream once it holds tests that have read all of it. These hashes
+ * are checked against the stream before the progress is trusted.
+ */
+public class Checkpoint {
+
+    /**
+     * Default milliseconds between two saves
+     */
+    public static final long DEFAULTINTERVAL = 60000;
+    /**
+     * Default length in bits read between two saves at most
+     */
+    public static final long DEFAULTCHUNK = 1L << 30;
+
+    /**
+     * File holding the progress
+     */
+    private final File file;
+    /**
+     * Milliseconds between two saves
+     */
+    private final long interval;
+    /**
+     * Length in bits read between two saves at most
+     */
+    private final long chunkLength;
+    /**
+     * Time in nanoseconds of the last save, or of the construction
+     */
+    private long saved;
+
+
+    /**
+     * Progress of a single stream run: shard state of the bits read by the tests
+     * computed from it and the other tests, which are saved when finished
+     */
+    static final class RunProgress implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long length;
+        private final long[] parameters;
+        /**
+         * Hashes of the consecutive shards read into state, from the stream start
+         */
+        final ArrayList<ResultCache.ContentHash> chunks;
+        /**
+         * Hash of the whole stream, set once tests that have read all of it are
+         * saved
+         */
+        ResultCache.ContentHash content;
+        ShardState state;
+        final EnumMap<RandomTests, BaseRandom> finished;
+        final EnumMap<RandomTests, RuntimeException> failures;
+
+
+        RunProgress(long length, long[] parameters) {
+
+            this.length = length;
+            this.parameters = parameters;
+            this.chunks = new ArrayList<ResultCache.ContentHash>();
+            this.content = null;
+            this.state = null;
+            this.finished = new EnumMap<RandomTests, BaseRandom>(RandomTests.class);
+            this.failures = new EnumMap<RandomTests, RuntimeException>(RandomTests.class);
+        }
+
+
+        boolean Matches(RunProgress run) {
+
+            return (run.length == this.length) && Arrays.equals(run.parameters, this.parameters);
+        }
+    }
+
+
+    /**
+     * Progress of a multi-sequence run: results of the first sequences
+     */
+    static final class SequenceProgress implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long length;
+        private final long sequenceLength;
+        private final int sequenceNumber;
+        private final long[] parameters;
+        /**
+         * Hashes of the consecutive batches of finished sequences
+         */
+        final ArrayList<ResultCache.ContentHash> chunks;
+        int sequencesDone;
+        final EnumMap<RandomTests, TestResult[]> results;
+        final EnumMap<RandomTests, RuntimeException[]> failures;
+
+
+        SequenceProgress(long length, long sequenceLength, int sequenceNumber, long[] parameters) {
+
+            this.length = length;
+            this.sequenceLength = sequenceLength;
+            this.sequenceNumber = sequenceNumber;
+            this.parameters = parameters;
+            this.chunks = new ArrayList<ResultCache.ContentHash>();
+            this.sequencesDone = 0;
+            this.results = new EnumMap<RandomTests, TestResult[]>(RandomTests.class);
+            this.failures = new EnumMap<RandomTests, RuntimeException[]>(RandomTests.class);
+        }
+
+
+        boolean Matches(SequenceProgress run) {
+
+            return (run.length == this.length) && (run.sequenceLength == this.sequenceLength)
+                    && (run.sequenceNumber == this.sequenceNumber) && Arrays.equals(run.parameters, this.parameters);
+        }
+    }
+
+
+    /**
+     * Constructor, saves every DEFAULTINTERVAL milliseconds at most
+     *
+     * @param file file holding the progress
+     */
+    public Checkpoint(File file) {
+
+        this(file, DEFAULTINTERVAL, DEFAULTCHUNK);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param file file holding the progress
+     * @param interval milliseconds between two saves, 0 saves after every chunk
+     * @param chunkLength length in bits read between two saves at most
+     * @throws IllegalArgumentException if interval is negative or chunkLength is
+     *             not positive
+     */
+    public Checkpoint(File file, long interval, long chunkLength) throws IllegalArgumentException {
+
+        if ((interval < 0) || (chunkLength <= 0)) {
+            throw new IllegalArgumentException("Checkpoint interval or chunk length out of range !");
+        }
+        this.file = file;
+        this.interval = interval;
+        this.chunkLength = chunkLength;
+        this.saved = System.nanoTime();
+    }
+
+
+    /**
+     * Gets the file holding the progress
+     */
+    public File GetFile() {
+
+        return this.file;
+    }
+
+
+    /**
+     * Gets the milliseconds between two saves
+     */
+    public long GetInterval() {
+
+        return this.interval;
+    }
+
+
+    /**
+     * Gets the length in bits read between two saves at most
+     */
+    public long GetChunkLength() {
+
+        return this.chunkLength;
+    }
+
+
+    /**
+     * Indicates if the checkpoint holds a saved progress
+     */
+    public boolean Exists() {
+
+        return this.file.isFile();
+    }
+
+
+    /**
+     * Saves a progress, replacing the saved one in a single rename
+     *
+     * @param progress progress to be saved
+     * @throws IOException if the progress can not be written
+     */
+    public synchronized void Save(Serializable progress) throws IOException {
+        File temporary;
+        FileOutputStream file;
+        ObjectOutputStream output;
+
+        temporary = new File(this.file.getAbsoluteFile().getParentFile(), this.file.getName() + ".tmp");
+        file = new FileOutputStream(temporary);
+        try {
+            output = new ObjectOutputStream(new BufferedOutputStream(file));
+            output.writeObject(progress);
+            output.flush();
+            file.getFD().sync();
+        }
+        finally {
+            file.close();
+        }
+        try {
+            Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.saved = System.nanoTime();
+    }
+
+
+    /**
+     * Loads the saved progress
+     *
+     * @return Object: saved progress, null if there is none
+     * @throws IOException if the progress can not be read
+     */
+    public synchronized Object Load() throws IOException {
+        ObjectInputStream input;
+
+        if (!this.Exists()) {
+            return null;
+        }
+        input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+        try {
+            return input.readObject();
+        }
+        catch (ClassNotFoundException e) {
+            throw new IOException("Checkpoint holds an unknown class !", e);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+
+    /**
+     * Deletes the saved progress
+     *
+     * @throws IOException if the file can not be deleted
+     */
+    public synchronized void Delete() throws IOException {
+
+        Files.deleteIfExists(this.file.toPath());
+    }
+
+
+    /**
+     * Indicates if interval milliseconds have passed since the last save
+     */
+    boolean IsDue() {
+
+        return (System.nanoTime() - this.saved) >= (this.interval * 1000000L);
+    }
+
+
+    /**
+     * Saves a progress if interval milliseconds have passed since the last save
+     */
+    void SaveIfDue(Serializable progress) throws IOException {
+
+        if (this.IsDue()) {
+            this.Save(progress);
+        }
+    }
+
+
+    /**
+     * Gets the parameters identifying the tests of a run: type, block length and
+     * alpha of every test
+     */
+    static long[] Parameters(Map<RandomTests, BaseRandom> tests) {
+        long[] parameters;
+        int i;
+
+        parameters = new long[3 * tests.size()];
+        i = 0;
+        for (Map.Entry<RandomTests, BaseRandom> entry : tests.entrySet()) {
+            parameters[i++] = entry.getKey().ordinal();
+            parameters[i++] = entry.getValue().GetBlockLength();
+            parameters[i++] = Double.doubleToLongBits(entry.getValue().getAlpha());
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,162 @@
+package org.jiumao.nist.Battery;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.random.Universal;
+
+
+/**
+ * Estimates the running time of a test over n bits from n and the test
+ * parameters.
+ * <p>
+ * Estimates follow the work of every test, in nanoseconds measured on a
+ * reference machine once compiled by the JIT: 64 bit word operations for
+ * Frequency, BlockFrequency, Runs, CumulativeSums and LongestRunOfOnes, m + (m +
+ * 1) pattern reads per bit for ApproximateEntropy and 3m - 3 for Serial with
+ * their 2^m counters, n/L blocks and a 2^L table for Universal, 32 x 32
+ * eliminations per matrix for Rank, n log n for DiscreteFourierTransform and
+ * Berlekamp-Massey in M^2 per block of M bits for LinearComplexity. The scale
+ * converts them to the machine running the tests, Calibrate measures it.
+ */
+public class CostModel {
+
+    /**
+     * Nanoseconds of a bit read through the stream
+     */
+    private static final double BITREAD = 20.0;
+    /**
+     * Runs of the calibration test, the fastest one is kept
+     */
+    private static final int CALIBRATIONRUNS = 5;
+
+    /**
+     * Factor from the reference machine nanoseconds to this machine
+     */
+    private final double scale;
+
+
+    /**
+     * Constructor, estimates of the reference machine
+     */
+    public CostModel() {
+
+        this(1.0);
+    }
+
+
+    /**
+     * Constructor, estimates of the reference machine multiplied by scale
+     *
+     * @throws IllegalArgumentException if scale is not positive
+     */
+    public CostModel(double scale) throws IllegalArgumentException {
+
+        if (!(scale > 0.0)) {
+            throw new IllegalArgumentException("Cost scale must be positive !");
+        }
+        this.scale = scale;
+    }
+
+
+    /**
+     * Measures the scale of this machine running LinearComplexity over a sample,
+     * which should be long enough to last tens of milliseconds, 2^16 bits or more.
+     * LinearComplexity reads its blocks bit by bit like most tests and its cost is
+     * proportional to n; the word kernels run too fast to measure the machine and
+     * are scaled the same way
+     *
+     * @param sample stream run by LinearComplexity
+     * @return CostModel: model with the measured scale
+     */
+    public static CostModel Calibrate(BaseCryptoRandomStream sample) {
+        CostModel reference;
+        BaseRandom complexity;
+        long begin, elapsed;
+
+        reference = new CostModel();
+        complexity = Battery.NewTest(RandomTests.LinearComplexity);
+        // fastest run, the first ones let the JIT compile the test
+        elapsed = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATIONRUNS; i++) {
+            begin = System.nanoTime();
+            complexity.isRandom(sample.View(0, sample.GetLongBitLength()));
+            elapsed = Math.min(elapsed, System.nanoTime() - begin);
+        }
+        return new CostModel(Math.max(elapsed, 1)
+                / (double) Math.max(reference.Estimate(complexity, sample.GetLongBitLength()), 1));
+    }
+
+
+    /**
+     * Gets the factor from the reference machine nanoseconds to this machine
+     */
+    public double GetScale() {
+
+        return this.scale;
+    }
+
+
+    /**
+     * Estimates the running time of a test
+     *
+     * @param test test object, its parameters are used
+     * @param n length in bits of the stream
+     * @return long: estimated nanoseconds
+     */
+    public long Estimate(BaseRandom test, long n) {
+        double bits, m, cost;
+        int L;
+
+        bits = n;
+        m = test.GetBlockLength();
+        switch (test.GetType()) {
+        case Frequency:
+        case BlockFrequency:
+            cost = 1.0 * bits;
+            break;
+        case Runs:
+            cost = 1.0 * bits;
+            break;
+        case CumulativeSumForward:
+        case CumulativeSumReverse:
+            cost = 2.5 * bits;
+            break;
+        case LongestRunOfOnes:
+            cost = 5.0 * bits;
+            break;
+        case RandomExcursions:
+            cost = 20.0 * bits;
+            break;
+        case Rank:
+            cost = 60.0 * bits;
+            break;
+        case Universal:
+            L = Universal.RecommendedL(n);
+            cost = (L == 0) ? bits : 120.0 * bits / L + 10.0 * Math.pow(2, L);
+            break;
+        case ApproximateEntropy:
+            cost = BITREAD * (2 * m + 1) * bits + 2.0 * Math.pow(2, m + 2);
+            break;
+        case Serial:
+            cost = BITREAD * Math.max(3 * m - 3, 1) * bits + 2.0 * Math.pow(2, m + 1);
+            break;
+        case DiscreteFourierTransform:
+            cost = 11.0 * bits * (Math.log(Math.max(bits, 2)) / Math.log(2));
+            break;
+        case LinearComplexity:
+            cost = 2.8 * bits * m;
+            break;
+        case NonOverlappingTemplateMatchings:
+            // the port matches the first template only
+            cost = 2.0 * bits;
+            break;
+        case OverlappingTemplateMatchings:
+            cost = 8.0 * bits;
+            break;
+        default:
+            cost = BITREAD * bits;
+        }
+        return (long) Math.ceil(cost * this.scale);
+    }
+}
@@ -0,0 +1,473 @@
+package org.jiumao.nist.Battery;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.MathematicalFunctions;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+
+
+/**
+ * Aggregates the pValues of many sequences by test and pValue index, as the NIST
+ * reference suite final analysis report: proportion of pValues reaching alpha and
+ * uniformity of the pValues over BINS equal intervals of [0, 1]. Tests giving
+ * several pValues per sequence, as Serial, RandomExcursions or
+ * NonOverlappingTemplateMatchings, are counted apart by pValue index, so every
+ * proportion has the number of sequences as sample size.
+ * <p>
+ * Only counters are kept, never the pValues, so memory does not grow with the
+ * number of sequences. Counters are LongAdder cells, threads add pValues without
+ * locking, and aggregators of different threads are combined by Merge. An
+ * aggregator is serialized as its counts, so aggregators of different runs are
+ * saved and merged afterwards. Counts read while pValues are being added may not
+ * be from a single instant.
+ */
+public class PValueAggregator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of pValue intervals of the uniformity test
+     */
+    public static final int BINS = 10;
+
+    /**
+     * Counters of a pValue of a test
+     */
+    private static final class Counters {
+
+        private final LongAdder[] bins;
+        private final LongAdder passed;
+        private final LongAdder discarded;
+
+
+        Counters() {
+
+            this.bins = new LongAdder[BINS];
+            for (int i = 0; i < BINS; i++) {
+                this.bins[i] = new LongAdder();
+            }
+            this.passed = new LongAdder();
+            this.discarded = new LongAdder();
+        }
+    }
+
+    /**
+     * Pass margin of the pValues
+     */
+    private final double alpha;
+    /**
+     * Counters by test and pValue index, every test is present so the map is
+     * never modified, serialized as counts
+     */
+    private transient EnumMap<RandomTests, ConcurrentHashMap<Integer, Counters>> counters;
+
+
+    /**
+     * Constructor, pValues pass from BaseRandom.ALPHA
+     */
+    public PValueAggregator() {
+
+        this(BaseRandom.ALPHA);
+    }
+
+
+    /**
+     * Constructor, pValues pass from the indicated alpha
+     */
+    public PValueAggregator(double alpha) {
+
+        this.alpha = alpha;
+        this.Clear();
+    }
+
+
+    private void Clear() {
+
+        this.counters = new EnumMap<RandomTests, ConcurrentHashMap<Integer, Counters>>(RandomTests.class);
+        for (RandomTests test : RandomTests.values()) {
+            this.counters.put(test, new ConcurrentHashMap<Integer, Counters>());
+        }
+    }
+
+
+    /**
+     * Gets the counters of a pValue of a test, created on first use
+     */
+    private Counters Get(RandomTests test, int index) throws IndexOutOfBoundsException {
+
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("PValue index out of range !");
+        }
+        return this.counters.get(test).computeIfAbsent(index, i -> new Counters());
+    }
+
+
+    /**
+     * Gets the pass margin of the pValues
+     */
+    public double GetAlpha() {
+
+        return this.alpha;
+    }
+
+
+    /**
+     * Adds the first pValue of a test, pValues out of [0, 1] are counted as
+     * discarded
+     */
+    public void Add(RandomTests test, double pValue) {
+
+        this.Add(test, 0, pValue);
+    }
+
+
+    /**
+     * Adds a pValue of a test, pValues out of [0, 1] are counted as discarded
+     *
+     * @param test test giving the pValue
+     * @param index index of the pValue among the pValues of the test
+     * @param pValue pValue to be added
+     * @throws IndexOutOfBoundsException if index is negative
+     */
+    public void Add(RandomTests test, int index, double pValue) throws IndexOutOfBoundsException {
+        Counters counter;
+
+        counter = this.Get(test, index);
+        if (!((pValue >= 0.0) && (pValue <= 1.0))) {
+            counter.discarded.increment();
+            return;
+        }
+        counter.bins[Math.min((int) (pValue * BINS), BINS - 1)].increment();
+        if (pValue >= this.alpha) {
+            counter.passed.increment();
+        }
+    }
+
+
+    /**
+     * Adds every pValue of a result, each one under its index
+     */
+    public void Add(TestResult result) {
+        double[] pValues;
+
+        pValues = result.GetPValues();
+        for (int i = 0; i < pValues.length; i++) {
+            this.Add(result.GetType(), i, pValues[i]);
+        }
+    }
+
+
+    /**
+     * Adds the pValues of every finished test of a battery run
+     */
+    public void Add(BatteryResults results) {
+        double[] pValues;
+
+        for (RandomTests test : results.GetTests()) {
+            pValues = results.Get(test).GetPValues();
+            for (int i = 0; i < pValues.length; i++) {
+                this.Add(test, i, pValues[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Adds the results of every finished evaluation of a multi-sequence run
+     */
+    public void Add(SequenceResults results) {
+
+        for (RandomTests test : results.GetTests()) {
+            for (TestResult result : results.GetResults(test)) {
+                this.Add(result);
+            }
+        }
+    }
+
+
+    /**
+     * Adds the counts of another aggregator to this one, both must have the same
+     * alpha
+     *
+     * @throws IllegalArgumentException if alpha differs
+     */
+    public void Merge(PValueAggregator other) throws IllegalArgumentException {
+        Counters counter, otherCounter;
+
+        if (other.alpha != this.alpha) {
+            throw new IllegalArgumentException("Aggregators of different alpha !");
+        }
+        for (RandomTests test : RandomTests.values()) {
+            for (int index = 0; index < other.GetPValueNumber(test); index++) {
+                otherCounter = other.counters.get(test).get(index);
+                if (otherCounter == null) {
+                    continue;
+                }
+                counter = this.Get(test, index);
+                for (int i = 0; i < BINS; i++) {
+                    counter.bins[i].add(otherCounter.bins[i].sum());
+                }
+                counter.passed.add(otherCounter.passed.sum());
+                counter.discarded.add(otherCounter.discarded.sum());
+            }
+        }
+    }
+
+
+    /**
+     * Writes alpha and, for every test, its number of pValues and the counts of
+     * each one
+     */
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        int number;
+
+        output.defaultWriteObject();
+        for (RandomTests test : RandomTests.values()) {
+            number = this.GetPValueNumber(test);
+            if (number == 0) {
+                continue;
+            }
+            output.writeUTF(test.name());
+            output.writeInt(number);
+            for (int index = 0; index < number; index++) {
+                for (long bin : this.GetBins(test, index)) {
+                    output.writeLong(bin);
+                }
+                output.writeLong(this.GetPassed(test, index));
+                output.writeLong(this.GetDiscarded(test, index));
+            }
+        }
+        output.writeUTF("");
+    }
+
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        Counters counter;
+        RandomTests test;
+        String name;
+        int number;
+
+        input.defaultReadObject();
+        this.Clear();
+        while (!(name = input.readUTF()).isEmpty()) {
+            try {
+                test = RandomTests.valueOf(name);
+            }
+            catch (IllegalArgumentException e) {
+                throw new IOException("Aggregator holds an unknown test !", e);
+            }
+            number = input.readInt();
+            for (int index = 0; index < number; index++) {
+                counter = this.Get(test, index);
+                for (int i = 0; i < BINS; i++) {
+                    counter.bins[i].add(input.readLong());
+                }
+                counter.passed.add(input.readLong());
+                counter.discarded.add(input.readLong());
+            }
+        }
+    }
+
+
+    /**
+     * Gets the number of pValues of a test, the highest index added plus one
+     */
+    public int GetPValueNumber(RandomTests test) {
+        int number;
+
+        number = 0;
+        for (Integer index : this.counters.get(test).keySet()) {
+            number = Math.max(number, index + 1);
+        }
+        return number;
+    }
+
+
+    /**
+     * Gets the counts of the first pValue of a test by interval
+     *
+     * @see #GetBins(RandomTests, int)
+     */
+    public long[] GetBins(RandomTests test) {
+
+        return this.GetBins(test, 0);
+    }
+
+
+    /**
+     * Gets the number of values of a pValue of a test by interval, interval i
+     * holds pValues in [i / BINS, (i + 1) / BINS), the last one includes 1
+     *
+     * @return long[]: new array of BINS counts
+     */
+    public long[] GetBins(RandomTests test, int index) {
+        Counters counter;
+        long[] bins;
+
+        bins = new long[BINS];
+        counter = this.counters.get(test).get(index);
+        if (counter != null) {
+            for (int i = 0; i < BINS; i++) {
+                bins[i] = counter.bins[i].sum();
+            }
+        }
+        return bins;
+    }
+
+
+    /**
+     * Gets the number of valid values of the first pValue of a test
+     */
+    public long GetCount(RandomTests test) {
+
+        return this.GetCount(test, 0);
+    }
+
+
+    /**
+     * Gets the number of valid values of a pValue of a test
+     */
+    public long GetCount(RandomTests test, int index) {
+        long count;
+
+        count = 0;
+        for (long bin : this.GetBins(test, index)) {
+            count += bin;
+        }
+        return count;
+    }
+
+
+    /**
+     * Gets the number of values of the first pValue of a test reaching alpha
+     */
+    public long GetPassed(RandomTests test) {
+
+        return this.GetPassed(test, 0);
+    }
+
+
+    /**
+     * Gets the number of values of a pValue of a test reaching alpha
+     */
+    public long GetPassed(RandomTests test, int index) {
+        Counters counter;
+
+        counter = this.counters.get(test).get(index);
+        return (counter == null) ? 0 : counter.passed.sum();
+    }
+
+
+    /**
+     * Gets the number of values of the first pValue of a test out of [0, 1]
+     */
+    public long GetDiscarded(RandomTests test) {
+
+        return this.GetDiscarded(test, 0);
+    }
+
+
+    /**
+     * Gets the number of values of a pValue of a test out of [0, 1]
+     */
+    public long GetDiscarded(RandomTests test, int index) {
+        Counters counter;
+
+        counter = this.counters.get(test).get(index);
+        return (counter == null) ? 0 : counter.discarded.sum();
+    }
+
+
+    /**
+     * Gets the proportion of values of the first pValue of a test reaching alpha
+     */
+    public double GetProportion(RandomTests test) {
+
+        return this.GetProportion(test, 0);
+    }
+
+
+    /**
+     * Gets the proportion of values of a pValue of a test reaching alpha
+     *
+     * @return double: passed / count, 0 if there are no values
+     */
+    public double GetProportion(RandomTests test, int index) {
+        long count;
+
+        count = this.GetCount(test, index);
+        return (count == 0) ? 0.0 : (double) this.GetPassed(test, index) / count;
+    }
+
+
+    /**
+     * Indicates if the proportion of the first pValue of a test is acceptable
+     */
+    public boolean IsProportionAcceptable(RandomTests test) {
+
+        return this.IsProportionAcceptable(test, 0);
+    }
+
+
+    /**
+     * Indicates if the proportion of a pValue of a test is inside the NIST
+     * confidence interval (1 - alpha) +/- 3 sqrt(alpha (1 - alpha) / count)
+     */
+    public boolean IsProportionAcceptable(RandomTests test, int index) {
+        long count;
+        double expected, margin;
+
+        count = this.GetCount(test, index);
+        if (count == 0) {
+            return false;
+        }
+        expected = 1.0 - this.alpha;
+        margin = 3.0 * Math.sqrt(expected * this.alpha / count);
+        return Math.abs(this.GetProportion(test, index) - expected) <= margin;
+    }
+
+
+    /**
+     * Gets the uniformity pValue of the first pValue of a test
+     */
+    public double GetUniformityPValue(RandomTests test) {
+
+        return this.GetUniformityPValue(test, 0);
+    }
+
+
+    /**
+     * Gets the uniformity pValue of a pValue of a test, chi square of the interval
+     * counts against count / BINS with BINS - 1 degrees of freedom
+     *
+     * @return double: uniformity pValue, 0 if there are no values
+     */
+    public double GetUniformityPValue(RandomTests test, int index) {
+        long[] bins;
+        long count;
+        double expected, chiSquared;
+
+        bins = this.GetBins(test, index);
+        count = 0;
+        for (long bin : bins) {
+            count += bin;
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        expected = (double) count / BINS;
+        chiSquared = 0.0;
+        for (long bin : bins) {
+            chiSquared += (bin - expected) * (bin - expected) / expected;
+        }
+        return new MathematicalFunctions().IGammaC((BINS - 1) / 2.0, chiSquared / 2.0);
+    }
+}
@@ -0,0 +1,487 @@
+package org.jiumao.nist.Battery;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
+
+
+/**
+ * Cache of test results addressed by stream content, so that a stream submitted
+ * again is not tested again.
+ * <p>
+ * Entries are keyed by a 128 bit hash of the stream bits and its length, read 64
+ * bits at a time, and by the test type and parameters: alpha and block length,
+ * which is the pattern or template length of the tests that have one. Results are
+ * immutable TestResult objects shared by every hit. The least recently used
+ * entries are evicted when the cache holds more than maxEntries entries or more
+ * than maxBytes estimated bytes. Tests throwing an exception are not cached.
+ * <p>
+ * The cache is thread safe. Two threads missing the same key at once both run the
+ * test, the last result is kept.
+ */
+public class ResultCache {
+
+    /**
+     * Multipliers of the content hash
+     */
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    /**
+     * Estimated bytes of an entry besides the detail statistics of the result
+     */
+    private static final long ENTRYBYTES = 160;
+
+
+    /**
+     * Hash of the content of a stream, computed once and used for every test
+     */
+    public static final class ContentHash implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long length;
+        private final long high;
+        private final long low;
+
+
+        ContentHash(long length, long high, long low) {
+
+            this.length = length;
+            this.high = high;
+            this.low = low;
+        }
+
+
+        /**
+         * Gets the length in bits of the stream
+         */
+        public long GetLength() {
+
+            return this.length;
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+            ContentHash hash;
+
+            if (!(other instanceof ContentHash)) {
+                return false;
+            }
+            hash = (ContentHash) other;
+            return (hash.length == this.length) && (hash.high == this.high) && (hash.low == this.low);
+        }
+
+
+        @Override
+        public int hashCode() {
+
+            return (int) (this.low ^ (this.low >>> 32));
+        }
+
+
+        @Override
+        public String toString() {
+
+            return String.format("%016x%016x:%d", this.high, this.low, this.length);
+        }
+    }
+
+
+    /**
+     * Key of an entry, content and test parameters
+     */
+    private static final class Key {
+
+        private final ContentHash content;
+        private final RandomTests test;
+        private final long alpha;
+        private final int blockLength;
+
+
+        Key(ContentHash content, BaseRandom test) {
+
+            this.content = content;
+            this.test = test.GetType();
+            this.alpha = Double.doubleToLongBits(test.getAlpha());
+            this.blockLength = test.GetBlockLength();
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+            Key key;
+
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            key = (Key) other;
+            return key.content.equals(this.content) && (key.test == this.test) && (key.alpha == this.alpha)
+                    && (key.blockLength == this.blockLength);
+        }
+
+
+        @Override
+        public int hashCode() {
+
+            return ((this.content.hashCode() * 31 + this.test.hashCode()) * 31 + (int) this.alpha) * 31
+                    + this.blockLength;
+        }
+    }
+
+
+    /**
+     * Cached result with its estimated bytes
+     */
+    private static final class Entry {
+
+        private final TestResult result;
+        private final long bytes;
+
+
+        Entry(TestResult result, long bytes) {
+
+            this.result = result;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Maximum number of entries and of estimated bytes
+     */
+    private final int maxEntries;
+    private final long maxBytes;
+    /**
+     * Entries in access order, the first one is the least recently used
+     */
+    private final LinkedHashMap<Key, Entry> entries;
+    /**
+     * Estimated bytes of the entries
+     */
+    private long bytes;
+    /**
+     * Lookups that found and did not find their entry, and evicted entries
+     */
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+
+    /**
+     * Constructor
+     *
+     * @param maxEntries maximum number of entries
+     * @param maxBytes maximum estimated bytes of the entries
+     * @throws IllegalArgumentException if a bound is not positive
+     */
+    public ResultCache(int maxEntries, long maxBytes) throws IllegalArgumentException {
+
+        if ((maxEntries <= 0) || (maxBytes <= 0)) {
+            throw new IllegalArgumentException("Cache bounds must be positive !");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+        this.bytes = 0;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+
+    /**
+     * Computes the content hash of a stream, two 64 bit hashes of its words
+     */
+    public static ContentHash Hash(BaseCryptoRandomStream stream) {
+        BitWordCursor cursor;
+        long n, high, low, word;
+
+        n = stream.GetLongBitLength();
+        high = PRIME3 ^ n;
+        low = PRIME1 + n;
+        cursor = stream.GetWordCursor(0, n);
+        while (cursor.HasNext()) {
+            word = cursor.NextWord();
+            high = Long.rotateLeft(high + word * PRIME2, 31) * PRIME1;
+            low = (Long.rotateLeft(low ^ word, 27) + PRIME3) * PRIME2;
+        }
+        return new ContentHash(n, Mix(high), Mix(low ^ high));
+    }
+
+
+    /**
+     * Gets the result of a test over a stream from the cache, testing the stream
+     * and caching the result on a miss
+     *
+     * @param test test object, its parameters are part of the key, it is not run
+     *            on a hit
+     * @param stream stream to be tested
+     * @return TestResult: result of the test over the stream
+     */
+    public TestResult Evaluate(BaseRandom test, BaseCryptoRandomStream stream) {
+
+        return this.Evaluate(test, stream, Hash(stream));
+    }
+
+
+    /**
+     * Gets the result of a test over a stream whose content hash is known
+     *
+     * @param test test object, its parameters are part of the key, it is not run
+     *            on a hit
+     * @param stream stream to be tested
+     * @param content content hash of stream
+     * @return TestResult: result of the test over the stream
+     */
+    public TestResult Evaluate(BaseRandom test, BaseCryptoRandomStream stream, ContentHash content) {
+        Key key;
+        TestResult result;
+
+        key = new Key(content, test);
+        result = this.Get(key);
+        if (result == null) {
+            result = test.evaluate(stream);
+            this.Put(key, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * Tests a stream and caches the result without looking it up, for callers
+     * whose lookup already missed and counted the miss
+     *
+     * @param test test object, its parameters are part of the key
+     * @param stream stream to be tested
+     * @param content content hash of stream
+     * @return TestResult: result of the test over the stream
+     */
+    TestResult Compute(BaseRandom test, BaseCryptoRandomStream stream, ContentHash content) {
+        TestResult result;
+
+        result = test.evaluate(stream);
+        this.Put(new Key(content, test), result);
+        return result;
+    }
+
+
+    /**
+     * Gets a cached result
+     *
+     * @param test test object giving the test type and parameters
+     * @param content content hash of the stream
+     * @return TestResult: cached result, null if there is none
+     */
+    public TestResult Get(BaseRandom test, ContentHash content) {
+
+        return this.Get(new Key(content, test));
+    }
+
+
+    /**
+     * Removes every entry, statistics are kept
+     */
+    public synchronized void Clear() {
+
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+
+    /**
+     * Gets the number of lookups that found their entry
+     */
+    public long GetHits() {
+
+        return this.hits.get();
+    }
+
+
+    /**
+     * Gets the number of lookups that did not find their entry
+     */
+    public long GetMisses() {
+
+        return this.misses.get();
+    }
+
+
+    /**
+     * Gets the number of entries evicted by the bounds
+     */
+    public long GetEvictions() {
+
+        return this.evictions.get();
+    }
+
+
+    /**
+     * Gets the proportion of lookups that found their entry
+     *
+     * @return double: hits / (hits + misses), 0 if there have been no lookups
+     */
+    public double GetHitRatio() {
+        long hit, lookups;
+
+        hit = this.hits.get();
+        lookups = hit + this.misses.get();
+        return (lookups == 0) ? 0.0 : (double) hit / lookups;
+    }
+
+
+    /**
+     * Gets the number of entries
+     */
+    public synchronized int GetSize() {
+
+        return this.entries.size();
+    }
+
+
+    /**
+     * Gets the estimated bytes of the entries
+     */
+    public synchronized long GetBytes() {
+
+        return this.bytes;
+    }
+
+
+    /**
+     * Gets the maximum number of entries
+     */
+    public int GetMaxEntries() {
+
+        return this.maxEntries;
+    }
+
+
+    /**
+     * Gets the maximum estimated bytes of the entries
+     */
+    public long GetMaxBytes() {
+
+        return this.maxBytes;
+    }
+
+
+    private synchronized TestResult Get(Key key) {
+        Entry entry;
+
+        entry = this.entries.get(key);
+        if (entry == null) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        this.hits.incrementAndGet();
+        return entry.result;
+    }
+
+
+    private synchronized void Put(Key key, TestResult result) {
+        Entry entry, previous;
+        Iterator<Map.Entry<Key, Entry>> eldest;
+
+        entry = new Entry(result, ENTRYBYTES + SizeOf(result.GetDetails(BaseRandom.class)));
+        if (entry.bytes > this.maxBytes) {
+            return;
+        }
+        previous = this.entries.put(key, entry);
+        if (previous != null) {
+            this.bytes -= previous.bytes;
+        }
+        this.bytes += entry.bytes;
+        eldest = this.entries.entrySet().iterator();
+        while ((this.entries.size() > this.maxEntries) || (this.bytes > this.maxBytes)) {
+            this.bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            this.evictions.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Estimates the bytes of a test object: 8 bytes by field and the elements of
+     * its array fields, arrays of arrays included
+     */
+    private static long SizeOf(Object details) {
+        long size;
+        Object value;
+
+        size = 16;
+        for (Class<?> type = details.getClass(); type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                size += 8;
+                if (field.getType().isArray()) {
+                    try {
+                        field.setAccessible(true);
+                        value = field.get(details);
+                    }
+                    catch (ReflectiveOperationException | RuntimeException e) {
+                        continue;
+                    }
+                    size += SizeOfArray(value);
+                }
+            }
+        }
+        return size;
+    }
+
+
+    private static long SizeOfArray(Object array) {
+        long size;
+        int length;
+        Class<?> component;
+
+        if (array == null) {
+            return 0;
+        }
+        length = Array.getLength(array);
+        component = array.getClass().getComponentType();
+        size = 16;
+        if (component == byte.class || component == boolean.class) {
+            return size + length;
+        }
+        if (component == short.class || component == char.class) {
+            return size + 2L * length;
+        }
+        if (component == int.class || component == float.class) {
+            return size + 4L * length;
+        }
+        if (!component.isArray()) {
+            return size + 8L * length;
+        }
+        for (int i = 0; i < length; i++) {
+            size += 8 + SizeOfArray(Array.get(array, i));
+        }
+        return size;
+    }
+
+
+    private static long Mix(long hash) {
+        long h;
+
+        h = hash;
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
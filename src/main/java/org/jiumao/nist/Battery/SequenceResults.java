@@ -0,0 +1,168 @@
+package org.jiumao.nist.Battery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Set;
+
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+
+
+/**
+ * Results of a multi-sequence battery run, by test and sequence: the result of
+ * every evaluation that finished and the exception of every one that did not.
+ * Summaries count finished evaluations only.
+ */
+public class SequenceResults {
+
+    /**
+     * Length in bits of every sequence
+     */
+    private final long sequenceLength;
+    /**
+     * Number of sequences
+     */
+    private final int sequenceNumber;
+    /**
+     * Results by test and sequence, null where the evaluation did not finish
+     */
+    private final EnumMap<RandomTests, TestResult[]> results;
+    /**
+     * Exceptions by test and sequence, null where the evaluation finished
+     */
+    private final EnumMap<RandomTests, RuntimeException[]> failures;
+
+
+    /**
+     * Constructor, results of a run
+     */
+    SequenceResults(long sequenceLength, int sequenceNumber, EnumMap<RandomTests, TestResult[]> results,
+            EnumMap<RandomTests, RuntimeException[]> failures) {
+
+        this.sequenceLength = sequenceLength;
+        this.sequenceNumber = sequenceNumber;
+        this.results = results;
+        this.failures = failures;
+    }
+
+
+    /**
+     * Gets the length in bits of every sequence
+     */
+    public long GetSequenceLength() {
+
+        return this.sequenceLength;
+    }
+
+
+    /**
+     * Gets the number of sequences
+     */
+    public int GetSequenceNumber() {
+
+        return this.sequenceNumber;
+    }
+
+
+    /**
+     * Gets the tests that have been run
+     */
+    public Set<RandomTests> GetTests() {
+
+        return Collections.unmodifiableSet(this.results.keySet());
+    }
+
+
+    /**
+     * Gets the result of a test over a sequence
+     *
+     * @return TestResult: result, null if the evaluation did not finish
+     */
+    public TestResult GetResult(RandomTests test, int sequence) {
+
+        return this.results.get(test)[sequence];
+    }
+
+
+    /**
+     * Gets the exception thrown by a test over a sequence
+     *
+     * @return RuntimeException: exception, null if the evaluation finished
+     */
+    public RuntimeException GetFailure(RandomTests test, int sequence) {
+
+        return this.failures.get(test)[sequence];
+    }
+
+
+    /**
+     * Gets the finished results of a test, in sequence order
+     */
+    public List<TestResult> GetResults(RandomTests test) {
+        List<TestResult> finished;
+
+        finished = new ArrayList<TestResult>(this.sequenceNumber);
+        for (TestResult result : this.results.get(test)) {
+            if (result != null) {
+                finished.add(result);
+            }
+        }
+        return Collections.unmodifiableList(finished);
+    }
+
+
+    /**
+     * Gets the pValues of the finished results of a test, in sequence order
+     */
+    public double[] GetPValues(RandomTests test) {
+        List<TestResult> finished;
+        double[] pValues;
+
+        finished = this.GetResults(test);
+        pValues = new double[finished.size()];
+        for (int i = 0; i < pValues.length; i++) {
+            pValues[i] = finished.get(i).GetPValue();
+        }
+        return pValues;
+    }
+
+
+    /**
+     * Gets the number of sequences a test has finished
+     */
+    public int GetFinished(RandomTests test) {
+
+        return this.GetResults(test).size();
+    }
+
+
+    /**
+     * Gets the number of sequences a test has found random
+     */
+    public int GetPassed(RandomTests test) {
+        int passed;
+
+        passed = 0;
+        for (TestResult result : this.results.get(test)) {
+            if ((result != null) && result.IsRandom()) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+
+    /**
+     * Gets the proportion of finished sequences a test has found random
+     *
+     * @return double: passed / finished, 0 if no sequence has finished
+     */
+    public double GetProportion(RandomTests test) {
+        int finished;
+
+        finished = this.GetFinished(test);
+        return (finished == 0) ? 0.0 : (double) this.GetPassed(test) / finished;
+    }
+}
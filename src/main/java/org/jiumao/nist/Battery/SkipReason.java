@@ -0,0 +1,15 @@
+package org.jiumao.nist.Battery;
+
+/**
+ * Reasons for a scheduled battery run to skip a test
+ */
+public enum SkipReason {
+    /**
+     * Estimated time of the test exceeds what remains of the budget
+     */
+    OverBudget,
+    /**
+     * An earlier test has failed and the run stops on first failure
+     */
+    EarlierFailure
+}
@@ -39,7 +39,7 @@ import org.jiumao.nist.Base.TypeSizes;
  * @version     5.0.0.1
  * @since       2011-09-28
  */
-public abstract class BaseCryptoRandomStream {
+public abstract class BaseCryptoRandomStream implements AutoCloseable {
 
     /**
      * Buffer to access CryptoRandomStream data
@@ -107,10 +107,13 @@ public abstract class BaseCryptoRandomStream {
     }
 
   /**
-   * Destructor, zeroes all data
-   * 
+   * Releases the stream, zeroes all data owned by the stream
+   * <p>
+   * Streams are released explicitly, through close or try-with-resources, and
+   * not by a finalizer, so released data is neither kept alive nor left unzeroed
+   * until a garbage collection runs.
    */
-    abstract protected void finalize();
+    abstract public void close();
 
   /**
    * Sets the BaseCryptoRandomStream position, minimum value 0
@@ -146,6 +149,18 @@ public abstract class BaseCryptoRandomStream {
         }
     }
 
+  /**
+   * Gets the stream length in bits as a long value. Streams longer than
+   * Integer.MAX_VALUE bits report their whole length here, while GetBitLength
+   * is limited to their first Integer.MAX_VALUE bits
+   * 
+   * @return     long:  CryptoRandomStream length in bits
+   */
+    public long GetLongBitLength() {
+
+        return this.GetBitLength();
+    }
+
   /**
    * Gets the stream length in unsigned char type
    * 
@@ -344,6 +359,18 @@ public abstract class BaseCryptoRandomStream {
         this.cryptoBuffer.put(bytePosition, this.SetByteBitPosition(this.cryptoBuffer.get(bytePosition), bitPosition, bit));
     }
 
+  /**
+   * Sets the bit value (value 0 or 1) at specified long postion, position based in array of bits,
+   * streams that can hold more than Integer.MAX_VALUE bits override this method
+   * 
+   * @param     position  position where to set the bit value
+   * @param     bit       bit value, 0 or 1
+   */
+    public void SetBitPosition(long position, byte bit) {
+
+        this.SetBitPosition((int)position, bit);
+    }
+
   /**
    * Sets the byte value at specified postion, position based in array of bytes
    * 
@@ -405,6 +432,18 @@ public abstract class BaseCryptoRandomStream {
         return this.GetByteBitPosition(this.cryptoBuffer.get(bytePosition), bitPosition);
     }
 
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified long postion, position based in array of bits,
+   * streams that can hold more than Integer.MAX_VALUE bits override this method
+   * 
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(long position) {
+
+        return this.GetBitPosition((int)position);
+    }
+
   /**
    * Gets the byte at specified postion, position based in array of bytes
    * 
@@ -511,6 +550,144 @@ public abstract class BaseCryptoRandomStream {
    * @throws    IndexOutOfBoundsException
    */
     abstract public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException;
+
+  /**
+   * Gets up to 64 bits starting at specified bit position, bit position + j of the
+   * stream is bit j of the result. Streams not backed by cryptoBuffer, or whose data
+   * exceeds cryptoBuffer, override this method
+   * 
+   * @param     position    bit position of the first bit
+   * @param     count       number of bits, from 1 to 64
+   * @return    long:       bits of the stream
+   */
+    public long ExtractBits(long position, int count) {
+        long firstByte, value;
+        int  shift, byteCount;
+
+        if ( (this.cryptoBuffer == null) || (((position + count + 7) >>> 3) > this.cryptoBuffer.limit()) ) {
+        	value = 0;
+        	for (int i = 0; i < count; i++) {
+        		value |= ((long)this.GetBitPosition(position + i)) << i;
+        	}
+        	return value;
+        }
+        firstByte = position >>> 3;
+        shift = (int)position & 7;
+        byteCount = (shift + count + 7) >>> 3;
+        value = 0;
+        for (int i = 0; i < Math.min(byteCount, TypeSizes.LONG_BYTES); i++) {
+        	value |= (this.cryptoBuffer.get((int)firstByte + i) & 0xffL) << (i * TypeSizes.BYTE_BITS);
+        }
+        value >>>= shift;
+        if ( byteCount > TypeSizes.LONG_BYTES ) {
+        	value |= (this.cryptoBuffer.get((int)firstByte + TypeSizes.LONG_BYTES) & 0xffL) << (TypeSizes.LONG_BITS - shift);
+        }
+        if ( count < TypeSizes.LONG_BITS ) {
+        	value &= (1L << count) - 1;
+        }
+        return value;
+    }
+
+  /**
+   * Gets consecutive 64 bit words starting at specified bit position, word i holds
+   * the bits from position + 64 * i as ExtractBits does, bits beyond the stream length are zero
+   * 
+   * @param     position    bit position of the first bit
+   * @param     target      array receiving the words
+   * @param     offset      position of the first word in target
+   * @param     count       number of words
+   */
+    public void GetWords(long position, long[] target, int offset, int count) {
+        long length, bitPosition;
+
+        length = this.GetLongBitLength();
+        for (int i = 0; i < count; i++) {
+        	bitPosition = position + (long)i * TypeSizes.LONG_BITS;
+        	if ( ((bitPosition & 7) == 0) && (this.cryptoBuffer != null) && ((bitPosition + TypeSizes.LONG_BITS) <= length)
+        			&& (((bitPosition >>> 3) + TypeSizes.LONG_BYTES) <= this.cryptoBuffer.limit()) ) {
+        		// byte aligned words are read at once, cryptoBuffer is big endian
+        		target[offset + i] = Long.reverseBytes(this.cryptoBuffer.getLong((int)(bitPosition >>> 3)));
+        	}
+        	else if ( bitPosition < length ) {
+        		target[offset + i] = this.ExtractBits(bitPosition, (int)Math.min(TypeSizes.LONG_BITS, length - bitPosition));
+        	}
+        	else {
+        		target[offset + i] = 0;
+        	}
+        }
+    }
+
+  /**
+   * Counts the bits with value 1 in the bit range [from, to)
+   * 
+   * @param     from    first bit position of the range
+   * @param     to      bit position following the last bit of the range
+   * @return    long:   number of ones
+   */
+    public long PopCount(long from, long to) {
+        long count;
+
+        count = 0;
+        for (long i = from; i < to; i += TypeSizes.LONG_BITS) {
+        	count += Long.bitCount(this.ExtractBits(i, (int)Math.min(TypeSizes.LONG_BITS, to - i)));
+        }
+        return count;
+    }
+
+  /**
+   * Counts the positions i of the bit range [from, to), i greater than from, where
+   * bit i differs from bit i - 1
+   * 
+   * @param     from    first bit position of the range
+   * @param     to      bit position following the last bit of the range
+   * @return    long:   number of transitions
+   */
+    public long CountTransitions(long from, long to) {
+        long count, word, previous;
+        int  bits;
+
+        count = 0;
+        previous = -1;
+        for (long i = from; i < to; i += TypeSizes.LONG_BITS) {
+        	bits = (int)Math.min(TypeSizes.LONG_BITS, to - i);
+        	word = this.ExtractBits(i, bits);
+        	// bit j of word ^ (word >>> 1) tells if bits j and j + 1 differ
+        	if ( bits > 1 ) {
+        		count += Long.bitCount((word ^ (word >>> 1)) & (-1L >>> (TypeSizes.LONG_BITS - bits + 1)));
+        	}
+        	if ( (previous >= 0) && (previous != (word & 1)) ) {
+        		count++;
+        	}
+        	previous = (word >>> (bits - 1)) & 1;
+        }
+        return count;
+    }
+
+  /**
+   * Gets a cursor returning the bit range [from, to) as consecutive 64 bit words
+   * 
+   * @param     from    first bit position of the range
+   * @param     to      bit position following the last bit of the range
+   * @return    BitWordCursor:   cursor over the bit range
+   */
+    public BitWordCursor GetWordCursor(long from, long to) {
+
+        return new BitWordCursor(this, from, to);
+    }
+
+  /**
+   * Gets a read only view of a bit range of BaseCryptoRandomStream, the view shares
+   * the storage of this stream at any bit alignment, no data is copied
+   * 
+   * @param     bitOffset       position in bits of this stream, new 0 position of the view
+   * @param     bitLength       length in bits of the view
+   * @return    BaseCryptoRandomStream:    read only view sharing the storage of this stream
+   * @throws    IndexOutOfBoundsException
+   */
+    public BaseCryptoRandomStream View(long bitOffset, long bitLength) throws IndexOutOfBoundsException {
+
+        return new ViewCryptoRandomStream(this, bitOffset, bitLength);
+    }
   
   /**
    * Reduces considered length of BaseCryptoRandomStream, real length is mantained,
@@ -629,6 +806,20 @@ public abstract class BaseCryptoRandomStream {
         	if (this.GetBitLength() != otherStream.GetBitLength()) {
         		return false;
         	}
+        	else if ( (this.cryptoBuffer == null) || (otherStream.cryptoBuffer == null) ) {
+        		// streams not backed by a ByteBuffer are compared through their accessors
+        		for (int i = 0; i < this.GetUCLength(); i++) {
+        			if ( this.GetUCPosition(i) != otherStream.GetUCPosition(i) ) {
+        				return false;
+        			}
+        		}
+        		for (int i = this.GetUCLength() * TypeSizes.BYTE_BITS; i < this.GetBitLength(); i++) {
+        			if ( this.GetBitPosition(i) != otherStream.GetBitPosition(i) ) {
+        				return false;
+        			}
+        		}
+        		return true;
+        	}
         	else {
         		thisBuffer = this.cryptoBuffer;
         		if ( this.ReducedLength() ) {
@@ -665,6 +856,15 @@ public abstract class BaseCryptoRandomStream {
         try {
         	if ( this.GetUCLength() != target.GetUCLength() )
         		throw new OutOfMemoryError("Streams have different lengths !");
+        	else if ( (this.cryptoBuffer == null) || (target.cryptoBuffer == null) ) {
+        		// streams not backed by a ByteBuffer are copied through their accessors
+        		for (int i = 0; i < this.GetUCLength(); i++) {
+        			target.SetUCPosition(i, this.GetUCPosition(i));
+        		}
+        		for (int i = this.GetUCLength() * TypeSizes.BYTE_BITS; i < this.GetBitLength(); i++) {
+        			target.SetBitPosition(i, this.GetBitPosition(i));
+        		}
+        	}
         	else {
         		for (int i = 0; i < this.cryptoBuffer.limit(); i++) {
         			target.cryptoBuffer.put(i, this.cryptoBuffer.get(i));
@@ -0,0 +1,253 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import org.jiumao.nist.Base.TypeSizes;
+
+/**
+ * Packs ASCII '0'/'1' text into a bit array, 64 characters per long word, the
+ * way BaseCryptoRandomStream addresses bits (bit i is bit i%8 of byte i/8).
+ * <p>
+ * Input is consumed in fixed size chunks, whitespace is skipped and any other
+ * character is rejected, the text is never held as a whole String.
+ */
+final class BinaryStringPacker {
+
+  /**
+   * Size in characters or bytes of every chunk read from the input
+   */
+    static final int CHUNKLENGTH = 8192;
+
+  /**
+   * Character classes of the lookup table
+   */
+    private static final byte ZERO = 0;
+    private static final byte ONE = 1;
+    private static final byte SKIP = 2;
+    private static final byte INVALID = 3;
+
+  /**
+   * Character class of every ASCII value
+   */
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+    	Arrays.fill(CLASSES, INVALID);
+    	CLASSES['0'] = ZERO;
+    	CLASSES['1'] = ONE;
+    	CLASSES[' '] = SKIP;
+    	CLASSES['\t'] = SKIP;
+    	CLASSES['\n'] = SKIP;
+    	CLASSES['\r'] = SKIP;
+    	CLASSES['\f'] = SKIP;
+    	CLASSES[0x0b] = SKIP;
+    }
+
+  /**
+   * Packed bytes, grown as characters arrive
+   */
+    private byte[] packed;
+  /**
+   * Number of packed bytes already written to "packed"
+   */
+    private int    packedLength;
+  /**
+   * Word being filled, next bit goes to bit "wordBits"
+   */
+    private long   word;
+  /**
+   * Number of bits in "word"
+   */
+    private int    wordBits;
+  /**
+   * Number of bits packed
+   */
+    private long   bitLength;
+
+  /**
+   * Constructor
+   *
+   * @param     expectedBits    expected number of bits, used to size the packed array, 0 if unknown
+   */
+    BinaryStringPacker(long expectedBits) {
+
+    	int capacity;
+
+    	capacity = CHUNKLENGTH;
+    	if ( expectedBits > 0 ) {
+    		capacity = (int)Math.min(Integer.MAX_VALUE - TypeSizes.LONG_BYTES, (expectedBits + TypeSizes.LONG_BITS) / TypeSizes.BYTE_BITS);
+    	}
+    	this.packed = new byte[capacity];
+    	this.packedLength = 0;
+    	this.word = 0;
+    	this.wordBits = 0;
+    	this.bitLength = 0;
+    }
+
+  /**
+   * Packs one bit
+   */
+    private void Pack(int bit) {
+
+    	this.word |= ((long)bit) << this.wordBits;
+    	if ( ++this.wordBits == TypeSizes.LONG_BITS ) {
+    		this.Flush(TypeSizes.LONG_BYTES);
+    	}
+    }
+
+  /**
+   * Moves the first byteCount bytes of "word" to the packed array
+   */
+    private void Flush(int byteCount) {
+
+    	if ( this.packedLength + byteCount > this.packed.length ) {
+    		if ( this.packed.length >= Integer.MAX_VALUE - TypeSizes.LONG_BYTES ) {
+    			throw new IndexOutOfBoundsException("Length exceeded stream maximum length !");
+    		}
+    		this.packed = Arrays.copyOf(this.packed, (int)Math.min(Integer.MAX_VALUE - TypeSizes.LONG_BYTES, 2L * this.packed.length));
+    	}
+    	for (int i = 0; i < byteCount; i++) {
+    		this.packed[this.packedLength++] = (byte)(this.word >>> (i * TypeSizes.BYTE_BITS));
+    	}
+    	this.bitLength += this.wordBits;
+    	this.word = 0;
+    	this.wordBits = 0;
+    }
+
+  /**
+   * Packs a single character
+   *
+   * @param     c    character to be packed
+   * @throws    DataFormatException
+   */
+    void Pack(char c) throws DataFormatException {
+    	byte type;
+
+    	if ( c < CLASSES.length ) {
+    		type = CLASSES[c];
+    	}
+    	else {
+    		type = Character.isWhitespace(c) ? SKIP : INVALID;
+    	}
+    	switch ( type ) {
+    		case ZERO :
+    		case ONE : this.Pack((int)type); break;
+    		case SKIP : break;
+    		default :
+    			throw new DataFormatException("Erroneous binary string!");
+    	}
+    }
+
+  /**
+   * Packs an ASCII encoded byte
+   *
+   * @param     b    byte to be packed
+   * @throws    DataFormatException
+   */
+    void Pack(byte b) throws DataFormatException {
+    	byte type;
+
+    	type = (b >= 0) ? CLASSES[b] : INVALID;
+    	switch ( type ) {
+    		case ZERO :
+    		case ONE : this.Pack((int)type); break;
+    		case SKIP : break;
+    		default :
+    			throw new DataFormatException("Erroneous binary string!");
+    	}
+    }
+
+  /**
+   * Packs all characters of a char sequence
+   *
+   * @param     text    characters to be packed
+   * @throws    DataFormatException
+   */
+    void Pack(CharSequence text) throws DataFormatException {
+
+    	for (int i = 0; i < text.length(); i++) {
+    		this.Pack(text.charAt(i));
+    	}
+    }
+
+  /**
+   * Packs all characters of a reader, chunk by chunk
+   *
+   * @param     reader    characters to be packed
+   * @throws    IOException, DataFormatException
+   */
+    void Pack(Reader reader) throws IOException, DataFormatException {
+    	char[] chunk = new char[CHUNKLENGTH];
+    	int    read;
+
+    	while ( (read = reader.read(chunk)) != -1 ) {
+    		for (int i = 0; i < read; i++) {
+    			this.Pack(chunk[i]);
+    		}
+    	}
+    }
+
+  /**
+   * Packs all ASCII bytes of an input stream, chunk by chunk
+   *
+   * @param     input    bytes to be packed
+   * @throws    IOException, DataFormatException
+   */
+    void Pack(InputStream input) throws IOException, DataFormatException {
+    	byte[] chunk = new byte[CHUNKLENGTH];
+    	int    read;
+
+    	while ( (read = input.read(chunk)) != -1 ) {
+    		for (int i = 0; i < read; i++) {
+    			this.Pack(chunk[i]);
+    		}
+    	}
+    }
+
+  /**
+   * Packs all ASCII bytes of a channel, chunk by chunk
+   *
+   * @param     channel    bytes to be packed
+   * @throws    IOException, DataFormatException
+   */
+    void Pack(ReadableByteChannel channel) throws IOException, DataFormatException {
+    	ByteBuffer chunk = ByteBuffer.allocate(CHUNKLENGTH);
+
+    	while ( channel.read(chunk) != -1 ) {
+    		chunk.flip();
+    		while ( chunk.hasRemaining() ) {
+    			this.Pack(chunk.get());
+    		}
+    		chunk.clear();
+    	}
+    }
+
+  /**
+   * Flushes pending bits and sets packed data as the data of the stream
+   *
+   * @param     stream    stream that will point the packed data
+   * @throws    IndexOutOfBoundsException
+   */
+    void SetCryptoRandomStream(StringCryptoRandomStream stream) throws IndexOutOfBoundsException {
+
+    	if ( this.wordBits > 0 ) {
+    		this.Flush((this.wordBits + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS);
+    	}
+    	if ( this.bitLength > Integer.MAX_VALUE ) {
+    		throw new IndexOutOfBoundsException("Length exceeded stream maximum length !");
+    	}
+    	stream.baseCryptoStream = this.packed;
+    	stream.autoMemory = true;
+    	stream.bitLength = (int)this.bitLength;
+    	stream.cryptoBuffer = ByteBuffer.wrap(this.packed, 0, this.packedLength).slice();
+    	stream.position = 0;
+    	stream.baseOffset = 0;
+    	this.packed = null;
+    }
+}
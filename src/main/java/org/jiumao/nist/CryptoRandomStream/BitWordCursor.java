@@ -0,0 +1,120 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import org.jiumao.nist.Base.TypeSizes;
+
+/**
+ * Cursor returning a bit range of a crypto random stream as consecutive 64 bit words.
+ * <p>
+ * Words are fetched from the stream in blocks through a single GetWords call, so
+ * the per word path is an array read whatever the stream class is. Bit j of every
+ * word is bit position + j of the stream, bits beyond the range are zero.
+ */
+public final class BitWordCursor {
+
+  /**
+   * Number of words fetched from the stream at once
+   */
+    private static final int BLOCKWORDS = 512;
+
+  /**
+   * Stream the words are read from
+   */
+    private final BaseCryptoRandomStream stream;
+  /**
+   * Words fetched from the stream
+   */
+    private final long[] block;
+  /**
+   * Bit position following the last bit of the range
+   */
+    private final long   to;
+  /**
+   * Bit position of the next word to be returned
+   */
+    private long position;
+  /**
+   * Index in block of the next word and number of words held in block
+   */
+    private int  index;
+    private int  count;
+
+  /**
+   * Constructor, cursor over the bit range [from, to) of stream
+   *
+   * @param     stream    stream the words are read from
+   * @param     from      first bit position of the range
+   * @param     to        bit position following the last bit of the range
+   * @throws    IndexOutOfBoundsException
+   */
+    public BitWordCursor(BaseCryptoRandomStream stream, long from, long to) throws IndexOutOfBoundsException {
+
+    	if ( (from < 0) || (from > to) || (to > stream.GetLongBitLength()) ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.stream = stream;
+    	this.block = new long[(int)Math.min(BLOCKWORDS, (to - from + TypeSizes.LONG_BITS - 1) / TypeSizes.LONG_BITS + 1)];
+    	this.to = to;
+    	this.position = from;
+    	this.index = 0;
+    	this.count = 0;
+    }
+
+  /**
+   * Indicates if there are bits left in the range
+   *
+   * @return    boolean:    true if NextWord can be called
+   */
+    public boolean HasNext() {
+
+    	return this.position < this.to;
+    }
+
+  /**
+   * Gets the number of bits left in the range
+   *
+   * @return    long:    bits not returned yet
+   */
+    public long GetRemainingBits() {
+
+    	return this.to - this.position;
+    }
+
+  /**
+   * Gets the bit position of the first bit of the next word
+   *
+   * @return    long:    stream bit position
+   */
+    public long GetPosition() {
+
+    	return this.position;
+    }
+
+  /**
+   * Gets the next 64 bits of the range, the last word holds GetRemainingBits bits
+   * and its upper bits are zero
+   *
+   * @return    long:    next word
+   * @throws    IndexOutOfBoundsException
+   */
+    public long NextWord() throws IndexOutOfBoundsException {
+    	long word;
+
+    	if ( this.position >= this.to ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( this.index == this.count ) {
+    		this.count = (int)Math.min(this.block.length, (this.to - this.position + TypeSizes.LONG_BITS - 1) / TypeSizes.LONG_BITS);
+    		this.stream.GetWords(this.position, this.block, 0, this.count);
+    		this.index = 0;
+    	}
+    	word = this.block[this.index++];
+    	if ( (this.to - this.position) < TypeSizes.LONG_BITS ) {
+    		word &= (1L << (this.to - this.position)) - 1;
+    		this.position = this.to;
+    	}
+    	else {
+    		this.position += TypeSizes.LONG_BITS;
+    	}
+    	return word;
+    }
+}
@@ -56,7 +56,7 @@ public class ByteCryptoRandomStream extends BaseCryptoRandomStream {
     public int     baseOffset;
   /**
    * Boolean indicating if base byte array has been internally created
-   *  true:     this object must release byte array instantiated when finalized
+   *  true:     this object must release byte array instantiated when closed
    *  false:    base byte array has been instantiated outside this object
    */
     public boolean autoMemory;
@@ -134,9 +134,9 @@ public class ByteCryptoRandomStream extends BaseCryptoRandomStream {
     }
    
   /**    
-   * Destructor, zeroes all data
+   * Releases the stream, zeroes all data owned by the stream
    */
-    public void finalize() {
+    public void close() {
    
     	if ( this.autoMemory ) {
     		this.FillUC((byte)0x00); 
@@ -36,6 +36,11 @@ package org.jiumao.nist.CryptoRandomStream;
  */
 public enum CryptoRandomStreams {
 	DefaultStream,
+	MappedFileStream,
+	LongArrayStream,
+	ViewStream,
+	DirectStream,
+	SegmentedStream,
 	NumberOfStreams,    // Indication of the number of CryptoRandomStream types, any added CryptoRandomStream type must be inserted before
 	NotDefined,
 	StringOfStream;
@@ -0,0 +1,129 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of direct byte buffers, buffers are reused by streams of the same byte length.
+ * <p>
+ * Released buffers are zeroed before being pooled, so an acquired buffer never
+ * holds data of a previous stream. At most maxBuffers buffers of every byte length
+ * are kept, further released buffers are left to the garbage collector.
+ */
+public final class DirectBufferPool {
+
+  /**
+   * Number of buffers of every byte length kept by the default pool
+   */
+    private static final int DEFAULTBUFFERS = 16;
+
+  /**
+   * Pool used by streams not given a pool
+   */
+    private static final DirectBufferPool DefaultPool = new DirectBufferPool(DEFAULTBUFFERS);
+
+  /**
+   * Released buffers by byte length
+   */
+    private final ConcurrentHashMap<Integer, ArrayBlockingQueue<ByteBuffer>> buffers;
+  /**
+   * Maximum number of buffers kept for every byte length
+   */
+    private final int maxBuffers;
+
+  /**
+   * Constructor, creates an empty pool
+   *
+   * @param     maxBuffers    maximum number of buffers kept for every byte length
+   */
+    public DirectBufferPool(int maxBuffers) {
+
+    	if ( maxBuffers < 1 ) {
+    		throw new IllegalArgumentException("Pool must keep at least one buffer !");
+    	}
+    	this.buffers = new ConcurrentHashMap<Integer, ArrayBlockingQueue<ByteBuffer>>();
+    	this.maxBuffers = maxBuffers;
+    }
+
+  /**
+   * Gets the pool used by streams not given a pool
+   *
+   * @return    DirectBufferPool:    shared pool
+   */
+    public static DirectBufferPool GetDefaultPool() {
+
+    	return DirectBufferPool.DefaultPool;
+    }
+
+  /**
+   * Gets a zeroed direct buffer of the indicated byte length, pooled if any
+   *
+   * @param     byteLength    buffer length in bytes
+   * @return    ByteBuffer:   big endian buffer, position 0 and limit byteLength
+   * @throws    OutOfMemoryError
+   */
+    public ByteBuffer Acquire(int byteLength) throws OutOfMemoryError {
+    	ArrayBlockingQueue<ByteBuffer> queue;
+    	ByteBuffer buffer;
+
+    	queue = this.buffers.get(byteLength);
+    	buffer = (queue == null) ? null : queue.poll();
+    	if ( buffer == null ) {
+    		buffer = ByteBuffer.allocateDirect(byteLength);
+    	}
+    	buffer.clear();
+    	return buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+  /**
+   * Zeroes a buffer acquired from this pool and keeps it for reuse
+   *
+   * @param     buffer    buffer returned by Acquire, must not be used afterwards
+   */
+    public void Release(ByteBuffer buffer) {
+    	ArrayBlockingQueue<ByteBuffer> queue;
+
+    	DirectBufferPool.Zero(buffer);
+    	queue = this.buffers.get(buffer.capacity());
+    	if ( queue == null ) {
+    		queue = new ArrayBlockingQueue<ByteBuffer>(this.maxBuffers);
+    		ArrayBlockingQueue<ByteBuffer> previous = this.buffers.putIfAbsent(buffer.capacity(), queue);
+    		if ( previous != null ) {
+    			queue = previous;
+    		}
+    	}
+    	queue.offer(buffer);
+    }
+
+  /**
+   * Gets the number of pooled buffers of the indicated byte length
+   *
+   * @param     byteLength    buffer length in bytes
+   * @return    int:          buffers ready to be acquired
+   */
+    public int GetPooledBuffers(int byteLength) {
+    	ArrayBlockingQueue<ByteBuffer> queue;
+
+    	queue = this.buffers.get(byteLength);
+    	return (queue == null) ? 0 : queue.size();
+    }
+
+  /**
+   * Zeroes the whole capacity of a buffer, eight bytes at a time
+   *
+   * @param     buffer    buffer to be zeroed
+   */
+    static void Zero(ByteBuffer buffer) {
+    	int i;
+
+    	buffer.clear();
+    	for (i = 0; (i + 8) <= buffer.capacity(); i += 8) {
+    		buffer.putLong(i, 0L);
+    	}
+    	for (; i < buffer.capacity(); i++) {
+    		buffer.put(i, (byte)0x00);
+    	}
+    }
+}
@@ -0,0 +1,332 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import java.nio.ByteBuffer;
+
+import org.jiumao.nist.Base.TypeSizes;
+
+/**
+ * Crypto random stream that stores its bits off heap, in a direct byte buffer.
+ * <p>
+ * Buffers are taken from a DirectBufferPool and given back when the stream is
+ * closed, data is zeroed at that point, so streams are meant to be used through
+ * try-with-resources. Sub-streams share the buffer of their stream, they do not
+ * own it and must not be used once their stream is closed.
+ */
+public class DirectCryptoRandomStream extends BaseCryptoRandomStream {
+
+  /**
+   * Type of stream object
+   */
+    private static final CryptoRandomStreams Type = CryptoRandomStreams.DirectStream;
+
+  /**
+   * Whole direct buffer owned by this stream, null if the buffer is not owned
+   */
+    public ByteBuffer       directBuffer;
+  /**
+   * Pool the owned buffer is acquired from and released to, null if not pooled
+   */
+    public DirectBufferPool pool;
+  /**
+   * Starting point (byte) of this DirectCryptoRandomStream inside its buffer
+   */
+    public int              baseOffset;
+
+  /**
+   * Constructor, default, buffers will be taken from the default pool
+   */
+    public DirectCryptoRandomStream() {
+
+    	this(DirectBufferPool.GetDefaultPool());
+    }
+
+  /**
+   * Constructor, buffers will be taken from the indicated pool
+   *
+   * @param     pool    pool of buffers, null to allocate buffers that are not pooled
+   */
+    public DirectCryptoRandomStream(DirectBufferPool pool) {
+
+    	super();
+    	this.directBuffer = null;
+    	this.pool = pool;
+    	this.baseOffset = 0;
+    }
+
+  /**
+   * Constructor, creates an empty stream with the indicated bit length from the default pool
+   *
+   * @param     streamLength    stream length in bits of new DirectCryptoRandomStream
+   * @throws    OutOfMemoryError
+   */
+    public DirectCryptoRandomStream(int streamLength) throws OutOfMemoryError {
+
+    	this(streamLength, DirectBufferPool.GetDefaultPool());
+    }
+
+  /**
+   * Constructor, creates an empty stream with the indicated bit length from the indicated pool
+   *
+   * @param     streamLength    stream length in bits of new DirectCryptoRandomStream
+   * @param     pool            pool of buffers, null to allocate a buffer that is not pooled
+   * @throws    OutOfMemoryError
+   */
+    public DirectCryptoRandomStream(int streamLength, DirectBufferPool pool) throws OutOfMemoryError {
+
+    	this(pool);
+    	this.SetCryptoRandomStreamBit(streamLength);
+    }
+
+  /**
+   * Constructor, copies the byte array of the indicated length in bits into a buffer of the default pool
+   *
+   * @param     stream          byte array holding the stream data
+   * @param     streamLength    stream length in bits of stream parameter
+   * @throws    OutOfMemoryError
+   */
+    public DirectCryptoRandomStream(byte[] stream, int streamLength) throws OutOfMemoryError {
+
+    	this(streamLength);
+    	this.cryptoBuffer.put(stream, 0, this.cryptoBuffer.limit());
+    	this.cryptoBuffer.clear();
+    }
+
+  /**
+   * Gets a buffer for the stream of the indicated length, if it has no buffer yet
+   *
+   * @param     byteLength      length in bytes of the buffer
+   * @param     streamLength    length in bits of the stream
+   * @throws    OutOfMemoryError
+   */
+    private void Allocate(int byteLength, int streamLength) throws OutOfMemoryError {
+
+    	if ( this.cryptoBuffer == null ) {
+    		if ( this.pool != null ) {
+    			this.directBuffer = this.pool.Acquire(byteLength);
+    		}
+    		else {
+    			this.directBuffer = ByteBuffer.allocateDirect(byteLength);
+    		}
+    		this.cryptoBuffer = this.directBuffer;
+    		this.bitLength = streamLength;
+    		this.reducedBitLength = 0;
+    		this.position = 0;
+    		this.baseOffset = 0;
+    	}
+    }
+
+  /**
+   * Releases the stream, zeroes the owned buffer and gives it back to its pool,
+   * calling it again has no effect
+   */
+    public void close() {
+
+    	if ( this.directBuffer != null ) {
+    		if ( this.pool != null ) {
+    			this.pool.Release(this.directBuffer);
+    		}
+    		else {
+    			DirectBufferPool.Zero(this.directBuffer);
+    		}
+    	}
+    	this.directBuffer = null;
+    	this.cryptoBuffer = null;
+    	this.bitLength = 0;
+    	this.reducedBitLength = 0;
+    	this.position = 0;
+    	this.baseOffset = 0;
+    }
+
+  /**
+   * Indicates if the stream has been closed or has never got a buffer
+   *
+   * @return    boolean:    true if the stream holds no data
+   */
+    public boolean IsClosed() {
+
+    	return this.cryptoBuffer == null;
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in bits
+   *
+   * @param      streamLength    stream length in bits of new DirectCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamBit(int streamLength) throws OutOfMemoryError {
+
+    	this.Allocate((streamLength + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS, streamLength);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in bytes
+   *
+   * @param      streamLength    stream length in bytes of new DirectCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUC(int streamLength) throws OutOfMemoryError {
+
+    	this.Allocate(streamLength, streamLength * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in shorts
+   *
+   * @param      streamLength    stream length in shorts of new DirectCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUS(int streamLength) throws OutOfMemoryError {
+
+    	this.Allocate(streamLength * TypeSizes.SHORT_BYTES, streamLength * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in ints
+   *
+   * @param      streamLength    stream length in ints of new DirectCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUL(int streamLength) throws OutOfMemoryError {
+
+    	this.Allocate(streamLength * TypeSizes.INT_BYTES, streamLength * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Points subStream to a portion of this stream, the buffer is shared and not owned by subStream
+   *
+   * @param     subStream       DirectCryptoRandomStream that will point the portion
+   * @param     bytePos         starting position in bytes of the portion
+   * @param     streamLength    length in bits of the portion
+   */
+    private void SetSubRandomStream(BaseCryptoRandomStream subStream, int bytePos, int streamLength) {
+    	ByteBuffer slice;
+
+    	slice = this.cryptoBuffer.duplicate();
+    	slice.position(bytePos);
+    	slice.limit(bytePos + (streamLength + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS);
+    	((DirectCryptoRandomStream)subStream).directBuffer = null;
+    	((DirectCryptoRandomStream)subStream).baseOffset = this.baseOffset + bytePos;
+    	subStream.cryptoBuffer = slice.slice();
+    	subStream.bitLength = streamLength;
+    	subStream.reducedBitLength = 0;
+    	subStream.position = 0;
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       DirectCryptoRandomStream pointing a portion of this DirectCryptoRandomStream
+   * @param     pos             starting position in bytes of this DirectCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos, this.GetBitLength() - (pos * TypeSizes.BYTE_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       DirectCryptoRandomStream pointing a portion of this DirectCryptoRandomStream
+   * @param     pos             starting position in shorts of this DirectCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.SHORT_BYTES, this.GetBitLength() - (pos * TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       DirectCryptoRandomStream pointing a portion of this DirectCryptoRandomStream
+   * @param     pos             starting position in ints of this DirectCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.INT_BYTES, this.GetBitLength() - (pos * TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       DirectCryptoRandomStream pointing a portion of this DirectCryptoRandomStream
+   * @param     pos             starting position in bytes of this DirectCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in bytes of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( (pos + length) > (this.GetBitLength() / TypeSizes.BYTE_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos, length * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       DirectCryptoRandomStream pointing a portion of this DirectCryptoRandomStream
+   * @param     pos             starting position in shorts of this DirectCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in shorts of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( (pos + length) > (this.GetBitLength() / TypeSizes.SHORT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.SHORT_BYTES, length * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       DirectCryptoRandomStream pointing a portion of this DirectCryptoRandomStream
+   * @param     pos             starting position in ints of this DirectCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in ints of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( (pos + length) > (this.GetBitLength() / TypeSizes.INT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.INT_BYTES, length * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Gets the CryptoRandomStream type of the object
+   *
+   * @return    CryptoRandomStreams:       object class type
+   */
+    public CryptoRandomStreams GetCryptoRandomStreamType() {
+
+    	return DirectCryptoRandomStream.Type;
+    }
+}
@@ -0,0 +1,713 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import org.jiumao.nist.Base.TypeSizes;
+
+/**
+ * Crypto random stream that stores its bits in a long array.
+ * <p>
+ * Bit i of the stream is bit i%64 of word i/64, which is the same bit order
+ * BaseCryptoRandomStream uses on bytes, so byte, short and int accessors give the
+ * same values as a ByteCryptoRandomStream holding the same data. Besides the
+ * common accessors, 64 bits starting at any bit position can be read in one step.
+ * <p>
+ * Streams may hold more than Integer.MAX_VALUE bits, up to 64 times the maximum
+ * array length, the whole length is given by GetLongBitLength and bits beyond the
+ * int range are reached through the long position accessors.
+ */
+public class LongArrayCryptoRandomStream extends BaseCryptoRandomStream {
+
+  /**
+   * Type of stream object
+   */
+    private static final CryptoRandomStreams Type = CryptoRandomStreams.LongArrayStream;
+
+  /**
+   * Mask of the bit index inside a word
+   */
+    private static final int WORDMASK = TypeSizes.LONG_BITS - 1;
+
+  /**
+   * Pointer to base long array of LongArrayCryptoRandomStream data
+   */
+    public long    words[];
+  /**
+   * Starting point (bit) of this LongArrayCryptoRandomStream inside words
+   */
+    public long    bitOffset;
+  /**
+   * Length in bits of LongArrayCryptoRandomStream, bitLength holds the same value
+   * limited to Integer.MAX_VALUE
+   */
+    public long    longBitLength;
+  /**
+   * Boolean indicating if base long array has been internally created
+   *  true:     this object must release long array instantiated when closed
+   *  false:    base long array has been instantiated outside this object
+   */
+    public boolean autoMemory;
+
+  /**
+   * Gets the number of words needed to hold the bits
+   *
+   * @param     streamLength    length in bits
+   * @return    int:            number of 64 bit words
+   * @throws    IndexOutOfBoundsException
+   */
+    private static int WordLength(long streamLength) throws IndexOutOfBoundsException {
+
+    	if ( ((streamLength + WORDMASK) / TypeSizes.LONG_BITS) > Integer.MAX_VALUE ) {
+    		throw new IndexOutOfBoundsException("Length exceeded stream maximum length !");
+    	}
+    	return (int)((streamLength + WORDMASK) / TypeSizes.LONG_BITS);
+    }
+
+  /**
+   * Sets the stream length in bits, bitLength is limited to Integer.MAX_VALUE
+   *
+   * @param     streamLength    length in bits
+   */
+    private void SetLength(long streamLength) {
+
+    	this.longBitLength = streamLength;
+    	this.bitLength = (int)Math.min(streamLength, Integer.MAX_VALUE);
+    	this.reducedBitLength = 0;
+    }
+
+  /**
+   * Constructor, default
+   */
+    public LongArrayCryptoRandomStream() {
+
+    	super();
+    	this.words = null;
+    	this.bitOffset = 0;
+    	this.longBitLength = 0;
+    	this.autoMemory = false;
+    }
+
+  /**
+   * Constructor, creates an empty stream with the indicated bit length
+   *
+   * @param     streamLength    stream length in bits of new LongArrayCryptoRandomStream
+   * @throws    OutOfMemoryError
+   */
+    public LongArrayCryptoRandomStream(long streamLength) throws OutOfMemoryError {
+
+    	this();
+    	this.SetCryptoRandomStreamBit(streamLength);
+    }
+
+  /**
+   * Constructor, sets the pointed word array of the indicated length in bits as LongArrayCryptoRandomStream
+   *
+   * @param     stream          assigns long array as LongArrayCryptoRandomStream data
+   * @param     streamLength    stream length in bits of stream parameter
+   */
+    public LongArrayCryptoRandomStream(long[] stream, long streamLength) {
+
+    	this();
+    	this.SetCryptoRandomStreamBit(stream, streamLength);
+    }
+
+  /**
+   * Constructor, packs the byte array of the indicated length in bits into a new word array
+   *
+   * @param     stream          byte array holding the stream data
+   * @param     streamLength    stream length in bits of stream parameter
+   * @throws    OutOfMemoryError
+   */
+    public LongArrayCryptoRandomStream(byte[] stream, long streamLength) throws OutOfMemoryError {
+
+    	this();
+    	int byteLength;
+
+    	this.SetCryptoRandomStreamBit(streamLength);
+    	byteLength = (int)((streamLength + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS);
+    	for (int i = 0; i < byteLength; i++) {
+    		this.words[i >>> 3] |= (stream[i] & 0xffL) << ((i & 7) * TypeSizes.BYTE_BITS);
+    	}
+    }
+
+  /**
+   * Releases the stream, zeroes all data owned by the stream
+   */
+    public void close() {
+
+    	if ( this.autoMemory && (this.words != null) ) {
+    		for (int i = 0; i < this.words.length; i++) {
+    			this.words[i] = 0;
+    		}
+    	}
+    	this.words = null;
+    	this.bitLength = 0;
+    	this.longBitLength = 0;
+    	this.reducedBitLength = 0;
+    	this.position = 0;
+    	this.bitOffset = 0;
+    	this.autoMemory = false;
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in bits
+   *
+   * @param       streamLength    stream length in bits of new LongArrayCryptoRandomStream
+   * @throws      OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamBit(int streamLength) throws OutOfMemoryError {
+
+    	this.SetCryptoRandomStreamBit((long)streamLength);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in bits, length may exceed Integer.MAX_VALUE
+   *
+   * @param       streamLength    stream length in bits of new LongArrayCryptoRandomStream
+   * @throws      OutOfMemoryError
+   * @throws      IndexOutOfBoundsException
+   */
+    public void SetCryptoRandomStreamBit(long streamLength) throws OutOfMemoryError, IndexOutOfBoundsException {
+
+    	if ( this.words == null ) {
+    		this.words = new long[WordLength(streamLength)];
+    		this.SetLength(streamLength);
+    		this.autoMemory = true;
+    		this.position = 0;
+    		this.bitOffset = 0;
+    	}
+    }
+
+  /**
+   * Sets the pointed word array of indicated length in bits
+   *
+   * @param      stream          assigns long array as LongArrayCryptoRandomStream data
+   * @param      streamLength    stream length in bits of stream parameter
+   */
+    public void SetCryptoRandomStreamBit(long[] stream, long streamLength) {
+
+    	if ( stream != null ) {
+    		this.words = stream;
+    		this.SetLength(streamLength);
+    		this.autoMemory = false;
+    		this.position = 0;
+    		this.bitOffset = 0;
+    	}
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in bytes
+   *
+   * @param      streamLength    stream length in bytes of new LongArrayCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUC(int streamLength) throws OutOfMemoryError {
+
+    	this.SetCryptoRandomStreamBit(streamLength * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in shorts
+   *
+   * @param      streamLength    stream length in shorts of new LongArrayCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUS(int streamLength) throws OutOfMemoryError {
+
+    	this.SetCryptoRandomStreamBit(streamLength * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in ints
+   *
+   * @param      streamLength    stream length in ints of new LongArrayCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUL(int streamLength) throws OutOfMemoryError {
+
+    	this.SetCryptoRandomStreamBit(streamLength * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Gets up to 64 bits at an absolute bit position of the word array
+   *
+   * @param     position    bit position inside words
+   * @param     count       number of bits, from 1 to 64
+   * @return    long:       bits, first bit at bit 0
+   */
+    private long ExtractWordBits(long position, int count) {
+    	int  index;
+    	int  shift;
+    	long value;
+
+    	index = (int)(position >>> 6);
+    	shift = (int)position & WORDMASK;
+    	value = this.words[index] >>> shift;
+    	if ( (shift != 0) && ((shift + count) > TypeSizes.LONG_BITS) ) {
+    		value |= this.words[index + 1] << (TypeSizes.LONG_BITS - shift);
+    	}
+    	if ( count < TypeSizes.LONG_BITS ) {
+    		value &= (1L << count) - 1;
+    	}
+    	return value;
+    }
+
+  /**
+   * Sets up to 64 bits at an absolute bit position of the word array
+   *
+   * @param     position    bit position inside words
+   * @param     count       number of bits, from 1 to 64
+   * @param     value       bits, first bit at bit 0
+   */
+    private void DepositWordBits(long position, int count, long value) {
+    	int  index;
+    	int  shift;
+    	long mask;
+
+    	mask = (count < TypeSizes.LONG_BITS) ? ((1L << count) - 1) : -1L;
+    	value &= mask;
+    	index = (int)(position >>> 6);
+    	shift = (int)position & WORDMASK;
+    	this.words[index] = (this.words[index] & ~(mask << shift)) | (value << shift);
+    	if ( (shift != 0) && ((shift + count) > TypeSizes.LONG_BITS) ) {
+    		this.words[index + 1] = (this.words[index + 1] & ~(mask >>> (TypeSizes.LONG_BITS - shift)))
+    				| (value >>> (TypeSizes.LONG_BITS - shift));
+    	}
+    }
+
+  /**
+   * Gets the 64 bits starting at specified bit position, bit position + j of the
+   * stream is bit j of the result, bits beyond the stream length are zero
+   *
+   * @param     position    bit position of the first bit
+   * @return    long:       64 bits of the stream
+   * @throws    IndexOutOfBoundsException
+   */
+    public long Get64BitPosition(long position) throws IndexOutOfBoundsException {
+    	int count;
+
+    	if ( (position < 0) || (position >= this.GetLongBitLength()) ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	count = (int)Math.min(TypeSizes.LONG_BITS, this.GetLongBitLength() - position);
+    	return this.ExtractWordBits(this.bitOffset + position, count);
+    }
+
+  /**
+   * Gets up to 64 bits starting at specified bit position, bit position + j of the
+   * stream is bit j of the result
+   *
+   * @param     position    bit position of the first bit
+   * @param     count       number of bits, from 1 to 64
+   * @return    long:       bits of the stream
+   */
+    public long ExtractBits(long position, int count) {
+
+    	return this.ExtractWordBits(this.bitOffset + position, count);
+    }
+
+  /**
+   * Gets consecutive 64 bit words starting at specified bit position,
+   * bits beyond the stream length are zero
+   *
+   * @param     position    bit position of the first bit
+   * @param     target      array receiving the words
+   * @param     offset      position of the first word in target
+   * @param     count       number of words
+   */
+    public void GetWords(long position, long[] target, int offset, int count) {
+    	long length, bitPosition;
+
+    	length = this.GetLongBitLength();
+    	for (int i = 0; i < count; i++) {
+    		bitPosition = position + (long)i * TypeSizes.LONG_BITS;
+    		if ( bitPosition < length ) {
+    			target[offset + i] = this.ExtractWordBits(this.bitOffset + bitPosition, (int)Math.min(TypeSizes.LONG_BITS, length - bitPosition));
+    		}
+    		else {
+    			target[offset + i] = 0;
+    		}
+    	}
+    }
+
+  /**
+   * Counts the bits with value 1 in the bit range [from, to), whole words are counted at once
+   *
+   * @param     from    first bit position of the range
+   * @param     to      bit position following the last bit of the range
+   * @return    long:   number of ones
+   */
+    public long PopCount(long from, long to) {
+    	long first, last, firstMask, lastMask, count;
+
+    	if ( from >= to ) {
+    		return 0;
+    	}
+    	first = this.bitOffset + from;
+    	last = this.bitOffset + to - 1;
+    	firstMask = -1L << first;
+    	lastMask = -1L >>> (WORDMASK - (last & WORDMASK));
+    	if ( (first >>> 6) == (last >>> 6) ) {
+    		return Long.bitCount(this.words[(int)(first >>> 6)] & firstMask & lastMask);
+    	}
+    	count = Long.bitCount(this.words[(int)(first >>> 6)] & firstMask) + Long.bitCount(this.words[(int)(last >>> 6)] & lastMask);
+    	for (int i = (int)(first >>> 6) + 1; i < (int)(last >>> 6); i++) {
+    		count += Long.bitCount(this.words[i]);
+    	}
+    	return count;
+    }
+
+  /**
+   * Gets the stream length in bits, which may exceed Integer.MAX_VALUE
+   *
+   * @return     long:  LongArrayCryptoRandomStream length in bits
+   */
+    public long GetLongBitLength() {
+
+    	if ( this.reducedBitLength != 0 ) {
+    		return this.reducedBitLength;
+    	}
+    	return this.longBitLength;
+    }
+
+  /**
+   * Gets the number of 64 bit words of the stream, last word may be partial
+   *
+   * @return    int:    stream length in 64 bit words
+   */
+    public int GetWordLength() {
+
+    	return WordLength(this.GetLongBitLength());
+    }
+
+  /**
+   * Gets the 64 bit word at specified position, position based in array of
+   * 64 bit words, bit order as Get64BitPosition
+   *
+   * @param     position    word position
+   * @return    long:       64 bits of the stream
+   */
+    public long GetWordPosition(int position) {
+
+    	return this.Get64BitPosition((long)position * TypeSizes.LONG_BITS);
+    }
+
+  /**
+   * Sets the stream to an specified byte value
+   *
+   * @param     uChar  byte value (8 bits)
+   */
+    public void FillUC(byte uChar) {
+
+    	this.FillWords((uChar & 0xffL) * 0x0101010101010101L,
+    			(this.GetLongBitLength() + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Sets the stream to an specified short value
+   *
+   * @param     uShort  short value (16 bits)
+   */
+    public void FillUS(short uShort) {
+
+    	this.FillWords((Short.reverseBytes(uShort) & 0xffffL) * 0x0001000100010001L,
+    			this.GetLongBitLength() / TypeSizes.SHORT_BITS * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Sets the stream to an specified int value
+   *
+   * @param     uLong  int value (32 bits)
+   */
+    public void FillUL(int uLong) {
+
+    	this.FillWords((Integer.reverseBytes(uLong) & 0xffffffffL) * 0x0000000100000001L,
+    			this.GetLongBitLength() / TypeSizes.INT_BITS * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Repeats a 64 bit pattern over the first bits of the stream
+   *
+   * @param     pattern    bits to be repeated, first bit at bit 0
+   * @param     length     number of bits to be set
+   */
+    private void FillWords(long pattern, long length) {
+
+    	for (long i = 0; i < length; i += TypeSizes.LONG_BITS) {
+    		this.DepositWordBits(this.bitOffset + i, (int)Math.min(TypeSizes.LONG_BITS, length - i), pattern);
+    	}
+    }
+
+  /**
+   * Sets the bit value (value 0 or 1) at specified postion, position based in array of bits
+   *
+   * @param     position  position where to set the bit value
+   * @param     bit       bit value, 0 or 1
+   */
+    public void SetBitPosition(int position, byte bit) {
+
+    	this.SetBitPosition((long)position, bit);
+    }
+
+  /**
+   * Sets the bit value (value 0 or 1) at specified long postion, position based in array of bits
+   *
+   * @param     position  position where to set the bit value
+   * @param     bit       bit value, 0 or 1
+   */
+    public void SetBitPosition(long position, byte bit) {
+    	long absolute;
+
+    	absolute = this.bitOffset + position;
+    	if ( bit == 0 ) {
+    		this.words[(int)(absolute >>> 6)] &= ~(1L << absolute);
+    	}
+    	if ( bit == 1 ) {
+    		this.words[(int)(absolute >>> 6)] |= (1L << absolute);
+    	}
+    }
+
+  /**
+   * Sets the byte value at specified postion, position based in array of bytes
+   *
+   * @param     position  position where to set the byte value
+   * @param     uChar     byte value
+   */
+    public void SetUCPosition(int position, byte uChar) {
+
+    	this.DepositWordBits(this.bitOffset + (long)position * TypeSizes.BYTE_BITS, TypeSizes.BYTE_BITS, uChar);
+    }
+
+  /**
+   * Sets the short value at specified postion, position based in array of shorts
+   *
+   * @param     position  position where to set the short value
+   * @param     uShort    short value
+   */
+    public void SetUSPosition(int position, short uShort) {
+
+    	this.DepositWordBits(this.bitOffset + (long)position * TypeSizes.SHORT_BITS, TypeSizes.SHORT_BITS, Short.reverseBytes(uShort));
+    }
+
+  /**
+   * Sets the int value at specified postion, position based in array of ints
+   *
+   * @param     position  position where to set the int value
+   * @param     uInt      int value
+   */
+    public void SetULPosition(int position, int uInt) {
+
+    	this.DepositWordBits(this.bitOffset + (long)position * TypeSizes.INT_BITS, TypeSizes.INT_BITS, Integer.reverseBytes(uInt));
+    }
+
+  /**
+   * Sets the long value at specified postion, position based in array of longs
+   *
+   * @param     position  position where to set the long value
+   * @param     uLong     long value
+   */
+    public void Set64Position(int position, long uLong) {
+
+    	this.DepositWordBits(this.bitOffset + (long)position * TypeSizes.LONG_BITS, TypeSizes.LONG_BITS, Long.reverseBytes(uLong));
+    }
+
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified postion, position based in array of bits
+   *
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(int position) {
+
+    	return this.GetBitPosition((long)position);
+    }
+
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified long postion, position based in array of bits
+   *
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(long position) {
+    	long absolute;
+
+    	absolute = this.bitOffset + position;
+    	return (byte)((this.words[(int)(absolute >>> 6)] >>> absolute) & 0x01);
+    }
+
+  /**
+   * Gets the byte at specified postion, position based in array of bytes
+   *
+   * @param     position  byte position where to get the byte value
+   * @return    byte:     byte value
+   */
+    public byte GetUCPosition(int position) {
+
+    	return (byte)this.ExtractWordBits(this.bitOffset + (long)position * TypeSizes.BYTE_BITS, TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Gets the short value at specified postion, position based in array of shorts
+   *
+   * @param     position  short position where to get the short value
+   * @return    short:    short value
+   */
+    public short GetUSPosition(int position) {
+
+    	return Short.reverseBytes((short)this.ExtractWordBits(this.bitOffset + (long)position * TypeSizes.SHORT_BITS, TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the int at specified postion, position based in array of ints
+   *
+   * @param     position  int position where to get the int value
+   * @return    int:      int value
+   */
+    public int GetULPosition(int position) {
+
+    	return Integer.reverseBytes((int)this.ExtractWordBits(this.bitOffset + (long)position * TypeSizes.INT_BITS, TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the long at specified postion, position based in array of longs
+   *
+   * @param     position  int position where to get the long value
+   * @return    long:     long value
+   */
+    public long Get64Position(int position) {
+
+    	return Long.reverseBytes(this.ExtractWordBits(this.bitOffset + (long)position * TypeSizes.LONG_BITS, TypeSizes.LONG_BITS));
+    }
+
+  /**
+   * Points subStream to a portion of this stream, words are shared
+   *
+   * @param     subStream       LongArrayCryptoRandomStream that will point the portion
+   * @param     bitPos          starting position in bits of the portion
+   * @param     streamLength    length in bits of the portion
+   */
+    private void SetSubRandomStream(BaseCryptoRandomStream subStream, long bitPos, long streamLength) {
+
+    	((LongArrayCryptoRandomStream)subStream).words = this.words;
+    	((LongArrayCryptoRandomStream)subStream).bitOffset = this.bitOffset + bitPos;
+    	((LongArrayCryptoRandomStream)subStream).autoMemory = false;
+    	((LongArrayCryptoRandomStream)subStream).SetLength(streamLength);
+    	subStream.position = 0;
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       LongArrayCryptoRandomStream pointing a portion of this LongArrayCryptoRandomStream
+   * @param     pos             starting position in bytes of this LongArrayCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.BYTE_BITS, this.GetLongBitLength() - ((long)pos * TypeSizes.BYTE_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       LongArrayCryptoRandomStream pointing a portion of this LongArrayCryptoRandomStream
+   * @param     pos             starting position in shorts of this LongArrayCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.SHORT_BITS, this.GetLongBitLength() - ((long)pos * TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       LongArrayCryptoRandomStream pointing a portion of this LongArrayCryptoRandomStream
+   * @param     pos             starting position in ints of this LongArrayCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.INT_BITS, this.GetLongBitLength() - ((long)pos * TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       LongArrayCryptoRandomStream pointing a portion of this LongArrayCryptoRandomStream
+   * @param     pos             starting position in bytes of this LongArrayCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in bytes of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.BYTE_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.BYTE_BITS, (long)length * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       LongArrayCryptoRandomStream pointing a portion of this LongArrayCryptoRandomStream
+   * @param     pos             starting position in shorts of this LongArrayCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in shorts of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.SHORT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.SHORT_BITS, (long)length * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       LongArrayCryptoRandomStream pointing a portion of this LongArrayCryptoRandomStream
+   * @param     pos             starting position in ints of this LongArrayCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in ints of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.INT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.INT_BITS, (long)length * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Gets the CryptoRandomStream type of the object
+   *
+   * @return    CryptoRandomStreams:       object class type
+   */
+    public CryptoRandomStreams GetCryptoRandomStreamType() {
+
+    	return LongArrayCryptoRandomStream.Type;
+    }
+}
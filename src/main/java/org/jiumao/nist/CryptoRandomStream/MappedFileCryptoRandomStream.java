@@ -0,0 +1,408 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jiumao.nist.Base.TypeSizes;
+
+/**
+ * Read only crypto random stream backed by a memory mapped file.
+ * <p>
+ * File data is read straight from the page cache through a {@link java.nio.MappedByteBuffer},
+ * no copy to a heap byte array is made, so the heap size does not limit the stream size.
+ * Sub streams are mapped slices of the same file region.
+ * <p>
+ * A single mapping is limited to Integer.MAX_VALUE bytes, so the file region is mapped
+ * as consecutive segments of SEGMENTBYTES bytes. The int accessors address the first
+ * segment, which holds the first Integer.MAX_VALUE bits, and the long bit accessors
+ * address the whole region, whose length is given by GetLongBitLength.
+ */
+public class MappedFileCryptoRandomStream extends BaseCryptoRandomStream {
+
+  /**
+   * Type of stream object
+   */
+    private static final CryptoRandomStreams Type = CryptoRandomStreams.MappedFileStream;
+  /**
+   * Size in bytes of every mapped segment, as a power of two
+   */
+    private static final int SEGMENTSHIFT = 30;
+    private static final int SEGMENTBYTES = 1 << SEGMENTSHIFT;
+
+  /**
+   * File mapped as MappedFileCryptoRandomStream data
+   */
+    public File    file;
+  /**
+   * Starting point (byte) of this MappedFileCryptoRandomStream inside the mapped file
+   */
+    public long    baseOffset;
+  /**
+   * Length in bits of MappedFileCryptoRandomStream, bitLength holds the same value
+   * limited to Integer.MAX_VALUE
+   */
+    public long    longBitLength;
+  /**
+   * Mapped segments of the file region, cryptoBuffer is the first one
+   */
+    private ByteBuffer segments[];
+
+  /**
+   * Constructor, default, the stream can be used as target of sub stream methods
+   */
+    public MappedFileCryptoRandomStream() {
+
+    	super();
+    	this.file = null;
+    	this.baseOffset = 0;
+    	this.longBitLength = 0;
+    	this.segments = null;
+    }
+
+  /**
+   * Constructor, maps the whole file as MappedFileCryptoRandomStream
+   *
+   * @param     file           file to be mapped
+   * @throws    IOException
+   */
+    public MappedFileCryptoRandomStream(File file) throws IOException {
+
+    	this(file, 0, file.length());
+    }
+
+  /**
+   * Constructor, maps the indicated file region as MappedFileCryptoRandomStream
+   *
+   * @param     file           file to be mapped
+   * @param     offset         starting position in bytes of the mapped region inside the file
+   * @param     length         length in bytes of the mapped region
+   * @throws    IOException
+   * @throws    IndexOutOfBoundsException
+   */
+    public MappedFileCryptoRandomStream(File file, long offset, long length) throws IOException, IndexOutOfBoundsException {
+    	super();
+
+    	RandomAccessFile randomFile;
+    	FileChannel      channel;
+    	int              segmentCount;
+    	long             segmentOffset;
+
+    	if ( (offset < 0) || (length < 0) || ((offset + length) > file.length()) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded file length !");
+    	}
+    	if ( length > (Long.MAX_VALUE / TypeSizes.BYTE_BITS) ) {
+    		throw new IndexOutOfBoundsException("Length exceeded stream maximum length !");
+    	}
+    	segmentCount = (int)Math.max(1, (length + SEGMENTBYTES - 1) >>> SEGMENTSHIFT);
+    	this.segments = new ByteBuffer[segmentCount];
+    	randomFile = new RandomAccessFile(file, "r");
+    	try {
+    		channel = randomFile.getChannel();
+    		// mappings remain valid once the channel has been closed
+    		for (int i = 0; i < segmentCount; i++) {
+    			segmentOffset = (long)i << SEGMENTSHIFT;
+    			this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + segmentOffset,
+    					Math.min(SEGMENTBYTES, length - segmentOffset));
+    		}
+    	}
+    	finally {
+    		randomFile.close();
+    	}
+    	this.cryptoBuffer = this.segments[0];
+    	this.file = file;
+    	this.baseOffset = offset;
+    	this.longBitLength = length * TypeSizes.BYTE_BITS;
+    	this.bitLength = (int)Math.min(this.longBitLength, Integer.MAX_VALUE);
+    	this.position = 0;
+    }
+
+  /**
+   * Releases the mapped buffer, file data is never modified
+   */
+    public void close() {
+
+    	this.file = null;
+    	this.bitLength = 0;
+    	this.longBitLength = 0;
+    	this.reducedBitLength = 0;
+    	this.position = 0;
+    	this.baseOffset = 0;
+    	this.cryptoBuffer = null;
+    	this.segments = null;
+    }
+
+  /**
+   * Gets the stream length in bits, which may exceed Integer.MAX_VALUE
+   *
+   * @return     long:  MappedFileCryptoRandomStream length in bits
+   */
+    public long GetLongBitLength() {
+
+    	if ( this.reducedBitLength != 0 ) {
+    		return this.reducedBitLength;
+    	}
+    	return this.longBitLength;
+    }
+
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified long postion, position based in array of bits
+   *
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(long position) {
+
+    	return (byte)((this.GetByte(position >>> 3) >> (position & 7)) & 0x01);
+    }
+
+  /**
+   * Gets the byte at specified long position of the mapped region
+   *
+   * @param     bytePosition    byte position inside the mapped region
+   * @return    byte:           byte value
+   */
+    private byte GetByte(long bytePosition) {
+
+    	return this.segments[(int)(bytePosition >>> SEGMENTSHIFT)].get((int)(bytePosition & (SEGMENTBYTES - 1)));
+    }
+
+  /**
+   * Gets up to 64 bits starting at specified bit position, bits may lay across segments
+   *
+   * @param     position    bit position of the first bit
+   * @param     count       number of bits, from 1 to 64
+   * @return    long:       bits of the stream, first bit at bit 0
+   */
+    public long ExtractBits(long position, int count) {
+    	long firstByte, value;
+    	int  shift, byteCount;
+
+    	if ( ((position + count + 7) >>> 3) <= this.cryptoBuffer.limit() ) {
+    		return super.ExtractBits(position, count);
+    	}
+    	firstByte = position >>> 3;
+    	shift = (int)position & 7;
+    	byteCount = (shift + count + 7) >>> 3;
+    	value = 0;
+    	for (int i = 0; i < Math.min(byteCount, TypeSizes.LONG_BYTES); i++) {
+    		value |= (this.GetByte(firstByte + i) & 0xffL) << (i * TypeSizes.BYTE_BITS);
+    	}
+    	value >>>= shift;
+    	if ( byteCount > TypeSizes.LONG_BYTES ) {
+    		value |= (this.GetByte(firstByte + TypeSizes.LONG_BYTES) & 0xffL) << (TypeSizes.LONG_BITS - shift);
+    	}
+    	if ( count < TypeSizes.LONG_BITS ) {
+    		value &= (1L << count) - 1;
+    	}
+    	return value;
+    }
+
+  /**
+   * Mapped file streams are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in bits
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamBit(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Mapped file streams are read only !");
+    }
+
+  /**
+   * Mapped file streams are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in bytes
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamUC(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Mapped file streams are read only !");
+    }
+
+  /**
+   * Mapped file streams are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in shorts
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamUS(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Mapped file streams are read only !");
+    }
+
+  /**
+   * Mapped file streams are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in ints
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamUL(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Mapped file streams are read only !");
+    }
+
+  /**
+   * Points subStream to a mapped slice of this stream, no data is copied. The slice
+   * is read only, so subStream must be a MappedFileCryptoRandomStream: other streams
+   * would keep their own memory and write to the slice when closed
+   *
+   * @param     subStream       MappedFileCryptoRandomStream that will point the slice
+   * @param     pos             starting position in bytes of the slice
+   * @param     streamLength    length in bits of the slice
+   * @throws    IllegalArgumentException
+   */
+    private void SetSubRandomStream(BaseCryptoRandomStream subStream, int pos, int streamLength) throws IllegalArgumentException {
+    	MappedFileCryptoRandomStream mapped;
+    	ByteBuffer slice;
+    	int        byteLength;
+
+    	if ( !(subStream instanceof MappedFileCryptoRandomStream) ) {
+    		throw new IllegalArgumentException("Sub-stream of a mapped file stream must be a MappedFileCryptoRandomStream !");
+    	}
+    	mapped = (MappedFileCryptoRandomStream)subStream;
+    	if ( (streamLength % TypeSizes.BYTE_BITS) != 0 ) {
+    		byteLength = streamLength/TypeSizes.BYTE_BITS + 1;
+    	}
+    	else {
+    		byteLength = streamLength/TypeSizes.BYTE_BITS;
+    	}
+    	slice = this.cryptoBuffer.duplicate();
+    	slice.limit(pos + byteLength);
+    	slice.position(pos);
+    	mapped.cryptoBuffer = slice.slice();
+    	mapped.bitLength = streamLength;
+    	mapped.reducedBitLength = 0;
+    	mapped.position = 0;
+    	mapped.file = this.file;
+    	mapped.baseOffset = this.baseOffset + pos;
+    	mapped.longBitLength = streamLength;
+    	mapped.segments = new ByteBuffer[] { mapped.cryptoBuffer };
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       stream pointing a mapped portion of this MappedFileCryptoRandomStream
+   * @param     pos             starting position in bytes of this MappedFileCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   * @throws    IllegalArgumentException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException, IllegalArgumentException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos, this.GetBitLength() - (pos * TypeSizes.BYTE_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       stream pointing a mapped portion of this MappedFileCryptoRandomStream
+   * @param     pos             starting position in shorts of this MappedFileCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   * @throws    IllegalArgumentException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException, IllegalArgumentException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.SHORT_BYTES, this.GetBitLength() - (pos * TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       stream pointing a mapped portion of this MappedFileCryptoRandomStream
+   * @param     pos             starting position in ints of this MappedFileCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   * @throws    IllegalArgumentException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException, IllegalArgumentException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.INT_BYTES, this.GetBitLength() - (pos * TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       stream pointing a mapped portion of this MappedFileCryptoRandomStream
+   * @param     pos             starting position in bytes of this MappedFileCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in bytes of subStream
+   * @throws    IndexOutOfBoundsException
+   * @throws    IllegalArgumentException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException, IllegalArgumentException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( (pos + length) > (this.GetBitLength() / TypeSizes.BYTE_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos, length * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       stream pointing a mapped portion of this MappedFileCryptoRandomStream
+   * @param     pos             starting position in shorts of this MappedFileCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in shorts of subStream
+   * @throws    IndexOutOfBoundsException
+   * @throws    IllegalArgumentException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException, IllegalArgumentException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( (pos + length) > (this.GetBitLength() / TypeSizes.SHORT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.SHORT_BYTES, length * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       stream pointing a mapped portion of this MappedFileCryptoRandomStream
+   * @param     pos             starting position in ints of this MappedFileCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in ints of subStream
+   * @throws    IndexOutOfBoundsException
+   * @throws    IllegalArgumentException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException, IllegalArgumentException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( (pos + length) > (this.GetBitLength() / TypeSizes.INT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos * TypeSizes.INT_BYTES, length * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Gets the CryptoRandomStream type of the object
+   *
+   * @return    CryptoRandomStreams:       object class type
+   */
+    public CryptoRandomStreams GetCryptoRandomStreamType() {
+
+    	return MappedFileCryptoRandomStream.Type;
+    }
+}
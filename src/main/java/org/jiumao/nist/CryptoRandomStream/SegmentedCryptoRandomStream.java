@@ -0,0 +1,663 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.jiumao.nist.Base.TypeSizes;
+
+/**
+ * Crypto random stream made of a list of byte buffer segments, read as a single
+ * bit sequence in segment order.
+ * <p>
+ * Segments are not copied, appending one costs a slice of the buffer and an entry
+ * in two arrays grown by doubling. The segment holding a bit position is found by
+ * binary search over the segment starting bytes, the last segment found is checked
+ * first, so sequential reads do not search at all. Bit i of every segment byte is
+ * bit 8 * byte + i of the stream, as in every other stream class.
+ */
+public class SegmentedCryptoRandomStream extends BaseCryptoRandomStream {
+
+  /**
+   * Type of stream object
+   */
+    private static final CryptoRandomStreams Type = CryptoRandomStreams.SegmentedStream;
+
+  /**
+   * Initial capacity of the segment arrays
+   */
+    private static final int INITIALSEGMENTS = 8;
+
+  /**
+   * Segments of the stream, position 0 and limit at their last byte
+   */
+    private ByteBuffer segments[];
+  /**
+   * Position (byte) of the first byte of every segment inside the stream
+   */
+    private long       segmentStarts[];
+  /**
+   * Number of segments in use
+   */
+    private int        segmentCount;
+  /**
+   * Segment of the last accessed byte
+   */
+    private int        lastSegment;
+  /**
+   * Length in bytes of all segments
+   */
+    public long    byteLength;
+  /**
+   * Length in bits of SegmentedCryptoRandomStream, bitLength holds the same value
+   * limited to Integer.MAX_VALUE
+   */
+    public long    longBitLength;
+  /**
+   * Boolean indicating if segments have been internally created
+   *  true:     this object must zero its segments when closed
+   *  false:    segments have been instantiated outside this object
+   */
+    public boolean autoMemory;
+
+  /**
+   * Constructor, default, creates a stream without segments
+   */
+    public SegmentedCryptoRandomStream() {
+
+    	super();
+    	this.segments = new ByteBuffer[INITIALSEGMENTS];
+    	this.segmentStarts = new long[INITIALSEGMENTS];
+    	this.segmentCount = 0;
+    	this.lastSegment = 0;
+    	this.byteLength = 0;
+    	this.longBitLength = 0;
+    	this.autoMemory = false;
+    }
+
+  /**
+   * Constructor, creates a stream made of the remaining bytes of every segment
+   *
+   * @param     segments    buffers appended in order, their data is not copied
+   */
+    public SegmentedCryptoRandomStream(ByteBuffer... segments) {
+
+    	this();
+    	for (ByteBuffer segment : segments) {
+    		this.Append(segment);
+    	}
+    }
+
+  /**
+   * Appends the remaining bytes of a buffer at the end of the stream, the data is
+   * not copied and the buffer position and limit are not modified
+   *
+   * @param     segment    buffer holding the bytes to be appended
+   * @throws    IllegalStateException    if the stream length is not a whole number of bytes
+   */
+    public void Append(ByteBuffer segment) throws IllegalStateException {
+
+    	if ( (this.longBitLength % TypeSizes.BYTE_BITS) != 0 ) {
+    		throw new IllegalStateException("Stream length is not a whole number of bytes !");
+    	}
+    	if ( !segment.hasRemaining() ) {
+    		return;
+    	}
+    	if ( this.segmentCount == this.segments.length ) {
+    		this.segments = Arrays.copyOf(this.segments, this.segmentCount * 2);
+    		this.segmentStarts = Arrays.copyOf(this.segmentStarts, this.segmentCount * 2);
+    	}
+    	this.segments[this.segmentCount] = segment.slice();
+    	this.segmentStarts[this.segmentCount] = this.byteLength;
+    	this.segmentCount++;
+    	this.byteLength += segment.remaining();
+    	this.SetLength(this.byteLength * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Appends a portion of a byte array at the end of the stream, the data is not copied
+   *
+   * @param     segment    array holding the bytes to be appended
+   * @param     offset     position of the first byte in segment
+   * @param     length     number of bytes
+   * @throws    IllegalStateException    if the stream length is not a whole number of bytes
+   */
+    public void Append(byte[] segment, int offset, int length) throws IllegalStateException {
+
+    	this.Append(ByteBuffer.wrap(segment, offset, length));
+    }
+
+  /**
+   * Gets the number of segments of the stream
+   *
+   * @return    int:    number of segments
+   */
+    public int GetSegmentCount() {
+
+    	return this.segmentCount;
+    }
+
+  /**
+   * Sets the stream length in bits, bitLength is limited to Integer.MAX_VALUE
+   *
+   * @param     streamLength    length in bits
+   */
+    private void SetLength(long streamLength) {
+
+    	this.longBitLength = streamLength;
+    	this.bitLength = (int)Math.min(streamLength, Integer.MAX_VALUE);
+    	this.reducedBitLength = 0;
+    }
+
+  /**
+   * Gets the segment holding a byte of the stream
+   *
+   * @param     bytePosition    position of the byte in the stream
+   * @return    int:            index of the segment
+   * @throws    IndexOutOfBoundsException
+   */
+    private int SegmentIndex(long bytePosition) throws IndexOutOfBoundsException {
+    	int index;
+
+    	if ( (bytePosition < 0) || (bytePosition >= this.byteLength) ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	index = this.lastSegment;
+    	if ( (bytePosition < this.segmentStarts[index]) || (bytePosition >= this.segmentStarts[index] + this.segments[index].limit()) ) {
+    		index = Arrays.binarySearch(this.segmentStarts, 0, this.segmentCount, bytePosition);
+    		if ( index < 0 ) {
+    			// insertion point follows the segment holding the byte
+    			index = -index - 2;
+    		}
+    		this.lastSegment = index;
+    	}
+    	return index;
+    }
+
+  /**
+   * Gets a byte of the stream
+   *
+   * @param     bytePosition    position of the byte in the stream
+   * @return    byte:           byte value
+   */
+    private byte GetByte(long bytePosition) {
+    	int index;
+
+    	index = this.SegmentIndex(bytePosition);
+    	return this.segments[index].get((int)(bytePosition - this.segmentStarts[index]));
+    }
+
+  /**
+   * Sets a byte of the stream
+   *
+   * @param     bytePosition    position of the byte in the stream
+   * @param     value           byte value
+   */
+    private void SetByte(long bytePosition, byte value) {
+    	int index;
+
+    	index = this.SegmentIndex(bytePosition);
+    	this.segments[index].put((int)(bytePosition - this.segmentStarts[index]), value);
+    }
+
+  /**
+   * Releases the stream, zeroes its segments if they have been created by the stream
+   */
+    public void close() {
+
+    	if ( this.autoMemory ) {
+    		this.FillUC((byte)0x00);
+    	}
+    	Arrays.fill(this.segments, 0, this.segmentCount, null);
+    	this.segmentCount = 0;
+    	this.lastSegment = 0;
+    	this.byteLength = 0;
+    	this.SetLength(0);
+    	this.position = 0;
+    	this.autoMemory = false;
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in bits, made of a single segment
+   *
+   * @param      streamLength    stream length in bits of new SegmentedCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamBit(int streamLength) throws OutOfMemoryError {
+
+    	if ( this.segmentCount == 0 ) {
+    		this.Append(ByteBuffer.allocate((streamLength + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS));
+    		this.SetLength(streamLength);
+    		this.autoMemory = true;
+    		this.position = 0;
+    	}
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in bytes, made of a single segment
+   *
+   * @param      streamLength    stream length in bytes of new SegmentedCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUC(int streamLength) throws OutOfMemoryError {
+
+    	this.SetCryptoRandomStreamBit(streamLength * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in shorts, made of a single segment
+   *
+   * @param      streamLength    stream length in shorts of new SegmentedCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUS(int streamLength) throws OutOfMemoryError {
+
+    	this.SetCryptoRandomStreamBit(streamLength * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Sets an empty stream with the indicated length in ints, made of a single segment
+   *
+   * @param      streamLength    stream length in ints of new SegmentedCryptoRandomStream
+   * @throws     OutOfMemoryError
+   */
+    public void SetCryptoRandomStreamUL(int streamLength) throws OutOfMemoryError {
+
+    	this.SetCryptoRandomStreamBit(streamLength * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Gets the stream length in bits, which may exceed Integer.MAX_VALUE
+   *
+   * @return     long:  SegmentedCryptoRandomStream length in bits
+   */
+    public long GetLongBitLength() {
+
+    	if ( this.reducedBitLength != 0 ) {
+    		return this.reducedBitLength;
+    	}
+    	return this.longBitLength;
+    }
+
+  /**
+   * Gets up to 64 bits starting at specified bit position, bytes are read across
+   * segment boundaries
+   *
+   * @param     position    bit position of the first bit
+   * @param     count       number of bits, from 1 to 64
+   * @return    long:       bits of the stream, first bit at bit 0
+   */
+    public long ExtractBits(long position, int count) {
+    	ByteBuffer segment;
+    	long       firstByte, value, extra, current;
+    	int        shift, byteCount, index, local;
+
+    	firstByte = position >>> 3;
+    	shift = (int)position & 7;
+    	byteCount = (shift + count + 7) >>> 3;
+    	index = this.SegmentIndex(firstByte);
+    	if ( (firstByte + byteCount) > this.byteLength ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	segment = this.segments[index];
+    	local = (int)(firstByte - this.segmentStarts[index]);
+    	value = 0;
+    	extra = 0;
+    	for (int i = 0; i < byteCount; i++) {
+    		if ( local == segment.limit() ) {
+    			segment = this.segments[++index];
+    			local = 0;
+    		}
+    		current = segment.get(local++) & 0xffL;
+    		if ( i < TypeSizes.LONG_BYTES ) {
+    			value |= current << (i * TypeSizes.BYTE_BITS);
+    		}
+    		else {
+    			extra = current;
+    		}
+    	}
+    	value >>>= shift;
+    	if ( byteCount > TypeSizes.LONG_BYTES ) {
+    		value |= extra << (TypeSizes.LONG_BITS - shift);
+    	}
+    	if ( count < TypeSizes.LONG_BITS ) {
+    		value &= (1L << count) - 1;
+    	}
+    	return value;
+    }
+
+  /**
+   * Sets the stream to an specified byte value
+   *
+   * @param     uChar  byte value (8 bits)
+   */
+    public void FillUC(byte uChar) {
+
+    	for (int i = 0; i < this.segmentCount; i++) {
+    		for (int j = 0; j < this.segments[i].limit(); j++) {
+    			this.segments[i].put(j, uChar);
+    		}
+    	}
+    }
+
+  /**
+   * Sets the stream to an specified short value
+   *
+   * @param     uShort  short value (16 bits)
+   */
+    public void FillUS(short uShort) {
+
+    	for (int i = 0; i < this.byteLength / TypeSizes.SHORT_BYTES; i++) {
+    		this.SetUSPosition(i, uShort);
+    	}
+    }
+
+  /**
+   * Sets the stream to an specified int value
+   *
+   * @param     uLong  int value (32 bits)
+   */
+    public void FillUL(int uLong) {
+
+    	for (int i = 0; i < this.byteLength / TypeSizes.INT_BYTES; i++) {
+    		this.SetULPosition(i, uLong);
+    	}
+    }
+
+  /**
+   * Sets the bit value (value 0 or 1) at specified postion, position based in array of bits
+   *
+   * @param     position  position where to set the bit value
+   * @param     bit       bit value, 0 or 1
+   */
+    public void SetBitPosition(int position, byte bit) {
+
+    	this.SetBitPosition((long)position, bit);
+    }
+
+  /**
+   * Sets the bit value (value 0 or 1) at specified long postion, position based in array of bits
+   *
+   * @param     position  position where to set the bit value
+   * @param     bit       bit value, 0 or 1
+   */
+    public void SetBitPosition(long position, byte bit) {
+    	byte value;
+
+    	value = this.GetByte(position >>> 3);
+    	if ( bit == 0 ) {
+    		value &= ~(1 << (position & 7));
+    	}
+    	else {
+    		value |= 1 << (position & 7);
+    	}
+    	this.SetByte(position >>> 3, value);
+    }
+
+  /**
+   * Sets the byte value at specified postion, position based in array of bytes
+   *
+   * @param     position  position where to set the byte value
+   * @param     uChar     byte value
+   */
+    public void SetUCPosition(int position, byte uChar) {
+
+    	this.SetByte(position, uChar);
+    }
+
+  /**
+   * Sets the short value at specified postion, position based in array of shorts
+   *
+   * @param     position  position where to set the short value
+   * @param     uShort    short value
+   */
+    public void SetUSPosition(int position, short uShort) {
+
+    	this.SetByte((long)position * TypeSizes.SHORT_BYTES, (byte)(uShort >>> 8));
+    	this.SetByte((long)position * TypeSizes.SHORT_BYTES + 1, (byte)uShort);
+    }
+
+  /**
+   * Sets the int value at specified postion, position based in array of ints
+   *
+   * @param     position  position where to set the int value
+   * @param     uInt      int value
+   */
+    public void SetULPosition(int position, int uInt) {
+
+    	for (int i = 0; i < TypeSizes.INT_BYTES; i++) {
+    		this.SetByte((long)position * TypeSizes.INT_BYTES + i, (byte)(uInt >>> ((TypeSizes.INT_BYTES - 1 - i) * TypeSizes.BYTE_BITS)));
+    	}
+    }
+
+  /**
+   * Sets the long value at specified postion, position based in array of longs
+   *
+   * @param     position  position where to set the long value
+   * @param     uLong     long value
+   */
+    public void Set64Position(int position, long uLong) {
+
+    	for (int i = 0; i < TypeSizes.LONG_BYTES; i++) {
+    		this.SetByte((long)position * TypeSizes.LONG_BYTES + i, (byte)(uLong >>> ((TypeSizes.LONG_BYTES - 1 - i) * TypeSizes.BYTE_BITS)));
+    	}
+    }
+
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified postion, position based in array of bits
+   *
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(int position) {
+
+    	return this.GetBitPosition((long)position);
+    }
+
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified long postion, position based in array of bits
+   *
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(long position) {
+
+    	return (byte)((this.GetByte(position >>> 3) >>> (position & 7)) & 1);
+    }
+
+  /**
+   * Gets the byte at specified postion, position based in array of bytes
+   *
+   * @param     position  byte position where to get the byte value
+   * @return    byte:     byte value
+   */
+    public byte GetUCPosition(int position) {
+
+    	return this.GetByte(position);
+    }
+
+  /**
+   * Gets the short value at specified postion, position based in array of shorts
+   *
+   * @param     position  short position where to get the short value
+   * @return    short:    short value
+   */
+    public short GetUSPosition(int position) {
+
+    	return Short.reverseBytes((short)this.ExtractBits((long)position * TypeSizes.SHORT_BITS, TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the int at specified postion, position based in array of ints
+   *
+   * @param     position  int position where to get the int value
+   * @return    int:      int value
+   */
+    public int GetULPosition(int position) {
+
+    	return Integer.reverseBytes((int)this.ExtractBits((long)position * TypeSizes.INT_BITS, TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the long at specified postion, position based in array of longs
+   *
+   * @param     position  int position where to get the long value
+   * @return    long:     long value
+   */
+    public long Get64Position(int position) {
+
+    	return Long.reverseBytes(this.ExtractBits((long)position * TypeSizes.LONG_BITS, TypeSizes.LONG_BITS));
+    }
+
+  /**
+   * Points subStream to a portion of this stream, segments are shared and only
+   * the first and last segments of the portion are sliced
+   *
+   * @param     subStream       SegmentedCryptoRandomStream that will point the portion
+   * @param     bytePos         starting position in bytes of the portion
+   * @param     streamLength    length in bits of the portion
+   */
+    private void SetSubRandomStream(BaseCryptoRandomStream subStream, long bytePos, long streamLength) {
+    	SegmentedCryptoRandomStream target;
+    	ByteBuffer segment;
+    	long       remaining;
+    	int        index, local, length;
+
+    	target = (SegmentedCryptoRandomStream)subStream;
+    	target.close();
+    	remaining = (streamLength + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS;
+    	if ( remaining > 0 ) {
+    		index = this.SegmentIndex(bytePos);
+    		local = (int)(bytePos - this.segmentStarts[index]);
+    		while ( remaining > 0 ) {
+    			length = (int)Math.min(remaining, this.segments[index].limit() - local);
+    			segment = this.segments[index].duplicate();
+    			segment.position(local);
+    			segment.limit(local + length);
+    			target.Append(segment);
+    			remaining -= length;
+    			local = 0;
+    			index++;
+    		}
+    	}
+    	target.SetLength(streamLength);
+    	target.position = 0;
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       SegmentedCryptoRandomStream pointing a portion of this SegmentedCryptoRandomStream
+   * @param     pos             starting position in bytes of this SegmentedCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos, this.GetLongBitLength() - ((long)pos * TypeSizes.BYTE_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       SegmentedCryptoRandomStream pointing a portion of this SegmentedCryptoRandomStream
+   * @param     pos             starting position in shorts of this SegmentedCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.SHORT_BYTES, this.GetLongBitLength() - ((long)pos * TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       SegmentedCryptoRandomStream pointing a portion of this SegmentedCryptoRandomStream
+   * @param     pos             starting position in ints of this SegmentedCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.INT_BYTES, this.GetLongBitLength() - ((long)pos * TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       SegmentedCryptoRandomStream pointing a portion of this SegmentedCryptoRandomStream
+   * @param     pos             starting position in bytes of this SegmentedCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in bytes of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.BYTE_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, pos, (long)length * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       SegmentedCryptoRandomStream pointing a portion of this SegmentedCryptoRandomStream
+   * @param     pos             starting position in shorts of this SegmentedCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in shorts of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.SHORT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.SHORT_BYTES, (long)length * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       SegmentedCryptoRandomStream pointing a portion of this SegmentedCryptoRandomStream
+   * @param     pos             starting position in ints of this SegmentedCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in ints of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.INT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.INT_BYTES, (long)length * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Gets the CryptoRandomStream type of the object
+   *
+   * @return    CryptoRandomStreams:       object class type
+   */
+    public CryptoRandomStreams GetCryptoRandomStreamType() {
+
+    	return SegmentedCryptoRandomStream.Type;
+    }
+}
@@ -1,6 +1,11 @@
 package org.jiumao.nist.CryptoRandomStream;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.zip.DataFormatException;
 
 import org.jiumao.nist.Base.TypeSizes;
@@ -26,7 +31,7 @@ public class StringCryptoRandomStream extends BaseCryptoRandomStream{
 	public int baseOffset;
 	/**
 	 * Boolean indicating if base byte array has been internally created true: this
-	 * object must release byte array instantiated when finalized false: base byte
+	 * object must release byte array instantiated when closed false: base byte
 	 * array has been instantiated outside this object
 	 */
 	public boolean autoMemory;
@@ -40,130 +45,183 @@ public class StringCryptoRandomStream extends BaseCryptoRandomStream{
 	}
 
 	/**
-	 * Set the pointed stream as hexadecimal string
+	 * Set the pointed stream as binary string, every '0'/'1' character is
+	 * packed as one bit, whitespace is skipped
 	 * 
-	 * @param hexStream
-	 *            String parameter of hexadecimal data
+	 * @param binaryStream
+	 *            String parameter of binary data
 	 * @throws OutOfMemoryError,
 	 *             DataFormatException
 	 */
 	public static StringCryptoRandomStream ofBinaryString(String binaryStream)
 			throws OutOfMemoryError, DataFormatException {
 		StringCryptoRandomStream stream = new StringCryptoRandomStream();
-		binaryStream = binaryStream.trim();
+		BinaryStringPacker packer = new BinaryStringPacker(binaryStream.length());
 
-		// Fill binary data to byte array
-		stream.baseCryptoStream = new byte[binaryStream.length()];
-		for (int i = 0; i < stream.baseCryptoStream.length; i++) {
-			stream.baseCryptoStream[i] = (byte) binaryStream.charAt(i);
-		}
+		packer.Pack(binaryStream);
+		packer.SetCryptoRandomStream(stream);
+		return stream;
+	}
+
+	/**
+	 * Set the pointed stream as binary text read from a Reader, the text is
+	 * read in chunks and packed as it arrives
+	 * 
+	 * @param reader
+	 *            Reader of '0'/'1' characters, whitespace is skipped
+	 * @throws IOException,
+	 *             DataFormatException
+	 */
+	public static StringCryptoRandomStream ofBinaryReader(Reader reader)
+			throws IOException, DataFormatException {
+		StringCryptoRandomStream stream = new StringCryptoRandomStream();
+		BinaryStringPacker packer = new BinaryStringPacker(0);
+
+		packer.Pack(reader);
+		packer.SetCryptoRandomStream(stream);
+		return stream;
+	}
+
+	/**
+	 * Set the pointed stream as ASCII binary text read from an InputStream,
+	 * the text is read in chunks and packed as it arrives
+	 * 
+	 * @param input
+	 *            InputStream of '0'/'1' ASCII bytes, whitespace is skipped
+	 * @throws IOException,
+	 *             DataFormatException
+	 */
+	public static StringCryptoRandomStream ofBinaryStream(InputStream input)
+			throws IOException, DataFormatException {
+		StringCryptoRandomStream stream = new StringCryptoRandomStream();
+		BinaryStringPacker packer = new BinaryStringPacker(0);
 
-		stream.autoMemory = true;
-		stream.bitLength = binaryStream.length();
-		stream.cryptoBuffer = ByteBuffer.wrap(stream.baseCryptoStream, 0, binaryStream.length()).slice();
-		stream.position = 0;
-		stream.baseOffset = 0;
+		packer.Pack(input);
+		packer.SetCryptoRandomStream(stream);
+		return stream;
+	}
 
+	/**
+	 * Set the pointed stream as ASCII binary text read from a channel, the
+	 * text is read in chunks and packed as it arrives
+	 * 
+	 * @param channel
+	 *            channel of '0'/'1' ASCII bytes, whitespace is skipped
+	 * @throws IOException,
+	 *             DataFormatException
+	 */
+	public static StringCryptoRandomStream ofBinaryChannel(ReadableByteChannel channel)
+			throws IOException, DataFormatException {
+		StringCryptoRandomStream stream = new StringCryptoRandomStream();
+		BinaryStringPacker packer;
+
+		if (channel instanceof FileChannel) {
+			packer = new BinaryStringPacker(((FileChannel) channel).size() - ((FileChannel) channel).position());
+		}
+		else {
+			packer = new BinaryStringPacker(0);
+		}
+		packer.Pack(channel);
+		packer.SetCryptoRandomStream(stream);
 		return stream;
 	}
 	   
   /**    
-   * Set the pointed stream as hexadecimal string
+   * Set the pointed stream as hexadecimal string, digits are decoded through a
+   * lookup table, in parallel for long strings
    * 
    * @param     hexStream       String parameter of hexadecimal data
    * @throws    OutOfMemoryError, DataFormatException
    */
-    public static StringCryptoRandomStream ofHexString(String hexStream) throws OutOfMemoryError, DataFormatException {
+    public static StringCryptoRandomStream ofHexString(CharSequence hexStream) throws OutOfMemoryError, DataFormatException {
+
+    	return ofDecodedBytes(TextDecoder.DecodeHex(hexStream));
+    }
+
+  /**    
+   * Set the pointed stream as hexadecimal ASCII text held in a byte array
+   * 
+   * @param     hexStream       byte array of hexadecimal ASCII characters
+   * @throws    OutOfMemoryError, DataFormatException
+   */
+    public static StringCryptoRandomStream ofHexBytes(byte[] hexStream) throws OutOfMemoryError, DataFormatException {
+
+    	return ofDecodedBytes(TextDecoder.DecodeHex(hexStream, 0, hexStream.length));
+    }
+
+  /**    
+   * Set the pointed stream as the remaining hexadecimal ASCII text of a buffer,
+   * buffer position is not modified
+   * 
+   * @param     hexStream       buffer of hexadecimal ASCII characters
+   * @throws    OutOfMemoryError, DataFormatException
+   */
+    public static StringCryptoRandomStream ofHexBuffer(ByteBuffer hexStream) throws OutOfMemoryError, DataFormatException {
+
+    	return ofDecodedBytes(TextDecoder.DecodeHex(hexStream));
+    }
+
+  /**    
+   * Set the pointed stream as base64 string, standard or URL safe alphabet,
+   * '=' padding only allowed at the end
+   * 
+   * @param     base64Stream    String parameter of base64 data
+   * @throws    OutOfMemoryError, DataFormatException
+   */
+    public static StringCryptoRandomStream ofBase64String(CharSequence base64Stream) throws OutOfMemoryError, DataFormatException {
+
+    	return ofDecodedBytes(TextDecoder.DecodeBase64(base64Stream));
+    }
+
+  /**    
+   * Set the pointed stream as base64 ASCII text held in a byte array
+   * 
+   * @param     base64Stream    byte array of base64 ASCII characters
+   * @throws    OutOfMemoryError, DataFormatException
+   */
+    public static StringCryptoRandomStream ofBase64Bytes(byte[] base64Stream) throws OutOfMemoryError, DataFormatException {
+
+    	return ofDecodedBytes(TextDecoder.DecodeBase64(base64Stream, 0, base64Stream.length));
+    }
+
+  /**    
+   * Set the pointed stream as the remaining base64 ASCII text of a buffer,
+   * buffer position is not modified
+   * 
+   * @param     base64Stream    buffer of base64 ASCII characters
+   * @throws    OutOfMemoryError, DataFormatException
+   */
+    public static StringCryptoRandomStream ofBase64Buffer(ByteBuffer base64Stream) throws OutOfMemoryError, DataFormatException {
+
+    	return ofDecodedBytes(TextDecoder.DecodeBase64(base64Stream));
+    }
+
+  /**    
+   * Creates a stream owning the decoded bytes
+   * 
+   * @param     decoded         decoded bytes
+   * @throws    IndexOutOfBoundsException
+   */
+    private static StringCryptoRandomStream ofDecodedBytes(byte[] decoded) throws IndexOutOfBoundsException {
     	StringCryptoRandomStream stream = new StringCryptoRandomStream();
-    	int  lengthUC, i, streamLength;
-    	byte character;
-   
-    	try {
-    		streamLength = hexStream.length();
-    		if ( (streamLength % 2) != 0 ) {
-    			throw new DataFormatException("Erroneous hexadecimal string!");
-    		}
-    		else {
-    			lengthUC = streamLength / 2;
-    			stream.baseCryptoStream = new byte[lengthUC];
-    			if (stream.baseCryptoStream == null ) 
-    				throw new OutOfMemoryError();
-    			else {
-    				stream.autoMemory = true;
-    				stream.bitLength = lengthUC * TypeSizes.BYTE_BITS;
-    				stream.cryptoBuffer = ByteBuffer.wrap(stream.baseCryptoStream, 0, lengthUC).slice();
-    				stream.position = 0;
-    				stream.baseOffset = 0;
-    				for ( i = 0; i < lengthUC; i++ ) {
-    					character = 0;
-    					switch ( hexStream.charAt( 2 * i ) ) {
-    						case '0' : character = 0x00; break;
-    						case '1' : character = 0x10; break;
-    						case '2' : character = 0x20; break;
-    						case '3' : character = 0x30; break;
-    						case '4' : character = 0x40; break;
-    						case '5' : character = 0x50; break;
-    						case '6' : character = 0x60; break;
-    						case '7' : character = 0x70; break;
-    						case '8' : character = (byte)0x80; break;
-    						case '9' : character = (byte)0x90; break;
-    						case 'A' : 
-    						case 'a' : character = (byte)0xa0; break;
-    						case 'B' : 
-    						case 'b' : character = (byte)0xb0; break;
-    						case 'C' : 
-    						case 'c' : character = (byte)0xc0; break;
-    						case 'D' : 
-    						case 'd' : character = (byte)0xd0; break;
-    						case 'E' : 
-    						case 'e' : character = (byte)0xe0; break;
-    						case 'F' : 
-    						case 'f' : character = (byte)0xf0; break;
-    						default : 
-    							throw new DataFormatException("Erroneous hexadecimal string!");
-    					}
-    					switch ( hexStream.charAt( (2 * i) + 1 ) ) {
-    						case '0' : character |= 0x00; break;
-    						case '1' : character |= 0x01; break;
-    						case '2' : character |= 0x02; break;
-    						case '3' : character |= 0x03; break;
-    						case '4' : character |= 0x04; break;
-    						case '5' : character |= 0x05; break;
-    						case '6' : character |= 0x06; break;
-    						case '7' : character |= 0x07; break;
-    						case '8' : character |= 0x08; break;
-    						case '9' : character |= 0x09; break;
-    						case 'A' : 
-    						case 'a' : character |= 0x0a; break;
-    						case 'B' : 
-    						case 'b' : character |= 0x0b; break;
-    						case 'C' : 
-    						case 'c' : character |= 0x0c; break;
-    						case 'D' : 
-    						case 'd' : character |= 0x0d; break;
-    						case 'E' : 
-    						case 'e' : character |= 0x0e; break;
-    						case 'F' : 
-    						case 'f' : character |= 0x0f; break;
-    						default : 
-    							throw new DataFormatException("Erroneous hexadecimal string!");
-    					}
-    					stream.SetUCPosition(i, character);
-    				}
-    			}
-    		}
-    	}
-    	catch (OutOfMemoryError e) {
-    		throw e;
+
+    	if ( decoded.length > (Integer.MAX_VALUE / TypeSizes.BYTE_BITS) ) {
+    		throw new IndexOutOfBoundsException("Length exceeded stream maximum length !");
     	}
+    	stream.baseCryptoStream = decoded;
+    	stream.autoMemory = true;
+    	stream.bitLength = decoded.length * TypeSizes.BYTE_BITS;
+    	stream.cryptoBuffer = ByteBuffer.wrap(decoded).slice();
+    	stream.position = 0;
+    	stream.baseOffset = 0;
     	return stream;
     }
     
     
     /**    
-     * Destructor, zeroes all data
+     * Releases the stream, zeroes all data owned by the stream
      */
-      public void finalize() {
+      public void close() {
      
       	if ( this.autoMemory ) {
       		this.FillUC((byte)0x00); 
@@ -0,0 +1,324 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+
+/**
+ * Decodes hexadecimal and base64 text into bytes through lookup tables.
+ * <p>
+ * Text may be given as a CharSequence, an ASCII byte array or an ASCII ByteBuffer,
+ * decoded bytes are written straight to the resulting array. Inputs of PARALLELLENGTH
+ * characters or more are split in chunks decoded in parallel.
+ */
+final class TextDecoder {
+
+  /**
+   * Minimum number of characters decoded in parallel
+   */
+    static final int PARALLELLENGTH = 1 << 20;
+  /**
+   * Number of characters of every parallel chunk, multiple of 2 and 4
+   */
+    private static final int CHUNKLENGTH = 1 << 16;
+
+  /**
+   * Value of table entries of characters outside the alphabet
+   */
+    private static final byte INVALID = -1;
+
+  /**
+   * Value of every ASCII hexadecimal digit
+   */
+    private static final byte[] HEX = new byte[128];
+  /**
+   * Value of every ASCII base64 digit, standard and URL safe alphabets
+   */
+    private static final byte[] BASE64 = new byte[128];
+
+    static {
+    	Arrays.fill(HEX, INVALID);
+    	for (int i = 0; i < 10; i++) {
+    		HEX['0' + i] = (byte)i;
+    	}
+    	for (int i = 0; i < 6; i++) {
+    		HEX['a' + i] = (byte)(10 + i);
+    		HEX['A' + i] = (byte)(10 + i);
+    	}
+    	Arrays.fill(BASE64, INVALID);
+    	for (int i = 0; i < 26; i++) {
+    		BASE64['A' + i] = (byte)i;
+    		BASE64['a' + i] = (byte)(26 + i);
+    	}
+    	for (int i = 0; i < 10; i++) {
+    		BASE64['0' + i] = (byte)(52 + i);
+    	}
+    	BASE64['+'] = 62;
+    	BASE64['-'] = 62;
+    	BASE64['/'] = 63;
+    	BASE64['_'] = 63;
+    }
+
+  /**
+   * Decodes the characters [from, to) of a text
+   */
+    private interface ChunkDecoder {
+
+    	boolean Decode(int from, int to);
+    }
+
+    private TextDecoder() {
+    }
+
+  /**
+   * Decodes the text range [0, length), in parallel chunks for long texts
+   *
+   * @param     length     number of characters to be decoded
+   * @param     decoder    decoder of a range of characters
+   * @return    boolean:   false if any character is not valid
+   */
+    private static boolean Decode(final int length, final ChunkDecoder decoder) {
+
+    	if ( length < PARALLELLENGTH ) {
+    		return decoder.Decode(0, length);
+    	}
+    	return IntStream.range(0, (length + CHUNKLENGTH - 1) / CHUNKLENGTH).parallel()
+    			.allMatch(chunk -> decoder.Decode(chunk * CHUNKLENGTH, (int)Math.min(length, (chunk + 1L) * CHUNKLENGTH)));
+    }
+
+  /**
+   * Gets the value of a hexadecimal digit, negative if c is not a digit
+   */
+    private static int HexValue(int c) {
+
+    	return (c < HEX.length) ? HEX[c] : INVALID;
+    }
+
+  /**
+   * Gets the value of a base64 digit, negative if c is not a digit
+   */
+    private static int Base64Value(int c) {
+
+    	return (c < BASE64.length) ? BASE64[c] : INVALID;
+    }
+
+  /**
+   * Decodes hexadecimal text
+   *
+   * @param     text    hexadecimal characters, two per byte
+   * @return    byte[]: decoded bytes
+   * @throws    DataFormatException
+   */
+    static byte[] DecodeHex(final CharSequence text) throws DataFormatException {
+    	final byte[] target;
+
+    	if ( (text.length() % 2) != 0 ) {
+    		throw new DataFormatException("Erroneous hexadecimal string!");
+    	}
+    	target = new byte[text.length() / 2];
+    	if ( !Decode(text.length(), (from, to) -> {
+    		for (int i = from; i < to; i += 2) {
+    			int high = HexValue(text.charAt(i));
+    			int low = HexValue(text.charAt(i + 1));
+    			if ( (high | low) < 0 ) {
+    				return false;
+    			}
+    			target[i >>> 1] = (byte)((high << 4) | low);
+    		}
+    		return true;
+    	}) ) {
+    		throw new DataFormatException("Erroneous hexadecimal string!");
+    	}
+    	return target;
+    }
+
+  /**
+   * Decodes hexadecimal ASCII text
+   *
+   * @param     text      array holding hexadecimal ASCII characters, two per byte
+   * @param     offset    position of the first character in text
+   * @param     length    number of characters
+   * @return    byte[]:   decoded bytes
+   * @throws    DataFormatException
+   */
+    static byte[] DecodeHex(final byte[] text, final int offset, int length) throws DataFormatException {
+    	final byte[] target;
+
+    	if ( (length % 2) != 0 ) {
+    		throw new DataFormatException("Erroneous hexadecimal string!");
+    	}
+    	target = new byte[length / 2];
+    	if ( !Decode(length, (from, to) -> {
+    		for (int i = from; i < to; i += 2) {
+    			int high = HexValue(text[offset + i] & 0xff);
+    			int low = HexValue(text[offset + i + 1] & 0xff);
+    			if ( (high | low) < 0 ) {
+    				return false;
+    			}
+    			target[i >>> 1] = (byte)((high << 4) | low);
+    		}
+    		return true;
+    	}) ) {
+    		throw new DataFormatException("Erroneous hexadecimal string!");
+    	}
+    	return target;
+    }
+
+  /**
+   * Decodes the remaining hexadecimal ASCII text of a buffer, buffer position is not modified
+   *
+   * @param     text      buffer holding hexadecimal ASCII characters, two per byte
+   * @return    byte[]:   decoded bytes
+   * @throws    DataFormatException
+   */
+    static byte[] DecodeHex(ByteBuffer text) throws DataFormatException {
+
+    	if ( text.hasArray() ) {
+    		return DecodeHex(text.array(), text.arrayOffset() + text.position(), text.remaining());
+    	}
+    	return DecodeHex(ToArray(text), 0, text.remaining());
+    }
+
+  /**
+   * Gets the number of decoded bytes of base64 text and checks its padding
+   *
+   * @param     length    number of characters
+   * @param     last      last character, 0 if length is 0
+   * @param     previous  character before last one, 0 if length is less than 2
+   * @return    int:      number of decoded bytes
+   * @throws    DataFormatException
+   */
+    private static int Base64Length(int length, int last, int previous) throws DataFormatException {
+    	int padding;
+
+    	if ( (length % 4) != 0 ) {
+    		throw new DataFormatException("Erroneous base64 string!");
+    	}
+    	padding = 0;
+    	if ( last == '=' ) {
+    		padding = (previous == '=') ? 2 : 1;
+    	}
+    	return (length / 4) * 3 - padding;
+    }
+
+  /**
+   * Decodes the last quantum of base64 text, which may be padded
+   *
+   * @return    boolean:   false if any character is not valid
+   */
+    private static boolean DecodeBase64Tail(int c0, int c1, int c2, int c3, byte[] target, int position) {
+    	int a, b, c, d;
+
+    	a = Base64Value(c0);
+    	b = Base64Value(c1);
+    	c = (c2 == '=') ? 0 : Base64Value(c2);
+    	d = (c3 == '=') ? 0 : Base64Value(c3);
+    	if ( ((a | b | c | d) < 0) || ((c2 == '=') && (c3 != '=')) ) {
+    		return false;
+    	}
+    	target[position] = (byte)((a << 2) | (b >>> 4));
+    	if ( c2 != '=' ) {
+    		target[position + 1] = (byte)((b << 4) | (c >>> 2));
+    	}
+    	if ( c3 != '=' ) {
+    		target[position + 2] = (byte)((c << 6) | d);
+    	}
+    	return true;
+    }
+
+  /**
+   * Decodes base64 text, '=' padding is only allowed at the end
+   *
+   * @param     text    base64 characters, four per three bytes
+   * @return    byte[]: decoded bytes
+   * @throws    DataFormatException
+   */
+    static byte[] DecodeBase64(final CharSequence text) throws DataFormatException {
+    	final byte[] target;
+    	int          length, body;
+
+    	length = text.length();
+    	target = new byte[Base64Length(length, (length > 0) ? text.charAt(length - 1) : 0,
+    			(length > 1) ? text.charAt(length - 2) : 0)];
+    	body = (length > 0) ? length - 4 : 0;
+    	if ( !Decode(body, (from, to) -> {
+    		for (int i = from; i < to; i += 4) {
+    			int value = (Base64Value(text.charAt(i)) << 18) | (Base64Value(text.charAt(i + 1)) << 12)
+    					| (Base64Value(text.charAt(i + 2)) << 6) | Base64Value(text.charAt(i + 3));
+    			if ( value < 0 ) {
+    				return false;
+    			}
+    			target[(i >>> 2) * 3] = (byte)(value >>> 16);
+    			target[(i >>> 2) * 3 + 1] = (byte)(value >>> 8);
+    			target[(i >>> 2) * 3 + 2] = (byte)value;
+    		}
+    		return true;
+    	}) || ((length > 0) && !DecodeBase64Tail(text.charAt(body), text.charAt(body + 1), text.charAt(body + 2),
+    			text.charAt(body + 3), target, (body / 4) * 3)) ) {
+    		throw new DataFormatException("Erroneous base64 string!");
+    	}
+    	return target;
+    }
+
+  /**
+   * Decodes base64 ASCII text, '=' padding is only allowed at the end
+   *
+   * @param     text      array holding base64 ASCII characters, four per three bytes
+   * @param     offset    position of the first character in text
+   * @param     length    number of characters
+   * @return    byte[]:   decoded bytes
+   * @throws    DataFormatException
+   */
+    static byte[] DecodeBase64(final byte[] text, final int offset, int length) throws DataFormatException {
+    	final byte[] target;
+    	int          body;
+
+    	target = new byte[Base64Length(length, (length > 0) ? text[offset + length - 1] : 0,
+    			(length > 1) ? text[offset + length - 2] : 0)];
+    	body = (length > 0) ? length - 4 : 0;
+    	if ( !Decode(body, (from, to) -> {
+    		for (int i = offset + from; i < offset + to; i += 4) {
+    			int value = (Base64Value(text[i] & 0xff) << 18) | (Base64Value(text[i + 1] & 0xff) << 12)
+    					| (Base64Value(text[i + 2] & 0xff) << 6) | Base64Value(text[i + 3] & 0xff);
+    			if ( value < 0 ) {
+    				return false;
+    			}
+    			target[((i - offset) >>> 2) * 3] = (byte)(value >>> 16);
+    			target[((i - offset) >>> 2) * 3 + 1] = (byte)(value >>> 8);
+    			target[((i - offset) >>> 2) * 3 + 2] = (byte)value;
+    		}
+    		return true;
+    	}) || ((length > 0) && !DecodeBase64Tail(text[offset + body] & 0xff, text[offset + body + 1] & 0xff,
+    			text[offset + body + 2] & 0xff, text[offset + body + 3] & 0xff, target, (body / 4) * 3)) ) {
+    		throw new DataFormatException("Erroneous base64 string!");
+    	}
+    	return target;
+    }
+
+  /**
+   * Decodes the remaining base64 ASCII text of a buffer, buffer position is not modified
+   *
+   * @param     text      buffer holding base64 ASCII characters, four per three bytes
+   * @return    byte[]:   decoded bytes
+   * @throws    DataFormatException
+   */
+    static byte[] DecodeBase64(ByteBuffer text) throws DataFormatException {
+
+    	if ( text.hasArray() ) {
+    		return DecodeBase64(text.array(), text.arrayOffset() + text.position(), text.remaining());
+    	}
+    	return DecodeBase64(ToArray(text), 0, text.remaining());
+    }
+
+  /**
+   * Copies the remaining bytes of a buffer without an accessible array, buffer position is not modified
+   */
+    private static byte[] ToArray(ByteBuffer text) {
+    	byte[] copy;
+
+    	copy = new byte[text.remaining()];
+    	text.duplicate().get(copy);
+    	return copy;
+    }
+}
@@ -0,0 +1,538 @@
+package org.jiumao.nist.CryptoRandomStream;
+
+import org.jiumao.nist.Base.TypeSizes;
+
+/**
+ * Read only view of a bit range of another crypto random stream.
+ * <p>
+ * The view shares the storage of its parent stream, no data is copied, and it
+ * may start at any bit position of the parent. Views of views point straight
+ * to the first parent, so accessing a view always costs a single indirection.
+ * Byte, short, int and long accessors give the same values as a stream holding
+ * a copy of the viewed bits.
+ */
+public class ViewCryptoRandomStream extends BaseCryptoRandomStream {
+
+  /**
+   * Type of stream object
+   */
+    private static final CryptoRandomStreams Type = CryptoRandomStreams.ViewStream;
+
+  /**
+   * Stream whose storage is viewed
+   */
+    public BaseCryptoRandomStream parent;
+  /**
+   * Starting point (bit) of this ViewCryptoRandomStream inside parent stream
+   */
+    public long    bitOffset;
+  /**
+   * Length in bits of ViewCryptoRandomStream, bitLength holds the same value
+   * limited to Integer.MAX_VALUE
+   */
+    public long    longBitLength;
+
+  /**
+   * Constructor, default, the view can be used as target of sub stream methods
+   */
+    public ViewCryptoRandomStream() {
+
+    	super();
+    	this.parent = null;
+    	this.bitOffset = 0;
+    	this.longBitLength = 0;
+    }
+
+  /**
+   * Constructor, views the indicated bit range of parent stream
+   *
+   * @param     parent          stream whose storage is viewed
+   * @param     bitOffset       position in bits of parent stream, new 0 position of the view
+   * @param     bitLength       length in bits of the view
+   * @throws    IndexOutOfBoundsException
+   */
+    public ViewCryptoRandomStream(BaseCryptoRandomStream parent, long bitOffset, long bitLength) throws IndexOutOfBoundsException {
+
+    	this();
+    	if ( (bitOffset < 0) || (bitLength < 0) || ((bitOffset + bitLength) > parent.GetLongBitLength()) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	if ( parent instanceof ViewCryptoRandomStream ) {
+    		this.SetView(((ViewCryptoRandomStream)parent).parent, ((ViewCryptoRandomStream)parent).bitOffset + bitOffset, bitLength);
+    	}
+    	else {
+    		this.SetView(parent, bitOffset, bitLength);
+    	}
+    }
+
+  /**
+   * Releases the view, view does not own any data
+   */
+    public void close() {
+
+    	this.parent = null;
+    	this.bitOffset = 0;
+    	this.longBitLength = 0;
+    	this.bitLength = 0;
+    	this.reducedBitLength = 0;
+    	this.position = 0;
+    }
+
+  /**
+   * Points the view to the indicated bit range of parent stream
+   *
+   * @param     parent          stream whose storage is viewed
+   * @param     bitOffset       position in bits of parent stream
+   * @param     bitLength       length in bits of the view
+   */
+    private void SetView(BaseCryptoRandomStream parent, long bitOffset, long bitLength) {
+
+    	this.parent = parent;
+    	this.bitOffset = bitOffset;
+    	this.longBitLength = bitLength;
+    	this.bitLength = (int)Math.min(bitLength, Integer.MAX_VALUE);
+    	this.reducedBitLength = 0;
+    	this.position = 0;
+    }
+
+  /**
+   * Views are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in bits
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamBit(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in bytes
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamUC(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in shorts
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamUS(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only, empty streams can not be created
+   *
+   * @param       streamLength    stream length in ints
+   * @throws      UnsupportedOperationException
+   */
+    public void SetCryptoRandomStreamUL(int streamLength) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Gets the stream length in bits, which may exceed Integer.MAX_VALUE
+   *
+   * @return     long:  ViewCryptoRandomStream length in bits
+   */
+    public long GetLongBitLength() {
+
+    	if ( this.reducedBitLength != 0 ) {
+    		return this.reducedBitLength;
+    	}
+    	return this.longBitLength;
+    }
+
+  /**
+   * Gets a view of a bit range of this view, the new view points the parent stream
+   *
+   * @param     bitOffset       position in bits of this view, new 0 position of the view
+   * @param     bitLength       length in bits of the view
+   * @return    BaseCryptoRandomStream:    read only view sharing the parent storage
+   * @throws    IndexOutOfBoundsException
+   */
+    public BaseCryptoRandomStream View(long bitOffset, long bitLength) throws IndexOutOfBoundsException {
+
+    	return new ViewCryptoRandomStream(this, bitOffset, bitLength);
+    }
+
+  /**
+   * Gets up to 64 bits starting at specified bit position of the view
+   *
+   * @param     position    bit position of the first bit
+   * @param     count       number of bits, from 1 to 64
+   * @return    long:       bits of the view, first bit at bit 0
+   */
+    public long ExtractBits(long position, int count) {
+
+    	return this.parent.ExtractBits(this.bitOffset + position, count);
+    }
+
+  /**
+   * Gets consecutive 64 bit words starting at specified bit position of the view,
+   * bits beyond the view length are zero
+   *
+   * @param     position    bit position of the first bit
+   * @param     target      array receiving the words
+   * @param     offset      position of the first word in target
+   * @param     count       number of words
+   */
+    public void GetWords(long position, long[] target, int offset, int count) {
+    	long length, bitPosition;
+
+    	this.parent.GetWords(this.bitOffset + position, target, offset, count);
+    	length = this.GetLongBitLength();
+    	for (int i = count - 1; i >= 0; i--) {
+    		bitPosition = position + (long)i * TypeSizes.LONG_BITS;
+    		if ( (bitPosition + TypeSizes.LONG_BITS) <= length ) {
+    			break;
+    		}
+    		target[offset + i] = (bitPosition < length) ? target[offset + i] & ((1L << (length - bitPosition)) - 1) : 0;
+    	}
+    }
+
+  /**
+   * Counts the bits with value 1 in the bit range [from, to) of the view
+   *
+   * @param     from    first bit position of the range
+   * @param     to      bit position following the last bit of the range
+   * @return    long:   number of ones
+   */
+    public long PopCount(long from, long to) {
+
+    	return this.parent.PopCount(this.bitOffset + from, this.bitOffset + to);
+    }
+
+  /**
+   * Counts the bit transitions in the bit range [from, to) of the view
+   *
+   * @param     from    first bit position of the range
+   * @param     to      bit position following the last bit of the range
+   * @return    long:   number of transitions
+   */
+    public long CountTransitions(long from, long to) {
+
+    	return this.parent.CountTransitions(this.bitOffset + from, this.bitOffset + to);
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     bit  bit value, 0 or 1
+   * @throws    UnsupportedOperationException
+   */
+    public void FillBit(byte bit) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     uChar  byte value (8 bits)
+   * @throws    UnsupportedOperationException
+   */
+    public void FillUC(byte uChar) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     uShort  short value (16 bits)
+   * @throws    UnsupportedOperationException
+   */
+    public void FillUS(short uShort) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     uLong  int value (32 bits)
+   * @throws    UnsupportedOperationException
+   */
+    public void FillUL(int uLong) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     position  position where to set the bit value
+   * @param     bit       bit value, 0 or 1
+   * @throws    UnsupportedOperationException
+   */
+    public void SetBitPosition(int position, byte bit) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     position  position where to set the bit value
+   * @param     bit       bit value, 0 or 1
+   * @throws    UnsupportedOperationException
+   */
+    public void SetBitPosition(long position, byte bit) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     position  position where to set the byte value
+   * @param     uChar     byte value
+   * @throws    UnsupportedOperationException
+   */
+    public void SetUCPosition(int position, byte uChar) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     position  position where to set the short value
+   * @param     uShort    short value
+   * @throws    UnsupportedOperationException
+   */
+    public void SetUSPosition(int position, short uShort) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     position  position where to set the int value
+   * @param     uInt      int value
+   * @throws    UnsupportedOperationException
+   */
+    public void SetULPosition(int position, int uInt) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Views are read only
+   *
+   * @param     position  position where to set the long value
+   * @param     uLong     long value
+   * @throws    UnsupportedOperationException
+   */
+    public void Set64Position(int position, long uLong) throws UnsupportedOperationException {
+
+    	throw new UnsupportedOperationException("Views are read only !");
+    }
+
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified postion, position based in array of bits
+   *
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(int position) {
+
+    	return this.parent.GetBitPosition(this.bitOffset + position);
+    }
+
+  /**
+   * Gets the bit value (value  0 or 1) as byte at specified long postion, position based in array of bits
+   *
+   * @param     position  bit position where to get the bit value
+   * @return    byte:     bit value in a byte, value 0 or 1
+   */
+    public byte GetBitPosition(long position) {
+
+    	return this.parent.GetBitPosition(this.bitOffset + position);
+    }
+
+  /**
+   * Gets the byte at specified postion, position based in array of bytes
+   *
+   * @param     position  byte position where to get the byte value
+   * @return    byte:     byte value
+   */
+    public byte GetUCPosition(int position) {
+
+    	return (byte)this.ExtractBits((long)position * TypeSizes.BYTE_BITS, TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Gets the short value at specified postion, position based in array of shorts
+   *
+   * @param     position  short position where to get the short value
+   * @return    short:    short value
+   */
+    public short GetUSPosition(int position) {
+
+    	return Short.reverseBytes((short)this.ExtractBits((long)position * TypeSizes.SHORT_BITS, TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the int at specified postion, position based in array of ints
+   *
+   * @param     position  int position where to get the int value
+   * @return    int:      int value
+   */
+    public int GetULPosition(int position) {
+
+    	return Integer.reverseBytes((int)this.ExtractBits((long)position * TypeSizes.INT_BITS, TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the long at specified postion, position based in array of longs
+   *
+   * @param     position  int position where to get the long value
+   * @return    long:     long value
+   */
+    public long Get64Position(int position) {
+
+    	return Long.reverseBytes(this.ExtractBits((long)position * TypeSizes.LONG_BITS, TypeSizes.LONG_BITS));
+    }
+
+  /**
+   * Points subStream to a portion of this view
+   *
+   * @param     subStream       ViewCryptoRandomStream that will point the portion
+   * @param     bitPos          starting position in bits of the portion
+   * @param     streamLength    length in bits of the portion
+   */
+    private void SetSubRandomStream(BaseCryptoRandomStream subStream, long bitPos, long streamLength) {
+
+    	((ViewCryptoRandomStream)subStream).SetView(this.parent, this.bitOffset + bitPos, streamLength);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       ViewCryptoRandomStream pointing a portion of this ViewCryptoRandomStream
+   * @param     pos             starting position in bytes of this ViewCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.BYTE_BITS, this.GetLongBitLength() - ((long)pos * TypeSizes.BYTE_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       ViewCryptoRandomStream pointing a portion of this ViewCryptoRandomStream
+   * @param     pos             starting position in shorts of this ViewCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.SHORT_BITS, this.GetLongBitLength() - ((long)pos * TypeSizes.SHORT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       ViewCryptoRandomStream pointing a portion of this ViewCryptoRandomStream
+   * @param     pos             starting position in ints of this ViewCryptoRandomStream for subStream, new 0 position of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.INT_BITS, this.GetLongBitLength() - ((long)pos * TypeSizes.INT_BITS));
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of bytes
+   *
+   * @param     subStream       ViewCryptoRandomStream pointing a portion of this ViewCryptoRandomStream
+   * @param     pos             starting position in bytes of this ViewCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in bytes of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUCSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUCLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.BYTE_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.BYTE_BITS, (long)length * TypeSizes.BYTE_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of shorts
+   *
+   * @param     subStream       ViewCryptoRandomStream pointing a portion of this ViewCryptoRandomStream
+   * @param     pos             starting position in shorts of this ViewCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in shorts of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetUSSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetUSLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.SHORT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.SHORT_BITS, (long)length * TypeSizes.SHORT_BITS);
+    }
+
+  /**
+   * Gets the baseCryptoRandomStream portion at specified position with a specified length
+   * from baseCryptoRandomStream object, position and length based in array of ints
+   *
+   * @param     subStream       ViewCryptoRandomStream pointing a portion of this ViewCryptoRandomStream
+   * @param     pos             starting position in ints of this ViewCryptoRandomStream for subStream, new 0 position of subStream
+   * @param     length          length in ints of subStream
+   * @throws    IndexOutOfBoundsException
+   */
+    public void GetULSubRandomStream(BaseCryptoRandomStream subStream, int pos, int length) throws IndexOutOfBoundsException {
+
+    	if ( pos >= this.GetULLength() ) {
+    		throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+    	}
+    	if ( ((long)pos + length) > (this.GetLongBitLength() / TypeSizes.INT_BITS) ) {
+    		throw new IndexOutOfBoundsException("Positions plus length exceeded stream length !");
+    	}
+    	this.SetSubRandomStream(subStream, (long)pos * TypeSizes.INT_BITS, (long)length * TypeSizes.INT_BITS);
+    }
+
+  /**
+   * Gets the CryptoRandomStream type of the object
+   *
+   * @return    CryptoRandomStreams:       object class type
+   */
+    public CryptoRandomStreams GetCryptoRandomStreamType() {
+
+    	return ViewCryptoRandomStream.Type;
+    }
+}
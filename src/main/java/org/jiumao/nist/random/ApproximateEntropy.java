@@ -14,6 +14,8 @@ import org.jiumao.nist.CryptoRandomStream.*;
  */
 public class ApproximateEntropy extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
   /**
    * Random Test Class enumerator name
    */
@@ -88,21 +90,6 @@ public class ApproximateEntropy extends BaseRandom {
 		this.maximumBlockSizeRecommended = 0;	 
     }
 
-  /**
-   * Destructor, zeroes all data
-   * 
-   */ 
-    public void finalize() {
-    
-		this.blockLength = 0;
-		this.chiSquared = 0.0;
-		this.phi = 0.0;
-		this.phiPlusOne = 0.0;
-		this.apEn = 0.0;
-		this.blockSizeExceeded = false;		
-		this.maximumBlockSizeRecommended = 0;	 
-    }
-
   /**
    * Gets the BaseRandomTest random state of the last executed BaseCryptoRandomStream
    * 
@@ -177,10 +164,71 @@ public class ApproximateEntropy extends BaseRandom {
         		P = null;
         	}
         }
+        return this.ComputeResults(ApEn, bitStream.GetBitLength());
+    }
+
+  /**
+   * Tests a sequence from the cyclic counts of its patterns, as a ShardState or a
+   * PatternMonitor keep them, and returns the random value, results are the same as
+   * testing the sequence
+   * 
+   * @param     state       pattern counts of the sequence to be verified for randomness properties
+   * @return    boolean     indication if the sequence is a randomized stream
+   * @throws    IllegalArgumentException    if patterns are shorter than the block length plus one
+   */ 
+    public boolean isRandom(PatternCounts state) throws IllegalArgumentException {
+    	int     i, r, blockSize;
+        long    P[];
+        double  sum, numOfBlocks;
+		double  ApEn[];
+
+		if (state.GetPatternLength() < this.blockLength+1) {
+			throw new IllegalArgumentException("Pattern length is less than test block length plus one !");
+		}
+        ApEn = new double[2];
+		if ( state.GetLength() < this.GetMinimumLength() ) {
+			this.error = RandomTestErrors.InsufficientNumberOfBits;
+			this.random = false;
+			return this.random;
+		}
+		this.error = RandomTestErrors.NoError;
+		if (this.blockLength > this.MaximumBlockSizeRecommended(state.GetLength())) {
+			this.blockSizeExceeded = true;
+			this.maximumBlockSizeRecommended = this.MaximumBlockSizeRecommended(state.GetLength());
+			this.error = RandomTestErrors.ResultsInaccurate;
+			this.random = false;
+			return this.random ;
+        } 
+        r = 0;
+        for(blockSize = this.blockLength; blockSize <= this.blockLength+1; blockSize++) {
+        	if (blockSize == 0) {
+        		ApEn[0] = 0.00;
+        		r++;
+        	}
+        	else {
+        		numOfBlocks = state.GetLength();
+        		P = state.GetPatternCounts(blockSize);
+        		sum = 0.0;
+        		for(i = 0; i < P.length; i++) {
+        			if (P[i] > 0) sum += P[i]*Math.log(P[i]/numOfBlocks);
+        		}
+        		sum /= numOfBlocks;
+        		ApEn[r] = sum;
+        		r++;
+        	}
+        }
+        return this.ComputeResults(ApEn, state.GetLength());
+    }
+
+  /**
+   * Computes the results from phi and phiPlusOne held in ApEn
+   */ 
+    private boolean ComputeResults(double[] ApEn, long n) {
+
         this.apEn = ApEn[0] - ApEn[1];
 		this.phi = ApEn[0];
 		this.phiPlusOne = ApEn[1];
-		this.chiSquared = 2.0*bitStream.GetBitLength()*(Math.log(2) - this.apEn);
+		this.chiSquared = 2.0*n*(Math.log(2) - this.apEn);
 		this.pValue = this.mathFuncs.IGammaC(Math.pow(2,this.blockLength-1),this.chiSquared/2.);
 		if (Double.isNaN(this.pValue)) {
 			this.pValue = 0;
@@ -320,7 +368,7 @@ public class ApproximateEntropy extends BaseRandom {
    * @param     length  length in bits of the stream for which to perform randomness checking
    * @return    int:    gets maximum block size recommended according to length 
    */ 
-    public int MaximumBlockSizeRecommended(int length) {
+    public int MaximumBlockSizeRecommended(long length) {
     
         return (int)this.mathFuncs.max(1,(Math.log(length)/Math.log(2)-2));
     }
@@ -27,26 +27,40 @@
 
 package org.jiumao.nist.random;
 
+
 import org.jiumao.nist.Base.BaseRandom;
 import org.jiumao.nist.Base.MathematicalFunctions;
 import org.jiumao.nist.Base.RandomTestErrors;
 import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TypeSizes;
 import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
 
 /**
  * 快内频数检测
  * <p>
  *  检测长度为n的二进制数中单位为M的块1出现频率，即n/M个块
  * </p>
+ * Block ones are counted 64 bits at a time and the block terms (2 * ones - M)^2
+ * are added as integers, by parallel chunks of blocks for streams of
+ * Chunks.PARALLELLENGTH bits or more. A RankIndex of the stream gives the ones of
+ * every block in constant time, so once it is built every block length is tested
+ * in n/M steps.
  * @author ppf@jiumao.org
  * @date 2018年3月22日
  */
 public class BlockFrequency extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Random Test Class enumerator name
      */
     protected static final RandomTests TEST = RandomTests.BlockFrequency;
+  /**
+   * Number of blocks of every parallel chunk when reading a RankIndex
+   */
+    private static final long INDEXCHUNKBLOCKS = 1L << 16;
 
   /**
    * "chiSquared" result
@@ -55,7 +69,7 @@ public class BlockFrequency extends BaseRandom {
   /**
    * "blockNumber", number of blocks of the stream
    */
-    protected int   blockNumber;
+    protected long  blockNumber;
   /**
    * "bitsDiscarded", bits discarded from the test, number of bits excluded from the test
    */
@@ -91,19 +105,6 @@ public class BlockFrequency extends BaseRandom {
         this.bitsDiscarded = 0;
     }
 
-  /**
-   * Destructor, zeroes all data
-   * 
-   */ 
-    public void finalize() {
-      
-        super.Initialize();
-
-        this.chiSquared = 0.0;
-        this.blockNumber = 0;
-        this.bitsDiscarded = 0;
-    }
-
   /**
    * Gets the BaseRandomTest random state of the last executed BaseCryptoRandomStream
    * 
@@ -124,30 +125,140 @@ public class BlockFrequency extends BaseRandom {
    *            true:       last verified stream was randomized
    *            false:      last verified stream was not randomized
    */ 
-    public boolean isRandom(BaseCryptoRandomStream bitStream) {
-    	int    i, j;
-        double blockSum, arg1, arg2;
-        double sum, pi, v;
+    public boolean isRandom(final BaseCryptoRandomStream bitStream) {
+    	final long n, blocks;
+    	final int M;
+    	long squares;
 
-        if (bitStream.GetBitLength() < this.GetMinimumLength()) {
+        n = bitStream.GetLongBitLength();
+        if (n < this.GetMinimumLength()) {
         	this.error = RandomTestErrors.InsufficientNumberOfBits;
         	this.random = false;
         	return this.random;
         }
         bitStream.SetBitPosition(0);
         this.error = RandomTestErrors.NoError;
-        this.blockNumber = (int)Math.floor((double)bitStream.GetBitLength()/(double)this.blockLength);  // Number of Stream blocks      
-        sum = 0.0;
-        for(i = 0; i < this.blockNumber; i++) {  // N=10000 for each substring block
-        	pi = 0.0;
-        	blockSum = 0.0;
-        	bitStream.SetBitPosition(i*this.blockLength);
-        	for(j = 0; j < this.blockLength; j++)  // m=100 compute the "i"th Pi Value */   
-        		blockSum += bitStream.GetBitForward();   
-        	pi = (double)blockSum/(double)this.blockLength;
-        	v = pi - 0.5;
-        	sum += v*v;
+        this.blockNumber = n/this.blockLength;  // Number of Stream blocks      
+        M = this.blockLength;
+        blocks = this.blockNumber;
+        squares = Chunks.Sum(n, blocks, Chunks.UnitsPerChunk(M), (from, to) -> SquareSum(bitStream, M, from, to));
+        // (pi - 0.5)^2 = (2 * ones - M)^2 / (4 * M^2)
+        return this.ComputeResults(n, squares / (4.0 * M * M));
+   }
+
+  /**
+   * Tests the stream of a RankIndex and returns the random value, results are the
+   * same as testing the indexed stream
+   * 
+   * @param     index       rank index of the stream to be verified for randomness properties
+   * @return    boolean     indication if the indexed stream is a randomized stream
+   */ 
+    public boolean isRandom(final RankIndex index) {
+    	final long n, blocks;
+    	final int M;
+    	long squares;
+
+        n = index.GetBitLength();
+        if (n < this.GetMinimumLength()) {
+        	this.error = RandomTestErrors.InsufficientNumberOfBits;
+        	this.random = false;
+        	return this.random;
+        }
+        this.error = RandomTestErrors.NoError;
+        this.blockNumber = n/this.blockLength;
+        M = this.blockLength;
+        blocks = this.blockNumber;
+        squares = Chunks.Sum(n, blocks, INDEXCHUNKBLOCKS, (from, to) -> SquareSum(index, M, from, to));
+        return this.ComputeResults(n, squares / (4.0 * M * M));
+   }
+
+  /**
+   * Adds (2 * ones - M)^2 over the blocks [from, to) of M bits of a stream, reading
+   * it 64 bits at a time
+   */ 
+    private static long SquareSum(BaseCryptoRandomStream stream, int M, long from, long to) {
+    	BitWordCursor cursor;
+    	long word, ones, squares, difference;
+    	int  bits, need, take;
+
+    	cursor = stream.GetWordCursor(from * M, to * M);
+    	word = 0;
+    	bits = 0;
+    	squares = 0;
+    	for (long i = from; i < to; i++) {
+    		ones = 0;
+    		need = M;
+    		while (need > 0) {
+    			if (bits == 0) {
+    				bits = (int)Math.min(TypeSizes.LONG_BITS, cursor.GetRemainingBits());
+    				word = cursor.NextWord();
+    			}
+    			take = Math.min(need, bits);
+    			if (take == TypeSizes.LONG_BITS) {
+    				ones += Long.bitCount(word);
+    				word = 0;
+    			}
+    			else {
+    				ones += Long.bitCount(word & ((1L << take) - 1));
+    				word >>>= take;
+    			}
+    			bits -= take;
+    			need -= take;
+    		}
+    		difference = 2 * ones - M;
+    		squares += difference * difference;
+    	}
+    	return squares;
+    }
+
+  /**
+   * Adds (2 * ones - M)^2 over the blocks [from, to) of M bits of an indexed stream
+   */ 
+    private static long SquareSum(RankIndex index, int M, long from, long to) {
+    	long rank, next, squares, difference;
+
+    	rank = index.Rank(from * M);
+    	squares = 0;
+    	for (long i = from; i < to; i++) {
+    		next = index.Rank((i + 1) * M);
+    		difference = 2 * (next - rank) - M;
+    		squares += difference * difference;
+    		rank = next;
+    	}
+    	return squares;
+    }
+
+  /**
+   * Tests the stream of a CountingScan and returns the random value, results are the
+   * same as testing the scanned stream
+   * 
+   * @param     scan        scan of the stream to be verified for randomness properties
+   * @return    boolean     indication if the scanned stream is a randomized stream
+   * @throws    IllegalArgumentException    if scan blocks are not of the test block length
+   */ 
+    public boolean isRandom(CountingScan scan) throws IllegalArgumentException {
+    	long   n;
+
+    	if (scan.GetBlockLength() != this.blockLength) {
+    		throw new IllegalArgumentException("Scan block length differs from test block length !");
+    	}
+        n = scan.GetBitLength();
+        if (n < this.GetMinimumLength()) {
+        	this.error = RandomTestErrors.InsufficientNumberOfBits;
+        	this.random = false;
+        	return this.random;
         }
+        this.error = RandomTestErrors.NoError;
+        this.blockNumber = scan.GetBlockNumber();
+        return this.ComputeResults(n, scan.GetBlockSum());
+    }
+
+  /**
+   * Computes the results from the sum over the blocks of (pi - 0.5)^2
+   */ 
+    private boolean ComputeResults(long n, double sum) {
+        double arg1, arg2;
+
         this.chiSquared = 4.0 * this.blockLength * sum;
         arg1 = (double) this.blockNumber/2.e0;
         arg2 = this.chiSquared/2.e0; 
@@ -165,7 +276,7 @@ public class BlockFrequency extends BaseRandom {
         		this.random = true;
         	}
         }
-        this.bitsDiscarded = bitStream.GetBitLength()%this.blockLength;
+        this.bitsDiscarded = (int)(n%this.blockLength);
         return this.random;
    }
 
@@ -212,8 +323,23 @@ public class BlockFrequency extends BaseRandom {
    * Gets the number of blocks tested
    * 
    * @return    int:    CryptoRandomStream number of blocks computed in last random test 
+   * @throws    IllegalStateException if the number does not fit in an int, use
+   *            GetLongBlockNumber for streams beyond 2^31 blocks
+   */ 
+    public int GetBlockNumber() throws IllegalStateException {
+  
+        if (this.blockNumber > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Block number exceeded int range !");
+        }
+        return (int) this.blockNumber;
+    }
+
+  /**
+   * Gets the number of blocks tested of streams of any length
+   * 
+   * @return    long:   CryptoRandomStream number of blocks computed in last random test 
    */ 
-    public int GetBlockNumber() {
+    public long GetLongBlockNumber() {
   
         return this.blockNumber;
     }
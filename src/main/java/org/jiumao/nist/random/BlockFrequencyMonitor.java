@@ -0,0 +1,113 @@
+package org.jiumao.nist.random;
+
+/**
+ * BlockFrequency test over a sliding window.
+ * <p>
+ * Window blocks start at the first window bit, so they shift with every bit. The
+ * monitor keeps the block terms (2 ones - blockLength)^2 of every block inside the
+ * window, added by block start modulo blockLength: the blocks of the window are the
+ * ones of the phase of its first bit. A block is added when its last bit enters
+ * and removed when its first bit leaves, from the ones of the last blockLength
+ * bits and of the first blockLength bits of the window. Terms are added as
+ * integers, as BlockFrequency adds them, so the results are the same as testing
+ * the window.
+ *
+ * @author ppf@jiumao.org
+ */
+public class BlockFrequencyMonitor extends SlidingMonitor<BlockFrequency> {
+
+    /**
+     * Block length in bits
+     */
+    protected final int blockLength;
+    /**
+     * Sum of the terms of the blocks inside the window by block start modulo
+     * blockLength
+     */
+    protected final long[] blockSquares;
+    /**
+     * Ones of the first and of the last blockLength bits of the window
+     */
+    protected long headOnes;
+    protected long tailOnes;
+
+
+    /**
+     * Constructor, blocks of the default 128 bits
+     *
+     * @param windowLength window length in bits
+     * @throws IllegalArgumentException if windowLength is less than the block length
+     */
+    public BlockFrequencyMonitor(int windowLength) throws IllegalArgumentException {
+
+        this(windowLength, 128);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param windowLength window length in bits
+     * @param blockLength block length in bits
+     * @throws IllegalArgumentException if windowLength is less than the block length
+     */
+    public BlockFrequencyMonitor(int windowLength, int blockLength) throws IllegalArgumentException {
+
+        super(new BlockFrequency(), windowLength);
+        if ((blockLength <= 0) || (windowLength < blockLength)) {
+            throw new IllegalArgumentException("Window length is less than block length !");
+        }
+        this.test.SetBlockLength(blockLength);
+        this.blockLength = blockLength;
+        this.blockSquares = new long[blockLength];
+        this.headOnes = 0;
+        this.tailOnes = 0;
+    }
+
+
+    @Override
+    protected void Enter(long position, int bit) {
+        long blockStart;
+
+        this.tailOnes += bit;
+        blockStart = position - this.blockLength + 1;
+        if (blockStart > this.start) {
+            this.tailOnes -= this.GetBit(blockStart - 1);
+        }
+        if (blockStart == this.start) {
+            this.headOnes = this.tailOnes;
+        }
+        if (blockStart >= this.start) {
+            this.blockSquares[(int) (blockStart % this.blockLength)] += Square(this.tailOnes);
+        }
+    }
+
+
+    @Override
+    protected void Leave(long position, int bit) {
+
+        this.blockSquares[(int) (position % this.blockLength)] -= Square(this.headOnes);
+        this.headOnes += this.GetBit(position + this.blockLength) - bit;
+    }
+
+
+    @Override
+    public boolean IsRandom() {
+        CountingScan scan;
+
+        scan = this.NewScan(this.blockLength);
+        scan.blockNumber = scan.bitLength / this.blockLength;
+        scan.blockSum = (double) this.blockSquares[(int) (this.start % this.blockLength)]
+                / (4.0 * this.blockLength * this.blockLength);
+        return this.test.isRandom(scan);
+    }
+
+
+    /**
+     * Gets the term of a block with the indicated ones
+     */
+    private long Square(long blockOnes) {
+
+        return (2 * blockOnes - this.blockLength) * (2 * blockOnes - this.blockLength);
+    }
+}
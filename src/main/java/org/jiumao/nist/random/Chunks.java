@@ -0,0 +1,154 @@
+package org.jiumao.nist.random;
+
+import java.util.function.BinaryOperator;
+import java.util.stream.LongStream;
+
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+
+
+/**
+ * Runs a kernel over a range of units of a stream, bits, blocks or substrings,
+ * at once for short streams and by parallel chunks of about CHUNKLENGTH bits for
+ * streams of PARALLELLENGTH bits or more. Chunk results are combined in stream
+ * order, so the combiner only has to be associative.
+ *
+ * @author ppf@jiumao.org
+ */
+final class Chunks {
+
+    /**
+     * Minimum length in bits of the streams read in parallel
+     */
+    static final long PARALLELLENGTH = 1L << 24;
+    /**
+     * Length in bits of every parallel chunk, multiple of 64
+     */
+    static final long CHUNKLENGTH = 1L << 20;
+
+
+    /**
+     * Computes a result of the units [from, to)
+     */
+    interface Kernel<T> {
+
+        T Apply(long from, long to);
+    }
+
+
+    /**
+     * Computes a count of the units [from, to)
+     */
+    interface SumKernel {
+
+        long Apply(long from, long to);
+    }
+
+
+    /**
+     * Processes the units [from, to)
+     */
+    interface Action {
+
+        void Apply(long from, long to);
+    }
+
+
+    private Chunks() {
+    }
+
+
+    /**
+     * Reduces a kernel over the bits of a stream
+     *
+     * @param stream stream whose length decides and splits the chunks
+     * @param kernel kernel of a bit range
+     * @param combiner associative combiner of consecutive ranges
+     * @return T: result of the whole stream
+     */
+    static <T> T Reduce(BaseCryptoRandomStream stream, Kernel<T> kernel, BinaryOperator<T> combiner) {
+        final long n;
+
+        n = stream.GetLongBitLength();
+        return Reduce(n, n, CHUNKLENGTH, kernel, combiner);
+    }
+
+
+    /**
+     * Reduces a kernel over the units [0, units) of a stream of n bits
+     *
+     * @param n length in bits of the stream
+     * @param units number of units
+     * @param chunkUnits number of units of every parallel chunk
+     * @param kernel kernel of a unit range
+     * @param combiner associative combiner of consecutive ranges
+     * @return T: result of the whole range
+     */
+    static <T> T Reduce(long n, long units, long chunkUnits, Kernel<T> kernel, BinaryOperator<T> combiner) {
+
+        if (n < PARALLELLENGTH) {
+            return kernel.Apply(0, units);
+        }
+        return LongStream.range(0, (units + chunkUnits - 1) / chunkUnits).parallel()
+                .mapToObj(chunk -> kernel.Apply(chunk * chunkUnits, Math.min(units, (chunk + 1) * chunkUnits)))
+                .reduce(combiner).get();
+    }
+
+
+    /**
+     * Sums a kernel over the bits of a stream
+     */
+    static long Sum(BaseCryptoRandomStream stream, SumKernel kernel) {
+        final long n;
+
+        n = stream.GetLongBitLength();
+        return Sum(n, n, CHUNKLENGTH, kernel);
+    }
+
+
+    /**
+     * Sums a kernel over the units [0, units) of a stream of n bits
+     *
+     * @param n length in bits of the stream
+     * @param units number of units
+     * @param chunkUnits number of units of every parallel chunk
+     * @param kernel kernel of a unit range
+     * @return long: sum over the whole range
+     */
+    static long Sum(long n, long units, long chunkUnits, SumKernel kernel) {
+
+        if (n < PARALLELLENGTH) {
+            return kernel.Apply(0, units);
+        }
+        return LongStream.range(0, (units + chunkUnits - 1) / chunkUnits).parallel()
+                .map(chunk -> kernel.Apply(chunk * chunkUnits, Math.min(units, (chunk + 1) * chunkUnits))).sum();
+    }
+
+
+    /**
+     * Runs an action over the units [0, units) of a stream of n bits, the chunks
+     * must write disjoint data
+     *
+     * @param n length in bits of the stream
+     * @param units number of units
+     * @param chunkUnits number of units of every parallel chunk
+     * @param action action of a unit range
+     */
+    static void ForEach(long n, long units, long chunkUnits, Action action) {
+
+        if (n < PARALLELLENGTH) {
+            action.Apply(0, units);
+            return;
+        }
+        LongStream.range(0, (units + chunkUnits - 1) / chunkUnits).parallel()
+                .forEach(chunk -> action.Apply(chunk * chunkUnits, Math.min(units, (chunk + 1) * chunkUnits)));
+    }
+
+
+    /**
+     * Gets the number of units of length bits in a chunk of about CHUNKLENGTH bits
+     */
+    static long UnitsPerChunk(long length) {
+
+        return Math.max(1, CHUNKLENGTH / length);
+    }
+}
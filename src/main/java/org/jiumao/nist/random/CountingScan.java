@@ -0,0 +1,425 @@
+package org.jiumao.nist.random;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TypeSizes;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
+
+
+/**
+ * Single pass over a stream computing the statistics of the counting tests:
+ * Frequency, BlockFrequency, Runs, CumulativeSumForward, CumulativeSumReverse
+ * and LongestRunOfOnes.
+ * <p>
+ * Every test reads the whole stream on its own, so running the six of them reads
+ * it six times. The scan reads the stream once, 64 bits at a time, and keeps what every test needs: ones,
+ * transitions, block sums, partial sum extremes and the longest run of ones of every
+ * substring. Tests then compute their p-value and detail results from the scan
+ * through their isRandom(CountingScan) method, which gives the same results as
+ * isRandom(BaseCryptoRandomStream).
+ *
+ * @author ppf@jiumao.org
+ */
+public class CountingScan {
+
+    /**
+     * Longest runs of this length or longer are counted together, LongestRunOfOnes
+     * classes end at 16
+     */
+    public static final int MAXRUN = 17;
+
+    /**
+     * Ones of every byte value from bit 0 upwards until the first zero
+     */
+    static final byte[] PREFIXONES = new byte[256];
+    /**
+     * Ones of every byte value from bit 7 downwards until the first zero
+     */
+    static final byte[] SUFFIXONES = new byte[256];
+    /**
+     * Longest run of ones of every byte value
+     */
+    static final byte[] LONGESTRUN = new byte[256];
+    /**
+     * Maximum and minimum partial sum of +1/-1 bit values of every byte value, from
+     * bit 0 upwards
+     */
+    static final byte[] MAXPARTIALSUM = new byte[256];
+    static final byte[] MINPARTIALSUM = new byte[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            int run = 0, sum = 0, max = -8, min = 8;
+            boolean prefix = true;
+            for (int i = 0; i < TypeSizes.BYTE_BITS; i++) {
+                if (((b >>> i) & 1) == 1) {
+                    run++;
+                    sum++;
+                    LONGESTRUN[b] = (byte) Math.max(LONGESTRUN[b], run);
+                }
+                else {
+                    if (prefix) {
+                        PREFIXONES[b] = (byte) run;
+                        prefix = false;
+                    }
+                    run = 0;
+                    sum--;
+                }
+                max = Math.max(max, sum);
+                min = Math.min(min, sum);
+            }
+            if (prefix) {
+                PREFIXONES[b] = (byte) run;
+            }
+            SUFFIXONES[b] = (byte) run;
+            MAXPARTIALSUM[b] = (byte) max;
+            MINPARTIALSUM[b] = (byte) min;
+        }
+    }
+
+    /**
+     * Block length in bits of BlockFrequency
+     */
+    protected int blockLength;
+    /**
+     * Length in bits of the scanned stream
+     */
+    protected long bitLength;
+    /**
+     * Bits with value 1
+     */
+    protected long ones;
+    /**
+     * Positions i, i greater than 0, where bit i differs from bit i - 1
+     */
+    protected long transitions;
+    /**
+     * Number of BlockFrequency blocks
+     */
+    protected long blockNumber;
+    /**
+     * Sum over the blocks of (ones / blockLength - 0.5)^2
+     */
+    protected double blockSum;
+    /**
+     * Sum of +1/-1 bit values of the whole stream
+     */
+    protected long partialSum;
+    /**
+     * Maximum absolute value of the partial sums from the first bit
+     */
+    protected long forwardExcursion;
+    /**
+     * Maximum absolute value of the partial sums from the last bit
+     */
+    protected long reverseExcursion;
+    /**
+     * LongestRunOfOnes substring length and number of substrings
+     */
+    protected int substringLength;
+    protected int substringNumber;
+    /**
+     * Number of substrings by longest run of ones, up to MAXRUN
+     */
+    protected long[] longestRuns;
+
+
+    /**
+     * Constructor, BlockFrequency blocks of the default 128 bits
+     */
+    public CountingScan() {
+
+        this(128);
+    }
+
+
+    /**
+     * Constructor, BlockFrequency blocks of the indicated length
+     *
+     * @param blockLength block length in bits of BlockFrequency
+     */
+    public CountingScan(int blockLength) {
+
+        this.blockLength = blockLength;
+        this.longestRuns = new long[MAXRUN + 1];
+    }
+
+
+    /**
+     * Indicates if a test can be computed from a scan
+     */
+    public static boolean IsCountingTest(RandomTests test) {
+
+        switch (test) {
+        case Frequency:
+        case BlockFrequency:
+        case Runs:
+        case CumulativeSumForward:
+        case CumulativeSumReverse:
+        case LongestRunOfOnes:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+
+    /**
+     * Gets the mask of the lowest bits of a word
+     */
+    private static long Mask(int bits) {
+
+        return (bits == TypeSizes.LONG_BITS) ? -1L : (1L << bits) - 1;
+    }
+
+
+    /**
+     * Scans the stream, replacing the statistics of any previous scan
+     *
+     * @param bitStream stream to be scanned
+     */
+    public void Scan(BaseCryptoRandomStream bitStream) {
+        BitWordCursor cursor;
+        long position, word, byteValue, blockBits, runBits, partialLimit;
+        long blockOnes, blockSquares, maxSum, minSum, reverseMax, reverseMin, sum, longest, run;
+        int bits, blockFill, offset, length, bytePosition, previous;
+
+        this.bitLength = bitStream.GetLongBitLength();
+        this.ones = 0;
+        this.transitions = 0;
+        this.blockNumber = this.bitLength / this.blockLength;
+        this.blockSum = 0.0;
+        this.substringLength = LongestRunOfOnes.SubstringLength(bitStream.GetBitLength());
+        this.substringNumber = bitStream.GetBitLength() / this.substringLength;
+        for (int i = 0; i <= MAXRUN; i++) {
+            this.longestRuns[i] = 0;
+        }
+        blockBits = this.blockNumber * this.blockLength;
+        runBits = (long) this.substringNumber * this.substringLength;
+        // bytes before the one holding the last bit go through the tables, the
+        // reverse partial sums need the extremes reached before the last bit
+        partialLimit = ((this.bitLength - 1) / TypeSizes.BYTE_BITS) * TypeSizes.BYTE_BITS;
+        blockOnes = 0;
+        blockSquares = 0;
+        blockFill = 0;
+        sum = 0;
+        maxSum = 0;
+        minSum = 0;
+        reverseMax = 0;
+        reverseMin = 0;
+        longest = 0;
+        run = 0;
+        previous = -1;
+        position = 0;
+        cursor = bitStream.GetWordCursor(0, this.bitLength);
+        while (cursor.HasNext()) {
+            bits = (int) Math.min(TypeSizes.LONG_BITS, this.bitLength - position);
+            word = cursor.NextWord();
+            // Frequency and Runs
+            this.ones += Long.bitCount(word);
+            this.transitions += Long.bitCount((word ^ (word >>> 1)) & Mask(bits - 1));
+            if ((previous >= 0) && (previous != (word & 1))) {
+                this.transitions++;
+            }
+            previous = (int) (word >>> (bits - 1)) & 1;
+            // BlockFrequency, blocks may start anywhere in the word
+            offset = 0;
+            while ((offset < bits) && ((position + offset) < blockBits)) {
+                length = Math.min(bits - offset, this.blockLength - blockFill);
+                blockOnes += Long.bitCount((word >>> offset) & Mask(length));
+                blockFill += length;
+                offset += length;
+                if (blockFill == this.blockLength) {
+                    // (pi - 0.5)^2 = (2 * ones - M)^2 / (4 * M^2), added as integers as
+                    // BlockFrequency does
+                    blockSquares += (2 * blockOnes - this.blockLength) * (2 * blockOnes - this.blockLength);
+                    blockOnes = 0;
+                    blockFill = 0;
+                }
+            }
+            // CumulativeSums and LongestRunOfOnes, byte by byte
+            for (bytePosition = 0; bytePosition < bits; bytePosition += TypeSizes.BYTE_BITS) {
+                byteValue = (word >>> bytePosition) & 0xff;
+                if ((position + bytePosition) < partialLimit) {
+                    maxSum = Math.max(maxSum, sum + MAXPARTIALSUM[(int) byteValue]);
+                    minSum = Math.min(minSum, sum + MINPARTIALSUM[(int) byteValue]);
+                    sum += 2 * Long.bitCount(byteValue) - TypeSizes.BYTE_BITS;
+                }
+                else {
+                    for (int i = 0; (i < TypeSizes.BYTE_BITS) && ((position + bytePosition + i) < this.bitLength); i++) {
+                        if ((position + bytePosition + i) == (this.bitLength - 1)) {
+                            reverseMax = maxSum;
+                            reverseMin = minSum;
+                        }
+                        sum += 2 * ((byteValue >>> i) & 1) - 1;
+                        maxSum = Math.max(maxSum, sum);
+                        minSum = Math.min(minSum, sum);
+                    }
+                }
+                // substrings are whole bytes
+                if ((position + bytePosition) < runBits) {
+                    if (byteValue == 0xff) {
+                        run += TypeSizes.BYTE_BITS;
+                    }
+                    else {
+                        longest = Math.max(longest, Math.max(run + PREFIXONES[(int) byteValue], LONGESTRUN[(int) byteValue]));
+                        run = SUFFIXONES[(int) byteValue];
+                    }
+                    if (((position + bytePosition + TypeSizes.BYTE_BITS) % this.substringLength) == 0) {
+                        longest = Math.max(longest, run);
+                        this.longestRuns[(int) Math.min(longest, MAXRUN)]++;
+                        longest = 0;
+                        run = 0;
+                    }
+                }
+            }
+            position += bits;
+        }
+        this.blockSum = blockSquares / (4.0 * this.blockLength * this.blockLength);
+        this.partialSum = sum;
+        this.forwardExcursion = Math.max(maxSum, -minSum);
+        this.reverseExcursion = Math.max(sum - reverseMin, reverseMax - sum);
+    }
+
+
+    /**
+     * Computes the result of a counting test from the last scan
+     *
+     * @param test Frequency, BlockFrequency, Runs, CumulativeSumForward,
+     *            CumulativeSumReverse or LongestRunOfOnes test object
+     * @return boolean: random value of the test
+     * @throws IllegalArgumentException if test is not a counting test
+     */
+    public boolean Evaluate(BaseRandom test) throws IllegalArgumentException {
+
+        if (test instanceof Frequency) {
+            return ((Frequency) test).isRandom(this);
+        }
+        if (test instanceof BlockFrequency) {
+            return ((BlockFrequency) test).isRandom(this);
+        }
+        if (test instanceof Runs) {
+            return ((Runs) test).isRandom(this);
+        }
+        if (test instanceof CumulativeSumForward) {
+            return ((CumulativeSumForward) test).isRandom(this);
+        }
+        if (test instanceof CumulativeSumReverse) {
+            return ((CumulativeSumReverse) test).isRandom(this);
+        }
+        if (test instanceof LongestRunOfOnes) {
+            return ((LongestRunOfOnes) test).isRandom(this);
+        }
+        throw new IllegalArgumentException("Test is not a counting test !");
+    }
+
+
+    /**
+     * Gets the BlockFrequency block length in bits
+     */
+    public int GetBlockLength() {
+
+        return this.blockLength;
+    }
+
+
+    /**
+     * Gets the length in bits of the scanned stream
+     */
+    public long GetBitLength() {
+
+        return this.bitLength;
+    }
+
+
+    /**
+     * Gets the number of bits with value 1
+     */
+    public long GetOnes() {
+
+        return this.ones;
+    }
+
+
+    /**
+     * Gets the number of positions where a bit differs from the previous one
+     */
+    public long GetTransitions() {
+
+        return this.transitions;
+    }
+
+
+    /**
+     * Gets the number of BlockFrequency blocks
+     */
+    public long GetBlockNumber() {
+
+        return this.blockNumber;
+    }
+
+
+    /**
+     * Gets the sum over the blocks of (ones / blockLength - 0.5)^2
+     */
+    public double GetBlockSum() {
+
+        return this.blockSum;
+    }
+
+
+    /**
+     * Gets the sum of +1/-1 bit values of the whole stream
+     */
+    public long GetPartialSum() {
+
+        return this.partialSum;
+    }
+
+
+    /**
+     * Gets the maximum absolute partial sum from the first bit
+     */
+    public long GetForwardExcursion() {
+
+        return this.forwardExcursion;
+    }
+
+
+    /**
+     * Gets the maximum absolute partial sum from the last bit
+     */
+    public long GetReverseExcursion() {
+
+        return this.reverseExcursion;
+    }
+
+
+    /**
+     * Gets the LongestRunOfOnes substring length in bits
+     */
+    public int GetSubstringLength() {
+
+        return this.substringLength;
+    }
+
+
+    /**
+     * Gets the number of LongestRunOfOnes substrings
+     */
+    public int GetSubstringNumber() {
+
+        return this.substringNumber;
+    }
+
+
+    /**
+     * Gets the number of substrings whose longest run of ones is run, the last
+     * entry counts runs of MAXRUN bits or longer
+     */
+    public long GetLongestRuns(int run) {
+
+        return this.longestRuns[run];
+    }
+}
@@ -35,11 +35,15 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
 
 /**
  * 累积和测试(CumulativeSums)-Forward<p>
+ * The maximal excursion is read from the PartialSums summary of the stream, which
+ * gives the reverse one as well.
  * @author ppf@jiumao.org
  * @date 2018年3月22日
  */
 public class CumulativeSumForward extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
   /**
    * Random Test Class enumerator name
    */
@@ -76,15 +80,6 @@ public class CumulativeSumForward extends BaseRandom {
     	this.cuSum = 0;
     }
 
-  /**
-   * Destructor, zeroes all data
-   * 
-   */ 
-    public void finalize() {
-      
-    	this.cuSum = 0;
-    }
-
   /**
    * Gets the BaseRandomTest random state of the last executed BaseCryptoRandomStream
    * 
@@ -106,33 +101,79 @@ public class CumulativeSumForward extends BaseRandom {
    *            false:      last verified stream was not randomized
    */ 
     public boolean isRandom(BaseCryptoRandomStream bitStream) {
-    	int    i, k, start, finish;
-        double z, sum, sum1, sum2;
-      
-        if (bitStream.GetBitLength() < this.GetMinimumLength()) {
+    	long   n;
+
+        n = bitStream.GetLongBitLength();
+        if (n < this.GetMinimumLength()) {
+        	this.error = RandomTestErrors.InsufficientNumberOfBits;
+        	this.random = false;
+        	return this.random;
+        }
+        this.error = RandomTestErrors.NoError;
+        this.cuSum = this.mathFuncs.max(1, PartialSums.Of(bitStream).GetForwardExcursion());
+        return this.ComputeResults(n);
+    }
+
+  /**
+   * Tests the stream of a CountingScan and returns the random value, results are the
+   * same as testing the scanned stream
+   * 
+   * @param     scan        scan of the stream to be verified for randomness properties
+   * @return    boolean     indication if the scanned stream is a randomized stream
+   */ 
+    public boolean isRandom(CountingScan scan) {
+    	long   n;
+
+        n = scan.GetBitLength();
+        if (n < this.GetMinimumLength()) {
         	this.error = RandomTestErrors.InsufficientNumberOfBits;
         	this.random = false;
         	return this.random;
         }
-        bitStream.SetBitPosition(0);
         this.error = RandomTestErrors.NoError;
-        sum = 0.0;
-        this.cuSum = 1;
-        for(i = 0; i < (long)bitStream.GetBitLength(); i++) {
-        	sum += 2*(int)bitStream.GetBitForward() - 1;
-        	this.cuSum = this.mathFuncs.max(this.cuSum, Math.abs(sum));
+        this.cuSum = this.mathFuncs.max(1, scan.GetForwardExcursion());
+        return this.ComputeResults(n);
+    }
+
+  /**
+   * Tests the stream of a PartialSums summary and returns the random value, results
+   * are the same as testing the summarized stream
+   * 
+   * @param     sums        summary of the stream to be verified for randomness properties
+   * @return    boolean     indication if the summarized stream is a randomized stream
+   */ 
+    public boolean isRandom(PartialSums sums) {
+    	long   n;
+
+        n = sums.GetLength();
+        if (n < this.GetMinimumLength()) {
+        	this.error = RandomTestErrors.InsufficientNumberOfBits;
+        	this.random = false;
+        	return this.random;
         }
+        this.error = RandomTestErrors.NoError;
+        this.cuSum = this.mathFuncs.max(1, sums.GetForwardExcursion());
+        return this.ComputeResults(n);
+    }
+
+  /**
+   * Computes the results from the maximum partial sum held in cuSum
+   */ 
+    private boolean ComputeResults(long n) {
+    	long   k, start, finish;
+        double z, sum1, sum2;
+
         z = this.cuSum;
         sum1 = 0.0;
-        start = (-(int)bitStream.GetBitLength()/(int)z+1)/4;
-        finish = (bitStream.GetBitLength()/(int)z-1)/4;
+        start = (-n/(long)z+1)/4;
+        finish = (n/(long)z-1)/4;
         for(k = start; k <= finish; k++)
-        	sum1 += (this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(bitStream.GetBitLength()))-this.mathFuncs.Normal((4*k-1)*z/Math.sqrt(bitStream.GetBitLength())));
+        	sum1 += (this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(n))-this.mathFuncs.Normal((4*k-1)*z/Math.sqrt(n)));
         sum2 = 0.0;
-        start = (-(int)bitStream.GetBitLength()/(int)z-3)/4;
-        finish = (bitStream.GetBitLength()/(int)z-1)/4;
+        start = (-n/(long)z-3)/4;
+        finish = (n/(long)z-1)/4;
         for(k = start; k <= finish; k++)
-        	sum2 += (this.mathFuncs.Normal((4*k+3)*z/Math.sqrt(bitStream.GetBitLength()))-this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(bitStream.GetBitLength())));
+        	sum2 += (this.mathFuncs.Normal((4*k+3)*z/Math.sqrt(n))-this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(n)));
         this.pValue = 1.0 - sum1 + sum2;
         if (this.mathFuncs.isNegative(this.pValue) || this.mathFuncs.isGreaterThanOne(this.pValue)) {
         	this.error = RandomTestErrors.PValueOutOfRange;
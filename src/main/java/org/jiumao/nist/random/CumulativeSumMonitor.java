@@ -0,0 +1,156 @@
+package org.jiumao.nist.random;
+
+/**
+ * CumulativeSumForward test over a sliding window.
+ * <p>
+ * Partial sums of the window are the partial sums of the source from its first
+ * bit, less the one before the window. The monitor keeps the source partial sums
+ * of the window positions and two monotonic queues of positions whose partial sums
+ * may still become the window maximum or minimum, so the extremes are the queue
+ * fronts, in constant amortized time per bit.
+ *
+ * @author ppf@jiumao.org
+ */
+public class CumulativeSumMonitor extends SlidingMonitor<CumulativeSumForward> {
+
+    /**
+     * Queue of positions in a ring of windowLength + 1 entries
+     */
+    private static final class PositionQueue {
+
+        private final long[] positions;
+        private int first;
+        private int size;
+
+
+        PositionQueue(int capacity) {
+
+            this.positions = new long[capacity];
+            this.first = 0;
+            this.size = 0;
+        }
+
+
+        boolean IsEmpty() {
+
+            return this.size == 0;
+        }
+
+
+        long GetFirst() {
+
+            return this.positions[this.first];
+        }
+
+
+        long GetLast() {
+
+            return this.positions[(this.first + this.size - 1) % this.positions.length];
+        }
+
+
+        void RemoveFirst() {
+
+            this.first = (this.first + 1) % this.positions.length;
+            this.size--;
+        }
+
+
+        void RemoveLast() {
+
+            this.size--;
+        }
+
+
+        void AddLast(long position) {
+
+            this.positions[(this.first + this.size) % this.positions.length] = position;
+            this.size++;
+        }
+    }
+
+    /**
+     * Source partial sums of the window positions, position i at entry i %
+     * (windowLength + 1)
+     */
+    private final long[] sums;
+    /**
+     * Source partial sum of the last bit
+     */
+    protected long sum;
+    /**
+     * Source partial sum of the bit before the window
+     */
+    protected long base;
+    /**
+     * Positions of decreasing and of increasing partial sums, the first one holds
+     * the window maximum and minimum
+     */
+    private final PositionQueue maximum;
+    private final PositionQueue minimum;
+
+
+    /**
+     * Constructor
+     *
+     * @param windowLength window length in bits
+     * @throws IllegalArgumentException if windowLength is not positive
+     */
+    public CumulativeSumMonitor(int windowLength) throws IllegalArgumentException {
+
+        super(new CumulativeSumForward(), windowLength);
+        this.sums = new long[windowLength + 1];
+        this.maximum = new PositionQueue(windowLength + 1);
+        this.minimum = new PositionQueue(windowLength + 1);
+        this.sum = 0;
+        this.base = 0;
+    }
+
+
+    @Override
+    protected void Enter(long position, int bit) {
+
+        this.sum += 2 * bit - 1;
+        this.sums[this.Entry(position)] = this.sum;
+        while (!this.maximum.IsEmpty() && (this.sums[this.Entry(this.maximum.GetLast())] <= this.sum)) {
+            this.maximum.RemoveLast();
+        }
+        this.maximum.AddLast(position);
+        while (!this.minimum.IsEmpty() && (this.sums[this.Entry(this.minimum.GetLast())] >= this.sum)) {
+            this.minimum.RemoveLast();
+        }
+        this.minimum.AddLast(position);
+    }
+
+
+    @Override
+    protected void Leave(long position, int bit) {
+
+        this.base += 2 * bit - 1;
+        if (this.maximum.GetFirst() == position) {
+            this.maximum.RemoveFirst();
+        }
+        if (this.minimum.GetFirst() == position) {
+            this.minimum.RemoveFirst();
+        }
+    }
+
+
+    @Override
+    public boolean IsRandom() {
+        CountingScan scan;
+
+        scan = this.NewScan();
+        if (scan.bitLength > 0) {
+            scan.forwardExcursion = Math.max(this.sums[this.Entry(this.maximum.GetFirst())] - this.base,
+                    this.base - this.sums[this.Entry(this.minimum.GetFirst())]);
+        }
+        return this.test.isRandom(scan);
+    }
+
+
+    private int Entry(long position) {
+
+        return (int) (position % this.sums.length);
+    }
+}
@@ -35,11 +35,15 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
 
 /**
  * 累积和测试(CumulativeSums)-Reverse <p>该检验主要是看随机游动的最大偏移。随机游动被定义为序列中调整后的-1，+1的累加和。检验的目的是判定序列的累加和相对于预期的累加和过大还是过小。这个累加和可被看做随机游动。对于随机序列，随机游动的偏离应该在0附近。而对于非随机序列，这个随机游动偏离将会比0大很多。
+ * The maximal excursion is read from the PartialSums summary of the stream, the
+ * partial sums from the end being the sum of the stream minus those from the start.
  * @author ppf@jiumao.org
  * @date 2018年3月22日
  */
 public class CumulativeSumReverse extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
   /**
    * Random Test Class enumerator name
    */
@@ -76,15 +80,6 @@ public class CumulativeSumReverse extends BaseRandom {
         this.cuSum = 0;
     }
 
-  /**
-   * Destructor, zeroes all data
-   * 
-   */ 
-    public void finalize() {
-      
-        this.cuSum = 0;
-    }
-
   /**
    * Gets the BaseRandomTest random state of the last executed BaseCryptoRandomStream
    * 
@@ -106,33 +101,79 @@ public class CumulativeSumReverse extends BaseRandom {
    *            false:      last verified stream was not randomized
    */ 
     public boolean isRandom(BaseCryptoRandomStream bitStream) {
-        int    i, k, start, finish;
-        double z, sum, sum1, sum2;
-      
-        if (bitStream.GetBitLength() < this.GetMinimumLength()) {
+    	long   n;
+
+        n = bitStream.GetLongBitLength();
+        if (n < this.GetMinimumLength()) {
+        	this.error = RandomTestErrors.InsufficientNumberOfBits;
+        	this.random = false;
+        	return this.random;
+        }
+        this.error = RandomTestErrors.NoError;
+        this.cuSum = this.mathFuncs.max(1, PartialSums.Of(bitStream).GetReverseExcursion());
+        return this.ComputeResults(n);
+    }
+
+  /**
+   * Tests the stream of a CountingScan and returns the random value, results are the
+   * same as testing the scanned stream
+   * 
+   * @param     scan        scan of the stream to be verified for randomness properties
+   * @return    boolean     indication if the scanned stream is a randomized stream
+   */ 
+    public boolean isRandom(CountingScan scan) {
+        long   n;
+
+        n = scan.GetBitLength();
+        if (n < this.GetMinimumLength()) {
         	this.error = RandomTestErrors.InsufficientNumberOfBits;
         	this.random = false;
         	return this.random;
         }
-        bitStream.SetBitPosition(bitStream.GetBitLength() -1);
         this.error = RandomTestErrors.NoError;
-        sum = 0.0;
-        this.cuSum = 1;
-        for(i = bitStream.GetBitLength() -1; i >= 0; i--) {
-        	sum += 2*(int)bitStream.GetBitReverse() - 1;
-        	this.cuSum =  this.mathFuncs.max(this.cuSum, Math.abs(sum));
+        this.cuSum = this.mathFuncs.max(1, scan.GetReverseExcursion());
+        return this.ComputeResults(n);
+    }
+
+  /**
+   * Tests the stream of a PartialSums summary and returns the random value, results
+   * are the same as testing the summarized stream
+   * 
+   * @param     sums        summary of the stream to be verified for randomness properties
+   * @return    boolean     indication if the summarized stream is a randomized stream
+   */ 
+    public boolean isRandom(PartialSums sums) {
+    	long   n;
+
+        n = sums.GetLength();
+        if (n < this.GetMinimumLength()) {
+        	this.error = RandomTestErrors.InsufficientNumberOfBits;
+        	this.random = false;
+        	return this.random;
         }
+        this.error = RandomTestErrors.NoError;
+        this.cuSum = this.mathFuncs.max(1, sums.GetReverseExcursion());
+        return this.ComputeResults(n);
+    }
+
+  /**
+   * Computes the results from the maximum partial sum held in cuSum
+   */ 
+    private boolean ComputeResults(long n) {
+        long   k, start, finish;
+        double z, sum1, sum2;
+
         z = this.cuSum;
         sum1 = 0.0;
-        start = (-(int)bitStream.GetBitLength()/(int)z+1)/4;
-        finish = (bitStream.GetBitLength()/(int)z-1)/4;
+        start = (-n/(long)z+1)/4;
+        finish = (n/(long)z-1)/4;
         for(k = start; k <= finish; k++)
-        	sum1 += (this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(bitStream.GetBitLength()))-this.mathFuncs.Normal((4*k-1)*z/Math.sqrt(bitStream.GetBitLength())));
+        	sum1 += (this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(n))-this.mathFuncs.Normal((4*k-1)*z/Math.sqrt(n)));
         sum2 = 0.0;
-        start = (-(int)bitStream.GetBitLength()/(int)z-3)/4;
-        finish = (bitStream.GetBitLength()/(int)z-1)/4;
+        start = (-n/(long)z-3)/4;
+        finish = (n/(long)z-1)/4;
         for(k = start; k <= finish; k++)
-        	sum2 += (this.mathFuncs.Normal((4*k+3)*z/Math.sqrt(bitStream.GetBitLength()))-this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(bitStream.GetBitLength())));
+        	sum2 += (this.mathFuncs.Normal((4*k+3)*z/Math.sqrt(n))-this.mathFuncs.Normal((4*k+1)*z/Math.sqrt(n)));
         this.pValue = 1.0 - sum1 + sum2;
         if (this.mathFuncs.isNegative(this.pValue) || this.mathFuncs.isGreaterThanOne(this.pValue)) {
         	this.error = RandomTestErrors.PValueOutOfRange;
@@ -8,6 +8,7 @@ import org.jiumao.nist.Base.MathematicalFunctions;
 import org.jiumao.nist.Base.RandomTestErrors;
 import org.jiumao.nist.Base.RandomTests;
 import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
 
 
 /**
@@ -21,6 +22,8 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  */
 public class DiscreteFourierTransform extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
     /// Random Test Class enumerator name
     protected static final RandomTests TEST = RandomTests.DiscreteFourierTransform;
     /// Random Test Class minimum stream length
@@ -677,19 +680,6 @@ public class DiscreteFourierTransform extends BaseRandom {
     }
 
 
-    /**
-     * Destructor, zeroes all data
-     * 
-     */
-    public void finalize() {
-
-        this.percentile = 0.0;
-        this.observedPeaks = 0.0;
-        this.expectedPeaks = 0.0;
-        this.normalizedDifference = 0.0;
-    }
-
-
     /**
      * Gets the BaseRandomTest random state of the last executed
      * BaseCryptoRandomStream
@@ -716,9 +706,11 @@ public class DiscreteFourierTransform extends BaseRandom {
         double upperBound;
         double[] m;
         double[] X;
-        int i, count;
+        int i, j, count;
+        long word;
         double[] wsave;
         int[] ifac;
+        BitWordCursor cursor;
 
         if (bitStream.GetBitLength() < this.GetMinimumLength()) {
             this.error = RandomTestErrors.InsufficientNumberOfBits;
@@ -757,8 +749,12 @@ public class DiscreteFourierTransform extends BaseRandom {
             for (i = 0; i < m.length; i++) {
                 m[i] = 0.0;
             }
-            for (i = 0; i < (int) bitStream.GetBitLength(); i++)
-                X[i] = 2 * (int) bitStream.GetBitPosition(i) - 1;
+            cursor = bitStream.GetWordCursor(0, bitStream.GetBitLength());
+            for (i = 0; i < (int) bitStream.GetBitLength(); i += 64) {
+                word = cursor.NextWord();
+                for (j = 0; j < Math.min(64, bitStream.GetBitLength() - i); j++)
+                    X[i + j] = 2 * (int) ((word >>> j) & 1) - 1;
+            }
             this.drfti1(bitStream.GetBitLength(), wsave, ifac);
             this.drftf1(bitStream.GetBitLength(), X, wsave, ifac);
             m[0] = Math.sqrt(X[0] * X[0]);
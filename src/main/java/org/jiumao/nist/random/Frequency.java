@@ -27,11 +27,13 @@
 
 package org.jiumao.nist.random;
 
+
 import org.jiumao.nist.Base.BaseRandom;
 import org.jiumao.nist.Base.MathematicalFunctions;
 import org.jiumao.nist.Base.RandomTestErrors;
 import org.jiumao.nist.Base.RandomTests;
 import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
 
 
 /**
@@ -39,12 +41,17 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  * <p>
  * 检测二进制0/1所占比率接近一半
  * </p>
+ * The sum of the +1/-1 bit values is 2 * ones - n, ones are counted 64 bits at a
+ * time with Long.bitCount, and by parallel chunks for streams of
+ * Chunks.PARALLELLENGTH bits or more.
  * 
  * @author ppf@jiumao.org
  * @date 2018年3月22日
  */
 public class Frequency extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Random Test Class enumerator name
      */
@@ -57,7 +64,7 @@ public class Frequency extends BaseRandom {
     /**
      * "sum" result
      */
-    protected int sum;
+    protected long sum;
     /**
      * "sumDiv_n" result
      */
@@ -91,18 +98,6 @@ public class Frequency extends BaseRandom {
     }
 
 
-    /**
-     * Destructor, zeroes all data
-     * 
-     */
-    public void finalize() {
-
-        super.finalize();
-        this.sum = 0;
-        this.sumDiv_n = 0.0;
-    }
-
-
     /**
      * Gets the BaseRandomTest random state of the last executed
      * BaseCryptoRandomStream
@@ -126,24 +121,76 @@ public class Frequency extends BaseRandom {
      *         stream was not randomized
      */
     public boolean isRandom(BaseCryptoRandomStream bitStream) {
-        int i;
-        double f, s_obs, sum;
-        double sqrt2 = 1.41421356237309504880;
-        short bitTemp;
+        long n;
 
-        if (bitStream.GetBitLength() < this.GetMinimumLength()) {
+        n = bitStream.GetLongBitLength();
+        if (n < this.GetMinimumLength()) {
             this.error = RandomTestErrors.InsufficientNumberOfBits;
             this.random = false;
             return this.random;
         }
         bitStream.SetBitPosition(0);
         this.error = RandomTestErrors.NoError;
-        sum = 0.0;
-        for (i = 0; i < bitStream.GetBitLength(); i++) {
-            bitTemp = (bitStream.GetBitPosition(i));
-            sum += ((2 * bitTemp) - 1);
+        return this.ComputeResults(n, (double) (2 * CountOnes(bitStream, n) - n));
+    }
+
+
+    /**
+     * Tests the stream of a CountingScan and returns the random value, results
+     * are the same as testing the scanned stream
+     * 
+     * @param scan scan of the stream to be verified for randomness properties
+     * @return boolean indication if the scanned stream is a randomized stream
+     */
+    public boolean isRandom(CountingScan scan) {
+        long n;
+
+        n = scan.GetBitLength();
+        if (n < this.GetMinimumLength()) {
+            this.error = RandomTestErrors.InsufficientNumberOfBits;
+            this.random = false;
+            return this.random;
+        }
+        this.error = RandomTestErrors.NoError;
+        return this.ComputeResults(n, (double) scan.GetPartialSum());
+    }
+
+
+    /**
+     * Counts the ones of the first n bits of a stream, in parallel chunks for long
+     * streams
+     */
+    static long CountOnes(final BaseCryptoRandomStream stream, final long n) {
+
+        return Chunks.Sum(n, n, Chunks.CHUNKLENGTH, (from, to) -> CountOnes(stream, from, to));
+    }
+
+
+    /**
+     * Counts the ones of the bit range [from, to), the last word of the cursor has
+     * its bits beyond the range cleared
+     */
+    private static long CountOnes(BaseCryptoRandomStream stream, long from, long to) {
+        BitWordCursor cursor;
+        long ones;
+
+        cursor = stream.GetWordCursor(from, to);
+        ones = 0;
+        while (cursor.HasNext()) {
+            ones += Long.bitCount(cursor.NextWord());
         }
-        s_obs = Math.abs(sum) / Math.sqrt(bitStream.GetBitLength());
+        return ones;
+    }
+
+
+    /**
+     * Computes the results from the sum of +1/-1 bit values
+     */
+    private boolean ComputeResults(long n, double sum) {
+        double f, s_obs;
+        double sqrt2 = 1.41421356237309504880;
+
+        s_obs = Math.abs(sum) / Math.sqrt(n);
         f = s_obs / sqrt2;
         this.pValue = this.mathFuncs.ErFc(f);
         if (this.pValue < this.getAlpha()) {
@@ -152,8 +199,8 @@ public class Frequency extends BaseRandom {
         else {
             this.random = true;
         }
-        this.sum = (int) sum;
-        this.sumDiv_n = sum / bitStream.GetBitLength();
+        this.sum = (long) sum;
+        this.sumDiv_n = sum / n;
         return this.random;
     }
 
@@ -198,8 +245,24 @@ public class Frequency extends BaseRandom {
      * Gets the "sum" result
      * 
      * @return int: "sum" result of last computed CryptoRandomStream
+     * @throws IllegalStateException if the sum does not fit in an int, use
+     *             GetLongSum for streams beyond 2^31 bits
+     */
+    public int GetSum() throws IllegalStateException {
+
+        if ((this.sum < Integer.MIN_VALUE) || (this.sum > Integer.MAX_VALUE)) {
+            throw new IllegalStateException("Sum exceeded int range !");
+        }
+        return (int) this.sum;
+    }
+
+
+    /**
+     * Gets the "sum" result of streams of any length
+     * 
+     * @return long: "sum" result of last computed CryptoRandomStream
      */
-    public int GetSum() {
+    public long GetLongSum() {
 
         return this.sum;
     }
@@ -0,0 +1,52 @@
+package org.jiumao.nist.random;
+
+/**
+ * Frequency test over a sliding window, keeps the ones of the window.
+ *
+ * @author ppf@jiumao.org
+ */
+public class FrequencyMonitor extends SlidingMonitor<Frequency> {
+
+    /**
+     * Bits with value 1 in the window
+     */
+    protected long ones;
+
+
+    /**
+     * Constructor
+     *
+     * @param windowLength window length in bits
+     * @throws IllegalArgumentException if windowLength is not positive
+     */
+    public FrequencyMonitor(int windowLength) throws IllegalArgumentException {
+
+        super(new Frequency(), windowLength);
+        this.ones = 0;
+    }
+
+
+    @Override
+    protected void Enter(long position, int bit) {
+
+        this.ones += bit;
+    }
+
+
+    @Override
+    protected void Leave(long position, int bit) {
+
+        this.ones -= bit;
+    }
+
+
+    @Override
+    public boolean IsRandom() {
+        CountingScan scan;
+
+        scan = this.NewScan();
+        scan.ones = this.ones;
+        scan.partialSum = 2 * this.ones - scan.bitLength;
+        return this.test.isRandom(scan);
+    }
+}
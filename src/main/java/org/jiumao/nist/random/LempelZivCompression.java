@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.commons.math.random.RandomGenerator;
+import org.jiumao.nist.Base.BufferedBits;
 import org.jiumao.nist.Base.NIST;
 import org.jiumao.nist.Base.RandomnessUtils;
 
@@ -22,9 +23,10 @@ public class LempelZivCompression extends NIST {
     @Override
     public double pValue(final RandomGenerator e, final int n) {
         final Set<Word> words = new HashSet<Word>();
+        final BufferedBits bits = new BufferedBits(e);
         NumberStrategy number = new LongStrategy(1, 0);
         for (int i = 0; i < n; i++) {
-            number.or(e.nextBoolean());
+            number.or(bits.nextBoolean());
             final Word w = number.toWord();
             number = words.add(w) ? new LongStrategy(1, 0) : number.timesTwo();
         }
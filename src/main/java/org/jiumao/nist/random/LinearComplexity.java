@@ -11,10 +11,12 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  * 检验的目的是判定序列的复杂程度是否达到可视为是随 机序列的程度。随机序列的特点是有较长的线性反馈移位寄存器。一个线性反馈移位寄存器太小的话意味着序列非随机
  */
 public class LinearComplexity extends BaseRandom {
+    private static final long serialVersionUID = 1L;
+
     /**
-     * "blockLength" length in bits of block division
+     * Random Test Class enumerator name
      */
-    protected int blockLength;
+    protected static final RandomTests TEST = RandomTests.LinearComplexity;
 
     
     
@@ -27,17 +29,57 @@ public class LinearComplexity extends BaseRandom {
 
     @Override
     public boolean isRandom(BaseCryptoRandomStream stream) {
-        int i, ii, j, d, N, L, m, N_, sign, K = 6;
-        double T_, mean, nu[] = new double[7], chi2;
-        double pi[] = { 0.01047, 0.03125, 0.12500, 0.50000, 0.25000, 0.06250, 0.020833 };
+        int i, N, K = 6;
+        double nu[] = new double[7];
         int M = blockLength;
         int n = stream.GetBitLength();
-        int[] T = new int[M], P = new int[M], B_ = new int[M], C = new int[M];
 
         N = (int) Math.floor(n / M);
 
         for (i = 0; i < K + 1; i++)
             nu[i] = 0.00;
+        this.CountBlocks(stream, nu);
+        return this.ComputeResults(nu, N);
+    }
+
+
+    /**
+     * Tests the sequence of a ShardState and returns the random value, results
+     * are the same as testing the whole sequence
+     * 
+     * @param state state of the whole sequence to be verified for randomness
+     *            properties
+     * @return boolean random value, as returned by isRandom
+     * @throws IllegalArgumentException if state blocks are not of the test block
+     *             length
+     */
+    public boolean isRandom(ShardState state) throws IllegalArgumentException {
+        double nu[] = new double[7];
+        long[] classes;
+
+        if (state.GetComplexityLength() != this.blockLength) {
+            throw new IllegalArgumentException("State block length differs from test block length !");
+        }
+        classes = state.GetComplexityClasses();
+        for (int i = 0; i < nu.length; i++)
+            nu[i] = classes[i];
+        return this.ComputeResults(nu, (int) (state.GetLength() / this.blockLength));
+    }
+
+
+    /**
+     * Adds the class of the linear complexity of every whole block of the stream
+     * to nu
+     */
+    void CountBlocks(BaseCryptoRandomStream stream, double[] nu) {
+        int i, ii, j, d, N, L, m, N_, sign;
+        double T_, mean;
+        int M = blockLength;
+        int n = stream.GetBitLength();
+        int[] T = new int[M], P = new int[M], B_ = new int[M], C = new int[M];
+
+        N = (int) Math.floor(n / M);
+
         for (ii = 0; ii < N; ii++) {
             for (i = 0; i < M; i++) {
                 B_[i] = 0;
@@ -63,7 +105,7 @@ public class LinearComplexity extends BaseRandom {
                         T[i] = C[i];
                         P[i] = 0;
                     }
-                    for (j = 0; j < M; j++)
+                    for (j = 0; j < M - N_ + m; j++)
                         if (B_[j] == 1)
                             P[j + N_ - m] = 1;
                     for (i = 0; i < M; i++)
@@ -103,6 +145,17 @@ public class LinearComplexity extends BaseRandom {
             else
                 nu[6]++;
         }
+    }
+
+
+    /**
+     * Computes the pValue from the blocks of every class
+     */
+    private boolean ComputeResults(double[] nu, int N) {
+        int i, K = 6;
+        double chi2;
+        double pi[] = { 0.01047, 0.03125, 0.12500, 0.50000, 0.25000, 0.06250, 0.020833 };
+
         chi2 = 0.00;
         for (i = 0; i < K + 1; i++)
             chi2 += Math.pow(nu[i] - N * pi[i], 2) / (N * pi[i]);
@@ -114,7 +167,7 @@ public class LinearComplexity extends BaseRandom {
 
     @Override
     public RandomTests GetType() {
-        return null;
+        return TEST;
     }
 
 
@@ -31,7 +31,9 @@ import org.jiumao.nist.Base.BaseRandom;
 import org.jiumao.nist.Base.MathematicalFunctions;
 import org.jiumao.nist.Base.RandomTestErrors;
 import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TypeSizes;
 import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
 
 
 /**
@@ -46,6 +48,8 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  */
 public class LongestRunOfOnes extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Random Test Class enumerator name
      */
@@ -60,6 +64,7 @@ public class LongestRunOfOnes extends BaseRandom {
      */
     protected static final int NUMASSIGNMENTS = 7;
 
+
     /**
      * "longRunCase" result
      */
@@ -131,23 +136,6 @@ public class LongestRunOfOnes extends BaseRandom {
     }
 
 
-    /**
-     * Destructor, zeroes all data
-     * 
-     */
-    public void finalize() {
-
-        this.longRunCase = 0;
-        this.substringNumber = 0;
-        this.substringLength = 0;
-        this.chiSquared = 0.0;
-        for (int i = 0; i < LongestRunOfOnes.NUMASSIGNMENTS; i++) {
-            this.assignment[i] = 0;
-        }
-        this.assignment = null;
-    }
-
-
     /**
      * Gets the BaseRandomTest random state of the last executed
      * BaseCryptoRandomStream
@@ -170,11 +158,11 @@ public class LongestRunOfOnes extends BaseRandom {
      *         true: last verified stream was randomized false: last verified
      *         stream was not randomized
      */
-    public boolean isRandom(BaseCryptoRandomStream bitStream) {
-        double run = 0, v_n_obs = 0;
+    public boolean isRandom(final BaseCryptoRandomStream bitStream) {
+        final int M, N;
         double[] pi;
+        long[] longestRuns;
         int K;
-        int i = 0, j = 0;
         int[] k;
         int[] nu = { 0, 0, 0, 0, 0, 0, 0 };
 
@@ -185,9 +173,144 @@ public class LongestRunOfOnes extends BaseRandom {
             this.random = false;
             return this.random;
         }
-        if (bitStream.GetBitLength() < 6272) {
+        K = this.setClasses(bitStream.GetBitLength(), pi, k);
+
+        this.error = RandomTestErrors.NoError;
+        this.substringNumber = (int) Math.floor(bitStream.GetBitLength() / substringLength);
+        M = this.substringLength;
+        N = this.substringNumber;
+        longestRuns = Chunks.Reduce(bitStream.GetLongBitLength(), N, Chunks.UnitsPerChunk(M),
+                (from, to) -> CountLongestRuns(bitStream, M, (int) from, (int) to), LongestRunOfOnes::Add);
+        for (int run = 0; run <= CountingScan.MAXRUN; run++) {
+            classify(run, K, k, nu, (int) longestRuns[run]);
+        }
+        return this.ComputeResults(K, pi, nu);
+    }
+
+
+    /**
+     * Counts the substrings [from, to) of length M by longest run of ones, runs
+     * longer than CountingScan.MAXRUN are counted as MAXRUN like every class does
+     *
+     * @return long[]: substrings of every longest run, from 0 to MAXRUN
+     */
+    private static long[] CountLongestRuns(BaseCryptoRandomStream stream, int M, int from, int to) {
+        long[] longestRuns;
+
+        longestRuns = new long[CountingScan.MAXRUN + 1];
+        for (int i = from; i < to; i++) {
+            longestRuns[Math.min(CountingScan.MAXRUN, LongestRun(stream, (long) i * M, (long) (i + 1) * M))]++;
+        }
+        return longestRuns;
+    }
+
+
+    /**
+     * Finds the longest run of ones of the bit range [from, to) a word at a time:
+     * the run ending a word goes on with the ones starting the next one, and the
+     * longest run inside a word is the number of x & (x >>> 1) steps clearing it
+     *
+     * @return int: length of the longest run of ones
+     */
+    private static int LongestRun(BaseCryptoRandomStream stream, long from, long to) {
+        BitWordCursor cursor;
+        long word, x;
+        int bits, run, longest, steps;
+
+        cursor = stream.GetWordCursor(from, to);
+        run = 0;
+        longest = 0;
+        while (cursor.HasNext()) {
+            bits = (int) Math.min(TypeSizes.LONG_BITS, cursor.GetRemainingBits());
+            word = cursor.NextWord();
+            if (word == (-1L >>> (TypeSizes.LONG_BITS - bits))) {
+                run += bits;
+                continue;
+            }
+            longest = Math.max(longest, run + Long.numberOfTrailingZeros(~word));
+            for (x = word, steps = 0; x != 0; steps++) {
+                x &= x >>> 1;
+            }
+            longest = Math.max(longest, steps);
+            // ones ending the word, the bits above them are zero after the shift
+            run = Long.numberOfLeadingZeros(~(word << (TypeSizes.LONG_BITS - bits)));
+        }
+        return Math.max(longest, run);
+    }
+
+
+    private static long[] Add(long[] a, long[] b) {
+
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+
+    /**
+     * Tests the stream of a CountingScan and returns the random value, results
+     * are the same as testing the scanned stream
+     * 
+     * @param scan scan of the stream to be verified for randomness properties
+     * @return boolean indication if the scanned stream is a randomized stream
+     */
+    public boolean isRandom(CountingScan scan) {
+        double[] pi;
+        int K;
+        int[] k;
+        int[] nu = { 0, 0, 0, 0, 0, 0, 0 };
+
+        pi = new double[7];
+        k = new int[7];
+        if (scan.GetBitLength() < 128) {
+            this.error = RandomTestErrors.InsufficientNumberOfBits;
+            this.random = false;
+            return this.random;
+        }
+        K = this.setClasses((int) scan.GetBitLength(), pi, k);
+
+        this.error = RandomTestErrors.NoError;
+        this.substringNumber = scan.GetSubstringNumber();
+        for (int run = 0; run <= CountingScan.MAXRUN; run++) {
+            classify(run, K, k, nu, (int) scan.GetLongestRuns(run));
+        }
+        return this.ComputeResults(K, pi, nu);
+    }
+
+
+    /**
+     * Gets the substring length used for a stream length
+     * 
+     * @param n stream length in bits
+     * @return int: substring length in bits
+     */
+    static int SubstringLength(int n) {
+
+        if (n < 6272) {
+            return 8;
+        }
+        if (n < 750000) {
+            return 128;
+        }
+        return 10000;
+    }
+
+
+    /**
+     * Sets substringLength and the classes of longest runs for a stream length
+     * 
+     * @param n stream length in bits
+     * @param pi probabilities of the classes
+     * @param k longest run of every class
+     * @return int: K, index of the last class
+     */
+    private int setClasses(int n, double[] pi, int[] k) {
+        int K;
+
+        substringLength = SubstringLength(n);
+        if (n < 6272) {
             K = 3;
-            substringLength = 8;
             pi[0] = 0.21484375;
             pi[1] = 0.3671875;
             pi[2] = 0.23046875;
@@ -198,9 +321,8 @@ public class LongestRunOfOnes extends BaseRandom {
             k[3] = 4;
         }
         else {
-            if (bitStream.GetBitLength() < 750000) {
+            if (n < 750000) {
                 K = 5;
-                substringLength = 128;
                 pi[0] = 0.1174035788;
                 pi[1] = 0.242955959;
                 pi[2] = 0.249363483;
@@ -216,7 +338,6 @@ public class LongestRunOfOnes extends BaseRandom {
             }
             else {
                 K = 6;
-                substringLength = 10000;
                 pi[0] = 0.0882;
                 pi[1] = 0.2092;
                 pi[2] = 0.2483;
@@ -233,34 +354,35 @@ public class LongestRunOfOnes extends BaseRandom {
                 k[6] = 16;
             }
         }
+        return K;
+    }
 
-        this.error = RandomTestErrors.NoError;
-        this.substringNumber = (int) Math.floor(bitStream.GetBitLength() / substringLength);
-        bitStream.SetBitPosition(0);
-        for (i = 0; i < this.substringNumber; i++) {
-            v_n_obs = 0.e0;
-            run = 0.e0;
-            for (j = 0; j < substringLength; j++) {
-                if (bitStream.GetBitPosition(i * substringLength + j) == 1) {
-                    run++;
-                    v_n_obs = this.mathFuncs.max(v_n_obs, run);
-                }
-                else {
-                    run = 0.e0;
-                }
-            }
-            if (v_n_obs < k[0]) {
-                nu[0]++;
-            }
-            for (j = 0; j <= K; j++) {
-                if (v_n_obs == k[j]) {
-                    nu[j]++;
-                }
-            }
-            if (v_n_obs > k[K]) {
-                nu[K]++;
+
+    /**
+     * Adds count substrings whose longest run is v_n_obs to their classes
+     */
+    private static void classify(double v_n_obs, int K, int[] k, int[] nu, int count) {
+
+        if (v_n_obs < k[0]) {
+            nu[0] += count;
+        }
+        for (int j = 0; j <= K; j++) {
+            if (v_n_obs == k[j]) {
+                nu[j] += count;
             }
         }
+        if (v_n_obs > k[K]) {
+            nu[K] += count;
+        }
+    }
+
+
+    /**
+     * Computes the results from the substrings of every class
+     */
+    private boolean ComputeResults(int K, double[] pi, int[] nu) {
+        int i;
+
         this.chiSquared = 0.0;
         for (i = 0; i <= K; i++) {
             this.chiSquared += (((double) nu[i] - (double) this.substringNumber * pi[i])
@@ -286,6 +408,20 @@ public class LongestRunOfOnes extends BaseRandom {
     }
 
 
+    /**
+     * Copies the object, with its own assignment array
+     * 
+     * @return BaseRandom: copy of the object
+     */
+    public BaseRandom Copy() {
+        LongestRunOfOnes copy;
+
+        copy = (LongestRunOfOnes) super.Copy();
+        copy.assignment = this.assignment.clone();
+        return copy;
+    }
+
+
     /**
      * Initializes the object
      * 
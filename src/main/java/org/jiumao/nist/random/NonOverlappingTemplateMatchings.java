@@ -14,6 +14,12 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  * @date 2018年3月22日
  */
 public class NonOverlappingTemplateMatchings extends BaseRandom {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Random Test Class enumerator name
+     */
+    protected static final RandomTests TEST = RandomTests.NonOverlappingTemplateMatchings;
 
     int numOfTemplates[] = { 0, 0, 2, 4, 6, 12, 20, 40, 74, 148, 284, 568, 1116, //
                              2232, 4424, 8848, 17622, 35244, 70340, 140680, 281076, 562152 };
@@ -108,8 +114,7 @@ public class NonOverlappingTemplateMatchings extends BaseRandom {
 
     @Override
     public RandomTests GetType() {
-        // TODO Auto-generated method stub
-        return null;
+        return TEST;
     }
 
 
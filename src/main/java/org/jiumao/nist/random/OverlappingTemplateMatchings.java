@@ -16,6 +16,12 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  * resuming the search.
  */
 public class OverlappingTemplateMatchings extends BaseRandom {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Random Test Class enumerator name
+     */
+    protected static final RandomTests TEST = RandomTests.OverlappingTemplateMatchings;
 
     int nu[] = { 0, 0, 0, 0, 0, 0 };
     double pi[] = { 0.364091, 0.185659, 0.139381, 0.100571, 0.0704323, 0.139865 };
@@ -76,8 +82,7 @@ public class OverlappingTemplateMatchings extends BaseRandom {
 
     @Override
     public RandomTests GetType() {
-        // TODO Auto-generated method stub
-        return null;
+        return TEST;
     }
 
 
@@ -0,0 +1,167 @@
+package org.jiumao.nist.random;
+
+import org.jiumao.nist.Base.TypeSizes;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
+
+
+/**
+ * Summary of the partial sums of +1/-1 bit values of a bit range: the sum of the
+ * range and the maximum and minimum partial sums from its start, the empty
+ * partial sum 0 included.
+ * <p>
+ * Summaries of consecutive ranges combine associatively, the second one shifted by
+ * the sum of the first, so a stream is summarized by chunks in parallel and the
+ * chunk summaries are combined in order. The summary of a whole stream gives the
+ * maximal excursions of both CumulativeSums tests: forward from the extremes, and
+ * reverse from the extremes seen from the sum of the stream, since the reverse
+ * partial sums are the sum of the stream minus the forward ones. Bytes are summed
+ * through the CountingScan partial sum tables.
+ *
+ * @author ppf@jiumao.org
+ */
+public final class PartialSums {
+
+    /**
+     * Length in bits of the range
+     */
+    private final long length;
+    /**
+     * Sum of the +1/-1 bit values of the range
+     */
+    private final long sum;
+    /**
+     * Maximum and minimum partial sums from the start of the range
+     */
+    private final long max;
+    private final long min;
+
+
+    private PartialSums(long length, long sum, long max, long min) {
+
+        this.length = length;
+        this.sum = sum;
+        this.max = max;
+        this.min = min;
+    }
+
+
+    /**
+     * Summarizes the partial sums of a stream, by parallel chunks for streams of
+     * Chunks.PARALLELLENGTH bits or more
+     *
+     * @param stream stream to be summarized
+     * @return PartialSums: summary of the whole stream
+     */
+    public static PartialSums Of(final BaseCryptoRandomStream stream) {
+
+        return Chunks.Reduce(stream, (from, to) -> Of(stream, from, to), PartialSums::Combine);
+    }
+
+
+    /**
+     * Summarizes the partial sums of the bit range [from, to) of a stream
+     *
+     * @param stream stream holding the range
+     * @param from first bit position of the range
+     * @param to bit position following the last bit of the range
+     * @return PartialSums: summary of the range
+     */
+    public static PartialSums Of(BaseCryptoRandomStream stream, long from, long to) {
+        BitWordCursor cursor;
+        long word, sum, max, min;
+        int bits, bytes, byteValue;
+
+        cursor = stream.GetWordCursor(from, to);
+        sum = 0;
+        max = 0;
+        min = 0;
+        while (cursor.HasNext()) {
+            bits = (int) Math.min(TypeSizes.LONG_BITS, cursor.GetRemainingBits());
+            word = cursor.NextWord();
+            bytes = bits / TypeSizes.BYTE_BITS;
+            for (int i = 0; i < bytes; i++) {
+                byteValue = (int) (word >>> (i * TypeSizes.BYTE_BITS)) & 0xff;
+                max = Math.max(max, sum + CountingScan.MAXPARTIALSUM[byteValue]);
+                min = Math.min(min, sum + CountingScan.MINPARTIALSUM[byteValue]);
+                sum += 2 * Integer.bitCount(byteValue) - TypeSizes.BYTE_BITS;
+            }
+            // bits of the last word after its whole bytes
+            for (int i = bytes * TypeSizes.BYTE_BITS; i < bits; i++) {
+                sum += 2 * ((word >>> i) & 1) - 1;
+                max = Math.max(max, sum);
+                min = Math.min(min, sum);
+            }
+        }
+        return new PartialSums(to - from, sum, max, min);
+    }
+
+
+    /**
+     * Combines this summary with the summary of the range following it
+     *
+     * @param next summary of the range starting where this one ends
+     * @return PartialSums: summary of both ranges
+     */
+    public PartialSums Combine(PartialSums next) {
+
+        return new PartialSums(this.length + next.length, this.sum + next.sum, Math.max(this.max, this.sum + next.max),
+                Math.min(this.min, this.sum + next.min));
+    }
+
+
+    /**
+     * Gets the length in bits of the range
+     */
+    public long GetLength() {
+
+        return this.length;
+    }
+
+
+    /**
+     * Gets the sum of the +1/-1 bit values of the range
+     */
+    public long GetSum() {
+
+        return this.sum;
+    }
+
+
+    /**
+     * Gets the maximum partial sum from the start of the range, 0 at least
+     */
+    public long GetMax() {
+
+        return this.max;
+    }
+
+
+    /**
+     * Gets the minimum partial sum from the start of the range, 0 at most
+     */
+    public long GetMin() {
+
+        return this.min;
+    }
+
+
+    /**
+     * Gets the maximum absolute partial sum from the start of the range, as
+     * CumulativeSumForward computes it
+     */
+    public long GetForwardExcursion() {
+
+        return Math.max(this.max, -this.min);
+    }
+
+
+    /**
+     * Gets the maximum absolute partial sum from the end of the range, as
+     * CumulativeSumReverse computes it
+     */
+    public long GetReverseExcursion() {
+
+        return Math.max(this.sum - this.min, this.max - this.sum);
+    }
+}
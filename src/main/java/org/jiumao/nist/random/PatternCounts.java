@@ -0,0 +1,33 @@
+package org.jiumao.nist.random;
+
+/**
+ * Cyclic counts of the bit patterns of a sequence, Serial and ApproximateEntropy
+ * compute their results from them without reading the sequence: a pattern of
+ * width bits starts at every bit of the sequence and wraps around its end.
+ *
+ * @author ppf@jiumao.org
+ */
+public interface PatternCounts {
+
+    /**
+     * Gets the length in bits of the sequence
+     */
+    long GetLength();
+
+
+    /**
+     * Gets the longest pattern length counted in bits
+     */
+    int GetPatternLength();
+
+
+    /**
+     * Gets the cyclic counts of every width bit pattern of the sequence
+     *
+     * @param width pattern length in bits, from 1 to GetPatternLength
+     * @return long[]: new array of 2^width counts by pattern, first bit as most
+     *         significant bit
+     * @throws IllegalArgumentException if width is out of range
+     */
+    long[] GetPatternCounts(int width) throws IllegalArgumentException;
+}
@@ -0,0 +1,150 @@
+package org.jiumao.nist.random;
+
+import org.jiumao.nist.Base.BaseRandom;
+
+
+/**
+ * Serial or ApproximateEntropy test over a sliding window, keeps the counts of the
+ * patternLength bit patterns inside the window.
+ * <p>
+ * A pattern is added when its last bit enters the window and removed when its
+ * first bit leaves it. The patterns wrapping around the end of the window, which
+ * the tests count as well, change with every bit and are added only when counts
+ * are read, in patternLength^2 steps. Shorter patterns are counted by summing the
+ * counts of the longer ones starting with them.
+ *
+ * @author ppf@jiumao.org
+ */
+public class PatternMonitor<T extends BaseRandom> extends SlidingMonitor<T> implements PatternCounts {
+
+    /**
+     * Longest pattern length in bits
+     */
+    protected final int patternLength;
+    /**
+     * Counts of the patterns inside the window, first bit as most significant bit
+     */
+    protected final long[] counts;
+    /**
+     * Patterns of the first and of the last patternLength bits of the window
+     */
+    protected int head;
+    protected int tail;
+
+
+    /**
+     * Gets a monitor of a Serial test, patterns of its block length
+     *
+     * @param windowLength window length in bits
+     * @param test Serial test monitored
+     * @return PatternMonitor: monitor of the test
+     * @throws IllegalArgumentException if windowLength is less than the block length
+     */
+    public static PatternMonitor<Serial> Of(int windowLength, Serial test) throws IllegalArgumentException {
+
+        return new PatternMonitor<Serial>(test, windowLength, test.GetBlockLength());
+    }
+
+
+    /**
+     * Gets a monitor of an ApproximateEntropy test, patterns of its block length
+     * plus one
+     *
+     * @param windowLength window length in bits
+     * @param test ApproximateEntropy test monitored
+     * @return PatternMonitor: monitor of the test
+     * @throws IllegalArgumentException if windowLength is less than the block length
+     *             plus one
+     */
+    public static PatternMonitor<ApproximateEntropy> Of(int windowLength, ApproximateEntropy test)
+            throws IllegalArgumentException {
+
+        return new PatternMonitor<ApproximateEntropy>(test, windowLength, test.GetBlockLength() + 1);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param test Serial or ApproximateEntropy test monitored
+     * @param windowLength window length in bits
+     * @param patternLength longest pattern length in bits
+     * @throws IllegalArgumentException if patternLength is out of range
+     */
+    protected PatternMonitor(T test, int windowLength, int patternLength) throws IllegalArgumentException {
+
+        super(test, windowLength);
+        if ((patternLength < 1) || (patternLength > ShardState.MAXWINDOW) || (patternLength > windowLength)) {
+            throw new IllegalArgumentException("Pattern length out of range !");
+        }
+        this.patternLength = patternLength;
+        this.counts = new long[1 << patternLength];
+        this.head = 0;
+        this.tail = 0;
+    }
+
+
+    @Override
+    protected void Enter(long position, int bit) {
+        long patternStart;
+
+        this.tail = ((this.tail << 1) | bit) & (this.counts.length - 1);
+        patternStart = position - this.patternLength + 1;
+        if (patternStart == this.start) {
+            this.head = this.tail;
+        }
+        if (patternStart >= this.start) {
+            this.counts[this.tail]++;
+        }
+    }
+
+
+    @Override
+    protected void Leave(long position, int bit) {
+
+        this.counts[this.head]--;
+        this.head = ((this.head << 1) | this.GetBit(position + this.patternLength)) & (this.counts.length - 1);
+    }
+
+
+    @Override
+    public boolean IsRandom() {
+
+        if (this.test instanceof Serial) {
+            return ((Serial) this.test).isRandom(this);
+        }
+        return ((ApproximateEntropy) this.test).isRandom(this);
+    }
+
+
+    @Override
+    public int GetPatternLength() {
+
+        return this.patternLength;
+    }
+
+
+    @Override
+    public long[] GetPatternCounts(int width) throws IllegalArgumentException {
+        long[] cyclic, folded;
+        long n, pattern;
+
+        if ((width < 1) || (width > this.patternLength)) {
+            throw new IllegalArgumentException("Pattern width out of range !");
+        }
+        n = this.end - this.start;
+        cyclic = this.counts.clone();
+        for (long i = Math.max(0, n - this.patternLength + 1); i < n; i++) {
+            pattern = 0;
+            for (int j = 0; j < this.patternLength; j++) {
+                pattern = (pattern << 1) | this.GetBit(this.start + (i + j) % n);
+            }
+            cyclic[(int) pattern]++;
+        }
+        folded = new long[1 << width];
+        for (int i = 0; i < cyclic.length; i++) {
+            folded[i >>> (this.patternLength - width)] += cyclic[i];
+        }
+        return folded;
+    }
+}
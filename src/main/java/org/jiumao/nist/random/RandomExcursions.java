@@ -17,6 +17,8 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  * @date 2018年3月22日
  */
 public class RandomExcursions extends BaseRandom {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Random Test Class enumerator name
      */
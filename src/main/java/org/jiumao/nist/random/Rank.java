@@ -44,6 +44,8 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  */
 public class Rank extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Random Test Class enumerator name
      */
@@ -105,11 +107,15 @@ public class Rank extends BaseRandom {
      */
     protected void DefineMatrix(BaseCryptoRandomStream stream, int M, int Q, byte[][] m, int k) {
         int i, j;
+        long row;
 
-        for (i = 0; i < M; i++)
+        // every row is read at once, Q is at most 64
+        for (i = 0; i < M; i++) {
+            row = stream.ExtractBits((long) k * (M * Q) + i * M, Q);
             for (j = 0; j < Q; j++) {
-                m[i][j] = stream.GetBitPosition(k * (M * Q) + j + i * M);
+                m[i][j] = (byte) ((row >>> j) & 1);
             }
+        }
     }
 
 
@@ -313,24 +319,6 @@ public class Rank extends BaseRandom {
     }
 
 
-    /**
-     * Destructor, zeroes all data
-     * 
-     */
-    public void finalize() {
-
-        this.chiSquared = 0.0;
-        this.matrixNumber = 0;
-        this.bitsDiscarded = 0;
-        this.p30 = 0.0;
-        this.p31 = 0.0;
-        this.p32 = 0.0;
-        this.f30 = 0.0;
-        this.f31 = 0.0;
-        this.f32 = 0.0;
-    }
-
-
     /**
      * Gets the BaseRandomTest random state of the last executed
      * BaseCryptoRandomStream
@@ -354,10 +342,7 @@ public class Rank extends BaseRandom {
      *         stream was not randomized
      */
     public boolean isRandom(BaseCryptoRandomStream bitStream) {
-        int r;
-        double product;
-        int i, k;
-        double arg1;
+        int k;
         double R;
         byte[][] matrix = this.CreateMatrix(32, 32);
 
@@ -376,19 +361,6 @@ public class Rank extends BaseRandom {
             }
             else {
                 this.bitsDiscarded = bitStream.GetBitLength() % (32 * 32);
-                r = 32;
-                product = 1;
-                for (i = 0; i <= r - 1; i++)
-                    product *= ((1.e0 - Math.pow(2, i - 32)) * (1.e0 - Math.pow(2, i - 32)))
-                            / (1.e0 - Math.pow(2, i - r));
-                this.p32 = Math.pow(2, r * (32 + 32 - r) - 32 * 32) * product;
-                r = 31;
-                product = 1;
-                for (i = 0; i <= r - 1; i++)
-                    product *= ((1.e0 - Math.pow(2, i - 32)) * (1.e0 - Math.pow(2, i - 32)))
-                            / (1.e0 - Math.pow(2, i - r));
-                this.p31 = Math.pow(2, r * (32 + 32 - r) - 32 * 32) * product;
-                this.p30 = 1 - (this.p32 + this.p31);
                 this.f32 = 0;
                 this.f31 = 0;
                 for (k = 0; k < this.matrixNumber; k++) {
@@ -399,22 +371,8 @@ public class Rank extends BaseRandom {
                     if (R == 31)
                         this.f31++;
                 }
-                this.f30 = (double) this.matrixNumber - (this.f32 + this.f31);
-                this.chiSquared = ((Math.pow(this.f32 - this.matrixNumber * this.p32, 2)
-                        / (double) (this.matrixNumber * this.p32)
-                        + Math.pow(this.f31 - this.matrixNumber * this.p31, 2)
-                                / (double) (this.matrixNumber * this.p31)
-                        + Math.pow(this.f30 - this.matrixNumber * this.p30, 2)
-                                / (double) (this.matrixNumber * this.p30)));
-                arg1 = -this.chiSquared / 2.e0;
-                this.pValue = Math.exp(arg1);
-                if (this.pValue < this.alpha) {
-                    this.random = false;
-                }
-                else {
-                    this.random = true;
-                }
                 matrix = null;
+                this.ComputeResults();
             }
             if (this.mathFuncs.isNegative(this.pValue) || this.mathFuncs.isGreaterThanOne(this.pValue)) {
                 this.error = RandomTestErrors.PValueOutOfRange;
@@ -429,6 +387,77 @@ public class Rank extends BaseRandom {
     }
 
 
+    /**
+     * Tests the sequence of a ShardState and returns the random value, results
+     * are the same as testing the whole sequence
+     * 
+     * @param state state of the whole sequence to be verified for randomness
+     *            properties
+     * @return boolean indication if the sequence is a randomized stream
+     */
+    public boolean isRandom(ShardState state) {
+        long n;
+
+        n = state.GetLength();
+        if (n < this.GetMinimumLength()) {
+            this.error = RandomTestErrors.InsufficientNumberOfBits;
+            this.random = false;
+            return this.random;
+        }
+        this.error = RandomTestErrors.NoError;
+        this.matrixNumber = (int) (n / (32 * 32));
+        this.bitsDiscarded = (int) (n % (32 * 32));
+        this.f32 = state.GetRankFrequency(32);
+        this.f31 = state.GetRankFrequency(31);
+        this.ComputeResults();
+        if (this.mathFuncs.isNegative(this.pValue) || this.mathFuncs.isGreaterThanOne(this.pValue)) {
+            this.error = RandomTestErrors.PValueOutOfRange;
+            this.random = false;
+        }
+        return this.random;
+    }
+
+
+    /**
+     * Computes the results from matrixNumber and the f32 and f31 frequencies
+     */
+    private void ComputeResults() {
+        int r;
+        double product;
+        int i;
+        double arg1;
+
+        r = 32;
+        product = 1;
+        for (i = 0; i <= r - 1; i++)
+            product *= ((1.e0 - Math.pow(2, i - 32)) * (1.e0 - Math.pow(2, i - 32)))
+                    / (1.e0 - Math.pow(2, i - r));
+        this.p32 = Math.pow(2, r * (32 + 32 - r) - 32 * 32) * product;
+        r = 31;
+        product = 1;
+        for (i = 0; i <= r - 1; i++)
+            product *= ((1.e0 - Math.pow(2, i - 32)) * (1.e0 - Math.pow(2, i - 32)))
+                    / (1.e0 - Math.pow(2, i - r));
+        this.p31 = Math.pow(2, r * (32 + 32 - r) - 32 * 32) * product;
+        this.p30 = 1 - (this.p32 + this.p31);
+        this.f30 = (double) this.matrixNumber - (this.f32 + this.f31);
+        this.chiSquared = ((Math.pow(this.f32 - this.matrixNumber * this.p32, 2)
+                / (double) (this.matrixNumber * this.p32)
+                + Math.pow(this.f31 - this.matrixNumber * this.p31, 2)
+                        / (double) (this.matrixNumber * this.p31)
+                + Math.pow(this.f30 - this.matrixNumber * this.p30, 2)
+                        / (double) (this.matrixNumber * this.p30)));
+        arg1 = -this.chiSquared / 2.e0;
+        this.pValue = Math.exp(arg1);
+        if (this.pValue < this.alpha) {
+            this.random = false;
+        }
+        else {
+            this.random = true;
+        }
+    }
+
+
     /**
      * Initializes the object
      * 
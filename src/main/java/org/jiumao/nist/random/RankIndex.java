@@ -0,0 +1,160 @@
+package org.jiumao.nist.random;
+
+import org.jiumao.nist.Base.TypeSizes;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+
+
+/**
+ * Rank index of a stream: a copy of its bits as 64 bit words with the number of
+ * ones before every word, giving the ones of any bit range in constant time.
+ * <p>
+ * Ones are kept before every superblock of SUPERBITS bits as a long, and before
+ * every word inside its superblock as a char, the index takes about 1.25 times
+ * the stream bits. It is built once per stream, by parallel chunks for streams of
+ * Chunks.PARALLELLENGTH bits or more, and is immutable afterwards so it can be
+ * shared by every thread: BlockFrequency computes any block length from it in
+ * n/M steps.
+ *
+ * @author ppf@jiumao.org
+ */
+public final class RankIndex {
+
+    /**
+     * Bits of a superblock, ones before a word inside it fit in a char
+     */
+    static final int SUPERBITS = 1 << 15;
+
+    private static final int WORDSHIFT = 6;
+    private static final int SUPERSHIFT = 15;
+    private static final int SUPERWORDS = SUPERBITS / TypeSizes.LONG_BITS;
+
+    /**
+     * Length in bits of the indexed stream
+     */
+    private final long length;
+    /**
+     * Bits of the stream, bit j of word i is bit 64 * i + j, bits beyond the length
+     * are zero
+     */
+    private final long[] words;
+    /**
+     * Ones before every superblock, one more entry holds the ones of the stream
+     */
+    private final long[] superRanks;
+    /**
+     * Ones before every word, from the start of its superblock
+     */
+    private final char[] wordRanks;
+
+
+    private RankIndex(long length, long[] words, long[] superRanks, char[] wordRanks) {
+
+        this.length = length;
+        this.words = words;
+        this.superRanks = superRanks;
+        this.wordRanks = wordRanks;
+    }
+
+
+    /**
+     * Builds the rank index of a stream
+     *
+     * @param stream stream to be indexed, it is read once
+     * @return RankIndex: index of the stream
+     * @throws IllegalArgumentException if the stream has more than 2^31 words
+     */
+    public static RankIndex Of(final BaseCryptoRandomStream stream) throws IllegalArgumentException {
+        final long n;
+        final long[] words, superRanks;
+        final char[] wordRanks;
+        final int superblocks;
+        long wordNumber;
+
+        n = stream.GetLongBitLength();
+        wordNumber = (n + TypeSizes.LONG_BITS - 1) / TypeSizes.LONG_BITS;
+        if (wordNumber > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Stream too long for a rank index !");
+        }
+        words = new long[(int) wordNumber];
+        wordRanks = new char[words.length];
+        superblocks = (words.length + SUPERWORDS - 1) / SUPERWORDS;
+        superRanks = new long[superblocks + 1];
+        // superRanks[s + 1] receives the ones of superblock s, summed afterwards
+        Chunks.ForEach(n, superblocks, Chunks.UnitsPerChunk(SUPERBITS),
+                (from, to) -> Build(stream, words, wordRanks, superRanks, (int) from, (int) to));
+        for (int s = 1; s <= superblocks; s++) {
+            superRanks[s] += superRanks[s - 1];
+        }
+        return new RankIndex(n, words, superRanks, wordRanks);
+    }
+
+
+    /**
+     * Reads the words of the superblocks [from, to) and counts their ones
+     */
+    private static void Build(BaseCryptoRandomStream stream, long[] words, char[] wordRanks, long[] superRanks,
+            int from, int to) {
+        int first, last, ones;
+
+        first = from * SUPERWORDS;
+        last = Math.min(words.length, to * SUPERWORDS);
+        stream.GetWords((long) first * TypeSizes.LONG_BITS, words, first, last - first);
+        for (int s = from; s < to; s++) {
+            ones = 0;
+            for (int i = s * SUPERWORDS; i < Math.min(last, (s + 1) * SUPERWORDS); i++) {
+                wordRanks[i] = (char) ones;
+                ones += Long.bitCount(words[i]);
+            }
+            superRanks[s + 1] = ones;
+        }
+    }
+
+
+    /**
+     * Gets the length in bits of the indexed stream
+     */
+    public long GetBitLength() {
+
+        return this.length;
+    }
+
+
+    /**
+     * Gets the number of ones before a bit position
+     *
+     * @param position bit position, from 0 to the stream length
+     * @return long: ones of the bit range [0, position)
+     * @throws IndexOutOfBoundsException if position is out of range
+     */
+    public long Rank(long position) throws IndexOutOfBoundsException {
+        int word, bit;
+
+        if ((position < 0) || (position > this.length)) {
+            throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+        }
+        word = (int) (position >>> WORDSHIFT);
+        bit = (int) (position & (TypeSizes.LONG_BITS - 1));
+        if (word == this.words.length) {
+            return this.superRanks[this.superRanks.length - 1];
+        }
+        return this.superRanks[(int) (position >>> SUPERSHIFT)] + this.wordRanks[word]
+                + Long.bitCount(this.words[word] & ((1L << bit) - 1));
+    }
+
+
+    /**
+     * Counts the bits with value 1 in the bit range [from, to)
+     *
+     * @param from first bit position of the range
+     * @param to bit position following the last bit of the range
+     * @return long: number of ones
+     * @throws IndexOutOfBoundsException if the range is out of the stream
+     */
+    public long PopCount(long from, long to) throws IndexOutOfBoundsException {
+
+        if (from > to) {
+            throw new IndexOutOfBoundsException("Positions exceeded stream length !");
+        }
+        return this.Rank(to) - this.Rank(from);
+    }
+}
@@ -27,23 +27,33 @@
 
 package org.jiumao.nist.random;
 
+
 import org.jiumao.nist.Base.BaseRandom;
 import org.jiumao.nist.Base.MathematicalFunctions;
 import org.jiumao.nist.Base.RandomTestErrors;
 import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TypeSizes;
 import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
 
 
 /**
  * 游程检测
  * <P>
  * 检测连续k位同为1/0的变化程度: <em>例如：</em>11001100相等于1010变化序列
+ * <p>
+ * Ones and transitions are counted in one pass 64 bits at a time: bit j of a word
+ * xored with the word shifted by one bit, the last bit of the previous word
+ * carried in, tells if bits j - 1 and j differ. Streams of Chunks.PARALLELLENGTH
+ * bits or more are counted by parallel chunks.
  * 
  * @author ppf@jiumao.org
  * @date 2018年3月22日
  */
 public class Runs extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Random Test Class enumerator name
      */
@@ -96,18 +106,6 @@ public class Runs extends BaseRandom {
     }
 
 
-    /**
-     * Destructor, zeroes all data
-     * 
-     */
-    public void finalize() {
-
-        this.pi = 0.0;
-        this.totalNumberRuns = 0.0;
-        this.argument = 0.0;
-    }
-
-
     /**
      * Gets the BaseRandomTest random state of the last executed
      * BaseCryptoRandomStream
@@ -130,40 +128,91 @@ public class Runs extends BaseRandom {
      *         true: last verified stream was randomized false: last verified
      *         stream was not randomized
      */
-    public boolean isRandom(BaseCryptoRandomStream bitStream) {
-        int i, r[];
-        double product, sum;
+    public boolean isRandom(final BaseCryptoRandomStream bitStream) {
+        final long n;
+        long[] counts;
 
-        if (bitStream.GetBitLength() < this.GetMinimumLength()) {
+        n = bitStream.GetLongBitLength();
+        if (n < this.GetMinimumLength()) {
             this.error = RandomTestErrors.InsufficientNumberOfBits;
             this.random = false;
             return this.random;
         }
         bitStream.SetBitPosition(0);
         this.error = RandomTestErrors.NoError;
-        r = new int[bitStream.GetBitLength()];
-        if (r == null) {
-            this.error = RandomTestErrors.InsufficientMemory;
+        counts = Chunks.Reduce(bitStream, (from, to) -> Count(bitStream, from, to),
+                (x, y) -> new long[] { x[0] + y[0], x[1] + y[1] });
+        this.totalNumberRuns = counts[1];
+        return this.ComputeResults(n, (double) counts[0]);
+    }
+
+
+    /**
+     * Counts the ones and the transitions of the bit range [from, to), the
+     * transition from the bit before the range included
+     *
+     * @return long[]: ones and transitions
+     */
+    private static long[] Count(BaseCryptoRandomStream stream, long from, long to) {
+        BitWordCursor cursor;
+        long word, ones, transitions, previous, valid;
+        int bits;
+
+        cursor = stream.GetWordCursor(from, to);
+        ones = 0;
+        transitions = 0;
+        // the first bit of the stream has no bit before it
+        previous = (from > 0) ? stream.GetBitPosition(from - 1) : 0;
+        valid = (from > 0) ? -1L : -2L;
+        while (cursor.HasNext()) {
+            bits = (int) Math.min(TypeSizes.LONG_BITS, cursor.GetRemainingBits());
+            word = cursor.NextWord();
+            ones += Long.bitCount(word);
+            if (bits < TypeSizes.LONG_BITS) {
+                valid &= (1L << bits) - 1;
+            }
+            transitions += Long.bitCount((word ^ ((word << 1) | previous)) & valid);
+            previous = (word >>> (bits - 1)) & 1;
+            valid = -1L;
+        }
+        return new long[] { ones, transitions };
+    }
+
+
+    /**
+     * Tests the stream of a CountingScan and returns the random value, results
+     * are the same as testing the scanned stream
+     * 
+     * @param scan scan of the stream to be verified for randomness properties
+     * @return boolean indication if the scanned stream is a randomized stream
+     */
+    public boolean isRandom(CountingScan scan) {
+        long n;
+
+        n = scan.GetBitLength();
+        if (n < this.GetMinimumLength()) {
+            this.error = RandomTestErrors.InsufficientNumberOfBits;
             this.random = false;
             return this.random;
         }
-        sum = 0.0;
-        for (i = 0; i < bitStream.GetBitLength(); i++)
-            sum += bitStream.GetBitForward();
-        this.pi = sum / bitStream.GetBitLength();
-        for (i = 0; i < bitStream.GetBitLength() - 1; i++) {
-            if (bitStream.GetBitPosition(i) == bitStream.GetBitPosition(i + 1))
-                r[i] = 0;
-            else
-                r[i] = 1;
-        }
-        this.totalNumberRuns = 0;
-        for (i = 0; i < bitStream.GetBitLength() - 1; i++)
-            this.totalNumberRuns += r[i];
+        this.error = RandomTestErrors.NoError;
+        this.totalNumberRuns = scan.GetTransitions();
+        return this.ComputeResults(n, (double) scan.GetOnes());
+    }
+
+
+    /**
+     * Computes the results from the ones and the transitions held in
+     * totalNumberRuns
+     */
+    private boolean ComputeResults(long n, double sum) {
+        double product;
+
+        this.pi = sum / n;
         this.totalNumberRuns++;
         product = this.pi * (1.e0 - this.pi);
-        this.argument = Math.abs(this.totalNumberRuns - 2.e0 * bitStream.GetBitLength() * product)
-                / (2.e0 * Math.sqrt(2.e0 * bitStream.GetBitLength()) * product);
+        this.argument = Math.abs(this.totalNumberRuns - 2.e0 * n * product)
+                / (2.e0 * Math.sqrt(2.e0 * n) * product);
         this.pValue = this.mathFuncs.ErFc(this.argument);
         if (this.pValue < this.alpha) {
             this.random = false;
@@ -171,7 +220,6 @@ public class Runs extends BaseRandom {
         else {
             this.random = true;
         }
-        r = null;
         if (this.mathFuncs.isNegative(this.pValue) || this.mathFuncs.isGreaterThanOne(this.pValue)) {
             this.random = false;
             this.error = RandomTestErrors.PValueOutOfRange;
@@ -0,0 +1,64 @@
+package org.jiumao.nist.random;
+
+/**
+ * Runs test over a sliding window, keeps the ones and the transitions of the
+ * window.
+ *
+ * @author ppf@jiumao.org
+ */
+public class RunsMonitor extends SlidingMonitor<Runs> {
+
+    /**
+     * Bits with value 1 in the window
+     */
+    protected long ones;
+    /**
+     * Window bits differing from the previous window bit
+     */
+    protected long transitions;
+
+
+    /**
+     * Constructor
+     *
+     * @param windowLength window length in bits
+     * @throws IllegalArgumentException if windowLength is not positive
+     */
+    public RunsMonitor(int windowLength) throws IllegalArgumentException {
+
+        super(new Runs(), windowLength);
+        this.ones = 0;
+        this.transitions = 0;
+    }
+
+
+    @Override
+    protected void Enter(long position, int bit) {
+
+        this.ones += bit;
+        if ((position > this.start) && (this.GetBit(position - 1) != bit)) {
+            this.transitions++;
+        }
+    }
+
+
+    @Override
+    protected void Leave(long position, int bit) {
+
+        this.ones -= bit;
+        if (this.GetBit(position + 1) != bit) {
+            this.transitions--;
+        }
+    }
+
+
+    @Override
+    public boolean IsRandom() {
+        CountingScan scan;
+
+        scan = this.NewScan();
+        scan.ones = this.ones;
+        scan.transitions = this.transitions;
+        return this.test.isRandom(scan);
+    }
+}
@@ -40,6 +40,8 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  */
 public class Serial extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
   /**
    * Random Test Class enumerator name
    */
@@ -119,6 +121,31 @@ public class Serial extends BaseRandom {
     	return sum;
     }
 
+  /**
+   * Calculates Psi2 function of a sequence based on m, from the cyclic counts of
+   * its m bit patterns
+   * 
+   * @param   m           block length in bits
+   * @param   state       pattern counts of the sequence to calculate Psi2 on
+   * @return  double:     Psi2 calculation value
+   */
+    protected double psi2(int m, PatternCounts state) {
+    	int     i;
+    	long    n;
+    	double  sum;
+    	long    P[];
+
+    	if ((m == 0) || (m == -1)) 
+    		return 0.0;
+    	n = state.GetLength();
+    	P = state.GetPatternCounts(m);
+    	sum = 0.0;
+    	for(i = 0; i < P.length; i++)
+    		sum += Math.pow(P[i],2);
+    	sum = (sum * Math.pow(2,m)/(double)n) - (double)n;
+    	return sum;
+    }
+
   /**
    * Constructor, default 
    */ 
@@ -153,21 +180,6 @@ public class Serial extends BaseRandom {
 		this.delta2 = 0.0;
     }
 
-  /**
-   * Destructor, zeroes all data
-   * 
-   */ 
-    public void finalize() {
-                                                               
-		this.blockLength = 0;
-		this.pvalue2 = 0.0;				
-		this.psim = 0.0; 
-		this.psim1 = 0.0; 
-		this.psim2 = 0.0; 
-		this.delta1 = 0.0; 
-		this.delta2 = 0.0;
-    }
-
   /**
    * Gets the BaseRandomTest random state of the last executed BaseCryptoRandomStream
    * 
@@ -199,6 +211,42 @@ public class Serial extends BaseRandom {
     	this.psim = psi2(this.blockLength, bitStream);
     	this.psim1 = psi2(this.blockLength-1, bitStream);
     	this.psim2 = psi2(this.blockLength-2, bitStream);
+    	return this.ComputeResults();
+    }
+
+  /**
+   * Tests a sequence from the cyclic counts of its patterns, as a ShardState or a
+   * PatternMonitor keep them, and returns the random value, results are the same as
+   * testing the sequence
+   * 
+   * @param     state       pattern counts of the sequence to be verified for randomness properties
+   * @return    boolean     indication if the sequence is a randomized stream
+   * @throws    IllegalArgumentException    if patterns are shorter than the block length
+   */ 
+    public boolean isRandom(PatternCounts state) throws IllegalArgumentException {
+    	long n;
+
+    	if (state.GetPatternLength() < this.blockLength) {
+    		throw new IllegalArgumentException("Pattern length is less than test block length !");
+    	}
+    	n = state.GetLength();
+    	if (n < (long)this.GetMinimumLength()) {
+    		this.error = RandomTestErrors.InsufficientNumberOfBits;
+    		this.random = false;
+    		return this.random;
+    	}
+    	this.error = RandomTestErrors.NoError;
+    	this.psim = psi2(this.blockLength, state);
+    	this.psim1 = psi2(this.blockLength-1, state);
+    	this.psim2 = psi2(this.blockLength-2, state);
+    	return this.ComputeResults();
+    }
+
+  /**
+   * Computes the results from psim, psim1 and psim2
+   */ 
+    private boolean ComputeResults() {
+
     	this.delta1 = this.psim - this.psim1;
     	this.delta2 = this.psim - 2.0*this.psim1 + this.psim2;
     	this.pValue = this.mathFuncs.IGammaC(Math.pow(2,this.blockLength-1)/2,this.delta1/2.0);
@@ -282,6 +330,16 @@ public class Serial extends BaseRandom {
     	return this.blockLength;
     }
 
+  /**
+   * Gets every pValue of the last executed BaseCryptoRandomStream
+   * 
+   * @return    double[]:   pValue and pvalue2
+   */
+    public double[] GetPValues() {
+
+    	return new double[] { this.pValue, this.pvalue2 };
+    }
+
   /**
    * Gets pvalue2 parameter
    * 
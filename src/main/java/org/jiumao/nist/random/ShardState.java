@@ -0,0 +1,881 @@
+package org.jiumao.nist.random;
+
+import java.io.Serializable;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.TypeSizes;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+
+
+/**
+ * Partial state of a test sequence computed from one of its shards, so that a
+ * sequence too large for one process can be split, its shards scanned by several
+ * processes and their states merged into the state of the whole sequence.
+ * <p>
+ * The state holds additive statistics: ones, transitions, partial sum extremes,
+ * BlockFrequency block terms, longest runs of ones of every LongestRunOfOnes
+ * substring length, Rank matrix ranks, LinearComplexity classes and the counts of
+ * every windowLength bit pattern for Serial and ApproximateEntropy. Blocks,
+ * substrings and matrices must not be split, so the statistics are kept for whole
+ * units of GetUnitLength bits, aligned on the sequence, and the bits of a shard
+ * before its first unit boundary and after its last one are kept as they are.
+ * Merging two consecutive shards scans the unit formed by those bits, and adds the
+ * pattern windows and transitions crossing the boundary. Windows wrapping around
+ * the end of the sequence, as Serial and ApproximateEntropy count them, are added
+ * when the state holds the whole sequence.
+ * <p>
+ * States are Serializable and Merge is associative, shards can be merged in any
+ * grouping as long as they are consecutive. Evaluate computes the results of the
+ * Frequency, BlockFrequency, Runs, CumulativeSums, LongestRunOfOnes, Rank,
+ * LinearComplexity, Serial and ApproximateEntropy tests from the state of a whole
+ * sequence, as testing the sequence would. BlockFrequency block terms are added as
+ * integers, as the test adds them, so its results are the same too.
+ *
+ * @author ppf@jiumao.org
+ */
+public class ShardState implements PatternCounts, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default BlockFrequency, LinearComplexity and pattern window lengths in bits
+     */
+    public static final int DEFAULTBLOCK = 128;
+    public static final int DEFAULTCOMPLEXITY = 500;
+    public static final int DEFAULTWINDOW = 16;
+    /**
+     * Maximum pattern window length, the state holds 2^windowLength counts
+     */
+    public static final int MAXWINDOW = 20;
+
+    /**
+     * LongestRunOfOnes substring lengths, the one used depends on the sequence length
+     */
+    private static final int[] SUBSTRINGLENGTHS = { 8, 128, 10000 };
+    /**
+     * Bits of a Rank matrix
+     */
+    private static final int MATRIXBITS = 32 * 32;
+    /**
+     * Least common multiple of the substring lengths and the matrix bits
+     */
+    private static final long BASEUNIT = 2560000;
+    /**
+     * Bits kept at both ends of a region
+     */
+    private static final int ENDBITS = 63;
+
+
+    /**
+     * Statistics of a bit region starting on a unit boundary, blocks, substrings and
+     * matrices are counted when the region holds them whole
+     */
+    private static final class Region implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private long length;
+        private long ones;
+        private long transitions;
+        /**
+         * First and last ENDBITS bits, or all of them if the region is shorter
+         */
+        private long first;
+        private long last;
+        /**
+         * Sum of +1/-1 bit values, extremes of its partial sums including the empty
+         * one, and extremes before the last bit
+         */
+        private long sum;
+        private long maxSum;
+        private long minSum;
+        private long maxBeforeLast;
+        private long minBeforeLast;
+        /**
+         * Sum over BlockFrequency blocks of (2 ones - blockLength)^2
+         */
+        private long blockSquares;
+        /**
+         * Substrings by longest run of ones, for every substring length
+         */
+        private long[][] longestRuns;
+        /**
+         * Rank matrices of rank 32 and 31
+         */
+        private long rank32;
+        private long rank31;
+        /**
+         * LinearComplexity blocks by class
+         */
+        private long[] complexityClasses;
+        /**
+         * Windows by pattern, first bit as most significant bit, null without windows
+         */
+        private long[] windows;
+
+
+        Region(int windowLength) {
+
+            this.longestRuns = new long[SUBSTRINGLENGTHS.length][CountingScan.MAXRUN + 1];
+            this.complexityClasses = new long[7];
+            this.windows = (windowLength > 0) ? new long[1 << windowLength] : null;
+        }
+
+
+        Region Copy() {
+            Region copy;
+
+            copy = new Region(0);
+            copy.length = this.length;
+            copy.ones = this.ones;
+            copy.transitions = this.transitions;
+            copy.first = this.first;
+            copy.last = this.last;
+            copy.sum = this.sum;
+            copy.maxSum = this.maxSum;
+            copy.minSum = this.minSum;
+            copy.maxBeforeLast = this.maxBeforeLast;
+            copy.minBeforeLast = this.minBeforeLast;
+            copy.blockSquares = this.blockSquares;
+            for (int i = 0; i < SUBSTRINGLENGTHS.length; i++) {
+                copy.longestRuns[i] = this.longestRuns[i].clone();
+            }
+            copy.rank32 = this.rank32;
+            copy.rank31 = this.rank31;
+            copy.complexityClasses = this.complexityClasses.clone();
+            copy.windows = (this.windows == null) ? null : this.windows.clone();
+            return copy;
+        }
+
+
+        /**
+         * Adds the statistics of the region following this one
+         */
+        Region Append(Region next, int windowLength) {
+            int a, b, ends, drop;
+            long bits;
+
+            if (next.length == 0) {
+                return this;
+            }
+            if (this.length == 0) {
+                return this.Set(next);
+            }
+            if (((this.last >>> (Ends(this.length) - 1)) & 1) != (next.first & 1)) {
+                this.transitions++;
+            }
+            this.transitions += next.transitions;
+            this.ones += next.ones;
+            if (this.windows != null) {
+                // windows starting in this region and ending in the next one
+                a = (int) Math.min(this.length, windowLength - 1);
+                b = (int) Math.min(next.length, windowLength - 1);
+                bits = (this.last >>> (Ends(this.length) - a)) | ((next.first & Mask(b)) << a);
+                for (int s = 0; (s < a) && ((s + windowLength) <= (a + b)); s++) {
+                    this.windows[Pattern(bits, s, windowLength)]++;
+                }
+                for (int i = 0; i < this.windows.length; i++) {
+                    this.windows[i] += next.windows[i];
+                }
+            }
+            ends = Ends(this.length + next.length);
+            if (this.length < ENDBITS) {
+                this.first = (this.first | (next.first << this.length)) & Mask(ends);
+            }
+            if (next.length < ENDBITS) {
+                // bit i is the bit at lastStart + i, the first bits of this region are dropped
+                drop = Ends(this.length) + (int) next.length - ends;
+                this.last = ((this.last >>> drop) | (next.last << (Ends(this.length) - drop))) & Mask(ends);
+            }
+            else {
+                this.last = next.last;
+            }
+            this.maxBeforeLast = Math.max(this.maxSum, this.sum + next.maxBeforeLast);
+            this.minBeforeLast = Math.min(this.minSum, this.sum + next.minBeforeLast);
+            this.maxSum = Math.max(this.maxSum, this.sum + next.maxSum);
+            this.minSum = Math.min(this.minSum, this.sum + next.minSum);
+            this.sum += next.sum;
+            this.blockSquares += next.blockSquares;
+            for (int i = 0; i < SUBSTRINGLENGTHS.length; i++) {
+                for (int run = 0; run <= CountingScan.MAXRUN; run++) {
+                    this.longestRuns[i][run] += next.longestRuns[i][run];
+                }
+            }
+            this.rank32 += next.rank32;
+            this.rank31 += next.rank31;
+            for (int i = 0; i < this.complexityClasses.length; i++) {
+                this.complexityClasses[i] += next.complexityClasses[i];
+            }
+            this.length += next.length;
+            return this;
+        }
+
+
+        private Region Set(Region other) {
+            Region copy;
+
+            copy = other.Copy();
+            this.length = copy.length;
+            this.ones = copy.ones;
+            this.transitions = copy.transitions;
+            this.first = copy.first;
+            this.last = copy.last;
+            this.sum = copy.sum;
+            this.maxSum = copy.maxSum;
+            this.minSum = copy.minSum;
+            this.maxBeforeLast = copy.maxBeforeLast;
+            this.minBeforeLast = copy.minBeforeLast;
+            this.blockSquares = copy.blockSquares;
+            this.longestRuns = copy.longestRuns;
+            this.rank32 = copy.rank32;
+            this.rank31 = copy.rank31;
+            this.complexityClasses = copy.complexityClasses;
+            this.windows = copy.windows;
+            return this;
+        }
+    }
+
+
+    /**
+     * BlockFrequency, LinearComplexity and pattern window lengths in bits
+     */
+    protected final int blockLength;
+    protected final int complexityLength;
+    protected final int windowLength;
+    /**
+     * Length in bits of the units statistics are kept for
+     */
+    protected final long unitLength;
+    /**
+     * Position in the sequence and length in bits of the shard
+     */
+    protected final long offset;
+    protected final long length;
+    /**
+     * Bits before the first unit boundary of the shard, all of them if there is none
+     */
+    private final byte[] prefix;
+    private final long prefixBits;
+    /**
+     * Statistics of the whole units of the shard, null if no unit boundary is inside
+     */
+    private final Region region;
+    /**
+     * Bits after the last unit boundary of the shard
+     */
+    private final byte[] suffix;
+    private final long suffixBits;
+    /**
+     * Statistics of the whole sequence with wrapping windows, made when first needed
+     */
+    private transient Region sequence;
+
+
+    private ShardState(ShardState parameters, long offset, long length, byte[] prefix, long prefixBits, Region region,
+            byte[] suffix, long suffixBits) {
+
+        this.blockLength = parameters.blockLength;
+        this.complexityLength = parameters.complexityLength;
+        this.windowLength = parameters.windowLength;
+        this.unitLength = parameters.unitLength;
+        this.offset = offset;
+        this.length = length;
+        this.prefix = prefix;
+        this.prefixBits = prefixBits;
+        this.region = region;
+        this.suffix = suffix;
+        this.suffixBits = suffixBits;
+    }
+
+
+    private ShardState(int blockLength, int complexityLength, int windowLength) throws IllegalArgumentException {
+
+        if ((blockLength <= 0) || (complexityLength < 0) || (windowLength < 0) || (windowLength > MAXWINDOW)) {
+            throw new IllegalArgumentException("Shard state parameters out of range !");
+        }
+        this.blockLength = blockLength;
+        this.complexityLength = complexityLength;
+        this.windowLength = windowLength;
+        this.unitLength = UnitLength(blockLength, complexityLength);
+        if (this.unitLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Block lengths give a too large unit length !");
+        }
+        this.offset = 0;
+        this.length = 0;
+        this.prefix = new byte[0];
+        this.prefixBits = 0;
+        this.region = null;
+        this.suffix = new byte[0];
+        this.suffixBits = 0;
+    }
+
+
+    /**
+     * Gets the unit length of the states of the indicated parameters, shards
+     * starting and ending on its multiples keep no bits
+     *
+     * @param blockLength BlockFrequency block length
+     * @param complexityLength LinearComplexity block length, 0 for none
+     * @return long: unit length in bits
+     */
+    public static long UnitLength(int blockLength, int complexityLength) {
+
+        if (complexityLength == 0) {
+            return Lcm(BASEUNIT, blockLength);
+        }
+        return Lcm(Lcm(BASEUNIT, blockLength), complexityLength);
+    }
+
+
+    /**
+     * Computes the state of a shard with the default parameters
+     *
+     * @param shard bits of the shard
+     * @param offset position in bits of the shard in the sequence
+     * @return ShardState: state of the shard
+     */
+    public static ShardState Of(BaseCryptoRandomStream shard, long offset) {
+
+        return Of(shard, offset, DEFAULTBLOCK, DEFAULTCOMPLEXITY, DEFAULTWINDOW);
+    }
+
+
+    /**
+     * Computes the state of a shard
+     *
+     * @param shard bits of the shard
+     * @param offset position in bits of the shard in the sequence
+     * @param blockLength BlockFrequency block length
+     * @param complexityLength LinearComplexity block length, 0 for none
+     * @param windowLength Serial and ApproximateEntropy pattern window length, 0
+     *            for none, Serial needs its block length and ApproximateEntropy its
+     *            block length plus one
+     * @return ShardState: state of the shard
+     * @throws IllegalArgumentException if parameters are out of range
+     */
+    public static ShardState Of(BaseCryptoRandomStream shard, long offset, int blockLength, int complexityLength,
+            int windowLength) throws IllegalArgumentException {
+        ShardState parameters;
+        long n, end, firstBoundary, lastBoundary;
+
+        parameters = new ShardState(blockLength, complexityLength, windowLength);
+        if (offset < 0) {
+            throw new IllegalArgumentException("Shard offset out of range !");
+        }
+        n = shard.GetLongBitLength();
+        end = offset + n;
+        firstBoundary = ((offset + parameters.unitLength - 1) / parameters.unitLength) * parameters.unitLength;
+        lastBoundary = (end / parameters.unitLength) * parameters.unitLength;
+        if (firstBoundary > lastBoundary) {
+            return new ShardState(parameters, offset, n, Copy(shard, 0, n), n, null, new byte[0], 0);
+        }
+        return new ShardState(parameters, offset, n, Copy(shard, 0, firstBoundary - offset), firstBoundary - offset,
+                parameters.Scan(shard, firstBoundary - offset, lastBoundary - firstBoundary),
+                Copy(shard, lastBoundary - offset, end - lastBoundary), end - lastBoundary);
+    }
+
+
+    /**
+     * Merges this state with the state of the shard following it
+     *
+     * @param next state of the shard starting where this one ends
+     * @return ShardState: state of both shards, this state and next are not modified
+     * @throws IllegalArgumentException if shards are not consecutive or parameters
+     *             differ
+     */
+    public ShardState Merge(ShardState next) throws IllegalArgumentException {
+        Region merged;
+        byte[] middle;
+        long middleBits;
+
+        if ((next.blockLength != this.blockLength) || (next.complexityLength != this.complexityLength)
+                || (next.windowLength != this.windowLength)) {
+            throw new IllegalArgumentException("Shard states of different parameters !");
+        }
+        if (next.offset != (this.offset + this.length)) {
+            throw new IllegalArgumentException("Shard states are not consecutive !");
+        }
+        if (this.region == null) {
+            return new ShardState(this, this.offset, this.length + next.length,
+                    Join(this.prefix, this.prefixBits, next.prefix, next.prefixBits), this.prefixBits + next.prefixBits,
+                    next.region, next.suffix, next.suffixBits);
+        }
+        if (next.region == null) {
+            return new ShardState(this, this.offset, this.length + next.length, this.prefix, this.prefixBits,
+                    this.region, Join(this.suffix, this.suffixBits, next.prefix, next.prefixBits),
+                    this.suffixBits + next.prefixBits);
+        }
+        // the bits between both regions are a whole unit or none
+        middleBits = this.suffixBits + next.prefixBits;
+        middle = Join(this.suffix, this.suffixBits, next.prefix, next.prefixBits);
+        merged = this.region.Copy();
+        merged.Append(this.Scan(new ByteCryptoRandomStream(middle, (int) middleBits), 0, middleBits), this.windowLength);
+        merged.Append(next.region, this.windowLength);
+        return new ShardState(this, this.offset, this.length + next.length, this.prefix, this.prefixBits, merged,
+                next.suffix, next.suffixBits);
+    }
+
+
+    /**
+     * Computes the results of a test from the state of a whole sequence
+     *
+     * @param test Frequency, BlockFrequency, Runs, CumulativeSumForward,
+     *            CumulativeSumReverse, LongestRunOfOnes, Rank, LinearComplexity,
+     *            Serial or ApproximateEntropy test object
+     * @return boolean: random value of the test
+     * @throws IllegalArgumentException if the test can not be computed from a state
+     *             or its parameters differ from the state ones
+     * @throws IllegalStateException if the state does not hold the whole sequence
+     */
+    public boolean Evaluate(BaseRandom test) throws IllegalArgumentException, IllegalStateException {
+
+        if (CountingScan.IsCountingTest(test.GetType())) {
+            return this.GetCountingScan().Evaluate(test);
+        }
+        if (test instanceof Rank) {
+            return ((Rank) test).isRandom(this);
+        }
+        if (test instanceof LinearComplexity) {
+            return ((LinearComplexity) test).isRandom(this);
+        }
+        if (test instanceof Serial) {
+            return ((Serial) test).isRandom(this);
+        }
+        if (test instanceof ApproximateEntropy) {
+            return ((ApproximateEntropy) test).isRandom(this);
+        }
+        throw new IllegalArgumentException("Test can not be computed from a shard state !");
+    }
+
+
+    /**
+     * Gets the statistics of the counting tests of a whole sequence as a scan
+     *
+     * @throws IllegalStateException if the state does not hold the whole sequence
+     */
+    public CountingScan GetCountingScan() throws IllegalStateException {
+        Region whole;
+        CountingScan scan;
+        int substring;
+
+        whole = this.GetSequence();
+        scan = new CountingScan(this.blockLength);
+        scan.bitLength = this.length;
+        scan.ones = whole.ones;
+        scan.transitions = whole.transitions;
+        scan.blockNumber = this.length / this.blockLength;
+        scan.blockSum = (double) whole.blockSquares / (4.0 * this.blockLength * this.blockLength);
+        scan.partialSum = whole.sum;
+        scan.forwardExcursion = Math.max(whole.maxSum, -whole.minSum);
+        scan.reverseExcursion = Math.max(whole.sum - whole.minBeforeLast, whole.maxBeforeLast - whole.sum);
+        scan.substringLength = LongestRunOfOnes.SubstringLength((int) Math.min(this.length, Integer.MAX_VALUE));
+        scan.substringNumber = (int) (this.length / scan.substringLength);
+        substring = 0;
+        while (SUBSTRINGLENGTHS[substring] != scan.substringLength) {
+            substring++;
+        }
+        scan.longestRuns = whole.longestRuns[substring].clone();
+        return scan;
+    }
+
+
+    /**
+     * Gets the number of Rank matrices of a whole sequence with the indicated rank
+     *
+     * @param rank 32 or 31
+     * @throws IllegalArgumentException if rank is not 32 or 31
+     * @throws IllegalStateException if the state does not hold the whole sequence
+     */
+    public long GetRankFrequency(int rank) throws IllegalArgumentException, IllegalStateException {
+
+        switch (rank) {
+        case 32:
+            return this.GetSequence().rank32;
+        case 31:
+            return this.GetSequence().rank31;
+        default:
+            throw new IllegalArgumentException("Rank frequency not kept !");
+        }
+    }
+
+
+    /**
+     * Gets the number of LinearComplexity blocks of a whole sequence by class
+     *
+     * @return long[]: new array of the 7 classes
+     * @throws IllegalStateException if the state does not hold the whole sequence
+     */
+    public long[] GetComplexityClasses() throws IllegalStateException {
+
+        return this.GetSequence().complexityClasses.clone();
+    }
+
+
+    /**
+     * Gets the cyclic counts of every width bit pattern of a whole sequence, windows
+     * start at every bit and wrap around its end as Serial and ApproximateEntropy
+     * count them
+     *
+     * @param width pattern length in bits, from 1 to windowLength
+     * @return long[]: new array of 2^width counts by pattern, first bit as most
+     *         significant bit
+     * @throws IllegalArgumentException if width is out of range
+     * @throws IllegalStateException if the state does not hold the whole sequence
+     */
+    public long[] GetPatternCounts(int width) throws IllegalArgumentException, IllegalStateException {
+        long[] windows, counts;
+
+        if ((width < 1) || (width > this.windowLength)) {
+            throw new IllegalArgumentException("Pattern width out of range !");
+        }
+        windows = this.GetSequence().windows;
+        counts = new long[1 << width];
+        for (int i = 0; i < windows.length; i++) {
+            counts[i >>> (this.windowLength - width)] += windows[i];
+        }
+        return counts;
+    }
+
+
+    /**
+     * Gets the position in bits of the shard in the sequence
+     */
+    public long GetOffset() {
+
+        return this.offset;
+    }
+
+
+    /**
+     * Gets the length in bits of the shard
+     */
+    public long GetLength() {
+
+        return this.length;
+    }
+
+
+    /**
+     * Indicates if the state starts the sequence, its results are then the results
+     * of the sequence made of the merged shards
+     */
+    public boolean IsSequence() {
+
+        return this.offset == 0;
+    }
+
+
+    /**
+     * Gets the BlockFrequency block length in bits
+     */
+    public int GetBlockLength() {
+
+        return this.blockLength;
+    }
+
+
+    /**
+     * Gets the LinearComplexity block length in bits, 0 if blocks are not counted
+     */
+    public int GetComplexityLength() {
+
+        return this.complexityLength;
+    }
+
+
+    /**
+     * Gets the pattern window length in bits, 0 if patterns are not counted
+     */
+    public int GetWindowLength() {
+
+        return this.windowLength;
+    }
+
+
+    /**
+     * Gets the longest pattern length counted, the pattern window length
+     */
+    public int GetPatternLength() {
+
+        return this.windowLength;
+    }
+
+
+    /**
+     * Gets the length in bits of the units statistics are kept for, shards starting
+     * and ending on unit boundaries keep no bits
+     */
+    public long GetUnitLength() {
+
+        return this.unitLength;
+    }
+
+
+    /**
+     * Gets the statistics of the whole sequence, adding the bits after the last unit
+     * and the windows wrapping around the end
+     */
+    private Region GetSequence() throws IllegalStateException {
+        Region whole;
+        long n, lastStart, position;
+        long bits;
+        int ends;
+
+        if (this.offset != 0) {
+            throw new IllegalStateException("Shard state does not start the sequence !");
+        }
+        if (this.sequence == null) {
+            whole = (this.region == null) ? new Region(this.windowLength) : this.region.Copy();
+            whole.Append(this.Scan(new ByteCryptoRandomStream(this.suffix, (int) this.suffixBits), 0, this.suffixBits),
+                    this.windowLength);
+            n = whole.length;
+            if ((whole.windows != null) && (n > 0)) {
+                ends = Ends(n);
+                lastStart = n - ends;
+                for (long i = Math.max(0, n - this.windowLength + 1); i < n; i++) {
+                    bits = 0;
+                    for (int j = 0; j < this.windowLength; j++) {
+                        position = (i + j) % n;
+                        if (position >= lastStart) {
+                            bits = (bits << 1) | ((whole.last >>> (position - lastStart)) & 1);
+                        }
+                        else {
+                            bits = (bits << 1) | ((whole.first >>> position) & 1);
+                        }
+                    }
+                    whole.windows[(int) bits]++;
+                }
+            }
+            this.sequence = whole;
+        }
+        return this.sequence;
+    }
+
+
+    /**
+     * Computes the statistics of a bit range of a stream, unit by unit
+     */
+    private Region Scan(BaseCryptoRandomStream stream, long from, long bits) {
+        Region scanned;
+        long unit;
+
+        scanned = new Region(this.windowLength);
+        for (long position = 0; position < bits; position += unit) {
+            unit = Math.min(this.unitLength, bits - position);
+            scanned.Append(this.ScanUnit(stream.View(from + position, unit)), this.windowLength);
+        }
+        return scanned;
+    }
+
+
+    /**
+     * Computes the statistics of at most one unit of bits
+     */
+    private Region ScanUnit(BaseCryptoRandomStream stream) {
+        Region unit;
+        BitWordCursor cursor;
+        Rank rank;
+        byte[][] matrix;
+        double[] classes;
+        long n, position, word, window, windowMask, lastByte, sum, ones, bitPosition;
+        long[] runLimit, run, longest;
+        int bits, byteValue, previous, length, matrixRank;
+
+        unit = new Region(this.windowLength);
+        n = stream.GetLongBitLength();
+        unit.length = n;
+        if (n == 0) {
+            return unit;
+        }
+        // ones, transitions, partial sums, longest runs and windows in one pass
+        runLimit = new long[SUBSTRINGLENGTHS.length];
+        run = new long[SUBSTRINGLENGTHS.length];
+        longest = new long[SUBSTRINGLENGTHS.length];
+        for (int i = 0; i < SUBSTRINGLENGTHS.length; i++) {
+            runLimit[i] = (n / SUBSTRINGLENGTHS[i]) * SUBSTRINGLENGTHS[i];
+        }
+        lastByte = ((n - 1) / TypeSizes.BYTE_BITS) * TypeSizes.BYTE_BITS;
+        windowMask = (1L << this.windowLength) - 1;
+        window = 0;
+        sum = 0;
+        previous = -1;
+        position = 0;
+        cursor = stream.GetWordCursor(0, n);
+        while (cursor.HasNext()) {
+            bits = (int) Math.min(TypeSizes.LONG_BITS, n - position);
+            word = cursor.NextWord();
+            unit.ones += Long.bitCount(word);
+            unit.transitions += Long.bitCount((word ^ (word >>> 1)) & Mask(bits - 1));
+            if ((previous >= 0) && (previous != (word & 1))) {
+                unit.transitions++;
+            }
+            previous = (int) (word >>> (bits - 1)) & 1;
+            for (int bytePosition = 0; bytePosition < bits; bytePosition += TypeSizes.BYTE_BITS) {
+                byteValue = (int) (word >>> bytePosition) & 0xff;
+                bitPosition = position + bytePosition;
+                if (bitPosition < lastByte) {
+                    unit.maxSum = Math.max(unit.maxSum, sum + CountingScan.MAXPARTIALSUM[byteValue]);
+                    unit.minSum = Math.min(unit.minSum, sum + CountingScan.MINPARTIALSUM[byteValue]);
+                    sum += 2 * Integer.bitCount(byteValue) - TypeSizes.BYTE_BITS;
+                }
+                else {
+                    for (int i = 0; (i < TypeSizes.BYTE_BITS) && ((bitPosition + i) < n); i++) {
+                        if ((bitPosition + i) == (n - 1)) {
+                            unit.maxBeforeLast = unit.maxSum;
+                            unit.minBeforeLast = unit.minSum;
+                        }
+                        sum += 2 * ((byteValue >>> i) & 1) - 1;
+                        unit.maxSum = Math.max(unit.maxSum, sum);
+                        unit.minSum = Math.min(unit.minSum, sum);
+                    }
+                }
+                for (int i = 0; i < SUBSTRINGLENGTHS.length; i++) {
+                    if (bitPosition < runLimit[i]) {
+                        if (byteValue == 0xff) {
+                            run[i] += TypeSizes.BYTE_BITS;
+                        }
+                        else {
+                            longest[i] = Math.max(longest[i], Math.max(run[i] + CountingScan.PREFIXONES[byteValue],
+                                    CountingScan.LONGESTRUN[byteValue]));
+                            run[i] = CountingScan.SUFFIXONES[byteValue];
+                        }
+                        if (((bitPosition + TypeSizes.BYTE_BITS) % SUBSTRINGLENGTHS[i]) == 0) {
+                            longest[i] = Math.max(longest[i], run[i]);
+                            unit.longestRuns[i][(int) Math.min(longest[i], CountingScan.MAXRUN)]++;
+                            longest[i] = 0;
+                            run[i] = 0;
+                        }
+                    }
+                }
+            }
+            if (unit.windows != null) {
+                for (int i = 0; i < bits; i++) {
+                    window = ((window << 1) | ((word >>> i) & 1)) & windowMask;
+                    if ((position + i) >= (this.windowLength - 1)) {
+                        unit.windows[(int) window]++;
+                    }
+                }
+            }
+            position += bits;
+        }
+        unit.sum = sum;
+        unit.first = stream.ExtractBits(0, Ends(n));
+        unit.last = stream.ExtractBits(n - Ends(n), Ends(n));
+        // BlockFrequency blocks
+        for (long block = 0; block < (n / this.blockLength); block++) {
+            ones = 0;
+            for (int j = 0; j < this.blockLength; j += length) {
+                length = Math.min(TypeSizes.LONG_BITS, this.blockLength - j);
+                ones += Long.bitCount(stream.ExtractBits(block * this.blockLength + j, length));
+            }
+            unit.blockSquares += (2 * ones - this.blockLength) * (2 * ones - this.blockLength);
+        }
+        // Rank matrices
+        if ((n / MATRIXBITS) > 0) {
+            rank = new Rank();
+            matrix = rank.CreateMatrix(32, 32);
+            for (int k = 0; k < (n / MATRIXBITS); k++) {
+                rank.DefineMatrix(stream, 32, 32, matrix, k);
+                matrixRank = rank.ComputeRank(32, 32, matrix);
+                if (matrixRank == 32) {
+                    unit.rank32++;
+                }
+                if (matrixRank == 31) {
+                    unit.rank31++;
+                }
+            }
+        }
+        // LinearComplexity blocks
+        if ((this.complexityLength > 0) && ((n / this.complexityLength) > 0)) {
+            classes = new double[unit.complexityClasses.length];
+            new LinearComplexity(this.complexityLength).CountBlocks(stream, classes);
+            for (int i = 0; i < classes.length; i++) {
+                unit.complexityClasses[i] = (long) classes[i];
+            }
+        }
+        return unit;
+    }
+
+
+    /**
+     * Gets the number of bits kept at each end of a region
+     */
+    private static int Ends(long length) {
+
+        return (int) Math.min(length, ENDBITS);
+    }
+
+
+    /**
+     * Gets the mask of the lowest bits of a word
+     */
+    private static long Mask(int bits) {
+
+        return (bits == TypeSizes.LONG_BITS) ? -1L : (1L << bits) - 1;
+    }
+
+
+    /**
+     * Gets the pattern of width bits starting at bit s, first bit as most
+     * significant bit
+     */
+    private static int Pattern(long bits, int s, int width) {
+        int pattern;
+
+        pattern = 0;
+        for (int j = 0; j < width; j++) {
+            pattern = (pattern << 1) | (int) ((bits >>> (s + j)) & 1);
+        }
+        return pattern;
+    }
+
+
+    private static long Lcm(long a, long b) {
+        long x, y, t;
+
+        x = a;
+        y = b;
+        while (y != 0) {
+            t = x % y;
+            x = y;
+            y = t;
+        }
+        return (a / x) * b;
+    }
+
+
+    /**
+     * Copies a bit range of a stream, bit i of the range is bit i % 8 of byte i / 8
+     */
+    private static byte[] Copy(BaseCryptoRandomStream stream, long from, long bits) {
+        byte[] data;
+
+        data = new byte[(int) ((bits + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS)];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) stream.ExtractBits(from + (long) i * TypeSizes.BYTE_BITS,
+                    (int) Math.min(TypeSizes.BYTE_BITS, bits - (long) i * TypeSizes.BYTE_BITS));
+        }
+        return data;
+    }
+
+
+    /**
+     * Joins two bit ranges held as Copy does
+     */
+    private static byte[] Join(byte[] a, long aBits, byte[] b, long bBits) {
+        byte[] data;
+        long position;
+
+        data = new byte[(int) ((aBits + bBits + TypeSizes.BYTE_BITS - 1) / TypeSizes.BYTE_BITS)];
+        System.arraycopy(a, 0, data, 0, a.length);
+        for (long i = 0; i < bBits; i++) {
+            if (((b[(int) (i / TypeSizes.BYTE_BITS)] >>> (i % TypeSizes.BYTE_BITS)) & 1) == 1) {
+                position = aBits + i;
+                data[(int) (position / TypeSizes.BYTE_BITS)] |= (byte) (1 << (position % TypeSizes.BYTE_BITS));
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,237 @@
+package org.jiumao.nist.random;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.TypeSizes;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
+
+
+/**
+ * Online monitor of a test over a sliding window of the last windowLength bits of
+ * an endless source.
+ * <p>
+ * Testing the window with isRandom after every chunk reads the whole window again,
+ * monitors instead update the statistic of their test as every bit enters the
+ * window and the oldest one leaves it, in constant time per bit, and compute the
+ * results of the test from the statistic only when asked. Results are the ones of
+ * testing the bits of the window as a stream.
+ * <p>
+ * The window bits are kept in a ring of windowLength + 1 bits at least. Monitors
+ * are not thread safe, a single thread adds bits and reads results.
+ *
+ * @param <T> test monitored
+ * @author ppf@jiumao.org
+ */
+public abstract class SlidingMonitor<T extends BaseRandom> {
+
+    /**
+     * Test whose results are computed over the window
+     */
+    protected final T test;
+    /**
+     * Length in bits of the window
+     */
+    protected final int windowLength;
+    /**
+     * Absolute positions of the first window bit and of the bit following the last
+     * one, counted from the first bit added
+     */
+    protected long start;
+    protected long end;
+    /**
+     * Ring of the latest bits, bit at position i is at ring bit i % capacity
+     */
+    private final long[] ring;
+    private final long capacity;
+
+
+    /**
+     * Constructor
+     *
+     * @param test test monitored
+     * @param windowLength window length in bits
+     * @throws IllegalArgumentException if windowLength is not positive
+     */
+    protected SlidingMonitor(T test, int windowLength) throws IllegalArgumentException {
+
+        if (windowLength <= 0) {
+            throw new IllegalArgumentException("Window length must be positive !");
+        }
+        this.test = test;
+        this.windowLength = windowLength;
+        this.ring = new long[windowLength / TypeSizes.LONG_BITS + 1];
+        this.capacity = (long) this.ring.length * TypeSizes.LONG_BITS;
+        this.start = 0;
+        this.end = 0;
+    }
+
+
+    /**
+     * Updates the statistic with the bit entering the window, the window still holds
+     * its first bit
+     *
+     * @param position absolute position of the bit, end - 1
+     * @param bit value of the bit
+     */
+    protected abstract void Enter(long position, int bit);
+
+
+    /**
+     * Updates the statistic with the first bit leaving the window, the window holds
+     * windowLength + 1 bits
+     *
+     * @param position absolute position of the bit, start
+     * @param bit value of the bit
+     */
+    protected abstract void Leave(long position, int bit);
+
+
+    /**
+     * Computes the results of the test over the window
+     *
+     * @return boolean: random value of the window, results are held by GetTest
+     */
+    public abstract boolean IsRandom();
+
+
+    /**
+     * Adds a bit to the window, the oldest one leaves it if the window is full
+     *
+     * @param bit 0 or 1
+     */
+    public void Add(int bit) {
+        int slot;
+
+        slot = (int) (this.end % this.capacity);
+        if (bit == 0) {
+            this.ring[slot / TypeSizes.LONG_BITS] &= ~(1L << (slot % TypeSizes.LONG_BITS));
+        }
+        else {
+            this.ring[slot / TypeSizes.LONG_BITS] |= 1L << (slot % TypeSizes.LONG_BITS);
+        }
+        this.end++;
+        this.Enter(this.end - 1, bit & 1);
+        if ((this.end - this.start) > this.windowLength) {
+            this.Leave(this.start, this.GetBit(this.start));
+            this.start++;
+        }
+    }
+
+
+    /**
+     * Adds the lowest bits of a word, from bit 0 upwards
+     *
+     * @param word bits to add
+     * @param bits number of bits to add, up to 64
+     */
+    public void Add(long word, int bits) {
+
+        for (int i = 0; i < bits; i++) {
+            this.Add((int) (word >>> i) & 1);
+        }
+    }
+
+
+    /**
+     * Adds every bit of a stream, in stream order
+     */
+    public void Add(BaseCryptoRandomStream stream) {
+        BitWordCursor cursor;
+        long n, position;
+
+        n = stream.GetLongBitLength();
+        position = 0;
+        cursor = stream.GetWordCursor(0, n);
+        while (cursor.HasNext()) {
+            this.Add(cursor.NextWord(), (int) Math.min(TypeSizes.LONG_BITS, n - position));
+            position += TypeSizes.LONG_BITS;
+        }
+    }
+
+
+    /**
+     * Computes the results of the test over the window and gets its pValue
+     */
+    public double GetPValue() {
+
+        this.IsRandom();
+        return this.test.GetPValue();
+    }
+
+
+    /**
+     * Gets the test monitored, holding the results of the last IsRandom
+     */
+    public T GetTest() {
+
+        return this.test;
+    }
+
+
+    /**
+     * Gets the window length in bits
+     */
+    public int GetWindowLength() {
+
+        return this.windowLength;
+    }
+
+
+    /**
+     * Gets the number of bits in the window, less than windowLength until it fills
+     */
+    public long GetLength() {
+
+        return this.end - this.start;
+    }
+
+
+    /**
+     * Indicates if the window holds windowLength bits
+     */
+    public boolean IsFull() {
+
+        return (this.end - this.start) == this.windowLength;
+    }
+
+
+    /**
+     * Gets the number of bits added since the monitor was created
+     */
+    public long GetBitsAdded() {
+
+        return this.end;
+    }
+
+
+    /**
+     * Gets the bit at an absolute position, from end - windowLength - 1 to end - 1
+     */
+    protected int GetBit(long position) {
+        int slot;
+
+        slot = (int) (position % this.capacity);
+        return (int) (this.ring[slot / TypeSizes.LONG_BITS] >>> (slot % TypeSizes.LONG_BITS)) & 1;
+    }
+
+
+    /**
+     * Gets a scan holding the window length, for tests computed from a CountingScan
+     */
+    protected CountingScan NewScan() {
+
+        return this.NewScan(128);
+    }
+
+
+    /**
+     * Gets a scan holding the window length and a BlockFrequency block length
+     */
+    protected CountingScan NewScan(int blockLength) {
+        CountingScan scan;
+
+        scan = new CountingScan(blockLength);
+        scan.bitLength = this.end - this.start;
+        return scan;
+    }
+}
@@ -44,6 +44,8 @@ import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
  */
 public class Universal extends BaseRandom {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Random Test Class enumerator name
      */
@@ -76,7 +78,7 @@ public class Universal extends BaseRandom {
     /**
      * K value based on L, Q values and bit stream length in bits
      */
-    protected int K;
+    protected long K;
     /**
      * "sigma" result
      */
@@ -145,24 +147,6 @@ public class Universal extends BaseRandom {
     }
 
 
-    /**
-     * Destructor, zeroes all data
-     * 
-     */
-    public void finalize() {
-
-        this.L = 0;
-        this.Q = 0;
-        this.K = 0;
-        this.sigma = 0.0;
-        this.phi = 0.0;
-        this.sum = 0.0;
-        this.expectedValueResult = 0.0;
-        this.varianceResult = 0.0;
-        this.bitsDiscarded = 0;
-    }
-
-
     /**
      * Gets the BaseRandomTest random state of the last executed
      * BaseCryptoRandomStream
@@ -177,6 +161,55 @@ public class Universal extends BaseRandom {
     }
 
 
+    /**
+     * Gets the L bit block at specified block position as an integer, first bit
+     * of the block is the most significant one
+     * 
+     * @param bitStream bitStream holding the blocks
+     * @param block block position, position based in array of L bit blocks
+     * @return int value of the block, from 0 to 2^L - 1
+     */
+    private int GetBlock(BaseCryptoRandomStream bitStream, long block) {
+
+        return Integer.reverse((int) bitStream.ExtractBits(block * this.L, this.L)) >>> (32 - this.L);
+    }
+
+
+    /**
+     * Gets the block length L used for a stream of n bits, from the NIST reference
+     * suite table
+     *
+     * @param n length in bits of the stream
+     * @return int: L, 0 if the stream is too short for every L of the table
+     */
+    public static int RecommendedL(long n) {
+
+        if (n >= 1059061760)
+            return 16;
+        if (n >= 496435200)
+            return 15;
+        if (n >= 231669760)
+            return 14;
+        if (n >= 107560960)
+            return 13;
+        if (n >= 49643520)
+            return 12;
+        if (n >= 22753280)
+            return 11;
+        if (n >= 10342400)
+            return 10;
+        if (n >= 4654080)
+            return 9;
+        if (n >= 2068480)
+            return 8;
+        if (n >= 904960)
+            return 7;
+        if (n >= 387840)
+            return 6;
+        return 0;
+    }
+
+
     /**
      * Tests the BaseCryptoRandomStream executed and returns the random value
      * 
@@ -186,11 +219,12 @@ public class Universal extends BaseRandom {
      *         stream was not randomized
      */
     public boolean isRandom(BaseCryptoRandomStream bitStream) {
-        int i, j, p;
+        long i, n, T[];
+        int j, p, decRep;
         double arg, sqrt2, c;
-        int T[], decRep;
 
-        if (bitStream.GetBitLength() < this.GetMinimumLength()) {
+        n = bitStream.GetLongBitLength();
+        if (n < this.GetMinimumLength()) {
             this.error = RandomTestErrors.InsufficientNumberOfBits;
             this.random = false;
             this.pValue = 0.0;
@@ -198,31 +232,10 @@ public class Universal extends BaseRandom {
         }
         this.error = RandomTestErrors.NoError;
         bitStream.SetBitPosition(0);
-        if (bitStream.GetBitLength() >= 1059061760)
-            this.L = 16;
-        else if (bitStream.GetBitLength() >= 496435200)
-            this.L = 15;
-        else if (bitStream.GetBitLength() >= 231669760)
-            this.L = 14;
-        else if (bitStream.GetBitLength() >= 107560960)
-            this.L = 13;
-        else if (bitStream.GetBitLength() >= 49643520)
-            this.L = 12;
-        else if (bitStream.GetBitLength() >= 22753280)
-            this.L = 11;
-        else if (bitStream.GetBitLength() >= 10342400)
-            this.L = 10;
-        else if (bitStream.GetBitLength() >= 4654080)
-            this.L = 9;
-        else if (bitStream.GetBitLength() >= 2068480)
-            this.L = 8;
-        else if (bitStream.GetBitLength() >= 904960)
-            this.L = 7;
-        else if (bitStream.GetBitLength() >= 387840)
-            this.L = 6;
+        this.L = RecommendedL(n);
 
         this.Q = 10 * (int) Math.pow(2, this.L);
-        this.K = (int) ((double) Math.floor((bitStream.GetBitLength() / this.L)) - (double) this.Q);
+        this.K = n / this.L - this.Q;
         if ((double) this.Q < 10 * Math.pow(2, this.L)) {
             this.random = false;
             this.error = RandomTestErrors.LOrQOutOfRange;
@@ -230,34 +243,27 @@ public class Universal extends BaseRandom {
         else {
             this.varianceResult = this.VARIANCE[this.L];
             this.expectedValueResult = this.EXPECTEDVALUE[this.L];
-            this.bitsDiscarded = bitStream.GetBitLength() - (this.Q + this.K) * this.L;
+            this.bitsDiscarded = (int) (n - (this.Q + this.K) * this.L);
             c = 0.7 - 0.8 / (double) this.L
                     + (4 + 32 / (double) this.L) * Math.pow(this.K, -3 / (double) this.L) / 15;
             this.sigma = c * Math.sqrt(this.varianceResult / (double) this.K);
             sqrt2 = Math.sqrt(2);
             this.sum = 0.0;
             p = (int) Math.pow(2, this.L);
-            T = new int[p];
+            T = new long[p];
             if (T == null) {
                 this.error = RandomTestErrors.InsufficientMemory;
                 this.random = false;
                 return this.random;
             }
-            for (i = 0; i < p; i++)
-                T[i] = 0;
+            for (j = 0; j < p; j++)
+                T[j] = 0;
             for (i = 1; i <= this.Q; i++) {
-                decRep = 0;
-                for (j = 0; j < this.L; j++)
-                    decRep += bitStream.GetBitPosition((i - 1) * this.L + j)
-                            * (long) Math.pow(2, this.L - 1 - j);
+                decRep = this.GetBlock(bitStream, i - 1);
                 T[decRep] = i;
             }
             for (i = this.Q + 1; i <= this.Q + this.K; i++) {
-                decRep = 0;
-                for (j = 0; j < this.L; j++) {
-                    decRep += bitStream.GetBitPosition((i - 1) * this.L + j)
-                            * (long) Math.pow(2, this.L - 1 - j);
-                }
+                decRep = this.GetBlock(bitStream, i - 1);
                 this.sum += Math.log(i - T[decRep]) / Math.log(2);
                 T[decRep] = i;
             }
@@ -347,8 +353,24 @@ public class Universal extends BaseRandom {
      * Gets the "K" result
      * 
      * @return int: returns K value based on L, Q values and stream in bits
+     * @throws IllegalStateException if K does not fit in an int, use GetLongK for
+     *             streams beyond 2^31 blocks
+     */
+    public int GetK() throws IllegalStateException {
+
+        if (this.K > Integer.MAX_VALUE) {
+            throw new IllegalStateException("K exceeded int range !");
+        }
+        return (int) this.K;
+    }
+
+
+    /**
+     * Gets the "K" result of streams of any length
+     * 
+     * @return long: returns K value based on L, Q values and stream in bits
      */
-    public int GetK() {
+    public long GetLongK() {
 
         return this.K;
     }
@@ -0,0 +1,220 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Battery.Battery;
+import org.jiumao.nist.Battery.BatteryResults;
+import org.jiumao.nist.Battery.CostModel;
+import org.jiumao.nist.Battery.SequenceResults;
+import org.jiumao.nist.Battery.SkipReason;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.BlockFrequency;
+
+
+public class BatteryTest {
+
+    private static final long SEED = 20180322L;
+
+
+    @org.junit.Test
+    public void concurrentRunMatchesSequentialRun() {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(SEED, 20000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Battery battery = new Battery(pool).AddAll();
+            BatteryResults results = battery.Run(stream);
+            assertEquals(battery.GetTests(), results.GetTests());
+            assertTrue(results.GetFailedTests().isEmpty());
+            for (RandomTests test : battery.GetTests()) {
+                BaseRandom sequential = Battery.NewTest(test);
+                sequential.isRandom(stream);
+                assertEquals(test, results.Get(test).GetType());
+                assertEquals(test.toString(), sequential.GetPValue(), results.GetPValue(test), 0.0);
+                assertEquals(test.toString(), sequential.IsRandom(), results.IsRandom(test));
+            }
+            assertEquals(0, stream.GetBitPosition());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @org.junit.Test
+    public void parametersAndFailuresAreKeptPerTest() {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(SEED, 2000);
+        BatteryResults results = new Battery()
+                .Add(RandomTests.Frequency)
+                .Add(RandomTests.BlockFrequency, 0.05, 1000)
+                .Add(RandomTests.Rank, () -> {
+                    throw new IllegalStateException("broken");
+                })
+                .Run(stream);
+        assertEquals(1000, results.Get(RandomTests.BlockFrequency).GetBlockLength());
+        assertEquals(0.05, results.Get(RandomTests.BlockFrequency).getAlpha(), 0.0);
+        BlockFrequency blockFrequency = new BlockFrequency();
+        blockFrequency.SetBlockLength(1000);
+        blockFrequency.isRandom(stream);
+        assertEquals(blockFrequency.GetPValue(), results.GetPValue(RandomTests.BlockFrequency), 0.0);
+        assertEquals("broken", results.GetFailure(RandomTests.Rank).getMessage());
+        assertNull(results.Get(RandomTests.Rank));
+        assertFalse(results.IsRandom());
+    }
+
+
+    @org.junit.Test
+    public void fusedScanMatchesSeparateRuns() {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(SEED, 20000);
+        BatteryResults separate = new Battery().AddAll().Add(RandomTests.BlockFrequency, 0.0, 1000).Run(stream);
+        Battery battery = new Battery().AddAll().Add(RandomTests.BlockFrequency, 0.0, 1000).SetFusedScan(true);
+        BatteryResults fused = battery.Run(stream);
+        assertTrue(battery.IsFusedScan());
+        assertEquals(separate.GetTests(), fused.GetTests());
+        for (RandomTests test : separate.GetTests()) {
+            assertEquals(test.toString(), separate.GetPValue(test), fused.GetPValue(test), 0.0);
+            assertEquals(test.toString(), separate.IsRandom(test), fused.IsRandom(test));
+        }
+        assertEquals(1000, fused.Get(RandomTests.BlockFrequency).GetBlockLength());
+    }
+
+
+    @org.junit.Test
+    public void sequencesMatchSeparateRuns() throws Exception {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(SEED, 25003);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Battery battery = new Battery(pool).Add(RandomTests.Frequency).Add(RandomTests.Runs)
+                    .Add(RandomTests.Rank).Add(RandomTests.BlockFrequency, 0.01, 100);
+            SequenceResults results = battery.RunSequences(stream, 10000, 20);
+            assertEquals(20, results.GetSequenceNumber());
+            assertEquals(battery.GetTests(), results.GetTests());
+            for (RandomTests test : results.GetTests()) {
+                int passed = 0;
+                for (int i = 0; i < 20; i++) {
+                    BaseRandom sequential = Battery.NewTest(test);
+                    sequential.setAlpha(test == RandomTests.BlockFrequency ? 0.01 : 0.0);
+                    sequential.SetBlockLength(test == RandomTests.BlockFrequency ? 100 : sequential.GetBlockLength());
+                    BaseCryptoRandomStream sequence = stream.View(i * 10000L, 10000);
+                    boolean random = sequential.isRandom(sequence);
+                    passed += random ? 1 : 0;
+                    assertEquals(test.toString(), sequential.GetPValue(), results.GetResult(test, i).GetPValue(), 0.0);
+                    assertEquals(test.toString(), random, results.GetResult(test, i).IsRandom());
+                }
+                assertEquals(20, results.GetFinished(test));
+                assertEquals(passed, results.GetPassed(test));
+                assertEquals(passed / 20.0, results.GetProportion(test), 0.0);
+            }
+
+            File file = File.createTempFile("sequences", ".bin");
+            file.deleteOnExit();
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                for (int i = 0; i < stream.GetUCLength(); i++) {
+                    out.write(stream.GetUCPosition(i));
+                }
+            }
+            finally {
+                out.close();
+            }
+            SequenceResults mapped = battery.RunSequences(file, 10000, 20);
+            for (RandomTests test : results.GetTests()) {
+                assertArrayEquals(results.GetPValues(test), mapped.GetPValues(test), 0.0);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @org.junit.Test
+    public void sequenceFailuresAreKeptPerSequence() {
+        final ByteCryptoRandomStream stream = RandomStreams.ofBytes(SEED, 1000);
+        SequenceResults results = new Battery().Add(RandomTests.Frequency, () -> new org.jiumao.nist.random.Frequency() {
+            public boolean isRandom(BaseCryptoRandomStream sequence) {
+                if (sequence.GetBitPosition(0) == 1) {
+                    throw new IllegalStateException("broken");
+                }
+                return super.isRandom(sequence);
+            }
+        }).RunSequences(stream, 800, 10);
+        int failed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (stream.GetBitPosition(i * 800L) == 1) {
+                assertNull(results.GetResult(RandomTests.Frequency, i));
+                assertEquals("broken", results.GetFailure(RandomTests.Frequency, i).getMessage());
+                failed++;
+            }
+            else {
+                assertNull(results.GetFailure(RandomTests.Frequency, i));
+            }
+        }
+        assertEquals(10 - failed, results.GetFinished(RandomTests.Frequency));
+    }
+
+
+    @org.junit.Test
+    public void failFastSkipsTestsAfterTheFirstFailure() {
+        byte[] data = RandomStreams.bytes(18, 20000);
+        for (int i = 0; i < data.length; i++) {
+            data[i] |= 0x11;
+        }
+        Battery battery = new Battery().Add(RandomTests.LinearComplexity).Add(RandomTests.Rank)
+                .Add(RandomTests.Frequency).Add(RandomTests.Runs);
+        BatteryResults results = battery.RunFailFast(new ByteCryptoRandomStream(data, data.length * 8));
+        assertEquals(1, results.GetTests().size());
+        assertTrue(results.GetPValue(RandomTests.Frequency) < BaseRandom.ALPHA);
+        assertFalse(results.IsComplete());
+        for (RandomTests test : new RandomTests[] { RandomTests.Runs, RandomTests.Rank, RandomTests.LinearComplexity }) {
+            assertEquals(SkipReason.EarlierFailure, results.GetSkipReason(test));
+        }
+
+        BatteryResults all = battery.RunScheduled(new ByteCryptoRandomStream(data, data.length * 8),
+                Long.MAX_VALUE, false);
+        assertEquals(4, all.GetTests().size());
+        assertTrue(all.IsComplete());
+    }
+
+
+    @org.junit.Test
+    public void budgetSkipsTestsEstimatedTooLong() {
+        CostModel model = new CostModel();
+        long n = 1000000;
+        assertTrue(model.Estimate(Battery.NewTest(RandomTests.Frequency), n) < model
+                .Estimate(Battery.NewTest(RandomTests.Rank), n));
+        assertTrue(model.Estimate(Battery.NewTest(RandomTests.Rank), n) < model
+                .Estimate(Battery.NewTest(RandomTests.LinearComplexity), n));
+        BaseRandom shortBlocks = Battery.NewTest(RandomTests.LinearComplexity);
+        shortBlocks.SetBlockLength(50);
+        assertTrue(model.Estimate(shortBlocks, n) < model.Estimate(Battery.NewTest(RandomTests.LinearComplexity), n));
+
+        Battery battery = new Battery().SetCostModel(model).Add(RandomTests.LinearComplexity)
+                .Add(RandomTests.Frequency).Add(RandomTests.Runs);
+        long budget = model.Estimate(Battery.NewTest(RandomTests.LinearComplexity), n) / 4;
+        BatteryResults results = battery.RunScheduled(RandomStreams.ofBytes(SEED, (int) (n / 8)), budget, false);
+        assertTrue(results.GetTests().contains(RandomTests.Frequency));
+        assertTrue(results.GetTests().contains(RandomTests.Runs));
+        assertEquals(SkipReason.OverBudget, results.GetSkipReason(RandomTests.LinearComplexity));
+        assertNull(results.GetSkipReason(RandomTests.Frequency));
+        assertEquals(1, results.GetSkippedTests().size());
+    }
+
+
+    @org.junit.Test(expected = IndexOutOfBoundsException.class)
+    public void sequencesMustFitInTheStream() {
+        new Battery().Add(RandomTests.Frequency).RunSequences(RandomStreams.ofBytes(SEED, 1000), 1000, 9);
+    }
+
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void onlyDefinedTestsCanBeAdded() {
+        new Battery().Add(RandomTests.NotDefined);
+    }
+}
@@ -0,0 +1,99 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.math.random.JDKRandomGenerator;
+import org.apache.commons.math.random.MersenneTwister;
+import org.apache.commons.math.random.RandomGenerator;
+import org.jiumao.nist.Base.BufferedBits;
+import org.jiumao.nist.Base.NIST;
+import org.jiumao.nist.Base.StreamRandomGenerator;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.LongArrayCryptoRandomStream;
+import org.jiumao.nist.random.LempelZivCompression;
+
+
+public class BufferedBitsTest {
+
+    private static final class CountingGenerator extends JDKRandomGenerator {
+        private static final long serialVersionUID = 1L;
+        int calls;
+
+        @Override
+        public long nextLong() {
+            calls++;
+            return super.nextLong();
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            calls++;
+            return super.nextBoolean();
+        }
+    }
+
+
+    @org.junit.Test
+    public void generatorAndStreamServeTheSameBits() {
+        LongArrayCryptoRandomStream stream = BufferedBits.toStream(new MersenneTwister(42L), 1000);
+        BufferedBits bits = new BufferedBits(new MersenneTwister(42L));
+        for (int i = 0; i < 1000; i += 7) {
+            int k = Math.min(7, 1000 - i);
+            assertEquals(stream.ExtractBits(i, k), bits.nextBits(k));
+        }
+
+        StreamRandomGenerator generator = new StreamRandomGenerator(stream);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(stream.GetBitPosition(i) == 1, generator.nextBoolean());
+        }
+        BufferedBits streamBits = new BufferedBits(generator);
+        for (int i = 100; i < 1000; i++) {
+            assertEquals(stream.GetBitPosition(i) == 1, streamBits.nextBoolean());
+        }
+        assertEquals(1000, generator.getPosition());
+        generator.setSeed(0L);
+        assertEquals(stream.ExtractBits(0, 32), generator.nextInt() & 0xffffffffL);
+    }
+
+
+    @org.junit.Test
+    public void consecutiveReadersOfAStreamGeneratorReadConsecutiveBits() {
+        LongArrayCryptoRandomStream stream = BufferedBits.toStream(new MersenneTwister(3L), 1000);
+        StreamRandomGenerator generator = new StreamRandomGenerator(stream);
+        NIST ones = new NIST() {
+            @Override
+            public double pValue(RandomGenerator e, int n) {
+                return ones(e, n);
+            }
+        };
+        assertEquals(Long.bitCount(stream.ExtractBits(0, 64)) + Long.bitCount(stream.ExtractBits(64, 36)),
+                (int) ones.pValue(generator, 100));
+        assertEquals(100, generator.getPosition());
+        assertEquals(stream.ExtractBits(100, 7), new BufferedBits(generator).nextBits(7));
+        assertEquals(Long.bitCount(stream.ExtractBits(107, 50)), (int) ones.pValue(generator, 50));
+        assertEquals(157, generator.getPosition());
+    }
+
+
+    @org.junit.Test
+    public void bitsAreDrawnSixtyFourAtATime() {
+        CountingGenerator generator = new CountingGenerator();
+        BufferedBits bits = new BufferedBits(generator);
+        assertTrue(bits.ones(64 * 1000) > 0);
+        assertEquals(1000, generator.calls);
+        for (int i = 0; i < 640; i++) {
+            bits.nextBoolean();
+        }
+        assertEquals(1010, generator.calls);
+    }
+
+
+    @org.junit.Test
+    public void nistTestsRunOnStreams() {
+        int n = 1000000;
+        RandomGenerator generator = new MersenneTwister(7L);
+        BaseCryptoRandomStream stream = BufferedBits.toStream(new MersenneTwister(7L), n);
+        LempelZivCompression lempelZiv = new LempelZivCompression();
+        assertEquals(lempelZiv.pValue(generator, n), lempelZiv.pValue(new StreamRandomGenerator(stream), n), 0.0);
+    }
+}
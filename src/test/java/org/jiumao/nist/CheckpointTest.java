@@ -0,0 +1,182 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Battery.Battery;
+import org.jiumao.nist.Battery.BatteryResults;
+import org.jiumao.nist.Battery.Checkpoint;
+import org.jiumao.nist.Battery.SequenceResults;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.ShardState;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    /**
+     * Checkpoint whose process is stopped after its first save
+     */
+    private static Checkpoint stoppedAfterFirstSave(File file, long chunkLength) {
+        return stoppedAfterSaves(file, chunkLength, 1);
+    }
+
+
+    /**
+     * Checkpoint whose process is stopped after a number of saves
+     */
+    private static Checkpoint stoppedAfterSaves(File file, long chunkLength, final int saves) {
+        return new Checkpoint(file, 0, chunkLength) {
+            private int done = 0;
+
+            @Override
+            public synchronized void Save(Serializable progress) throws IOException {
+                super.Save(progress);
+                if (++this.done == saves) {
+                    throw new IOException("stopped");
+                }
+            }
+        };
+    }
+
+
+    private static ByteCryptoRandomStream flipped(ByteCryptoRandomStream stream, int bytePosition) {
+        byte[] data = new byte[stream.GetUCLength()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = stream.GetUCPosition(i);
+        }
+        data[bytePosition] ^= 1;
+        return new ByteCryptoRandomStream(data, data.length * 8);
+    }
+
+
+    private static Battery blockTests() {
+        return new Battery().Add(RandomTests.Frequency).Add(RandomTests.BlockFrequency)
+                .Add(RandomTests.LongestRunOfOnes).Add(RandomTests.Rank).Add(RandomTests.LinearComplexity, 0.0, 100)
+                .Add(RandomTests.NonOverlappingTemplateMatchings);
+    }
+
+
+    @org.junit.Test
+    public void runResumesFromTheSavedState() throws IOException {
+        long unit = ShardState.UnitLength(128, 100);
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(1, (int) (2 * unit / 8) + 1000);
+        File file = new File(this.folder.getRoot(), "run.checkpoint");
+        Battery battery = blockTests();
+        BatteryResults expected = battery.Run(stream);
+
+        try {
+            battery.Run(stream, stoppedAfterFirstSave(file, unit));
+            fail();
+        }
+        catch (IOException e) {
+            assertEquals("stopped", e.getMessage());
+        }
+        assertTrue(file.isFile());
+        assertNotNull(new Checkpoint(file).Load());
+
+        BatteryResults resumed = battery.Run(stream, new Checkpoint(file, 0, unit));
+        assertFalse(file.exists());
+        assertEquals(expected.GetTests(), resumed.GetTests());
+        for (RandomTests test : expected.GetTests()) {
+            assertEquals(test.name(), expected.GetPValue(test), resumed.GetPValue(test), 1e-9);
+            assertEquals(test.name(), expected.IsRandom(test), resumed.IsRandom(test));
+        }
+    }
+
+
+    @org.junit.Test
+    public void sequencesResumeAfterTheSavedBatches() throws IOException {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(2, 20 * 1250);
+        File file = new File(this.folder.getRoot(), "sequences.checkpoint");
+        Battery battery = blockTests();
+        SequenceResults expected = battery.RunSequences(stream, 10000, 20);
+
+        try {
+            battery.RunSequences(stream, 10000, 20, stoppedAfterFirstSave(file, 50000));
+            fail();
+        }
+        catch (IOException e) {
+            assertEquals("stopped", e.getMessage());
+        }
+        SequenceResults resumed = battery.RunSequences(stream, 10000, 20, new Checkpoint(file, 0, 50000));
+        assertFalse(file.exists());
+        for (RandomTests test : expected.GetTests()) {
+            assertArrayEquals(test.name(), expected.GetPValues(test), resumed.GetPValues(test), 0.0);
+        }
+    }
+
+
+    @org.junit.Test(expected = IllegalStateException.class)
+    public void checkpointOfAnotherRunIsRejected() throws IOException {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(3, 20 * 1250);
+        File file = new File(this.folder.getRoot(), "other.checkpoint");
+        try {
+            blockTests().RunSequences(stream, 10000, 20, stoppedAfterFirstSave(file, 50000));
+        }
+        catch (IOException e) {
+            // the progress of the first run is saved
+        }
+        new Battery().Add(RandomTests.Frequency).RunSequences(stream, 10000, 20, new Checkpoint(file, 0, 50000));
+    }
+
+
+    @org.junit.Test(expected = IllegalStateException.class)
+    public void runOfAStreamDifferingAfterTheFirstChunkIsRejected() throws IOException {
+        long unit = ShardState.UnitLength(128, 100);
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(4, (int) (3 * unit / 8) + 1000);
+        File file = new File(this.folder.getRoot(), "changed.checkpoint");
+        Battery battery = new Battery().Add(RandomTests.Frequency).Add(RandomTests.Rank);
+        try {
+            battery.Run(stream, stoppedAfterSaves(file, unit, 2));
+            fail();
+        }
+        catch (IOException e) {
+            assertEquals("stopped", e.getMessage());
+        }
+        // same length and first chunk, the second chunk read has changed
+        battery.Run(flipped(stream, (int) (unit / 8) + 10), new Checkpoint(file, 0, unit));
+    }
+
+
+    @org.junit.Test(expected = IllegalStateException.class)
+    public void sequencesDifferingAfterTheFirstOneAreRejected() throws IOException {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(5, 20 * 1250);
+        File file = new File(this.folder.getRoot(), "sequences-changed.checkpoint");
+        Battery battery = blockTests();
+        try {
+            battery.RunSequences(stream, 10000, 20, stoppedAfterFirstSave(file, 50000));
+        }
+        catch (IOException e) {
+            assertEquals("stopped", e.getMessage());
+        }
+        // the third sequence, read before the save, has changed
+        battery.RunSequences(flipped(stream, 2 * 1250 + 7), 10000, 20, new Checkpoint(file, 0, 50000));
+    }
+
+
+    @org.junit.Test(expected = IllegalStateException.class)
+    public void runOfAStreamChangedAfterTheReadBitsIsRejectedWithWholeStreamTests() throws IOException {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(6, 20 * 1250);
+        File file = new File(this.folder.getRoot(), "whole.checkpoint");
+        Battery battery = new Battery().Add(RandomTests.OverlappingTemplateMatchings);
+        try {
+            battery.Run(stream, stoppedAfterFirstSave(file, 50000));
+            fail();
+        }
+        catch (IOException e) {
+            assertEquals("stopped", e.getMessage());
+        }
+        // the saved result of a test over the whole stream holds its hash
+        battery.Run(flipped(stream, 20 * 1250 - 1), new Checkpoint(file, 0, 50000));
+    }
+}
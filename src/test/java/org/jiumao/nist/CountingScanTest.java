@@ -0,0 +1,92 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.BlockFrequency;
+import org.jiumao.nist.random.CountingScan;
+import org.jiumao.nist.random.CumulativeSumForward;
+import org.jiumao.nist.random.CumulativeSumReverse;
+import org.jiumao.nist.random.Frequency;
+import org.jiumao.nist.random.LongestRunOfOnes;
+import org.jiumao.nist.random.Runs;
+
+
+public class CountingScanTest {
+
+    private static void assertSameResults(BaseCryptoRandomStream stream, int blockLength) {
+        CountingScan scan = new CountingScan(blockLength);
+        scan.Scan(stream);
+        String at = stream.GetBitLength() + " bits";
+
+        Frequency frequency = new Frequency(), scanFrequency = new Frequency();
+        assertEquals(frequency.isRandom(stream), scan.Evaluate(scanFrequency));
+        assertEquals(at, frequency.GetPValue(), scanFrequency.GetPValue(), 0.0);
+        assertEquals(at, frequency.GetLongSum(), scanFrequency.GetLongSum());
+        assertEquals(at, frequency.GetSumDiv_n(), scanFrequency.GetSumDiv_n(), 0.0);
+        assertEquals(at, frequency.GetError(), scanFrequency.GetError());
+
+        BlockFrequency blockFrequency = new BlockFrequency(), scanBlockFrequency = new BlockFrequency();
+        blockFrequency.SetBlockLength(blockLength);
+        scanBlockFrequency.SetBlockLength(blockLength);
+        assertEquals(blockFrequency.isRandom(stream), scanBlockFrequency.isRandom(scan));
+        assertEquals(at, blockFrequency.GetPValue(), scanBlockFrequency.GetPValue(), 0.0);
+        assertEquals(at, blockFrequency.GetChiSquared(), scanBlockFrequency.GetChiSquared(), 0.0);
+        assertEquals(at, blockFrequency.GetLongBlockNumber(), scanBlockFrequency.GetLongBlockNumber());
+        assertEquals(at, blockFrequency.GetBitsDiscarded(), scanBlockFrequency.GetBitsDiscarded());
+
+        Runs runs = new Runs(), scanRuns = new Runs();
+        assertEquals(runs.isRandom(stream), scanRuns.isRandom(scan));
+        assertEquals(at, runs.GetPValue(), scanRuns.GetPValue(), 0.0);
+        assertEquals(at, runs.GetPi(), scanRuns.GetPi(), 0.0);
+        assertEquals(at, runs.GetTotalNumberRuns(), scanRuns.GetTotalNumberRuns(), 0.0);
+        assertEquals(at, runs.GetArgument(), scanRuns.GetArgument(), 0.0);
+
+        CumulativeSumForward forward = new CumulativeSumForward(), scanForward = new CumulativeSumForward();
+        assertEquals(forward.isRandom(stream), scanForward.isRandom(scan));
+        assertEquals(at, forward.GetCuSum(), scanForward.GetCuSum(), 0.0);
+        assertEquals(at, forward.GetPValue(), scanForward.GetPValue(), 0.0);
+
+        CumulativeSumReverse reverse = new CumulativeSumReverse(), scanReverse = new CumulativeSumReverse();
+        assertEquals(reverse.isRandom(stream), scanReverse.isRandom(scan));
+        assertEquals(at, reverse.GetCuSum(), scanReverse.GetCuSum(), 0.0);
+        assertEquals(at, reverse.GetPValue(), scanReverse.GetPValue(), 0.0);
+
+        LongestRunOfOnes longestRun = new LongestRunOfOnes(), scanLongestRun = new LongestRunOfOnes();
+        assertEquals(longestRun.isRandom(stream), scanLongestRun.isRandom(scan));
+        assertEquals(at, longestRun.GetPValue(), scanLongestRun.GetPValue(), 0.0);
+        assertEquals(at, longestRun.GetChiSquared(), scanLongestRun.GetChiSquared(), 0.0);
+        assertEquals(at, longestRun.GetSubstringNumber(), scanLongestRun.GetSubstringNumber());
+        assertEquals(at, longestRun.GetSubstringLength(), scanLongestRun.GetSubstringLength());
+        assertArrayEquals(at, longestRun.GetAssignment(), scanLongestRun.GetAssignment());
+    }
+
+
+    @org.junit.Test
+    public void scanMatchesSeparateTests() {
+        int[] lengths = { 100, 131, 1000, 6271, 6272, 20003, 800001 };
+        for (int i = 0; i < lengths.length; i++) {
+            assertSameResults(RandomStreams.biased(i, lengths[i], 0), 128);
+            assertSameResults(RandomStreams.biased(i, lengths[i], 3), 100);
+        }
+    }
+
+
+    @org.junit.Test
+    public void scanMatchesSeparateTestsOnViews() {
+        ByteCryptoRandomStream stream = RandomStreams.biased(7, 40000, 1);
+        assertSameResults(stream.View(3, 30000), 128);
+        assertSameResults(stream.View(64, 10000), 50);
+    }
+
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void blockLengthMustMatchScan() {
+        CountingScan scan = new CountingScan(128);
+        scan.Scan(RandomStreams.biased(1, 1000, 0));
+        BlockFrequency blockFrequency = new BlockFrequency();
+        blockFrequency.SetBlockLength(100);
+        blockFrequency.isRandom(scan);
+    }
+}
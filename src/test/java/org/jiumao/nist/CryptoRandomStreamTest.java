@@ -0,0 +1,440 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.BitWordCursor;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.DirectBufferPool;
+import org.jiumao.nist.CryptoRandomStream.DirectCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.LongArrayCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.MappedFileCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.SegmentedCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.StringCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.ViewCryptoRandomStream;
+import org.jiumao.nist.random.BlockFrequency;
+import org.jiumao.nist.random.CumulativeSumForward;
+import org.jiumao.nist.random.CumulativeSumReverse;
+import org.jiumao.nist.random.Frequency;
+import org.jiumao.nist.random.Runs;
+import org.jiumao.nist.random.Universal;
+
+
+public class CryptoRandomStreamTest {
+
+    private static final long SEED = 20180322L;
+
+
+    private static double pValue(BaseRandom test, BaseCryptoRandomStream stream) {
+        test.isRandom(stream);
+        return test.GetPValue();
+    }
+
+
+    private static File writeTempFile(byte[] data) throws Exception {
+        File file = File.createTempFile("nist", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+        return file;
+    }
+
+
+    @org.junit.Test
+    public void mappedFileStream() throws Exception {
+        byte[] data = RandomStreams.bytes(SEED, 4096);
+        File file = writeTempFile(data);
+
+        MappedFileCryptoRandomStream mapped = new MappedFileCryptoRandomStream(file);
+        ByteCryptoRandomStream heap = new ByteCryptoRandomStream(data, data.length * 8);
+        assertEquals(heap.GetBitLength(), mapped.GetBitLength());
+        for (int i = 0; i < heap.GetBitLength(); i++) {
+            assertEquals(heap.GetBitPosition(i), mapped.GetBitPosition(i));
+        }
+
+        MappedFileCryptoRandomStream sub = new MappedFileCryptoRandomStream();
+        mapped.GetULSubRandomStream(sub, 10, 100);
+        assertEquals(3200, sub.GetBitLength());
+        assertEquals(40, sub.baseOffset);
+        for (int i = 0; i < sub.GetUCLength(); i++) {
+            assertEquals(data[40 + i], sub.GetUCPosition(i));
+        }
+        try {
+            // an owning heap stream would write to the read only slice when closed
+            mapped.GetUCSubRandomStream(new ByteCryptoRandomStream(16), 0);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+        }
+
+        Frequency frequency = new Frequency();
+        frequency.setAlpha(0.01);
+        assertEquals(frequency.isRandom(heap), frequency.isRandom(mapped));
+    }
+
+
+    @org.junit.Test
+    public void packedBinaryString() throws Exception {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(7L);
+        for (int i = 0; i < 20000; i++) {
+            text.append(random.nextBoolean() ? '1' : '0');
+            if (i % 100 == 99) {
+                text.append("\r\n");
+            }
+        }
+        String bits = text.toString().replaceAll("\\s", "");
+
+        StringCryptoRandomStream fromString = StringCryptoRandomStream.ofBinaryString(text.toString());
+        StringCryptoRandomStream fromReader = StringCryptoRandomStream.ofBinaryReader(new StringReader(text.toString()));
+        StringCryptoRandomStream fromStream = StringCryptoRandomStream
+                .ofBinaryStream(new ByteArrayInputStream(text.toString().getBytes("US-ASCII")));
+        assertEquals(bits.length(), fromString.GetBitLength());
+        assertEquals(bits.length(), fromReader.GetBitLength());
+        assertEquals(bits.length(), fromStream.GetBitLength());
+        assertEquals(2500, fromReader.GetUCLength());
+        for (int i = 0; i < bits.length(); i++) {
+            byte bit = (byte) (bits.charAt(i) - '0');
+            assertEquals(bit, fromString.GetBitPosition(i));
+            assertEquals(bit, fromReader.GetBitPosition(i));
+            assertEquals(bit, fromStream.GetBitPosition(i));
+        }
+    }
+
+
+    @org.junit.Test
+    public void longArrayStream() throws Exception {
+        byte[] data = RandomStreams.bytes(SEED, 1000);
+        int bitLength = data.length * 8 - 5;
+        ByteCryptoRandomStream bytes = new ByteCryptoRandomStream(data, bitLength);
+        LongArrayCryptoRandomStream words = new LongArrayCryptoRandomStream(data, bitLength);
+
+        assertEquals(bytes.GetBitLength(), words.GetBitLength());
+        assertEquals(125, words.GetWordLength());
+        for (int i = 0; i < bitLength; i++) {
+            assertEquals(bytes.GetBitPosition(i), words.GetBitPosition(i));
+        }
+        for (int i = 0; i < bytes.GetULLength(); i++) {
+            assertEquals(bytes.GetUCPosition(i), words.GetUCPosition(i));
+            assertEquals(bytes.GetUSPosition(i), words.GetUSPosition(i));
+            assertEquals(bytes.GetULPosition(i), words.GetULPosition(i));
+        }
+        for (int i = 0; i < bytes.GetULLength() / 2; i++) {
+            assertEquals(bytes.Get64Position(i), words.Get64Position(i));
+        }
+        for (int i = 0; i < bitLength; i += 13) {
+            long word = words.Get64BitPosition(i);
+            for (int j = 0; j < 64; j++) {
+                long bit = (i + j < bitLength) ? bytes.GetBitPosition(i + j) : 0;
+                assertEquals(bit, (word >>> j) & 1);
+            }
+        }
+        assertTrue(words.Equals(bytes));
+
+        LongArrayCryptoRandomStream sub = new LongArrayCryptoRandomStream();
+        words.GetUCSubRandomStream(sub, 3, 20);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(data[3 + i], sub.GetUCPosition(i));
+        }
+        sub.SetUSPosition(1, (short) 0x1234);
+        assertEquals((short) 0x1234, sub.GetUSPosition(1));
+        assertEquals(data[3], words.GetUCPosition(3));
+        assertEquals(data[4], words.GetUCPosition(4));
+        assertEquals(0x12, words.GetUCPosition(5));
+        assertEquals(0x34, words.GetUCPosition(6));
+        assertEquals(data[7], words.GetUCPosition(7));
+    }
+
+
+    @org.junit.Test
+    public void longIndexedStreams() throws Exception {
+        byte[] data = RandomStreams.bytes(SEED, 64 * 1024);
+        File file = writeTempFile(data);
+        ByteCryptoRandomStream bytes = new ByteCryptoRandomStream(data, data.length * 8);
+        LongArrayCryptoRandomStream words = new LongArrayCryptoRandomStream(data, (long) data.length * 8);
+        MappedFileCryptoRandomStream mapped = new MappedFileCryptoRandomStream(file);
+
+        assertEquals(bytes.GetBitLength(), bytes.GetLongBitLength());
+        assertEquals(bytes.GetLongBitLength(), words.GetLongBitLength());
+        assertEquals(bytes.GetLongBitLength(), mapped.GetLongBitLength());
+        for (long i = 0; i < bytes.GetLongBitLength(); i += 7) {
+            assertEquals(bytes.GetBitPosition(i), words.GetBitPosition(i));
+            assertEquals(bytes.GetBitPosition(i), mapped.GetBitPosition(i));
+        }
+
+        BaseRandom[] tests = { new Frequency(), new BlockFrequency(), new CumulativeSumForward(),
+                new CumulativeSumReverse(), new Runs(), new Universal() };
+        for (BaseRandom test : tests) {
+            double pValue = pValue(test, bytes);
+            assertEquals(pValue, pValue(test, words), 0.0);
+            assertEquals(pValue, pValue(test, mapped), 0.0);
+        }
+
+        LongArrayCryptoRandomStream sub = new LongArrayCryptoRandomStream();
+        words.GetUCSubRandomStream(sub, 100);
+        assertEquals(words.GetLongBitLength() - 800, sub.GetLongBitLength());
+        assertEquals(words.GetBitPosition(800L), sub.GetBitPosition(0L));
+    }
+
+
+    @org.junit.Test
+    public void bitAlignedViews() throws Exception {
+        byte[] data = RandomStreams.bytes(SEED, 2048);
+        ByteCryptoRandomStream bytes = new ByteCryptoRandomStream(data, data.length * 8);
+        LongArrayCryptoRandomStream words = new LongArrayCryptoRandomStream(data, (long) data.length * 8);
+
+        for (int offset : new int[] { 0, 3, 8, 61, 1000 }) {
+            int length = 4000 + offset;
+            BaseCryptoRandomStream view = bytes.View(offset, length);
+            BaseCryptoRandomStream wordView = words.View(offset, length);
+            LongArrayCryptoRandomStream copy = new LongArrayCryptoRandomStream(length);
+            for (int i = 0; i < length; i++) {
+                copy.SetBitPosition(i, bytes.GetBitPosition(offset + i));
+            }
+            assertEquals(length, view.GetLongBitLength());
+            for (int i = 0; i < view.GetUCLength(); i++) {
+                assertEquals(copy.GetUCPosition(i), view.GetUCPosition(i));
+                assertEquals(copy.GetUCPosition(i), wordView.GetUCPosition(i));
+            }
+            for (int i = 0; i < view.GetULLength(); i++) {
+                assertEquals(copy.GetUSPosition(i), view.GetUSPosition(i));
+                assertEquals(copy.GetULPosition(i), view.GetULPosition(i));
+            }
+            assertEquals(copy.Get64Position(3), view.Get64Position(3));
+            assertTrue(view.Equals(copy));
+
+            BaseCryptoRandomStream nested = view.View(5, 100);
+            assertSame(bytes, ((ViewCryptoRandomStream) nested).parent);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(bytes.GetBitPosition(offset + 5 + i), nested.GetBitPosition(i));
+            }
+        }
+
+        Frequency frequency = new Frequency();
+        BaseCryptoRandomStream view = bytes.View(7, 10000);
+        ByteCryptoRandomStream copy = new ByteCryptoRandomStream(10000);
+        view.Copy(copy);
+        assertEquals(pValue(frequency, copy), pValue(frequency, view), 0.0);
+    }
+
+
+    @org.junit.Test
+    public void bulkBitPrimitives() throws Exception {
+        byte[] data = RandomStreams.bytes(SEED, 1500);
+        int bitLength = data.length * 8 - 3;
+        File file = writeTempFile(data);
+        BaseCryptoRandomStream[] streams = { new ByteCryptoRandomStream(data, bitLength),
+                new LongArrayCryptoRandomStream(data, bitLength), new MappedFileCryptoRandomStream(file),
+                new ByteCryptoRandomStream(data, data.length * 8).View(0, bitLength),
+                new LongArrayCryptoRandomStream(data, data.length * 8).View(0, bitLength) };
+        BaseCryptoRandomStream reference = streams[0];
+        Random random = new Random(11L);
+
+        for (BaseCryptoRandomStream stream : streams) {
+            for (int n = 0; n < 200; n++) {
+                int from = random.nextInt(bitLength - 64);
+                int count = 1 + random.nextInt(64);
+                long expected = 0;
+                for (int j = 0; j < count; j++) {
+                    expected |= ((long) reference.GetBitPosition(from + j)) << j;
+                }
+                assertEquals(expected, stream.ExtractBits(from, count));
+
+                int to = from + random.nextInt(bitLength - from);
+                long ones = 0, transitions = 0;
+                for (int j = from; j < to; j++) {
+                    ones += reference.GetBitPosition(j);
+                    if (j > from && reference.GetBitPosition(j) != reference.GetBitPosition(j - 1)) {
+                        transitions++;
+                    }
+                }
+                assertEquals(ones, stream.PopCount(from, to));
+                assertEquals(transitions, stream.CountTransitions(from, to));
+            }
+
+            BitWordCursor cursor = stream.GetWordCursor(5, bitLength);
+            for (long position = 5; position < bitLength; position += 64) {
+                assertTrue(cursor.HasNext());
+                long word = cursor.NextWord();
+                for (int j = 0; j < 64; j++) {
+                    long bit = (position + j < bitLength) ? reference.GetBitPosition(position + j) : 0;
+                    assertEquals(bit, (word >>> j) & 1);
+                }
+            }
+            assertFalse(cursor.HasNext());
+        }
+    }
+
+
+    @org.junit.Test
+    public void hexAndBase64Decoding() throws Exception {
+        for (int length : new int[] { 0, 1, 2, 3, 1000, 700001 }) {
+            byte[] data = RandomStreams.bytes(SEED, length);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : data) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            String base64 = java.util.Base64.getEncoder().encodeToString(data);
+            ByteBuffer direct = ByteBuffer.allocateDirect(base64.length());
+            direct.put(base64.getBytes("US-ASCII")).flip();
+
+            StringCryptoRandomStream[] streams = { StringCryptoRandomStream.ofHexString(hex),
+                    StringCryptoRandomStream.ofHexString(hex.toString().toUpperCase()),
+                    StringCryptoRandomStream.ofHexBytes(hex.toString().getBytes("US-ASCII")),
+                    StringCryptoRandomStream.ofHexBuffer(ByteBuffer.wrap(hex.toString().getBytes("US-ASCII"))),
+                    StringCryptoRandomStream.ofBase64String(base64),
+                    StringCryptoRandomStream.ofBase64Bytes(base64.getBytes("US-ASCII")),
+                    StringCryptoRandomStream.ofBase64Buffer(direct) };
+            for (StringCryptoRandomStream stream : streams) {
+                assertEquals(length * 8, stream.GetBitLength());
+                for (int i = 0; i < length; i++) {
+                    assertEquals(data[i], stream.GetUCPosition(i));
+                }
+            }
+            assertEquals(0, direct.position());
+        }
+    }
+
+
+    @org.junit.Test
+    public void hexAndBase64RejectInvalidText() throws Exception {
+        StringBuilder longHex = new StringBuilder();
+        for (int i = 0; i < 1 << 20; i++) {
+            longHex.append("a5");
+        }
+        longHex.setCharAt(longHex.length() - 7, 'g');
+        String[] hex = { "0", "0g", "zz", "\u00e900", longHex.toString() };
+        String[] base64 = { "QUJD=", "QU=D", "Q===", "QUJ*", "QU\nJD" };
+        for (String text : hex) {
+            try {
+                StringCryptoRandomStream.ofHexString(text);
+                fail(text);
+            }
+            catch (DataFormatException e) {
+            }
+        }
+        for (String text : base64) {
+            try {
+                StringCryptoRandomStream.ofBase64String(text);
+                fail(text);
+            }
+            catch (DataFormatException e) {
+            }
+        }
+        assertEquals(2 * 8, StringCryptoRandomStream.ofBase64String("QUI=").GetBitLength());
+        assertEquals(1 * 8, StringCryptoRandomStream.ofBase64String("QQ==").GetBitLength());
+        assertEquals('A', StringCryptoRandomStream.ofBase64String("QQ==").GetUCPosition(0));
+    }
+
+
+    @org.junit.Test
+    public void directStreamIsZeroedAndPooledOnClose() {
+        byte[] data = RandomStreams.bytes(SEED, 1000);
+        ByteCryptoRandomStream heap = new ByteCryptoRandomStream(data, 7996);
+        DirectBufferPool pool = new DirectBufferPool(2);
+        ByteBuffer buffer;
+
+        try (DirectCryptoRandomStream direct = new DirectCryptoRandomStream(7996, pool)) {
+            for (int i = 0; i < data.length; i++) {
+                direct.SetUCPosition(i, data[i]);
+            }
+            assertTrue(direct.cryptoBuffer.isDirect());
+            assertEquals(heap.GetBitLength(), direct.GetBitLength());
+            for (int i = 0; i < heap.GetBitLength(); i++) {
+                assertEquals(heap.GetBitPosition(i), direct.GetBitPosition(i));
+            }
+            assertEquals(pValue(new Frequency(), heap), pValue(new Frequency(), direct), 0.0);
+            assertEquals(pValue(new Runs(), heap), pValue(new Runs(), direct), 0.0);
+
+            DirectCryptoRandomStream sub = new DirectCryptoRandomStream(pool);
+            direct.GetULSubRandomStream(sub, 10, 100);
+            assertEquals(3200, sub.GetBitLength());
+            assertEquals(40, sub.baseOffset);
+            assertEquals(data[40], sub.GetUCPosition(0));
+            sub.close();
+            assertEquals(data[40], direct.GetUCPosition(40));
+            assertEquals(0, pool.GetPooledBuffers(1000));
+            buffer = direct.directBuffer;
+        }
+        assertEquals(1, pool.GetPooledBuffers(1000));
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertEquals(0, buffer.get(i));
+        }
+
+        DirectCryptoRandomStream reused = new DirectCryptoRandomStream(8000, pool);
+        assertSame(buffer, reused.directBuffer);
+        assertEquals(0, pool.GetPooledBuffers(1000));
+        reused.close();
+        reused.close();
+        assertTrue(reused.IsClosed());
+        assertEquals(1, pool.GetPooledBuffers(1000));
+    }
+
+
+    @org.junit.Test
+    public void segmentedStreamReadsAcrossSegments() {
+        byte[] data = RandomStreams.bytes(SEED, 5000);
+        ByteCryptoRandomStream heap = new ByteCryptoRandomStream(data, data.length * 8);
+        SegmentedCryptoRandomStream segmented = new SegmentedCryptoRandomStream();
+        Random random = new Random(11L);
+        int appended = 0;
+        while (appended < data.length) {
+            int length = Math.min(data.length - appended, 1 + random.nextInt(40));
+            segmented.Append(data, appended, length);
+            appended += length;
+        }
+        segmented.Append(ByteBuffer.allocate(0));
+        assertTrue(segmented.GetSegmentCount() > 100);
+        assertEquals(heap.GetBitLength(), segmented.GetBitLength());
+        for (int i = 0; i < heap.GetBitLength(); i++) {
+            assertEquals(heap.GetBitPosition(i), segmented.GetBitPosition(i));
+        }
+        for (int i = 0; i < 2000; i++) {
+            int count = 1 + random.nextInt(64);
+            long position = random.nextInt(heap.GetBitLength() - count);
+            assertEquals(heap.ExtractBits(position, count), segmented.ExtractBits(position, count));
+        }
+        for (int i = 0; i < heap.GetULLength(); i++) {
+            assertEquals(heap.GetULPosition(i), segmented.GetULPosition(i));
+        }
+        assertTrue(segmented.Equals(heap));
+        assertEquals(pValue(new Frequency(), heap), pValue(new Frequency(), segmented), 0.0);
+        assertEquals(pValue(new Runs(), heap), pValue(new Runs(), segmented), 0.0);
+        assertEquals(pValue(new CumulativeSumForward(), heap), pValue(new CumulativeSumForward(), segmented), 0.0);
+
+        SegmentedCryptoRandomStream sub = new SegmentedCryptoRandomStream();
+        segmented.GetULSubRandomStream(sub, 10, 1000);
+        assertEquals(32000, sub.GetBitLength());
+        for (int i = 0; i < sub.GetUCLength(); i++) {
+            assertEquals(data[40 + i], sub.GetUCPosition(i));
+        }
+
+        segmented.SetULPosition(3, 0x01020304);
+        segmented.SetBitPosition(7L, (byte) 1);
+        assertEquals(0x01020304, segmented.GetULPosition(3));
+        assertEquals(0x04, data[15]);
+        assertEquals(1, segmented.GetBitPosition(7));
+    }
+
+
+    @org.junit.Test(expected = UnsupportedOperationException.class)
+    public void viewsAreReadOnly() {
+        new ByteCryptoRandomStream(RandomStreams.bytes(SEED, 16), 128).View(1, 64).SetBitPosition(0, (byte) 1);
+    }
+
+
+    @org.junit.Test(expected = DataFormatException.class)
+    public void packedBinaryStringRejectsInvalidCharacters() throws Exception {
+        StringCryptoRandomStream.ofBinaryReader(new StringReader("0101 1102"));
+    }
+}
@@ -0,0 +1,158 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jiumao.nist.Base.MathematicalFunctions;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+import org.jiumao.nist.Battery.PValueAggregator;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.Serial;
+
+
+public class PValueAggregatorTest {
+
+    @org.junit.Test
+    public void binsAndProportion() {
+        PValueAggregator aggregator = new PValueAggregator();
+        double[] pValues = { 0.0, 0.005, 0.01, 0.1, 0.35, 0.99, 1.0, Double.NaN, 1.5 };
+        for (double pValue : pValues) {
+            aggregator.Add(RandomTests.Runs, pValue);
+        }
+        assertArrayEquals(new long[] { 3, 1, 0, 1, 0, 0, 0, 0, 0, 2 }, aggregator.GetBins(RandomTests.Runs));
+        assertEquals(7, aggregator.GetCount(RandomTests.Runs));
+        assertEquals(5, aggregator.GetPassed(RandomTests.Runs));
+        assertEquals(2, aggregator.GetDiscarded(RandomTests.Runs));
+        assertEquals(5.0 / 7.0, aggregator.GetProportion(RandomTests.Runs), 0.0);
+        assertEquals(0, aggregator.GetCount(RandomTests.Frequency));
+        assertFalse(aggregator.IsProportionAcceptable(RandomTests.Frequency));
+    }
+
+
+    @org.junit.Test
+    public void uniformityAsChiSquareOverBins() {
+        PValueAggregator aggregator = new PValueAggregator();
+        Random random = new Random(15);
+        long[] bins = new long[PValueAggregator.BINS];
+        for (int i = 0; i < 1000; i++) {
+            double pValue = random.nextDouble();
+            bins[(int) (pValue * 10)]++;
+            aggregator.Add(RandomTests.Frequency, pValue);
+        }
+        double chiSquared = 0.0;
+        for (long bin : bins) {
+            chiSquared += (bin - 100.0) * (bin - 100.0) / 100.0;
+        }
+        double expected = new MathematicalFunctions().IGammaC(4.5, chiSquared / 2.0);
+        assertEquals(expected, aggregator.GetUniformityPValue(RandomTests.Frequency), 0.0);
+        assertTrue(aggregator.GetUniformityPValue(RandomTests.Frequency) > 0.0001);
+        assertTrue(aggregator.IsProportionAcceptable(RandomTests.Frequency));
+
+        PValueAggregator skewed = new PValueAggregator();
+        for (int i = 0; i < 1000; i++) {
+            skewed.Add(RandomTests.Frequency, 0.5 + random.nextDouble() / 2);
+        }
+        assertTrue(skewed.GetUniformityPValue(RandomTests.Frequency) < 0.0001);
+    }
+
+
+    @org.junit.Test
+    public void concurrentAddsMergeToSequentialCounts() throws Exception {
+        final PValueAggregator shared = new PValueAggregator();
+        final PValueAggregator[] perThread = new PValueAggregator[4];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            perThread[t] = new PValueAggregator();
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50000; i++) {
+                    double pValue = random.nextDouble();
+                    shared.Add(RandomTests.Serial, pValue);
+                    perThread[seed].Add(RandomTests.Serial, pValue);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        PValueAggregator merged = new PValueAggregator();
+        for (PValueAggregator aggregator : perThread) {
+            merged.Merge(aggregator);
+        }
+        assertEquals(200000, shared.GetCount(RandomTests.Serial));
+        assertArrayEquals(shared.GetBins(RandomTests.Serial), merged.GetBins(RandomTests.Serial));
+        assertEquals(shared.GetPassed(RandomTests.Serial), merged.GetPassed(RandomTests.Serial));
+    }
+
+
+    @org.junit.Test
+    public void pValuesOfASequenceAreCountedByIndex() {
+        PValueAggregator aggregator = new PValueAggregator();
+        Random random = new Random(16);
+        for (int sequence = 0; sequence < 20; sequence++) {
+            byte[] data = new byte[1250];
+            random.nextBytes(data);
+            Serial serial = new Serial();
+            serial.SetBlockLength(5);
+            TestResult result = serial.evaluate(new ByteCryptoRandomStream(data, 10000));
+            aggregator.Add(result);
+            assertEquals(2, result.GetPValues().length);
+        }
+        assertEquals(2, aggregator.GetPValueNumber(RandomTests.Serial));
+        assertEquals(20, aggregator.GetCount(RandomTests.Serial, 0));
+        assertEquals(20, aggregator.GetCount(RandomTests.Serial, 1));
+        assertEquals(aggregator.GetCount(RandomTests.Serial), aggregator.GetCount(RandomTests.Serial, 0));
+        assertEquals(0, aggregator.GetCount(RandomTests.Serial, 2));
+    }
+
+
+    @org.junit.Test
+    public void serializedCountsMergeAcrossRuns() throws Exception {
+        PValueAggregator first = new PValueAggregator(0.05), second = new PValueAggregator(0.05);
+        Random random = new Random(17);
+        for (int i = 0; i < 1000; i++) {
+            first.Add(RandomTests.RandomExcursions, i % 8, random.nextDouble());
+            second.Add(RandomTests.RandomExcursions, i % 8, random.nextDouble());
+        }
+        first.Add(RandomTests.Frequency, -1.0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(first);
+        output.close();
+        PValueAggregator saved = (PValueAggregator) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(0.05, saved.GetAlpha(), 0.0);
+        assertEquals(8, saved.GetPValueNumber(RandomTests.RandomExcursions));
+        for (int index = 0; index < 8; index++) {
+            assertArrayEquals(first.GetBins(RandomTests.RandomExcursions, index),
+                    saved.GetBins(RandomTests.RandomExcursions, index));
+            assertEquals(first.GetPassed(RandomTests.RandomExcursions, index),
+                    saved.GetPassed(RandomTests.RandomExcursions, index));
+        }
+        assertEquals(1, saved.GetDiscarded(RandomTests.Frequency));
+
+        saved.Merge(second);
+        for (int index = 0; index < 8; index++) {
+            assertEquals(250, saved.GetCount(RandomTests.RandomExcursions, index));
+        }
+    }
+
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void onlySameAlphaMerges() {
+        new PValueAggregator().Merge(new PValueAggregator(0.05));
+    }
+}
@@ -0,0 +1,64 @@
+package org.jiumao.nist;
+
+import java.util.Random;
+
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+
+
+/**
+ * Seeded random streams shared by the tests, the same seed always gives the same
+ * bits.
+ */
+final class RandomStreams {
+
+    private RandomStreams() {
+    }
+
+
+    static byte[] bytes(long seed, int length) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+
+    static ByteCryptoRandomStream ofBytes(long seed, int bytes) {
+        return new ByteCryptoRandomStream(bytes(seed, bytes), bytes * 8);
+    }
+
+
+    static ByteCryptoRandomStream ofBits(long seed, long bits) {
+        return new ByteCryptoRandomStream(bytes(seed, (int) ((bits + 7) / 8)), (int) bits);
+    }
+
+
+    /**
+     * Random bits ORed bias times with more random bytes, giving long runs of ones
+     * and drifting sums
+     */
+    static ByteCryptoRandomStream biased(long seed, int bits, int bias) {
+        byte[] data = new byte[(bits + 7) / 8];
+        Random random = new Random(seed);
+        random.nextBytes(data);
+        for (int b = 0; b < bias; b++) {
+            for (int i = 0; i < data.length; i++) {
+                data[i] |= (byte) random.nextInt(256);
+            }
+        }
+        return new ByteCryptoRandomStream(data, bits);
+    }
+
+
+    /**
+     * Random bits whose second half drifts towards ones
+     */
+    static ByteCryptoRandomStream drifting(long seed, int bits) {
+        byte[] data = new byte[(bits + 7) / 8];
+        Random random = new Random(seed);
+        random.nextBytes(data);
+        for (int i = data.length / 2; i < data.length; i++) {
+            data[i] |= (byte) (random.nextInt(256) & random.nextInt(256));
+        }
+        return new ByteCryptoRandomStream(data, bits);
+    }
+}
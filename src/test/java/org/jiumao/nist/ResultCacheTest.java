@@ -0,0 +1,118 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+import org.jiumao.nist.Battery.Battery;
+import org.jiumao.nist.Battery.BatteryResults;
+import org.jiumao.nist.Battery.ResultCache;
+import org.jiumao.nist.Battery.SequenceResults;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.BlockFrequency;
+import org.jiumao.nist.random.Frequency;
+
+
+public class ResultCacheTest {
+
+    @org.junit.Test
+    public void keysAreContentAndParameters() {
+        ResultCache cache = new ResultCache(100, 1 << 20);
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(1, 2000);
+        TestResult first = cache.Evaluate(new Frequency(), stream);
+        assertSame(first, cache.Evaluate(new Frequency(), stream));
+        assertEquals(1, cache.GetHits());
+        assertEquals(1, cache.GetMisses());
+
+        // same bits at another position of another stream
+        byte[] shifted = new byte[2001];
+        for (int i = 0; i < 2000 * 8; i++) {
+            if (stream.GetBitPosition(i) == 1) {
+                shifted[(i + 3) / 8] |= (byte) (1 << ((i + 3) % 8));
+            }
+        }
+        assertSame(first, cache.Evaluate(new Frequency(), new ByteCryptoRandomStream(shifted, 2001 * 8).View(3,
+                2000 * 8)));
+        assertNotSame(first, cache.Evaluate(new Frequency(), stream.View(0, 2000 * 8 - 1)));
+
+        Frequency alpha = new Frequency();
+        alpha.setAlpha(0.05);
+        assertNotSame(first, cache.Evaluate(alpha, stream));
+        BlockFrequency blocks = new BlockFrequency(), otherBlocks = new BlockFrequency();
+        otherBlocks.SetBlockLength(64);
+        assertNotSame(cache.Evaluate(blocks, stream), cache.Evaluate(otherBlocks, stream));
+        assertEquals(2, cache.GetHits());
+        assertEquals(5, cache.GetMisses());
+        assertEquals(5, cache.GetSize());
+        assertEquals(2.0 / 7.0, cache.GetHitRatio(), 0.0);
+    }
+
+
+    @org.junit.Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        ResultCache cache = new ResultCache(2, 1 << 20);
+        ByteCryptoRandomStream a = RandomStreams.ofBytes(1, 500), b = RandomStreams.ofBytes(2, 500), c = RandomStreams.ofBytes(3, 500);
+        cache.Evaluate(new Frequency(), a);
+        cache.Evaluate(new Frequency(), b);
+        cache.Evaluate(new Frequency(), a);
+        cache.Evaluate(new Frequency(), c);
+        assertEquals(2, cache.GetSize());
+        assertEquals(1, cache.GetEvictions());
+        assertNotNull(cache.Get(new Frequency(), ResultCache.Hash(a)));
+        assertNull(cache.Get(new Frequency(), ResultCache.Hash(b)));
+
+        long entryBytes = cache.GetBytes() / 2;
+        ResultCache small = new ResultCache(100, entryBytes * 3 / 2);
+        small.Evaluate(new Frequency(), a);
+        small.Evaluate(new Frequency(), b);
+        assertEquals(1, small.GetSize());
+        assertTrue(small.GetBytes() <= small.GetMaxBytes());
+        assertNull(small.Get(new Frequency(), ResultCache.Hash(a)));
+    }
+
+
+    @org.junit.Test
+    public void batteryRunsLookTestsUpFirst() {
+        byte[] data = RandomStreams.bytes(4, 1000);
+        ByteCryptoRandomStream stream = new ByteCryptoRandomStream(data, 8000);
+        ResultCache cache = new ResultCache(100, 1 << 20);
+        Battery battery = new Battery().Add(RandomTests.Frequency).Add(RandomTests.Runs)
+                .Add(RandomTests.DiscreteFourierTransform).SetFusedScan(true);
+        BatteryResults uncached = battery.Run(stream);
+        battery.SetResultCache(cache);
+        battery.Run(stream);
+        BatteryResults cached = battery.Run(stream);
+        assertEquals(3, cache.GetMisses());
+        assertEquals(3, cache.GetHits());
+        for (RandomTests test : uncached.GetTests()) {
+            assertEquals(uncached.GetPValue(test), cached.GetPValue(test), 0.0);
+            assertEquals(uncached.IsRandom(test), cached.IsRandom(test));
+        }
+        assertEquals(3, battery.RunScheduled(stream, 0, false).GetTests().size());
+        assertEquals(3, cache.GetMisses());
+        assertEquals(6, cache.GetHits());
+
+        // a scheduled run counts one miss per test it runs
+        cache.Clear();
+        battery.RunScheduled(stream, Long.MAX_VALUE, false);
+        assertEquals(6, cache.GetMisses());
+        assertEquals(6, cache.GetHits());
+        battery.RunScheduled(stream, 0, false);
+        assertEquals(6, cache.GetMisses());
+        assertEquals(9, cache.GetHits());
+
+        // ten copies of the stream are found in the cache
+        byte[] copies = new byte[10 * 1000];
+        for (int i = 0; i < 10; i++) {
+            System.arraycopy(data, 0, copies, i * 1000, 1000);
+        }
+        SequenceResults sequences = battery.RunSequences(new ByteCryptoRandomStream(copies, copies.length * 8), 8000,
+                10);
+        assertEquals(6, cache.GetMisses());
+        assertEquals(9 + 30, cache.GetHits());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(uncached.GetPValue(RandomTests.Runs), sequences.GetResult(RandomTests.Runs, i).GetPValue(),
+                    0.0);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.ApproximateEntropy;
+import org.jiumao.nist.random.BlockFrequency;
+import org.jiumao.nist.random.CumulativeSumForward;
+import org.jiumao.nist.random.CumulativeSumReverse;
+import org.jiumao.nist.random.Frequency;
+import org.jiumao.nist.random.LinearComplexity;
+import org.jiumao.nist.random.LongestRunOfOnes;
+import org.jiumao.nist.random.Rank;
+import org.jiumao.nist.random.Runs;
+import org.jiumao.nist.random.Serial;
+import org.jiumao.nist.random.ShardState;
+
+
+public class ShardStateTest {
+
+    private static List<ShardState> shards(BaseCryptoRandomStream stream, long[] cuts, int complexityLength,
+            int windowLength) {
+        List<ShardState> states = new ArrayList<ShardState>();
+        for (int i = 0; i + 1 < cuts.length; i++) {
+            states.add(ShardState.Of(stream.View(cuts[i], cuts[i + 1] - cuts[i]), cuts[i], ShardState.DEFAULTBLOCK,
+                    complexityLength, windowLength));
+        }
+        return states;
+    }
+
+
+    private static ShardState roundTrip(ShardState state) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(state);
+        out.close();
+        return (ShardState) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+
+
+    private static void assertSameResult(String at, BaseRandom expected, BaseCryptoRandomStream stream, BaseRandom test,
+            ShardState state, double delta) {
+        assertEquals(at, expected.isRandom(stream), state.Evaluate(test));
+        assertArrayEquals(at, expected.GetPValues(), test.GetPValues(), delta);
+        assertEquals(at, expected.GetError(), test.GetError());
+    }
+
+
+    private static void assertSameResults(BaseCryptoRandomStream stream, ShardState state, int serialBlock,
+            int entropyBlock) {
+        int complexityLength = state.GetComplexityLength();
+        String at = stream.GetBitLength() + " bits";
+
+        assertEquals(0, state.GetOffset());
+        assertEquals(stream.GetLongBitLength(), state.GetLength());
+        assertSameResult(at, new Frequency(), stream, new Frequency(), state, 0.0);
+        assertSameResult(at, new BlockFrequency(), stream, new BlockFrequency(), state, 0.0);
+        assertSameResult(at, new Runs(), stream, new Runs(), state, 0.0);
+        assertSameResult(at, new CumulativeSumForward(), stream, new CumulativeSumForward(), state, 0.0);
+        assertSameResult(at, new CumulativeSumReverse(), stream, new CumulativeSumReverse(), state, 0.0);
+        assertSameResult(at, new LongestRunOfOnes(), stream, new LongestRunOfOnes(), state, 0.0);
+        assertSameResult(at, new Rank(), stream, new Rank(), state, 0.0);
+        assertSameResult(at, new LinearComplexity(complexityLength), stream, new LinearComplexity(complexityLength),
+                state, 0.0);
+        Serial serial = new Serial(), stateSerial = new Serial();
+        serial.SetBlockLength(serialBlock);
+        stateSerial.SetBlockLength(serialBlock);
+        assertSameResult(at, serial, stream, stateSerial, state, 0.0);
+        ApproximateEntropy entropy = new ApproximateEntropy(), stateEntropy = new ApproximateEntropy();
+        entropy.SetBlockLength(entropyBlock);
+        stateEntropy.SetBlockLength(entropyBlock);
+        assertSameResult(at, entropy, stream, stateEntropy, state, 0.0);
+    }
+
+
+    @org.junit.Test
+    public void mergedShardsMatchTheWholeSequence() throws Exception {
+        // short LinearComplexity blocks keep the test fast, the unit length is unchanged
+        ByteCryptoRandomStream stream = RandomStreams.ofBits(16, 5300003);
+        long unit = ShardState.Of(stream.View(0, 0), 0, ShardState.DEFAULTBLOCK, 100, 8).GetUnitLength();
+        long[] cuts = { 0, 12345, unit - 7, unit + 3, 2 * unit, 2 * unit + 1, 5300003 };
+        List<ShardState> states = shards(stream, cuts, 100, 8);
+
+        ShardState left = states.get(0);
+        for (int i = 1; i < states.size(); i++) {
+            left = roundTrip(left).Merge(states.get(i));
+        }
+        assertSameResults(stream, left, 8, 7);
+
+        ShardState right = states.get(states.size() - 1);
+        for (int i = states.size() - 2; i >= 0; i--) {
+            right = states.get(i).Merge(roundTrip(right));
+        }
+        ShardState tree = states.get(0).Merge(states.get(1)).Merge(states.get(2).Merge(states.get(3)))
+                .Merge(states.get(4).Merge(states.get(5)));
+        for (BaseRandom test : new BaseRandom[] { new Frequency(), new CumulativeSumReverse(), new Rank(),
+                new LinearComplexity(100) }) {
+            BaseRandom other = test.Copy(), whole = test.Copy();
+            left.Evaluate(whole);
+            right.Evaluate(test);
+            tree.Evaluate(other);
+            assertArrayEquals(whole.GetPValues(), test.GetPValues(), 0.0);
+            assertArrayEquals(whole.GetPValues(), other.GetPValues(), 0.0);
+        }
+    }
+
+
+    @org.junit.Test
+    public void sequencesEndingShortlyAfterAUnitBoundary() throws Exception {
+        long unit = ShardState.Of(RandomStreams.ofBits(0, 0), 0, ShardState.DEFAULTBLOCK, 100, 8).GetUnitLength();
+        for (int tail : new int[] { 1, 5, 30, 62, 63, 100 }) {
+            ByteCryptoRandomStream stream = RandomStreams.ofBits(tail, (int) unit + tail);
+            String at = unit + "+" + tail + " bits";
+            ShardState whole = ShardState.Of(stream, 0, ShardState.DEFAULTBLOCK, 100, 8);
+            ShardState merged = shards(stream, new long[] { 0, unit - 3, unit + tail }, 100, 8).get(0)
+                    .Merge(shards(stream, new long[] { unit - 3, unit + tail }, 100, 8).get(0));
+            for (ShardState state : new ShardState[] { whole, merged }) {
+                Serial serial = new Serial(), stateSerial = new Serial();
+                serial.SetBlockLength(8);
+                stateSerial.SetBlockLength(8);
+                assertSameResult(at, serial, stream, stateSerial, state, 0.0);
+                ApproximateEntropy entropy = new ApproximateEntropy(), stateEntropy = new ApproximateEntropy();
+                entropy.SetBlockLength(7);
+                stateEntropy.SetBlockLength(7);
+                assertSameResult(at, entropy, stream, stateEntropy, state, 0.0);
+                assertSameResult(at, new Runs(), stream, new Runs(), state, 0.0);
+            }
+        }
+    }
+
+
+    @org.junit.Test
+    public void shardsShorterThanAUnit() throws Exception {
+        for (int bits : new int[] { 1000, 20011, 150000 }) {
+            ByteCryptoRandomStream stream = RandomStreams.ofBits(bits, bits);
+            long[] cuts = { 0, 1, 17, bits / 3, bits / 2 + 5, bits };
+            ShardState state = null;
+            for (ShardState shard : shards(stream, cuts, ShardState.DEFAULTCOMPLEXITY, ShardState.DEFAULTWINDOW)) {
+                state = (state == null) ? shard : state.Merge(roundTrip(shard));
+            }
+            assertSameResults(stream, state, 16, 10);
+            assertSameResults(stream, ShardState.Of(stream, 0), 16, 10);
+        }
+    }
+
+
+    @org.junit.Test
+    public void shardsMustBeConsecutive() {
+        ByteCryptoRandomStream stream = RandomStreams.ofBits(3, 4000);
+        ShardState first = ShardState.Of(stream.View(0, 1000), 0);
+        ShardState third = ShardState.Of(stream.View(2000, 1000), 2000);
+        try {
+            first.Merge(third);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Shard states are not consecutive !", e.getMessage());
+        }
+        try {
+            third.Evaluate(new Frequency());
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("Shard state does not start the sequence !", e.getMessage());
+        }
+        try {
+            first.Merge(ShardState.Of(stream.View(1000, 1000), 1000, 64, 500, 16));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Shard states of different parameters !", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.ApproximateEntropy;
+import org.jiumao.nist.random.BlockFrequency;
+import org.jiumao.nist.random.BlockFrequencyMonitor;
+import org.jiumao.nist.random.CumulativeSumForward;
+import org.jiumao.nist.random.CumulativeSumMonitor;
+import org.jiumao.nist.random.Frequency;
+import org.jiumao.nist.random.FrequencyMonitor;
+import org.jiumao.nist.random.PatternMonitor;
+import org.jiumao.nist.random.Runs;
+import org.jiumao.nist.random.RunsMonitor;
+import org.jiumao.nist.random.Serial;
+import org.jiumao.nist.random.SlidingMonitor;
+
+
+public class SlidingMonitorTest {
+
+    /**
+     * Feeds the source by bits, words and streams, and compares the monitor with
+     * testing the window after every chunk
+     */
+    private static void assertMonitors(SlidingMonitor<?> monitor, BaseRandom windowTest, double delta) {
+        ByteCryptoRandomStream source = RandomStreams.drifting(monitor.GetWindowLength(), 4 * monitor.GetWindowLength() + 777);
+        Random chunks = new Random(7);
+        long added = 0, n = source.GetLongBitLength();
+        int step = 0;
+        while (added < n) {
+            int chunk = (int) Math.min(n - added, 1 + chunks.nextInt(monitor.GetWindowLength() / 3 + 64));
+            switch (step++ % 3) {
+            case 0:
+                for (int i = 0; i < chunk; i++) {
+                    monitor.Add(source.GetBitPosition((int) (added + i)));
+                }
+                break;
+            case 1:
+                chunk = Math.min(chunk, 64);
+                monitor.Add(source.ExtractBits(added, chunk), chunk);
+                break;
+            default:
+                monitor.Add(source.View(added, chunk));
+            }
+            added += chunk;
+            long start = Math.max(0, added - monitor.GetWindowLength());
+            BaseCryptoRandomStream window = source.View(start, added - start);
+            String at = monitor.getClass().getSimpleName() + " at " + added;
+            assertEquals(at, added - start, monitor.GetLength());
+            assertEquals(at, windowTest.isRandom(window), monitor.IsRandom());
+            assertArrayEquals(at, windowTest.GetPValues(), monitor.GetTest().GetPValues(), delta);
+            assertEquals(at, windowTest.GetError(), monitor.GetTest().GetError());
+        }
+        assertTrue(monitor.IsFull());
+        assertEquals(n, monitor.GetBitsAdded());
+    }
+
+
+    @org.junit.Test
+    public void countingMonitorsMatchTheWindow() {
+        for (int windowLength : new int[] { 100, 1001, 20000 }) {
+            assertMonitors(new FrequencyMonitor(windowLength), new Frequency(), 0.0);
+            assertMonitors(new RunsMonitor(windowLength), new Runs(), 0.0);
+            assertMonitors(new CumulativeSumMonitor(windowLength), new CumulativeSumForward(), 0.0);
+        }
+    }
+
+
+    @org.junit.Test
+    public void blockFrequencyMonitorMatchesTheWindow() {
+        for (int[] lengths : new int[][] { { 128, 128 }, { 1001, 100 }, { 20000, 128 } }) {
+            BlockFrequency windowTest = new BlockFrequency();
+            windowTest.SetBlockLength(lengths[1]);
+            assertMonitors(new BlockFrequencyMonitor(lengths[0], lengths[1]), windowTest, 0.0);
+        }
+    }
+
+
+    @org.junit.Test
+    public void patternMonitorsMatchTheWindow() {
+        for (int windowLength : new int[] { 300, 4099 }) {
+            Serial serial = new Serial(), windowSerial = new Serial();
+            serial.SetBlockLength(5);
+            windowSerial.SetBlockLength(5);
+            assertMonitors(PatternMonitor.Of(windowLength, serial), windowSerial, 0.0);
+
+            ApproximateEntropy entropy = new ApproximateEntropy(), windowEntropy = new ApproximateEntropy();
+            entropy.SetBlockLength(4);
+            windowEntropy.SetBlockLength(4);
+            assertMonitors(PatternMonitor.Of(windowLength, entropy), windowEntropy, 0.0);
+        }
+    }
+
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void windowHoldsABlock() {
+        new BlockFrequencyMonitor(100, 128);
+    }
+}
@@ -47,11 +47,9 @@ public class Test {
     @org.junit.Test
     public void randomTest() throws Exception {
         FileReader in = new FileReader("binary.txt");
-        BufferedReader br = new BufferedReader(in);
-        String binaryStream = br.readLine();
-        br.close();
-        
-        StringCryptoRandomStream scr = StringCryptoRandomStream.ofBinaryString(binaryStream);
+        StringCryptoRandomStream scr = StringCryptoRandomStream.ofBinaryReader(in);
+        in.close();
+
         boolean ApproximateEntropy = new ApproximateEntropy().isRandom(scr);
         System.out.println("ApproximateEntropy:"+ApproximateEntropy);
         boolean BlockFrequency = new BlockFrequency().isRandom(scr);
@@ -0,0 +1,88 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jiumao.nist.Base.BaseRandom;
+import org.jiumao.nist.Base.RandomTestErrors;
+import org.jiumao.nist.Base.RandomTests;
+import org.jiumao.nist.Base.TestResult;
+import org.jiumao.nist.Battery.Battery;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.Frequency;
+import org.jiumao.nist.random.LongestRunOfOnes;
+import org.jiumao.nist.random.Serial;
+
+
+public class TestResultTest {
+
+    @org.junit.Test
+    public void sharedTestEvaluatesConcurrently() throws Exception {
+        final List<ByteCryptoRandomStream> streams = new ArrayList<ByteCryptoRandomStream>();
+        for (int i = 0; i < 16; i++) {
+            streams.add(RandomStreams.ofBytes(i, 2000 + 100 * i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (RandomTests test : new RandomTests[] { RandomTests.Frequency, RandomTests.Rank,
+                    RandomTests.LongestRunOfOnes, RandomTests.Serial, RandomTests.Universal }) {
+                final BaseRandom shared = Battery.NewTest(test);
+                List<Future<TestResult>> results = new ArrayList<Future<TestResult>>();
+                for (final ByteCryptoRandomStream stream : streams) {
+                    results.add(executor.submit(new Callable<TestResult>() {
+                        public TestResult call() {
+                            return shared.evaluate(stream);
+                        }
+                    }));
+                }
+                for (int i = 0; i < streams.size(); i++) {
+                    BaseRandom alone = Battery.NewTest(test);
+                    boolean random = alone.isRandom(streams.get(i));
+                    TestResult result = results.get(i).get();
+                    assertEquals(test, result.GetType());
+                    assertArrayEquals(test.toString(), alone.GetPValues(), result.GetPValues(), 0.0);
+                    assertEquals(test.toString(), random, result.IsRandom());
+                    assertEquals(test.toString(), alone.GetError(), result.GetError());
+                }
+                assertEquals(0.0, shared.GetPValue(), 0.0);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+
+    @org.junit.Test
+    public void resultsCanNotBeModified() {
+        ByteCryptoRandomStream stream = RandomStreams.ofBytes(3, 4000);
+        LongestRunOfOnes longestRun = new LongestRunOfOnes();
+        TestResult result = longestRun.evaluate(stream);
+        longestRun.isRandom(stream);
+        assertArrayEquals(longestRun.GetAssignment(), result.GetDetails(LongestRunOfOnes.class).GetAssignment());
+        result.GetDetails(LongestRunOfOnes.class).GetAssignment()[0] = -1;
+        result.GetPValues()[0] = -1;
+        assertArrayEquals(longestRun.GetAssignment(), result.GetDetails(LongestRunOfOnes.class).GetAssignment());
+        assertEquals(longestRun.GetPValue(), result.GetPValue(), 0.0);
+
+        TestResult serial = new Serial().evaluate(stream);
+        assertEquals(2, serial.GetPValues().length);
+        assertEquals(serial.GetDetails(Serial.class).GetPValue2(), serial.GetPValues()[1], 0.0);
+
+        TestResult tooShort = new Frequency().evaluate(stream.View(0, 50));
+        assertEquals(RandomTestErrors.InsufficientNumberOfBits, tooShort.GetError());
+        assertFalse(tooShort.IsRandom());
+    }
+
+
+    @org.junit.Test(expected = ClassCastException.class)
+    public void detailsAreOfTheEvaluatedTest() {
+        new Frequency().evaluate(RandomStreams.ofBytes(1, 200)).GetDetails(Serial.class);
+    }
+}
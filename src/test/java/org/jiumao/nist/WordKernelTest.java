@@ -0,0 +1,192 @@
+package org.jiumao.nist;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.jiumao.nist.CryptoRandomStream.BaseCryptoRandomStream;
+import org.jiumao.nist.CryptoRandomStream.ByteCryptoRandomStream;
+import org.jiumao.nist.random.BlockFrequency;
+import org.jiumao.nist.random.CumulativeSumForward;
+import org.jiumao.nist.random.CumulativeSumReverse;
+import org.jiumao.nist.random.Frequency;
+import org.jiumao.nist.random.LongestRunOfOnes;
+import org.jiumao.nist.random.PartialSums;
+import org.jiumao.nist.random.RankIndex;
+import org.jiumao.nist.random.Runs;
+
+
+/**
+ * Word at a time test kernels compared with reading the stream bit by bit
+ */
+public class WordKernelTest {
+
+    /**
+     * Lengths around word boundaries and above the parallel thresholds
+     */
+    private static final long[] LENGTHS = { 100, 127, 128, 129, 1000, 64 * 1000 + 63, (1L << 24) + 37 };
+    /**
+     * Offsets of the views, word aligned or not
+     */
+    private static final int[] OFFSETS = { 0, 1, 13, 64 };
+
+
+    @org.junit.Test
+    public void frequencyCountsOnesByWords() {
+        for (long n : LENGTHS) {
+            ByteCryptoRandomStream source = RandomStreams.ofBits(n, n + 64);
+            for (int offset : OFFSETS) {
+                BaseCryptoRandomStream stream = source.View(offset, n);
+                long sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += 2 * stream.GetBitPosition(i) - 1;
+                }
+                Frequency frequency = new Frequency();
+                frequency.isRandom(stream);
+                assertEquals(n + "@" + offset, sum, frequency.GetLongSum());
+                assertEquals(n + "@" + offset, (double) sum / n, frequency.GetSumDiv_n(), 0.0);
+            }
+        }
+    }
+
+
+    @org.junit.Test
+    public void rankIndexCountsAnyRange() {
+        for (long n : LENGTHS) {
+            BaseCryptoRandomStream stream = RandomStreams.ofBits(n, n + 64).View(13, n);
+            RankIndex index = RankIndex.Of(stream);
+            long[] ranks = new long[(int) n + 1];
+            for (int i = 0; i < n; i++) {
+                ranks[i + 1] = ranks[i] + stream.GetBitPosition(i);
+            }
+            Random random = new Random(n);
+            for (int k = 0; k < 1000; k++) {
+                int from = random.nextInt((int) n + 1), to = from + random.nextInt((int) n + 1 - from);
+                assertEquals(n + ":" + from + "-" + to, ranks[to] - ranks[from], index.PopCount(from, to));
+            }
+            assertEquals(ranks[(int) n], index.Rank(n));
+        }
+    }
+
+
+    @org.junit.Test
+    public void blockFrequencyCountsBlocksByWords() {
+        for (long n : LENGTHS) {
+            ByteCryptoRandomStream source = RandomStreams.ofBits(n, n + 64);
+            for (int offset : OFFSETS) {
+                BaseCryptoRandomStream stream = source.View(offset, n);
+                RankIndex index = RankIndex.Of(stream);
+                for (int M : new int[] { 10, 64, 100, 128, 1000 }) {
+                    double sum = 0.0;
+                    for (long i = 0; i < n / M; i++) {
+                        int ones = 0;
+                        for (long j = i * M; j < (i + 1) * M; j++) {
+                            ones += stream.GetBitPosition(j);
+                        }
+                        double v = (double) ones / M - 0.5;
+                        sum += v * v;
+                    }
+                    BlockFrequency blocks = new BlockFrequency(), indexed = new BlockFrequency();
+                    blocks.SetBlockLength(M);
+                    indexed.SetBlockLength(M);
+                    blocks.isRandom(stream);
+                    indexed.isRandom(index);
+                    String at = n + "@" + offset + "/" + M;
+                    assertEquals(at, 4.0 * M * sum, blocks.GetChiSquared(), 1e-9 * Math.max(1.0, 4.0 * M * sum));
+                    assertEquals(at, n / M, blocks.GetLongBlockNumber());
+                    assertEquals(at, blocks.GetChiSquared(), indexed.GetChiSquared(), 0.0);
+                    assertEquals(at, blocks.GetPValue(), indexed.GetPValue(), 0.0);
+                }
+            }
+        }
+    }
+
+
+    @org.junit.Test
+    public void runsCountsTransitionsByWords() {
+        for (long n : LENGTHS) {
+            ByteCryptoRandomStream source = RandomStreams.ofBits(n, n + 64);
+            for (int offset : OFFSETS) {
+                BaseCryptoRandomStream stream = source.View(offset, n);
+                long ones = stream.GetBitPosition(0), runs = 1;
+                for (int i = 1; i < n; i++) {
+                    ones += stream.GetBitPosition(i);
+                    if (stream.GetBitPosition(i) != stream.GetBitPosition(i - 1)) {
+                        runs++;
+                    }
+                }
+                Runs test = new Runs();
+                test.isRandom(stream);
+                assertEquals(n + "@" + offset, (double) runs, test.GetTotalNumberRuns(), 0.0);
+                assertEquals(n + "@" + offset, (double) ones / n, test.GetPi(), 0.0);
+            }
+        }
+    }
+
+
+    @org.junit.Test
+    public void cumulativeSumsCombineChunkSummaries() {
+        for (long n : LENGTHS) {
+            ByteCryptoRandomStream source = RandomStreams.ofBits(n, n + 64);
+            for (int offset : OFFSETS) {
+                BaseCryptoRandomStream stream = source.View(offset, n);
+                double forward = 1, reverse = 1, sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += 2 * stream.GetBitPosition(i) - 1;
+                    forward = Math.max(forward, Math.abs(sum));
+                }
+                sum = 0;
+                for (long i = n - 1; i >= 0; i--) {
+                    sum += 2 * stream.GetBitPosition(i) - 1;
+                    reverse = Math.max(reverse, Math.abs(sum));
+                }
+                CumulativeSumForward forwardTest = new CumulativeSumForward();
+                CumulativeSumReverse reverseTest = new CumulativeSumReverse();
+                forwardTest.isRandom(stream);
+                reverseTest.isRandom(stream);
+                assertEquals(n + "@" + offset, forward, forwardTest.GetCuSum(), 0.0);
+                assertEquals(n + "@" + offset, reverse, reverseTest.GetCuSum(), 0.0);
+
+                // both directions from one summary made of uneven chunks
+                long split = n / 3 + 5;
+                PartialSums sums = PartialSums.Of(stream, 0, split).Combine(PartialSums.Of(stream, split, n));
+                forwardTest.isRandom(sums);
+                reverseTest.isRandom(sums);
+                assertEquals(n + "@" + offset, forward, forwardTest.GetCuSum(), 0.0);
+                assertEquals(n + "@" + offset, reverse, reverseTest.GetCuSum(), 0.0);
+            }
+        }
+    }
+
+
+    @org.junit.Test
+    public void longestRunCountsRunsByWords() {
+        for (long n : LENGTHS) {
+            ByteCryptoRandomStream source = RandomStreams.ofBits(n, n + 64);
+            for (int offset : OFFSETS) {
+                BaseCryptoRandomStream stream = source.View(offset, n);
+                LongestRunOfOnes test = new LongestRunOfOnes();
+                boolean random = test.isRandom(stream);
+                if (n < 128) {
+                    assertFalse(random);
+                    continue;
+                }
+                int M = test.GetSubstringLength();
+                int[] k = M == 8 ? new int[] { 1, 4 } : M == 128 ? new int[] { 4, 9 } : new int[] { 10, 16 };
+                int[] nu = new int[7];
+                for (long i = 0; i < n / M; i++) {
+                    int run = 0, longest = 0;
+                    for (long j = i * M; j < (i + 1) * M; j++) {
+                        run = stream.GetBitPosition(j) == 1 ? run + 1 : 0;
+                        longest = Math.max(longest, run);
+                    }
+                    nu[Math.min(Math.max(longest, k[0]), k[1]) - k[0]]++;
+                }
+                assertEquals(n + "@" + offset, n / M, test.GetSubstringNumber());
+                for (int i = 0; i < 7; i++) {
+                    assertEquals(n + "@" + offset + "#" + i, nu[i], test.GetAssignmentOfIndex(i));
+                }
+            }
+        }
+    }
+}